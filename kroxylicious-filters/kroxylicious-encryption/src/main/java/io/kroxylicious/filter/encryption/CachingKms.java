@@ -7,18 +7,31 @@
 package io.kroxylicious.filter.encryption;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.crypto.SecretKey;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
 
 import io.kroxylicious.kms.service.DekPair;
 import io.kroxylicious.kms.service.Kms;
 import io.kroxylicious.kms.service.Serde;
+import io.kroxylicious.kms.service.UnknownAliasException;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * Kms implementation that caches results from a delegate where appropriate.
@@ -26,46 +39,164 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  * changed (by rotation for example), a theoretically infrequent operation.
  * Decrypted DEKs can be cached more aggressively since it is a deterministic
  * mapping from eDEK to DEK on the decrypt path.
+ * Unknown aliases are cached for a short time, so that a misconfiguration which
+ * selects a missing KEK does not call the delegate on every request, and expired
+ * aliases can be served while they are resolved again in the background, so that
+ * callers do not wait for the delegate whenever an alias expires.
+ * Concurrent calls for the same EDEK or alias which miss the cache share a single
+ * call to the delegate; such calls are counted by the {@link KmsMetrics}.
  * @param <K> The type of Key Encryption Key id.
  * @param <E> The type of encrypted Data Encryption Key.
  */
 public class CachingKms<K, E> implements Kms<K, E> {
     private final Kms<K, E> delegate;
+    private final KmsMetrics metrics;
     private final AsyncLoadingCache<E, SecretKey> decryptDekCache;
-    private final AsyncLoadingCache<String, K> resolveAliasCache;
+    private final AsyncLoadingCache<String, AliasResolution<K>> resolveAliasCache;
 
     private CachingKms(@NonNull Kms<K, E> delegate,
                        long decryptDekCacheMaxSize,
                        @NonNull Duration decryptDekExpireAfterAccess,
                        long resolveAliasCacheMaxSize,
                        @NonNull Duration resolveAliasExpireAfterWrite,
-                       @NonNull Duration resolveAliasRefreshAfterWrite) {
+                       @NonNull Duration resolveAliasRefreshAfterWrite,
+                       @NonNull Duration resolveAliasServeStale,
+                       @NonNull Duration resolveAliasNotFoundExpireAfterWrite,
+                       @NonNull KmsMetrics metrics,
+                       @NonNull Ticker ticker,
+                       @NonNull Executor executor) {
         this.delegate = delegate;
-        decryptDekCache = buildDecryptedDekCache(delegate, decryptDekCacheMaxSize, decryptDekExpireAfterAccess);
-        resolveAliasCache = buildResolveAliasCache(delegate, resolveAliasCacheMaxSize, resolveAliasExpireAfterWrite, resolveAliasRefreshAfterWrite);
+        this.metrics = metrics;
+        decryptDekCache = buildDecryptedDekCache(delegate, decryptDekCacheMaxSize, decryptDekExpireAfterAccess, metrics, ticker, executor);
+        resolveAliasCache = buildResolveAliasCache(delegate, resolveAliasCacheMaxSize, resolveAliasExpireAfterWrite.plus(resolveAliasServeStale),
+                resolveAliasRefreshAfterWrite, resolveAliasNotFoundExpireAfterWrite, metrics, ticker, executor);
     }
 
+    /**
+     * Wraps the given KMS.
+     * @param delegate The KMS to wrap.
+     * @param decryptDekCacheMaxSize The maximum number of decrypted DEKs to cache.
+     * @param decryptDekExpireAfterAccess How long a decrypted DEK is cached after it was last used.
+     * @param resolveAliasCacheMaxSize The maximum number of resolved aliases to cache.
+     * @param resolveAliasExpireAfterWrite How long a resolved alias is cached.
+     * @param resolveAliasRefreshAfterWrite How long after an alias was resolved it is resolved again, in the background,
+     * the next time it is used.
+     * @param resolveAliasServeStale How long after a resolved alias has expired it continues to be used
+     * while it is resolved again in the background.
+     * @param resolveAliasNotFoundExpireAfterWrite How long the delegate's report that an alias is unknown is cached.
+     * If zero, the report is not cached.
+     * @param metrics The metrics for the caches.
+     * @return The caching KMS.
+     * @param <A> The type of Key Encryption Key id.
+     * @param <B> The type of encrypted Data Encryption Key.
+     */
     @NonNull
     public static <A, B> Kms<A, B> wrap(Kms<A, B> delegate,
                                         long decryptDekCacheMaxSize,
                                         Duration decryptDekExpireAfterAccess,
                                         long resolveAliasCacheMaxSize,
                                         Duration resolveAliasExpireAfterWrite,
-                                        Duration resolveAliasRefreshAfterWrite) {
+                                        Duration resolveAliasRefreshAfterWrite,
+                                        Duration resolveAliasServeStale,
+                                        Duration resolveAliasNotFoundExpireAfterWrite,
+                                        KmsMetrics metrics) {
+        return wrap(delegate, decryptDekCacheMaxSize, decryptDekExpireAfterAccess, resolveAliasCacheMaxSize, resolveAliasExpireAfterWrite,
+                resolveAliasRefreshAfterWrite, resolveAliasServeStale, resolveAliasNotFoundExpireAfterWrite, metrics, Ticker.systemTicker(),
+                ForkJoinPool.commonPool());
+    }
+
+    // @VisibleForTesting
+    @NonNull
+    static <A, B> Kms<A, B> wrap(Kms<A, B> delegate,
+                                 long decryptDekCacheMaxSize,
+                                 Duration decryptDekExpireAfterAccess,
+                                 long resolveAliasCacheMaxSize,
+                                 Duration resolveAliasExpireAfterWrite,
+                                 Duration resolveAliasRefreshAfterWrite,
+                                 Duration resolveAliasServeStale,
+                                 Duration resolveAliasNotFoundExpireAfterWrite,
+                                 KmsMetrics metrics,
+                                 Ticker ticker,
+                                 Executor executor) {
         return new CachingKms<>(delegate, decryptDekCacheMaxSize, decryptDekExpireAfterAccess, resolveAliasCacheMaxSize, resolveAliasExpireAfterWrite,
-                resolveAliasRefreshAfterWrite);
+                resolveAliasRefreshAfterWrite, resolveAliasServeStale, resolveAliasNotFoundExpireAfterWrite, metrics, ticker, executor);
     }
 
+    /**
+     * Entries for known aliases are served, and refreshed in the background, until they reach their expiry,
+     * which includes the time for which they may be served stale. Entries for unknown aliases have their own expiry.
+     * Failures other than an unknown alias are not cached.
+     */
     @NonNull
-    private static <K, E> AsyncLoadingCache<String, K> buildResolveAliasCache(Kms<K, E> delegate, long maxSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
-        return Caffeine.newBuilder().maximumSize(maxSize).refreshAfterWrite(refreshAfterWrite).expireAfterWrite(expireAfterWrite)
-                .buildAsync((key, executor) -> delegate.resolveAlias(key).toCompletableFuture());
+    private static <K, E> AsyncLoadingCache<String, AliasResolution<K>> buildResolveAliasCache(Kms<K, E> delegate, long maxSize, Duration expireAfterWrite,
+                                                                                               Duration refreshAfterWrite,
+                                                                                               Duration notFoundExpireAfterWrite,
+                                                                                               KmsMetrics metrics, Ticker ticker, Executor executor) {
+        long expireAfterWriteNanos = saturatedNanos(expireAfterWrite);
+        long notFoundExpireAfterWriteNanos = saturatedNanos(notFoundExpireAfterWrite);
+        boolean cacheNotFound = !notFoundExpireAfterWrite.isZero();
+        return Caffeine.newBuilder().maximumSize(maxSize).refreshAfterWrite(refreshAfterWrite).ticker(ticker).executor(executor)
+                .expireAfter(new Expiry<String, AliasResolution<K>>() {
+                    @Override
+                    public long expireAfterCreate(String alias, AliasResolution<K> resolution, long currentTime) {
+                        return resolution.unknownAlias() == null ? expireAfterWriteNanos : notFoundExpireAfterWriteNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String alias, AliasResolution<K> resolution, long currentTime, long currentDuration) {
+                        return expireAfterCreate(alias, resolution, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String alias, AliasResolution<K> resolution, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats(() -> new KmsCacheStatsCounter(metrics, KmsMetrics.KmsCache.RESOLVED_ALIAS))
+                .buildAsync((alias, loaderExecutor) -> delegate.resolveAlias(alias).<AliasResolution<K>> handle((kekId, throwable) -> {
+                    if (throwable == null) {
+                        return new AliasResolution<>(kekId, null);
+                    }
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    if (cacheNotFound && cause instanceof UnknownAliasException unknownAlias) {
+                        return new AliasResolution<>(null, unknownAlias);
+                    }
+                    throw throwable instanceof CompletionException completionException ? completionException : new CompletionException(throwable);
+                }).toCompletableFuture());
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        }
+        catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
     }
 
     @NonNull
-    private static <K, E> AsyncLoadingCache<E, SecretKey> buildDecryptedDekCache(Kms<K, E> delegate, long maxSize, Duration expireAfterAccess) {
-        return Caffeine.newBuilder().maximumSize(maxSize).expireAfterAccess(expireAfterAccess)
-                .buildAsync((key, executor) -> delegate.decryptEdek(key).toCompletableFuture());
+    private static <K, E> AsyncLoadingCache<E, SecretKey> buildDecryptedDekCache(Kms<K, E> delegate, long maxSize, Duration expireAfterAccess, KmsMetrics metrics,
+                                                                                 Ticker ticker, Executor executor) {
+        return Caffeine.newBuilder().maximumSize(maxSize).expireAfterAccess(expireAfterAccess).ticker(ticker).executor(executor)
+                .recordStats(() -> new KmsCacheStatsCounter(metrics, KmsMetrics.KmsCache.DECRYPTED_DEK))
+                .buildAsync(new AsyncCacheLoader<E, SecretKey>() {
+                    @Override
+                    public CompletableFuture<? extends SecretKey> asyncLoad(E key, Executor executor) {
+                        return delegate.decryptEdek(key).toCompletableFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<? extends Map<? extends E, ? extends SecretKey>> asyncLoadAll(Set<? extends E> keys, Executor executor) {
+                        List<E> edeks = List.copyOf(keys);
+                        return delegate.decryptEdeks(edeks).thenApply(secretKeys -> {
+                            Map<E, SecretKey> result = new HashMap<>(edeks.size());
+                            for (int i = 0; i < edeks.size(); i++) {
+                                result.put(edeks.get(i), secretKeys.get(i));
+                            }
+                            return result;
+                        }).toCompletableFuture();
+                    }
+                });
     }
 
     @NonNull
@@ -77,9 +208,30 @@ public class CachingKms<K, E> implements Kms<K, E> {
     @NonNull
     @Override
     public CompletionStage<SecretKey> decryptEdek(@NonNull E edek) {
+        if (isLoading(decryptDekCache, edek)) {
+            metrics.countDecryptEdekCoalesced();
+        }
         return decryptDekCache.get(edek);
     }
 
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * Only the edeks which are not already cached are decrypted by the delegate, using a single call to its
+     * {@link Kms#decryptEdeks(List)}.
+     */
+    @NonNull
+    @Override
+    public CompletionStage<List<SecretKey>> decryptEdeks(@NonNull List<E> edeks) {
+        for (E edek : edeks) {
+            if (isLoading(decryptDekCache, edek)) {
+                metrics.countDecryptEdekCoalesced();
+            }
+        }
+        return decryptDekCache.getAll(edeks)
+                .thenApply(keys -> edeks.stream().map(keys::get).toList());
+    }
+
     @NonNull
     @Override
     public Serde<E> edekSerde() {
@@ -89,6 +241,25 @@ public class CachingKms<K, E> implements Kms<K, E> {
     @NonNull
     @Override
     public CompletionStage<K> resolveAlias(@NonNull String alias) {
-        return resolveAliasCache.get(alias);
+        if (isLoading(resolveAliasCache, alias)) {
+            metrics.countResolveAliasCoalesced();
+        }
+        return resolveAliasCache.get(alias).thenCompose(resolution -> resolution.unknownAlias() == null ? CompletableFuture.completedFuture(resolution.kekId())
+                : CompletableFuture.failedFuture(resolution.unknownAlias()));
     }
+
+    /**
+     * Whether the cache is already loading the given key, in which case a call to get it shares the load in flight.
+     * Caffeine's statistics count such a call as a hit, so it is counted as coalesced here.
+     * The cache's map view is used because it does not record statistics.
+     */
+    private static <T> boolean isLoading(AsyncLoadingCache<T, ?> cache, T key) {
+        CompletableFuture<?> value = cache.asMap().get(key);
+        return value != null && !value.isDone();
+    }
+
+    /**
+     * The result of resolving an alias: either the KEK id, or the delegate's report that the alias is unknown.
+     */
+    private record AliasResolution<K>(@Nullable K kekId, @Nullable UnknownAliasException unknownAlias) {}
 }
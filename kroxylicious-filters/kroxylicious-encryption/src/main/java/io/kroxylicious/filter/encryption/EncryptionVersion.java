@@ -18,7 +18,12 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  */
 public enum EncryptionVersion {
 
-    V1((byte) 1, ParcelVersion.V1, WrapperVersion.V1);
+    V1((byte) 1, ParcelVersion.V1, WrapperVersion.V1),
+    /**
+     * Stores the encrypted DEK once per record batch (see {@link WrapperVersion#V2}).
+     * Not suitable for compacted topics, because compaction may remove the record holding a batch's encrypted DEK.
+     */
+    V2((byte) 2, ParcelVersion.V1, WrapperVersion.V2);
 
     private final ParcelVersion parcelVersion;
     private final WrapperVersion wrapperVersion;
@@ -34,6 +39,8 @@ public enum EncryptionVersion {
         switch (code) {
             case 1:
                 return V1;
+            case 2:
+                return V2;
             default:
                 throw new EncryptionException("Unknown EncryptionVersion: " + code);
         }
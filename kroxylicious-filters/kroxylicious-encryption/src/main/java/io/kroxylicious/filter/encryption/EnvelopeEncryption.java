@@ -7,11 +7,19 @@
 package io.kroxylicious.filter.encryption;
 
 import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Metrics;
 
 import io.kroxylicious.filter.encryption.dek.DekManager;
@@ -29,6 +37,7 @@ import io.kroxylicious.proxy.plugin.PluginImplConfig;
 import io.kroxylicious.proxy.plugin.PluginImplName;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * A {@link FilterFactory} for {@link EnvelopeEncryptionFilter}.
@@ -40,27 +49,188 @@ public class EnvelopeEncryption<K, E> implements FilterFactory<EnvelopeEncryptio
 
     private static KmsMetrics kmsMetrics = MicrometerKmsMetrics.create(Metrics.globalRegistry);
 
+    static final String CRYPTO_QUEUE_DEPTH_METER = "kroxylicious_envelope_encryption_crypto_queue_depth";
+    private static final AtomicInteger CRYPTO_POOL_ID = new AtomicInteger();
+
+    private CryptoPool cryptoPool;
+
     record Config(
                   @JsonProperty(required = true) @PluginImplName(KmsService.class) String kms,
                   @PluginImplConfig(implNameProperty = "kms") Object kmsConfig,
 
                   @JsonProperty(required = true) @PluginImplName(KekSelectorService.class) String selector,
-                  @PluginImplConfig(implNameProperty = "selector") Object selectorConfig) {
+                  @PluginImplConfig(implNameProperty = "selector") Object selectorConfig,
+
+                  @JsonProperty @Nullable CryptoPoolConfig cryptoPool,
+                  @JsonProperty @Nullable EncryptionVersion encryptionVersion,
+                  @JsonProperty @Nullable KmsCacheConfig kmsCache,
+                  @JsonProperty @Nullable DekRotationConfig dekRotation) {
+
+        @Override
+        public @NonNull KmsCacheConfig kmsCache() {
+            return kmsCache == null ? KmsCacheConfig.DEFAULT_CONFIG : kmsCache;
+        }
+
+        @Override
+        public @NonNull DekRotationConfig dekRotation() {
+            return dekRotation == null ? DekRotationConfig.DEFAULT_CONFIG : dekRotation;
+        }
+
+        @Override
+        public @NonNull CryptoPoolConfig cryptoPool() {
+            return cryptoPool == null ? CryptoPoolConfig.DEFAULT_CONFIG : cryptoPool;
+        }
+
+        @Override
+        public @NonNull EncryptionVersion encryptionVersion() {
+            return encryptionVersion == null ? EncryptionVersion.V1 : encryptionVersion;
+        }
+    }
 
-        public KmsCacheConfig kmsCache() {
-            return KmsCacheConfig.DEFAULT_CONFIG;
+    /**
+     * Configures the pool of threads used to encrypt and decrypt records, off the filter threads.
+     * @param threads The maximum number of threads in the pool. If zero the encryption and decryption happens on the filter thread.
+     * @param queueCapacity The maximum number of partitions waiting to be encrypted or decrypted. When the queue is full
+     * the work is performed on the filter thread.
+     */
+    record CryptoPoolConfig(int threads,
+                            int queueCapacity) {
+
+        static final CryptoPoolConfig DEFAULT_CONFIG = new CryptoPoolConfig(Runtime.getRuntime().availableProcessors(), 1024);
+
+        CryptoPoolConfig {
+            if (threads < 0) {
+                throw new IllegalArgumentException("threads must be non-negative");
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be greater than zero");
+            }
         }
     }
 
+    /**
+     * Configures the caches in front of the KMS. Any property which is not given takes its default value.
+     * @param decryptedDekCacheSize The maximum number of DEKs decrypted by the KMS to cache. Defaults to 1000.
+     * @param decryptedDekExpireAfterAccessSeconds How long a decrypted DEK is cached after it was last used. Defaults to 1 hour.
+     * @param resolvedAliasCacheSize The maximum number of resolved KEK aliases to cache. Defaults to 1000.
+     * @param resolvedAliasExpireAfterWriteSeconds How long a resolved alias is cached. Defaults to 10 minutes.
+     * @param resolvedAliasRefreshAfterWriteSeconds How long after an alias was resolved it is resolved again
+     * in the background, the next time it is used. Defaults to 8 minutes.
+     * @param resolvedAliasServeStaleSeconds How long after a resolved alias has expired it continues to be used
+     * while it is resolved again in the background. Defaults to 10 minutes.
+     * @param resolvedAliasNotFoundExpireAfterWriteSeconds How long the KMS's report that an alias does not exist is cached.
+     * Zero disables the caching. Defaults to 30 seconds.
+     * @param encryptionDekCacheSize The maximum number of KEKs for which a DEK used for encryption is cached. Defaults to 10000.
+     * @param decryptionDekCacheMaxBytes The approximate maximum number of bytes retained by the cached DEKs used for decryption.
+     * Defaults to 64MiB.
+     */
     record KmsCacheConfig(
-                          int decryptedDekCacheSize,
-                          @NonNull Duration decryptedDekExpireAfterAccessDuration,
-                          int resolvedAliasCacheSize,
-                          @NonNull Duration resolvedAliasExpireAfterWriteDuration,
-                          @NonNull Duration resolvedAliasRefreshAfterWriteDuration) {
+                          @JsonProperty @Nullable Integer decryptedDekCacheSize,
+                          @JsonProperty @Nullable Long decryptedDekExpireAfterAccessSeconds,
+                          @JsonProperty @Nullable Integer resolvedAliasCacheSize,
+                          @JsonProperty @Nullable Long resolvedAliasExpireAfterWriteSeconds,
+                          @JsonProperty @Nullable Long resolvedAliasRefreshAfterWriteSeconds,
+                          @JsonProperty @Nullable Long resolvedAliasServeStaleSeconds,
+                          @JsonProperty @Nullable Long resolvedAliasNotFoundExpireAfterWriteSeconds,
+                          @JsonProperty @Nullable Integer encryptionDekCacheSize,
+                          @JsonProperty @Nullable Long decryptionDekCacheMaxBytes) {
+
+        private static final KmsCacheConfig DEFAULT_CONFIG = new KmsCacheConfig(null, null, null, null, null, null, null, null, null);
+
+        KmsCacheConfig {
+            decryptedDekCacheSize = requirePositive(decryptedDekCacheSize, 1000, "decryptedDekCacheSize");
+            decryptedDekExpireAfterAccessSeconds = requirePositive(decryptedDekExpireAfterAccessSeconds, Duration.ofHours(1).toSeconds(),
+                    "decryptedDekExpireAfterAccessSeconds");
+            resolvedAliasCacheSize = requirePositive(resolvedAliasCacheSize, 1000, "resolvedAliasCacheSize");
+            resolvedAliasExpireAfterWriteSeconds = requirePositive(resolvedAliasExpireAfterWriteSeconds, Duration.ofMinutes(10).toSeconds(),
+                    "resolvedAliasExpireAfterWriteSeconds");
+            resolvedAliasRefreshAfterWriteSeconds = requirePositive(resolvedAliasRefreshAfterWriteSeconds, Duration.ofMinutes(8).toSeconds(),
+                    "resolvedAliasRefreshAfterWriteSeconds");
+            resolvedAliasServeStaleSeconds = requireNonNegative(resolvedAliasServeStaleSeconds, Duration.ofMinutes(10).toSeconds(),
+                    "resolvedAliasServeStaleSeconds");
+            resolvedAliasNotFoundExpireAfterWriteSeconds = requireNonNegative(resolvedAliasNotFoundExpireAfterWriteSeconds, 30L,
+                    "resolvedAliasNotFoundExpireAfterWriteSeconds");
+            encryptionDekCacheSize = requirePositive(encryptionDekCacheSize, 10_000, "encryptionDekCacheSize");
+            decryptionDekCacheMaxBytes = requirePositive(decryptionDekCacheMaxBytes, 64L * 1024 * 1024, "decryptionDekCacheMaxBytes");
+        }
+
+        private static <N extends Number> N requirePositive(@Nullable N value, N defaultValue, String name) {
+            if (value == null) {
+                return defaultValue;
+            }
+            if (value.longValue() <= 0) {
+                throw new IllegalArgumentException(name + " must be greater than zero");
+            }
+            return value;
+        }
+
+        private static long requireNonNegative(@Nullable Long value, long defaultValue, String name) {
+            if (value == null) {
+                return defaultValue;
+            }
+            if (value < 0) {
+                throw new IllegalArgumentException(name + " must be non-negative");
+            }
+            return value;
+        }
+
+        @NonNull
+        Duration decryptedDekExpireAfterAccessDuration() {
+            return Duration.ofSeconds(decryptedDekExpireAfterAccessSeconds);
+        }
+
+        @NonNull
+        Duration resolvedAliasExpireAfterWriteDuration() {
+            return Duration.ofSeconds(resolvedAliasExpireAfterWriteSeconds);
+        }
+
+        @NonNull
+        Duration resolvedAliasRefreshAfterWriteDuration() {
+            return Duration.ofSeconds(resolvedAliasRefreshAfterWriteSeconds);
+        }
+
+        @NonNull
+        Duration resolvedAliasServeStaleDuration() {
+            return Duration.ofSeconds(resolvedAliasServeStaleSeconds);
+        }
+
+        @NonNull
+        Duration resolvedAliasNotFoundExpireAfterWriteDuration() {
+            return Duration.ofSeconds(resolvedAliasNotFoundExpireAfterWriteSeconds);
+        }
+    }
+
+    /**
+     * Configures when the DEKs used for encryption are replaced. Any property which is not given takes its default value.
+     * @param maxEncryptions The maximum number of records encrypted using a DEK. Defaults to 5000000.
+     * @param maxAgeSeconds The maximum age of a DEK. Defaults to no maximum.
+     * @param pregenerateFraction The fraction of {@code maxEncryptions} or {@code maxAgeSeconds} after which
+     * a DEK's replacement is generated in the background. Defaults to 0.8.
+     */
+    record DekRotationConfig(
+                             @JsonProperty @Nullable Long maxEncryptions,
+                             @JsonProperty @Nullable Long maxAgeSeconds,
+                             @JsonProperty @Nullable Double pregenerateFraction) {
 
-        private static final KmsCacheConfig DEFAULT_CONFIG = new KmsCacheConfig(1000, Duration.ofHours(1), 1000, Duration.ofMinutes(10), Duration.ofMinutes(8));
+        private static final DekRotationConfig DEFAULT_CONFIG = new DekRotationConfig(null, null, null);
 
+        DekRotationConfig {
+            maxEncryptions = KmsCacheConfig.requirePositive(maxEncryptions, 5_000_000L, "maxEncryptions");
+            if (maxAgeSeconds != null && maxAgeSeconds <= 0) {
+                throw new IllegalArgumentException("maxAgeSeconds must be greater than zero");
+            }
+            if (pregenerateFraction == null) {
+                pregenerateFraction = 0.8;
+            }
+            else if (!(pregenerateFraction > 0 && pregenerateFraction <= 1)) {
+                throw new IllegalArgumentException("pregenerateFraction must be greater than zero and at most one");
+            }
+        }
+
+        @Nullable
+        Duration maxAge() {
+            return maxAgeSeconds == null ? null : Duration.ofSeconds(maxAgeSeconds);
+        }
     }
 
     @Override
@@ -69,10 +239,97 @@ public class EnvelopeEncryption<K, E> implements FilterFactory<EnvelopeEncryptio
             throws PluginConfigurationException {
         Kms<K, E> kms = buildKms(context, configuration);
 
-        DekManager<K, E> dekManager = new DekManager<>(ignored -> kms, null, 5_000_000);
-        EncryptionDekCache<K, E> encryptionDekCache = new EncryptionDekCache<>(dekManager, null, EncryptionDekCache.NO_MAX_CACHE_SIZE);
-        DecryptionDekCache<K, E> decryptionDekCache = new DecryptionDekCache<>(dekManager, null, DecryptionDekCache.NO_MAX_CACHE_SIZE);
-        return new SharedEncryptionContext<>(kms, configuration, dekManager, encryptionDekCache, decryptionDekCache);
+        DekRotationConfig rotationConfig = configuration.dekRotation();
+        DekManager<K, E> dekManager = new DekManager<>(ignored -> kms, null, rotationConfig.maxEncryptions());
+        KmsCacheConfig cacheConfig = configuration.kmsCache();
+        EncryptionDekCache<K, E> encryptionDekCache = new EncryptionDekCache<>(dekManager, null, cacheConfig.encryptionDekCacheSize(),
+                rotationConfig.maxAge(), rotationConfig.pregenerateFraction(), kmsMetrics);
+        DecryptionDekCache<K, E> decryptionDekCache = new DecryptionDekCache<>(dekManager, null, cacheConfig.decryptionDekCacheMaxBytes(), kmsMetrics);
+        Executor cryptoExecutor = cryptoExecutor(configuration.cryptoPool(), Metrics.globalRegistry);
+        return new SharedEncryptionContext<>(kms, configuration, dekManager, encryptionDekCache, decryptionDekCache, cryptoExecutor);
+    }
+
+    /**
+     * Gets the executor on which records are encrypted and decrypted, which is shared by everything this
+     * factory initializes. The pool is built when first needed, and replaced only if its configuration changes,
+     * in which case the previous pool is shut down and its gauge removed.
+     * @param config The pool configuration.
+     * @param registry The registry with which to register the queue depth gauge.
+     * @return The executor.
+     */
+    @NonNull
+    synchronized Executor cryptoExecutor(@NonNull CryptoPoolConfig config,
+                                         @NonNull MeterRegistry registry) {
+        if (cryptoPool != null) {
+            if (cryptoPool.config().equals(config)) {
+                return cryptoPool.executor();
+            }
+            cryptoPool.close(registry);
+        }
+        cryptoPool = buildCryptoPool(config, registry);
+        return cryptoPool.executor();
+    }
+
+    /**
+     * Builds the pool on which records are encrypted and decrypted.
+     * The threads are daemons and time out when idle.
+     * When the queue is full the caller (i.e. the filter thread) performs the work itself,
+     * which applies backpressure to the client connections using that filter thread.
+     * The caller also performs the work once the pool has been shut down, so that filters
+     * still using a replaced pool continue to work.
+     * @param config The pool configuration.
+     * @param registry The registry with which to register the queue depth gauge.
+     * @return The pool.
+     */
+    @NonNull
+    static CryptoPool buildCryptoPool(@NonNull CryptoPoolConfig config,
+                                      @NonNull MeterRegistry registry) {
+        if (config.threads() == 0) {
+            return new CryptoPool(config, Runnable::run, null);
+        }
+        String poolId = String.valueOf(CRYPTO_POOL_ID.incrementAndGet());
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(config.threads(),
+                config.threads(),
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kroxylicious-crypto-" + poolId + "-" + threadId.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> runnable.run());
+        executor.allowCoreThreadTimeOut(true);
+        Gauge queueDepth = Gauge.builder(CRYPTO_QUEUE_DEPTH_METER, executor, e -> e.getQueue().size())
+                .description("The number of partitions waiting to be encrypted or decrypted")
+                .tag("pool", poolId)
+                .register(registry);
+        return new CryptoPool(config, executor, queueDepth);
+    }
+
+    /**
+     * The pool on which records are encrypted and decrypted.
+     * @param config The configuration the pool was built with.
+     * @param executor The executor.
+     * @param queueDepth The gauge of the executor's queue depth, or null if the work is performed by the caller.
+     */
+    record CryptoPool(@NonNull CryptoPoolConfig config,
+                      @NonNull Executor executor,
+                      @Nullable Gauge queueDepth) {
+
+        /**
+         * Shuts the pool down, once the work already submitted has been performed, and removes its gauge.
+         * @param registry The registry with which the gauge was registered.
+         */
+        void close(@NonNull MeterRegistry registry) {
+            if (executor instanceof ExecutorService executorService) {
+                executorService.shutdown();
+            }
+            if (queueDepth != null) {
+                registry.remove(queueDepth);
+            }
+        }
     }
 
     @NonNull
@@ -82,15 +339,18 @@ public class EnvelopeEncryption<K, E> implements FilterFactory<EnvelopeEncryptio
 
         ScheduledExecutorService filterThreadExecutor = context.eventLoop();
         FilterThreadExecutor executor = new FilterThreadExecutor(filterThreadExecutor);
-        var encryptionManager = new InBandEncryptionManager<>(sharedEncryptionContext.dekManager().edekSerde(),
+        var encryptionManager = new InBandEncryptionManager<>(sharedEncryptionContext.configuration().encryptionVersion(),
+                sharedEncryptionContext.dekManager().edekSerde(),
                 1024 * 1024,
                 8 * 1024 * 1024,
                 sharedEncryptionContext.encryptionDekCache(),
-                executor);
+                executor,
+                sharedEncryptionContext.cryptoExecutor());
 
         var decryptionManager = new InBandDecryptionManager<>(sharedEncryptionContext.dekManager(),
                 sharedEncryptionContext.decryptionDekCache(),
-                executor);
+                executor,
+                sharedEncryptionContext.cryptoExecutor());
 
         KekSelectorService<Object, K> ksPlugin = context.pluginInstance(KekSelectorService.class, sharedEncryptionContext.configuration().selector());
         TopicNameBasedKekSelector<K> kekSelector = ksPlugin.buildSelector(sharedEncryptionContext.kms(), sharedEncryptionContext.configuration().selectorConfig());
@@ -110,9 +370,10 @@ public class EnvelopeEncryption<K, E> implements FilterFactory<EnvelopeEncryptio
     }
 
     @NonNull
-    private static <K, E> Kms<K, E> wrapWithCachingKms(Config configuration, Kms<K, E> resilientKms) {
+    private static <K, E> Kms<K, E> wrapWithCachingKms(Config configuration, Kms<K, E> kms) {
         KmsCacheConfig config = configuration.kmsCache();
-        return CachingKms.wrap(resilientKms, config.decryptedDekCacheSize, config.decryptedDekExpireAfterAccessDuration, config.resolvedAliasCacheSize,
-                config.resolvedAliasExpireAfterWriteDuration, config.resolvedAliasRefreshAfterWriteDuration);
+        return CachingKms.wrap(kms, config.decryptedDekCacheSize(), config.decryptedDekExpireAfterAccessDuration(), config.resolvedAliasCacheSize(),
+                config.resolvedAliasExpireAfterWriteDuration(), config.resolvedAliasRefreshAfterWriteDuration(), config.resolvedAliasServeStaleDuration(),
+                config.resolvedAliasNotFoundExpireAfterWriteDuration(), kmsMetrics);
     }
 }
@@ -6,6 +6,7 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.util.List;
 import java.util.concurrent.CompletionStage;
 
 import javax.crypto.SecretKey;
@@ -51,6 +52,16 @@ public class InstrumentedKms<K, E> implements Kms<K, E> {
         });
     }
 
+    @NonNull
+    @Override
+    public CompletionStage<List<SecretKey>> decryptEdeks(@NonNull List<E> edeks) {
+        edeks.forEach(edek -> metrics.countDecryptEdekAttempt());
+        return delegate.decryptEdeks(edeks).whenComplete((keys, throwable) -> {
+            KmsMetrics.OperationOutcome outcome = classify(throwable);
+            edeks.forEach(edek -> metrics.countDecryptEdekOutcome(outcome));
+        });
+    }
+
     @NonNull
     @Override
     public CompletionStage<K> resolveAlias(@NonNull String alias) {
@@ -0,0 +1,61 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption;
+
+import java.util.Objects;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A Caffeine {@link StatsCounter} which reports the hits, misses and evictions of one of the
+ * caches in front of the KMS to {@link KmsMetrics}.
+ * Loads are already counted as KMS operations, so are not reported again.
+ */
+public final class KmsCacheStatsCounter implements StatsCounter {
+
+    private final KmsMetrics metrics;
+    private final KmsMetrics.KmsCache cache;
+
+    public KmsCacheStatsCounter(@NonNull KmsMetrics metrics, @NonNull KmsMetrics.KmsCache cache) {
+        this.metrics = Objects.requireNonNull(metrics);
+        this.cache = Objects.requireNonNull(cache);
+    }
+
+    @Override
+    public void recordHits(int count) {
+        metrics.countCacheHits(cache, count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        metrics.countCacheMisses(cache, count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        // counted by InstrumentedKms
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        // counted by InstrumentedKms
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        metrics.countCacheEvictions(cache, 1);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return CacheStats.empty();
+    }
+}
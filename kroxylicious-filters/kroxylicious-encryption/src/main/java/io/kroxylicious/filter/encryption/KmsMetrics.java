@@ -15,6 +15,20 @@ public interface KmsMetrics {
         NOT_FOUND
     }
 
+    /**
+     * The caches in front of the KMS.
+     */
+    enum KmsCache {
+        /** The DEKs decrypted by the KMS, keyed by EDEK (see {@link CachingKms}). */
+        DECRYPTED_DEK,
+        /** The KEK ids resolved by the KMS, keyed by alias (see {@link CachingKms}). */
+        RESOLVED_ALIAS,
+        /** The DEKs used for encrypting records, keyed by KEK. */
+        ENCRYPTION_DEK,
+        /** The DEKs used for decrypting records, keyed by EDEK. */
+        DECRYPTION_DEK
+    }
+
     void countGenerateDekPairAttempt();
 
     void countGenerateDekPairOutcome(@NonNull OperationOutcome outcome);
@@ -26,4 +40,22 @@ public interface KmsMetrics {
     void countResolveAliasAttempt();
 
     void countResolveAliasOutcome(@NonNull OperationOutcome outcome);
+
+    /**
+     * Counts a decryptEdek call that shared an identical in-flight operation, rather than
+     * making an attempt of its own (see {@link CachingKms}).
+     */
+    void countDecryptEdekCoalesced();
+
+    /**
+     * Counts a resolveAlias call that shared an identical in-flight operation, rather than
+     * making an attempt of its own (see {@link CachingKms}).
+     */
+    void countResolveAliasCoalesced();
+
+    void countCacheHits(@NonNull KmsCache cache, int count);
+
+    void countCacheMisses(@NonNull KmsCache cache, int count);
+
+    void countCacheEvictions(@NonNull KmsCache cache, int count);
 }
@@ -6,7 +6,10 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -18,6 +21,7 @@ public class MicrometerKmsMetrics implements KmsMetrics {
     public static final String KMS_OPERATION_PREFIX = "kroxylicious_kms_operation";
     public static final String ATTEMPT_COUNTER_NAME = KMS_OPERATION_PREFIX + "_attempt_total";
     public static final String OUTCOME_COUNTER_NAME = KMS_OPERATION_PREFIX + "_outcome_total";
+    public static final String COALESCED_COUNTER_NAME = KMS_OPERATION_PREFIX + "_coalesced_total";
     public static final String OPERATION_TAG_KEY = "operation";
     public static final Tag OPERATION_GENERATE_DEK_PAIR_TAG = Tag.of(OPERATION_TAG_KEY, "generate_dek_pair");
     public static final Tag OPERATION_DECRYPT_EDEK_TAG = Tag.of(OPERATION_TAG_KEY, "decrypt_edek");
@@ -26,6 +30,11 @@ public class MicrometerKmsMetrics implements KmsMetrics {
     public static final Tag SUCCESS_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "success");
     public static final Tag NOT_FOUND_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "not_found");
     public static final Tag EXCEPTION_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "exception");
+    public static final String KMS_CACHE_PREFIX = "kroxylicious_kms_cache";
+    public static final String CACHE_HIT_COUNTER_NAME = KMS_CACHE_PREFIX + "_hit_total";
+    public static final String CACHE_MISS_COUNTER_NAME = KMS_CACHE_PREFIX + "_miss_total";
+    public static final String CACHE_EVICTION_COUNTER_NAME = KMS_CACHE_PREFIX + "_eviction_total";
+    public static final String CACHE_TAG_KEY = "cache";
     private final Counter generateDekPairAttempts;
     private final Counter generateDekPairSuccesses;
     private final Counter generateDekPairExceptions;
@@ -34,10 +43,15 @@ public class MicrometerKmsMetrics implements KmsMetrics {
     private final Counter decryptEdekSuccesses;
     private final Counter decryptEdekNotFounds;
     private final Counter decryptEdekExceptions;
+    private final Counter decryptEdekCoalesced;
     private final Counter resolveAliasAttempt;
     private final Counter resolveAliasSuccesses;
     private final Counter resolveAliasNotFounds;
     private final Counter resolveAliasExceptions;
+    private final Counter resolveAliasCoalesced;
+    private final Map<KmsCache, Counter> cacheHits = new EnumMap<>(KmsCache.class);
+    private final Map<KmsCache, Counter> cacheMisses = new EnumMap<>(KmsCache.class);
+    private final Map<KmsCache, Counter> cacheEvictions = new EnumMap<>(KmsCache.class);
 
     private MicrometerKmsMetrics(MeterRegistry registry) {
         generateDekPairAttempts = attemptCounterForOperation(registry, OPERATION_GENERATE_DEK_PAIR_TAG);
@@ -49,11 +63,25 @@ public class MicrometerKmsMetrics implements KmsMetrics {
         decryptEdekSuccesses = outcomeCounterForOperation(registry, OPERATION_DECRYPT_EDEK_TAG, SUCCESS_OUTCOME_TAG);
         decryptEdekNotFounds = outcomeCounterForOperation(registry, OPERATION_DECRYPT_EDEK_TAG, NOT_FOUND_OUTCOME_TAG);
         decryptEdekExceptions = outcomeCounterForOperation(registry, OPERATION_DECRYPT_EDEK_TAG, EXCEPTION_OUTCOME_TAG);
+        decryptEdekCoalesced = coalescedCounterForOperation(registry, OPERATION_DECRYPT_EDEK_TAG);
 
         resolveAliasAttempt = attemptCounterForOperation(registry, OPERATION_RESOLVE_ALIAS_TAG);
         resolveAliasSuccesses = outcomeCounterForOperation(registry, OPERATION_RESOLVE_ALIAS_TAG, SUCCESS_OUTCOME_TAG);
         resolveAliasNotFounds = outcomeCounterForOperation(registry, OPERATION_RESOLVE_ALIAS_TAG, NOT_FOUND_OUTCOME_TAG);
         resolveAliasExceptions = outcomeCounterForOperation(registry, OPERATION_RESOLVE_ALIAS_TAG, EXCEPTION_OUTCOME_TAG);
+        resolveAliasCoalesced = coalescedCounterForOperation(registry, OPERATION_RESOLVE_ALIAS_TAG);
+
+        for (KmsCache cache : KmsCache.values()) {
+            List<Tag> tags = List.of(cacheTag(cache));
+            cacheHits.put(cache, registry.counter(CACHE_HIT_COUNTER_NAME, tags));
+            cacheMisses.put(cache, registry.counter(CACHE_MISS_COUNTER_NAME, tags));
+            cacheEvictions.put(cache, registry.counter(CACHE_EVICTION_COUNTER_NAME, tags));
+        }
+    }
+
+    @NonNull
+    public static Tag cacheTag(@NonNull KmsCache cache) {
+        return Tag.of(CACHE_TAG_KEY, cache.name().toLowerCase(Locale.ROOT));
     }
 
     public static KmsMetrics create(MeterRegistry registry) {
@@ -69,6 +97,11 @@ public class MicrometerKmsMetrics implements KmsMetrics {
         return registry.counter(ATTEMPT_COUNTER_NAME, List.of(operationTag));
     }
 
+    @NonNull
+    private static Counter coalescedCounterForOperation(MeterRegistry registry, Tag operationTag) {
+        return registry.counter(COALESCED_COUNTER_NAME, List.of(operationTag));
+    }
+
     @Override
     public void countGenerateDekPairAttempt() {
         generateDekPairAttempts.increment();
@@ -110,4 +143,29 @@ public class MicrometerKmsMetrics implements KmsMetrics {
             case NOT_FOUND -> resolveAliasNotFounds.increment();
         }
     }
+
+    @Override
+    public void countDecryptEdekCoalesced() {
+        decryptEdekCoalesced.increment();
+    }
+
+    @Override
+    public void countResolveAliasCoalesced() {
+        resolveAliasCoalesced.increment();
+    }
+
+    @Override
+    public void countCacheHits(@NonNull KmsCache cache, int count) {
+        cacheHits.get(cache).increment(count);
+    }
+
+    @Override
+    public void countCacheMisses(@NonNull KmsCache cache, int count) {
+        cacheMisses.get(cache).increment(count);
+    }
+
+    @Override
+    public void countCacheEvictions(@NonNull KmsCache cache, int count) {
+        cacheEvictions.get(cache).increment(count);
+    }
 }
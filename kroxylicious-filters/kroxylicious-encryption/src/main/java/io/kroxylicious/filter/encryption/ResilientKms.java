@@ -7,6 +7,7 @@
 package io.kroxylicious.filter.encryption;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
@@ -69,6 +70,12 @@ public class ResilientKms<K, E> implements Kms<K, E> {
         return retry("decryptEdek", () -> inner.decryptEdek(edek));
     }
 
+    @NonNull
+    @Override
+    public CompletionStage<List<SecretKey>> decryptEdeks(@NonNull List<E> edeks) {
+        return retry("decryptEdeks", () -> inner.decryptEdeks(edeks));
+    }
+
     @NonNull
     @Override
     public Serde edekSerde() {
@@ -6,6 +6,8 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.util.concurrent.Executor;
+
 import io.kroxylicious.filter.encryption.dek.DekManager;
 import io.kroxylicious.filter.encryption.inband.DecryptionDekCache;
 import io.kroxylicious.filter.encryption.inband.EncryptionDekCache;
@@ -23,24 +25,29 @@ public class SharedEncryptionContext<K, E> {
     private final DekManager<K, E> dekManager;
     private final EncryptionDekCache<K, E> encryptionDekCache;
     private final DecryptionDekCache<K, E> decryptionDekCache;
+    private final Executor cryptoExecutor;
 
     /**
      * @param kms
      * @param configuration
      * @param dekManager
      * @param encryptionDekCache
+     * @param decryptionDekCache
+     * @param cryptoExecutor
      */
     SharedEncryptionContext(
                             Kms<K, E> kms,
                             EnvelopeEncryption.Config configuration,
                             DekManager<K, E> dekManager,
                             EncryptionDekCache<K, E> encryptionDekCache,
-                            DecryptionDekCache<K, E> decryptionDekCache) {
+                            DecryptionDekCache<K, E> decryptionDekCache,
+                            Executor cryptoExecutor) {
         this.kms = kms;
         this.configuration = configuration;
         this.dekManager = dekManager;
         this.encryptionDekCache = encryptionDekCache;
         this.decryptionDekCache = decryptionDekCache;
+        this.cryptoExecutor = cryptoExecutor;
     }
 
     public Kms<K, E> kms() {
@@ -62,4 +69,8 @@ public class SharedEncryptionContext<K, E> {
     public DecryptionDekCache<K, E> decryptionDekCache() {
         return decryptionDekCache;
     }
+
+    public Executor cryptoExecutor() {
+        return cryptoExecutor;
+    }
 }
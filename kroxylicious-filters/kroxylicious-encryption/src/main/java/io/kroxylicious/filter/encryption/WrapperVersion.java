@@ -10,7 +10,6 @@ import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Set;
 import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.Record;
@@ -24,6 +23,7 @@ import io.kroxylicious.filter.encryption.inband.Parcel;
 import io.kroxylicious.kms.service.Serde;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * The version of the wrapper schema used to persist information in the wrapper.
@@ -56,63 +56,19 @@ public enum WrapperVersion {
                                      int partitionId,
                                      @NonNull RecordBatch batch,
                                      @NonNull Record kafkaRecord,
+                                     boolean firstInBatch,
                                      @NonNull Dek<E>.Encryptor encryptor,
                                      @NonNull ParcelVersion parcelVersion,
                                      @NonNull AadSpec aadSpec,
                                      @NonNull Set<RecordField> recordFields,
                                      @NonNull ByteBuffer buffer)
                 throws BufferTooSmallException {
-            try {
-                CipherSpec cipherSpec = encryptor.cipherSpec();
-                buffer.put(cipherSpec.persistentId());
-                short edekSize = (short) edekSerde.sizeOf(edek);
-                ByteUtils.writeUnsignedVarint(edekSize, buffer);
-                edekSerde.serialize(edek, buffer);
-                buffer.put(aadSpec.persistentId());
-
-                ByteBuffer aad = aadSpec.computeAad(topicName, partitionId, batch);
-
-                // Write the parameters
-                writeParameters(encryptor, cipherSpec, buffer);
-
-                // Write the parcel of data that will be encrypted (the plaintext)
-                var parcelBuffer = buffer.slice();
-                Parcel.writeParcel(parcelVersion, recordFields, kafkaRecord, parcelBuffer);
-                parcelBuffer.flip();
-
-                // Overwrite the parcel with the cipher text
-                var ct = encryptor.encrypt(parcelBuffer,
-                        aad,
-                        size -> buffer.slice());
-                buffer.position(buffer.position() + ct.remaining());
-            }
-            catch (BufferOverflowException e) {
-                throw new BufferTooSmallException();
-            }
+            write(edekSerde, edek, true, topicName, partitionId, batch, kafkaRecord, encryptor, parcelVersion, aadSpec, recordFields, buffer);
         }
 
-        private <E> void writeParameters(@NonNull Dek<E>.Encryptor encryptor, CipherSpec cipherSpec, @NonNull ByteBuffer buffer) {
-            int paramsSize = cipherSpec.constantParamsSize();
-            final ByteBuffer paramsBuffer;
-            if (paramsSize == CipherSpec.VARIABLE_SIZE_PARAMETERS) {
-                paramsBuffer = encryptor.generateParameters(size -> {
-                    ByteBuffer slice = buffer.slice();
-                    ByteUtils.writeUnsignedVarint(size, slice);
-                    return slice;
-                });
-            }
-            else {
-                paramsBuffer = encryptor.generateParameters(size -> buffer.slice());
-            }
-            buffer.position(buffer.position() + paramsBuffer.limit());
-        }
-
-        public <E, T> T readSpecAndEdek(ByteBuffer wrapper, Serde<E> serde, BiFunction<CipherSpec, E, T> function) {
-            CipherSpec cipherSpec = CipherSpec.fromPersistentId(wrapper.get());
-            var edekLength = ByteUtils.readUnsignedVarint(wrapper);
-            ByteBuffer slice = wrapper.slice(wrapper.position(), edekLength);
-            E edek = serde.deserialize(slice);
-            return function.apply(cipherSpec, edek);
+        @Override
+        public ByteBuffer edek(@NonNull ByteBuffer wrapper) {
+            return readEdek(wrapper);
         }
 
         @Override
@@ -124,36 +80,77 @@ public enum WrapperVersion {
                              ByteBuffer wrapper,
                              Dek<E>.Decryptor decryptor,
                              @NonNull BiConsumer<ByteBuffer, Header[]> consumer) {
-            CipherSpec cipherSpec = CipherSpec.fromPersistentId(wrapper.get());
-            var edekLength = ByteUtils.readUnsignedVarint(wrapper);
-            wrapper.position(wrapper.position() + edekLength);
+            readWrapper(parcelVersion, topicName, partition, batch, record, wrapper, decryptor, consumer);
+        }
+    },
 
-            var aadSpec = AadSpec.fromPersistentId(wrapper.get());
+    /**
+     * Like {@link #V1}, except that the EDEK is written only in the wrapper of the first encrypted record of each batch.
+     * The wrappers of the other records of the batch have an empty EDEK, meaning that their EDEK is that of the first record.
+     * This saves the size of the EDEK in every other record of the batch, but means a record can only be
+     * decrypted with the first encrypted record of its batch, which log compaction might remove.
+     * <pre>
+     * wrapper_v2               = cipher_id
+     *                            edek_length
+     *                            edek
+     *                            aead_id
+     *                            [ cipher_parameters_length ] ; iff {@link CipherSpec#constantParamsSize()} returns -1
+     *                            cipher_parameters
+     *                            parcel_ciphertext
+     * edek_length              = 1*OCTET                      ; unsigned VARINT {@link Serde#sizeOf(Object)},
+     *                                                         ; or 0 if the edek is that of the first encrypted record of the batch
+     * </pre>
+     * The other productions are as for {@link #V1}.
+     */
+    V2 {
 
-            var parametersBuffer = wrapper.slice();
-            int parametersSize;
-            if (cipherSpec.constantParamsSize() == CipherSpec.VARIABLE_SIZE_PARAMETERS) {
-                parametersSize = ByteUtils.readUnsignedVarint(parametersBuffer);
-            }
-            else {
-                parametersSize = cipherSpec.constantParamsSize();
-            }
-            parametersBuffer.limit(parametersSize);
-            var ciphertext = wrapper.position(wrapper.position() + parametersSize).slice();
+        @Override
+        public <E> void writeWrapper(@NonNull Serde<E> edekSerde,
+                                     @NonNull E edek,
+                                     @NonNull String topicName,
+                                     int partitionId,
+                                     @NonNull RecordBatch batch,
+                                     @NonNull Record kafkaRecord,
+                                     boolean firstInBatch,
+                                     @NonNull Dek<E>.Encryptor encryptor,
+                                     @NonNull ParcelVersion parcelVersion,
+                                     @NonNull AadSpec aadSpec,
+                                     @NonNull Set<RecordField> recordFields,
+                                     @NonNull ByteBuffer buffer)
+                throws BufferTooSmallException {
+            write(edekSerde, edek, firstInBatch, topicName, partitionId, batch, kafkaRecord, encryptor, parcelVersion, aadSpec, recordFields, buffer);
+        }
 
-            ByteBuffer aad = aadSpec.computeAad(topicName, partition, batch);
+        @Override
+        public @Nullable ByteBuffer edek(@NonNull ByteBuffer wrapper) {
+            var edek = readEdek(wrapper);
+            return edek.hasRemaining() ? edek : null;
+        }
 
-            ByteBuffer plaintextParcel = decryptParcel(ciphertext, aad, parametersBuffer, decryptor);
-            Parcel.readParcel(parcelVersion, plaintextParcel, record, consumer);
+        @Override
+        public <E> void read(@NonNull ParcelVersion parcelVersion,
+                             @NonNull String topicName,
+                             int partition,
+                             @NonNull RecordBatch batch,
+                             @NonNull Record record,
+                             ByteBuffer wrapper,
+                             Dek<E>.Decryptor decryptor,
+                             @NonNull BiConsumer<ByteBuffer, Header[]> consumer) {
+            readWrapper(parcelVersion, topicName, partition, batch, record, wrapper, decryptor, consumer);
         }
     };
 
+    /**
+     * Writes the wrapper for the given record.
+     * @param firstInBatch Whether the record is the first in its batch to be encrypted.
+     */
     public abstract <E> void writeWrapper(@NonNull Serde<E> edekSerde,
                                           @NonNull E edek,
                                           @NonNull String topicName,
                                           int partitionId,
                                           @NonNull RecordBatch batch,
                                           @NonNull Record kafkaRecord,
+                                          boolean firstInBatch,
                                           @NonNull Dek<E>.Encryptor encryptor,
                                           @NonNull ParcelVersion parcelVersion,
                                           @NonNull AadSpec aadSpec,
@@ -179,5 +176,121 @@ public enum WrapperVersion {
                                   Dek<E>.Decryptor decryptor,
                                   @NonNull BiConsumer<ByteBuffer, Header[]> consumer);
 
-    public abstract <E, T> T readSpecAndEdek(ByteBuffer wrapper, Serde<E> serde, BiFunction<CipherSpec, E, T> fn);
+    /**
+     * Reads the cipher spec from the given wrapper, without changing its position.
+     * @param wrapper The wrapper.
+     * @return The cipher spec.
+     */
+    public @NonNull CipherSpec cipherSpec(@NonNull ByteBuffer wrapper) {
+        return CipherSpec.fromPersistentId(wrapper.get(wrapper.position()));
+    }
+
+    /**
+     * Reads the serialized EDEK from the given wrapper, without changing its position.
+     * @param wrapper The wrapper.
+     * @return A buffer containing just the serialized EDEK, or null if the wrapper's EDEK is that
+     * of the first encrypted record of its batch.
+     */
+    public abstract @Nullable ByteBuffer edek(@NonNull ByteBuffer wrapper);
+
+    private static ByteBuffer readEdek(ByteBuffer wrapper) {
+        var buffer = wrapper.duplicate();
+        buffer.get(); // cipher_id
+        var edekLength = ByteUtils.readUnsignedVarint(buffer);
+        return buffer.slice(buffer.position(), edekLength);
+    }
+
+    private static <E> void write(@NonNull Serde<E> edekSerde,
+                                  @NonNull E edek,
+                                  boolean writeEdek,
+                                  @NonNull String topicName,
+                                  int partitionId,
+                                  @NonNull RecordBatch batch,
+                                  @NonNull Record kafkaRecord,
+                                  @NonNull Dek<E>.Encryptor encryptor,
+                                  @NonNull ParcelVersion parcelVersion,
+                                  @NonNull AadSpec aadSpec,
+                                  @NonNull Set<RecordField> recordFields,
+                                  @NonNull ByteBuffer buffer)
+            throws BufferTooSmallException {
+        try {
+            CipherSpec cipherSpec = encryptor.cipherSpec();
+            buffer.put(cipherSpec.persistentId());
+            if (writeEdek) {
+                short edekSize = (short) edekSerde.sizeOf(edek);
+                ByteUtils.writeUnsignedVarint(edekSize, buffer);
+                edekSerde.serialize(edek, buffer);
+            }
+            else {
+                ByteUtils.writeUnsignedVarint(0, buffer);
+            }
+            buffer.put(aadSpec.persistentId());
+
+            ByteBuffer aad = aadSpec.computeAad(topicName, partitionId, batch);
+
+            // Write the parameters
+            writeParameters(encryptor, cipherSpec, buffer);
+
+            // Write the parcel of data that will be encrypted (the plaintext)
+            var parcelBuffer = buffer.slice();
+            Parcel.writeParcel(parcelVersion, recordFields, kafkaRecord, parcelBuffer);
+            parcelBuffer.flip();
+
+            // Overwrite the parcel with the cipher text
+            var ct = encryptor.encrypt(parcelBuffer,
+                    aad,
+                    size -> buffer.slice());
+            buffer.position(buffer.position() + ct.remaining());
+        }
+        catch (BufferOverflowException e) {
+            throw new BufferTooSmallException();
+        }
+    }
+
+    private static <E> void writeParameters(@NonNull Dek<E>.Encryptor encryptor, CipherSpec cipherSpec, @NonNull ByteBuffer buffer) {
+        int paramsSize = cipherSpec.constantParamsSize();
+        final ByteBuffer paramsBuffer;
+        if (paramsSize == CipherSpec.VARIABLE_SIZE_PARAMETERS) {
+            paramsBuffer = encryptor.generateParameters(size -> {
+                ByteBuffer slice = buffer.slice();
+                ByteUtils.writeUnsignedVarint(size, slice);
+                return slice;
+            });
+        }
+        else {
+            paramsBuffer = encryptor.generateParameters(size -> buffer.slice());
+        }
+        buffer.position(buffer.position() + paramsBuffer.limit());
+    }
+
+    private static <E> void readWrapper(@NonNull ParcelVersion parcelVersion,
+                                        @NonNull String topicName,
+                                        int partition,
+                                        @NonNull RecordBatch batch,
+                                        @NonNull Record record,
+                                        ByteBuffer wrapper,
+                                        Dek<E>.Decryptor decryptor,
+                                        @NonNull BiConsumer<ByteBuffer, Header[]> consumer) {
+        CipherSpec cipherSpec = CipherSpec.fromPersistentId(wrapper.get());
+        var edekLength = ByteUtils.readUnsignedVarint(wrapper);
+        wrapper.position(wrapper.position() + edekLength);
+
+        var aadSpec = AadSpec.fromPersistentId(wrapper.get());
+
+        var parametersBuffer = wrapper.slice();
+        int parametersSize;
+        if (cipherSpec.constantParamsSize() == CipherSpec.VARIABLE_SIZE_PARAMETERS) {
+            parametersSize = ByteUtils.readUnsignedVarint(parametersBuffer);
+        }
+        else {
+            parametersSize = cipherSpec.constantParamsSize();
+        }
+        parametersBuffer.limit(parametersSize);
+        var ciphertext = wrapper.position(wrapper.position() + parametersSize).slice();
+
+        ByteBuffer aad = aadSpec.computeAad(topicName, partition, batch);
+
+        ByteBuffer plaintextParcel = decryptParcel(ciphertext, aad, parametersBuffer, decryptor);
+        Parcel.readParcel(parcelVersion, plaintextParcel, record, consumer);
+    }
 }
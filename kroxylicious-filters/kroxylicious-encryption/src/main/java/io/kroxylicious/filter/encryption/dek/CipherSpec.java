@@ -10,7 +10,7 @@ import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
-import java.util.function.Supplier;
+import java.util.function.Consumer;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
@@ -41,13 +41,8 @@ public enum CipherSpec {
         private static final int TAG_LENGTH_BITS = 128;
 
         @Override
-        Supplier<AlgorithmParameterSpec> paramSupplier() {
-            var generator = new Wrapping96BitCounter(new SecureRandom());
-            var iv = new byte[IV_SIZE_BYTES];
-            return () -> {
-                generator.generateIv(iv);
-                return new GCMParameterSpec(TAG_LENGTH_BITS, iv);
-            };
+        Consumer<byte[]> paramGenerator() {
+            return new Wrapping96BitCounter(new SecureRandom())::generateIv;
         }
 
         @Override
@@ -56,22 +51,8 @@ public enum CipherSpec {
         }
 
         @Override
-        int size(AlgorithmParameterSpec parameterSpec) {
-            return constantParamsSize();
-        }
-
-        @Override
-        void writeParameters(
-                             ByteBuffer parametersBuffer,
-                             AlgorithmParameterSpec params) {
-            parametersBuffer.put(((GCMParameterSpec) params).getIV());
-        }
-
-        @Override
-        GCMParameterSpec readParameters(ByteBuffer parametersBuffer) {
-            byte[] b = new byte[IV_SIZE_BYTES];
-            parametersBuffer.get(b);
-            return new GCMParameterSpec(TAG_LENGTH_BITS, b);
+        GCMParameterSpec parameterSpec(byte[] params, int offset) {
+            return new GCMParameterSpec(TAG_LENGTH_BITS, params, offset, IV_SIZE_BYTES);
         }
     },
     /**
@@ -86,15 +67,10 @@ public enum CipherSpec {
         private static final int NONCE_SIZE_BYTES = 12;
 
         @Override
-        Supplier<AlgorithmParameterSpec> paramSupplier() {
+        Consumer<byte[]> paramGenerator() {
             // Per https://www.rfc-editor.org/rfc/rfc7539#section-4
             // we generate the nonce using a counter
-            var generator = new Wrapping96BitCounter(new SecureRandom());
-            var nonce = new byte[NONCE_SIZE_BYTES];
-            return () -> {
-                generator.generateIv(nonce);
-                return new IvParameterSpec(nonce);
-            };
+            return new Wrapping96BitCounter(new SecureRandom())::generateIv;
         }
 
         @Override
@@ -103,22 +79,8 @@ public enum CipherSpec {
         }
 
         @Override
-        int size(AlgorithmParameterSpec parameterSpec) {
-            return constantParamsSize();
-        }
-
-        @Override
-        void writeParameters(
-                             ByteBuffer parametersBuffer,
-                             AlgorithmParameterSpec params) {
-            parametersBuffer.put(((IvParameterSpec) params).getIV());
-        }
-
-        @Override
-        AlgorithmParameterSpec readParameters(ByteBuffer parametersBuffer) {
-            byte[] nonce = new byte[NONCE_SIZE_BYTES];
-            parametersBuffer.get(nonce);
-            return new IvParameterSpec(nonce);
+        IvParameterSpec parameterSpec(byte[] params, int offset) {
+            return new IvParameterSpec(params, offset, NONCE_SIZE_BYTES);
         }
     }
     /* !! Read the class JavaDoc before adding a new CipherSpec !! */
@@ -166,39 +128,50 @@ public enum CipherSpec {
     }
 
     /**
-     * Return a supplier of parameters for use with the cipher.
-     * The supplier need not be thread-safe.
+     * Return a generator of parameters for use with the cipher.
+     * The generator writes the parameters into the given array, which has at least
+     * {@link #constantParamsSize()} elements and can be reused between encryptions.
+     * The generator need not be thread-safe.
      */
-    abstract Supplier<AlgorithmParameterSpec> paramSupplier();
+    abstract Consumer<byte[]> paramGenerator();
 
     /**
-     * If the number of bytes required by {@link #writeParameters(ByteBuffer, AlgorithmParameterSpec)}
-     * does not depend on the parameters, then returns the number.
-     * Otherwise, if the number of bytes required by  {@link #writeParameters(ByteBuffer, AlgorithmParameterSpec)} is variable
-     * returns {@link #VARIABLE_SIZE_PARAMETERS}.
+     * The number of bytes of the cipher's parameters.
+     * All the current cipher specs have parameters of a constant size, so this never returns {@link #VARIABLE_SIZE_PARAMETERS},
+     * but the wrapper format allows for parameters whose size varies.
      */
     public abstract int constantParamsSize();
 
     /**
-     * Return the number of bytes required by {@link #writeParameters(ByteBuffer, AlgorithmParameterSpec)}
-     * to serialize the given parameters.
-     * If {@link #constantParamsSize()} returns a number >= 0 then this must return the same number.
+     * Return the cipher parameters serialized in the given array, starting at the given offset.
+     * The parameters do not retain a reference to the array.
      */
-    abstract int size(AlgorithmParameterSpec parameterSpec);
+    abstract AlgorithmParameterSpec parameterSpec(byte[] params, int offset);
 
     /**
      * Serialize the given parameters to the given buffer, which should have at least
-     * {@link #size(AlgorithmParameterSpec)} bytes {@linkplain ByteBuffer#remaining() remaining}.
+     * {@link #constantParamsSize()} bytes {@linkplain ByteBuffer#remaining() remaining}.
      */
-    abstract void writeParameters(ByteBuffer parametersBuffer, AlgorithmParameterSpec params);
+    void writeParameters(ByteBuffer parametersBuffer, byte[] params) {
+        parametersBuffer.put(params, 0, constantParamsSize());
+    }
 
     /**
-     * Read previously-serialize parameters from the given buffer.
-     * The implementation should know how many bytes to read, so the number of
-     * {@linkplain ByteBuffer#remaining() remaining} bytes need only be ≥ (not =)
-     * the {@link #size(AlgorithmParameterSpec)} at the time the buffer was written.
+     * Read previously-serialized parameters from the given buffer, using the given array,
+     * which has at least {@link #constantParamsSize()} elements, as scratch space if the buffer is not backed by an array.
+     * The number of {@linkplain ByteBuffer#remaining() remaining} bytes need only be ≥ (not =)
+     * the {@link #constantParamsSize()}.
      */
-    abstract AlgorithmParameterSpec readParameters(ByteBuffer parametersBuffer);
+    AlgorithmParameterSpec readParameters(ByteBuffer parametersBuffer, byte[] scratch) {
+        int size = constantParamsSize();
+        if (parametersBuffer.hasArray()) {
+            int position = parametersBuffer.position();
+            parametersBuffer.position(position + size);
+            return parameterSpec(parametersBuffer.array(), parametersBuffer.arrayOffset() + position);
+        }
+        parametersBuffer.get(scratch, 0, size);
+        return parameterSpec(scratch, 0);
+    }
 
     public static final int VARIABLE_SIZE_PARAMETERS = -1;
 }
@@ -9,13 +9,14 @@ package io.kroxylicious.filter.encryption.dek;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
-import java.security.spec.AlgorithmParameterSpec;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.IntUnaryOperator;
 import java.util.function.LongUnaryOperator;
-import java.util.function.Supplier;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
@@ -56,6 +57,9 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  * Instead calls to {@link #encryptor(int)} and {@link #decryptor()} will start to throw {@link DestroyedDekException},
  * but existing {@link Encryptor Encryptor} and {@link Decryptor Decryptor} instances will be able to continue.
  * The key will only be destroyed once the {@code close()} method has been called on all existing (en|de)cryptors.</p>
+ * <p>The ciphers used by the cryptors are pooled by the {@code Dek}, because creating a cipher is costly and
+ * re-initializing one with the same key need not expand the key again. A cipher only ever holds this DEK's key,
+ * and the pool is discarded when the key is destroyed.</p>
  *
  * @param <E> The type of encrypted DEK.
  */
@@ -101,6 +105,9 @@ public final class Dek<E> {
     private static final long END = combine(-1, -1);
     private final CipherSpec cipherSpec;
 
+    // ciphers not in use by a cryptor, initialized with this DEK's key or not at all
+    private final Queue<Cipher> ciphers = new ConcurrentLinkedQueue<>();
+
     /** Combine two int reference counts into a single long */
     private static long combine(int encryptors, int decryptors) {
         return ((long) encryptors) << Integer.SIZE | 0xFFFFFFFFL & decryptors;
@@ -267,9 +274,28 @@ public final class Dek<E> {
             if (key != null) {
                 key.destroy();
             }
+            // the cryptors release their ciphers before releasing the key, so none can be returned to the pool after this
+            ciphers.clear();
         }
     }
 
+    private Cipher acquireCipher() {
+        var cipher = ciphers.poll();
+        return cipher == null ? cipherSpec.newCipher() : cipher;
+    }
+
+    private void releaseCipher(Cipher cipher) {
+        ciphers.offer(cipher);
+    }
+
+    /**
+     * @return The number of ciphers pooled for use by future cryptors.
+     */
+    // @VisibleForTesting
+    int pooledCiphers() {
+        return ciphers.size();
+    }
+
     public boolean isDestroyed() {
         SecretKey secretKey = atomicKey.get();
         return secretKey == null || secretKey.isDestroyed();
@@ -279,14 +305,23 @@ public final class Dek<E> {
         return edek;
     }
 
+    /**
+     * @return The number of encryptions this DEK can still perform, which is zero once it is exhausted.
+     */
+    public long remainingEncryptions() {
+        return Math.max(0, remainingEncryptions.get());
+    }
+
     /**
      * A means of performing a limited number of encryption operations without access to key material.
      */
     @NotThreadSafe
     public final class Encryptor implements AutoCloseable {
-        private final Cipher cipher;
         private SecretKey key;
-        private final Supplier<AlgorithmParameterSpec> paramSupplier;
+        private Cipher cipher;
+        private final Consumer<byte[]> paramGenerator;
+        // the parameters for the next encryption, reused between encryptions
+        private final byte[] params;
         private final CipherSpec cipherSpec;
         private int numEncryptions;
         private boolean haveParameters = false;
@@ -297,9 +332,10 @@ public final class Dek<E> {
             }
             this.cipherSpec = Objects.requireNonNull(cipherSpec);
             this.key = Objects.requireNonNull(key);
+            this.cipher = acquireCipher();
             this.numEncryptions = numEncryptions;
-            this.cipher = cipherSpec.newCipher();
-            this.paramSupplier = cipherSpec.paramSupplier();
+            this.paramGenerator = cipherSpec.paramGenerator();
+            this.params = new byte[cipherSpec.constantParamsSize()];
         }
 
         /**
@@ -327,11 +363,8 @@ public final class Dek<E> {
             else {
                 --numEncryptions;
                 try {
-                    AlgorithmParameterSpec params = paramSupplier.get();
-                    cipher.init(Cipher.ENCRYPT_MODE, key, params);
-
-                    int paramsSize = cipherSpec.size(params);
-                    var parametersBuffer = paramAllocator.buffer(paramsSize);
+                    paramGenerator.accept(params);
+                    var parametersBuffer = paramAllocator.buffer(params.length);
                     cipherSpec.writeParameters(parametersBuffer, params);
                     parametersBuffer.flip();
                     haveParameters = true;
@@ -340,9 +373,6 @@ public final class Dek<E> {
                 catch (BufferOverflowException e) {
                     throw new BufferTooSmallException();
                 }
-                catch (GeneralSecurityException e) {
-                    throw new DekException(e);
-                }
             }
         }
 
@@ -374,6 +404,7 @@ public final class Dek<E> {
             }
             haveParameters = false;
             try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, cipherSpec.parameterSpec(params, 0));
                 if (aad != null) {
                     cipher.updateAAD(aad);
                     aad.rewind();
@@ -402,6 +433,8 @@ public final class Dek<E> {
         public void close() {
             if (key != null) {
                 key = null;
+                releaseCipher(cipher);
+                cipher = null;
                 maybeDestroyKey(Dek::releaseEncryptor);
             }
         }
@@ -416,14 +449,17 @@ public final class Dek<E> {
      */
     @NotThreadSafe
     public final class Decryptor implements AutoCloseable {
-        private final Cipher cipher;
         private SecretKey key;
+        private Cipher cipher;
         private final CipherSpec cipherSpec;
+        // scratch space for parameters read from buffers which are not backed by an array
+        private final byte[] params;
 
         private Decryptor(CipherSpec cipherSpec, SecretKey key) {
-            this.cipher = cipherSpec.newCipher();
             this.cipherSpec = cipherSpec;
             this.key = key;
+            this.cipher = acquireCipher();
+            this.params = new byte[cipherSpec.constantParamsSize()];
         }
 
         /**
@@ -438,7 +474,7 @@ public final class Dek<E> {
                             @NonNull ByteBuffer parameterBuffer,
                             @NonNull ByteBuffer plaintext) {
             try {
-                var parameterSpec = cipherSpec.readParameters(parameterBuffer);
+                var parameterSpec = cipherSpec.readParameters(parameterBuffer, params);
                 cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
                 if (aad != null) {
                     cipher.updateAAD(aad);
@@ -454,6 +490,8 @@ public final class Dek<E> {
         public void close() {
             if (key != null) {
                 key = null;
+                releaseCipher(cipher);
+                cipher = null;
                 maybeDestroyKey(Dek::releaseDecryptor);
             }
         }
@@ -6,6 +6,8 @@
 
 package io.kroxylicious.filter.encryption.dek;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 
@@ -36,6 +38,13 @@ public class DekManager<K, E> {
         this.maxEncryptionsPerDek = maxEncryptionsPerDek;
     }
 
+    /**
+     * @return The number of encryptions which a DEK generated by this manager can perform.
+     */
+    public long maxEncryptionsPerDek() {
+        return maxEncryptionsPerDek;
+    }
+
     /**
      * @return The KMS's serde for encrypted DEKs
      * @see Kms#edekSerde()
@@ -84,4 +93,25 @@ public class DekManager<K, E> {
         Objects.requireNonNull(cipherSpec);
         return kms.decryptEdek(edek).thenApply(key -> new Dek<>(edek, new DestroyableRawSecretKey(key.getAlgorithm(), key.getEncoded()), cipherSpec, 0));
     }
+
+    /**
+     * Ask the KMS to decrypt a number of encrypted DEKs, returning the corresponding {@link Dek}s.
+     * The returned DEKs can only be used for decryption, and only for the given cipher.
+     * @param edeks The encrypted DEKs
+     * @param cipherSpec The cipher supported by the returned DEKs.
+     * @return A completion stage that completes with the {@link Dek}s, in the same order as the given {@code edeks}, or
+     * fails if the request to the KMS fails.
+     */
+    public CompletionStage<List<Dek<E>>> decryptEdeks(@NonNull List<E> edeks, @NonNull CipherSpec cipherSpec) {
+        Objects.requireNonNull(edeks);
+        Objects.requireNonNull(cipherSpec);
+        return kms.decryptEdeks(edeks).thenApply(keys -> {
+            List<Dek<E>> deks = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                SecretKey key = keys.get(i);
+                deks.add(new Dek<>(edeks.get(i), new DestroyableRawSecretKey(key.getAlgorithm(), key.getEncoded()), cipherSpec, 0));
+            }
+            return deks;
+        });
+    }
 }
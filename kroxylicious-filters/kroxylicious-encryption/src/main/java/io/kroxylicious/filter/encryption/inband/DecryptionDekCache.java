@@ -6,9 +6,13 @@
 
 package io.kroxylicious.filter.encryption.inband;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
@@ -16,14 +20,18 @@ import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 
 import io.kroxylicious.filter.encryption.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.KmsCacheStatsCounter;
+import io.kroxylicious.filter.encryption.KmsMetrics;
 import io.kroxylicious.filter.encryption.dek.CipherSpec;
 import io.kroxylicious.filter.encryption.dek.Dek;
 import io.kroxylicious.filter.encryption.dek.DekManager;
+import io.kroxylicious.kms.service.Serde;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -38,6 +46,12 @@ public class DecryptionDekCache<K, E> {
     private static final Logger LOGGER = LoggerFactory.getLogger(DecryptionDekCache.class);
 
     public static final int NO_MAX_CACHE_SIZE = -1;
+
+    /**
+     * An estimate of the heap retained by a cached DEK, excluding its EDEK:
+     * the key material, the {@link Dek} itself and the cache's own entry.
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 256;
     private final DekManager<K, E> dekManager;
 
     record CacheKey<E>(
@@ -67,20 +81,45 @@ public class DecryptionDekCache<K, E> {
 
     private final AsyncLoadingCache<CacheKey<E>, Dek<E>> decryptorCache;
 
+    /**
+     * @param dekManager The DEK manager.
+     * @param dekCacheExecutor The executor used by the cache, or null to use the common pool.
+     * @param dekCacheMaxBytes The approximate maximum number of bytes retained by the cached DEKs, or {@link #NO_MAX_CACHE_SIZE}.
+     * The bytes retained by each DEK are estimated from the size of its serialized EDEK, which depends on the KMS,
+     * plus {@link #ENTRY_OVERHEAD_BYTES}.
+     * @param kmsMetrics The metrics to which cache hits, misses and evictions are reported, or null.
+     */
     public DecryptionDekCache(@NonNull DekManager<K, E> dekManager,
                               @Nullable Executor dekCacheExecutor,
-                              int dekCacheMaxItems) {
+                              long dekCacheMaxBytes,
+                              @Nullable KmsMetrics kmsMetrics) {
         this.dekManager = Objects.requireNonNull(dekManager);
         Caffeine<Object, Object> cache = Caffeine.<CacheKey<E>, Dek<E>> newBuilder();
-        if (dekCacheMaxItems != NO_MAX_CACHE_SIZE) {
-            cache.maximumSize(dekCacheMaxItems);
+        if (dekCacheMaxBytes != NO_MAX_CACHE_SIZE) {
+            Serde<E> edekSerde = dekManager.edekSerde();
+            cache.maximumWeight(dekCacheMaxBytes)
+                    .weigher((CacheKey<E> cacheKey, Dek<E> dek) -> ENTRY_OVERHEAD_BYTES + edekSerde.sizeOf(cacheKey.edek()));
         }
         if (dekCacheExecutor != null) {
             cache.executor(dekCacheExecutor);
         }
+        if (kmsMetrics != null) {
+            cache.recordStats(() -> new KmsCacheStatsCounter(kmsMetrics, KmsMetrics.KmsCache.DECRYPTION_DEK));
+        }
         this.decryptorCache = cache
                 .removalListener(this::afterCacheEviction)
-                .buildAsync(this::loadDek);
+                .buildAsync(new AsyncCacheLoader<CacheKey<E>, Dek<E>>() {
+                    @Override
+                    public CompletableFuture<? extends Dek<E>> asyncLoad(CacheKey<E> key, Executor executor) {
+                        return loadDek(key, executor);
+                    }
+
+                    @Override
+                    public CompletableFuture<? extends Map<? extends CacheKey<E>, ? extends Dek<E>>> asyncLoadAll(Set<? extends CacheKey<E>> keys,
+                                                                                                                  Executor executor) {
+                        return loadDeks(keys);
+                    }
+                });
     }
 
     /**
@@ -101,6 +140,36 @@ public class DecryptionDekCache<K, E> {
                 .toCompletableFuture();
     }
 
+    /**
+     * Invoked by Caffeine when many DEKs need to be loaded, as happens when {@link #getAll(List, FilterThreadExecutor)}
+     * finds more than one key missing from the cache.
+     * The edeks are decrypted using one {@link DekManager#decryptEdeks(List, CipherSpec)} call per cipher, allowing
+     * the KMS to decrypt them in bulk.
+     * @param cacheKeys The cache keys
+     * @return A future
+     */
+    private CompletableFuture<Map<CacheKey<E>, Dek<E>>> loadDeks(Set<? extends CacheKey<E>> cacheKeys) {
+        Map<CipherSpec, List<CacheKey<E>>> keysByCipher = new HashMap<>();
+        for (CacheKey<E> cacheKey : cacheKeys) {
+            if (cacheKey != null && !cacheKey.isUnencrypted()) {
+                keysByCipher.computeIfAbsent(cacheKey.cipherSpec(), k -> new ArrayList<>()).add(cacheKey);
+            }
+        }
+        Map<CacheKey<E>, Dek<E>> result = new HashMap<>();
+        var futures = keysByCipher.entrySet().stream().map(entry -> {
+            List<CacheKey<E>> keys = entry.getValue();
+            List<E> edeks = keys.stream().map(CacheKey::edek).toList();
+            return dekManager.decryptEdeks(edeks, entry.getKey()).thenAccept(deks -> {
+                synchronized (result) {
+                    for (int i = 0; i < keys.size(); i++) {
+                        result.put(keys.get(i), deks.get(i));
+                    }
+                }
+            }).toCompletableFuture();
+        }).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures).thenApply(ignored -> result);
+    }
+
     /**
      * Invoked by Caffeine after a DEK is evicted from the cache.
      * This method is executed on the {@code dekCacheExecutor} passed to the constructor.
@@ -126,4 +195,16 @@ public class DecryptionDekCache<K, E> {
                                                                      @NonNull FilterThreadExecutor filterThreadExecutor) {
         return filterThreadExecutor.completingOnFilterThread(decryptorCache.getAll(cacheKeys));
     }
+
+    /**
+     * Gets the DEKs for all the given cache keys from the KMS, bypassing this cache.
+     * The caller is responsible for destroying the returned DEKs.
+     * @param cacheKeys The cache keys
+     * @param filterThreadExecutor The filter thread executor
+     * @return A completion stage which completes on the filter thread with the DEKs for the given {@code cacheKeys}.
+     */
+    public @NonNull CompletionStage<Map<CacheKey<E>, Dek<E>>> getAllUncached(@NonNull List<CacheKey<E>> cacheKeys,
+                                                                             @NonNull FilterThreadExecutor filterThreadExecutor) {
+        return filterThreadExecutor.completingOnFilterThread(loadDeks(new HashSet<>(cacheKeys)));
+    }
 }
@@ -6,6 +6,7 @@
 
 package io.kroxylicious.filter.encryption.inband;
 
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -20,6 +21,8 @@ import com.github.benmanes.caffeine.cache.RemovalCause;
 
 import io.kroxylicious.filter.encryption.EncryptionScheme;
 import io.kroxylicious.filter.encryption.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.KmsCacheStatsCounter;
+import io.kroxylicious.filter.encryption.KmsMetrics;
 import io.kroxylicious.filter.encryption.dek.CipherSpec;
 import io.kroxylicious.filter.encryption.dek.Dek;
 import io.kroxylicious.filter.encryption.dek.DekManager;
@@ -28,7 +31,11 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
- * A cache of DEKs used on the encryption path.
+ * <p>A cache of DEKs used on the encryption path.</p>
+ *
+ * <p>The replacement for a DEK is generated in the background once the DEK has performed a given fraction of its
+ * maximum encryptions, or reached the same fraction of its maximum age. The cached DEK continues to be used until
+ * the replacement is ready, so requests do not wait on the KMS while the DEK is rotated.</p>
  * @param <K> The type of KEK id.
  * @param <E> The type of encrypted DEK.
  */
@@ -45,20 +52,43 @@ public class EncryptionDekCache<K, E> {
     }
 
     private final DekManager<K, E> dekManager;
+    private final long pregenerateRemainingEncryptions;
 
     private final AsyncLoadingCache<CacheKey<K>, Dek<E>> dekCache;
 
+    /**
+     * @param dekManager The DEK manager.
+     * @param dekCacheExecutor The executor used by the cache, or null to use the common pool.
+     * @param dekCacheMaxItems The maximum number of KEKs for which a DEK is cached, or {@link #NO_MAX_CACHE_SIZE}.
+     * @param dekMaxAge The maximum age of a DEK, or null if DEKs do not expire.
+     * @param pregenerateFraction The fraction of its maximum encryptions or age at which a DEK's replacement is generated.
+     * @param kmsMetrics The metrics to which cache hits, misses and evictions are reported, or null.
+     */
     public EncryptionDekCache(@NonNull DekManager<K, E> dekManager,
                               @Nullable Executor dekCacheExecutor,
-                              int dekCacheMaxItems) {
+                              int dekCacheMaxItems,
+                              @Nullable Duration dekMaxAge,
+                              double pregenerateFraction,
+                              @Nullable KmsMetrics kmsMetrics) {
+        if (!(pregenerateFraction > 0 && pregenerateFraction <= 1)) {
+            throw new IllegalArgumentException("pregenerateFraction must be greater than zero and at most one");
+        }
         this.dekManager = Objects.requireNonNull(dekManager);
+        this.pregenerateRemainingEncryptions = (long) (dekManager.maxEncryptionsPerDek() * (1 - pregenerateFraction));
         Caffeine<Object, Object> cache = Caffeine.newBuilder();
         if (dekCacheMaxItems != NO_MAX_CACHE_SIZE) {
             cache = cache.maximumSize(dekCacheMaxItems);
         }
+        if (dekMaxAge != null) {
+            cache = cache.expireAfterWrite(dekMaxAge)
+                    .refreshAfterWrite(Duration.ofNanos((long) (dekMaxAge.toNanos() * pregenerateFraction)));
+        }
         if (dekCacheExecutor != null) {
             cache = cache.executor(dekCacheExecutor);
         }
+        if (kmsMetrics != null) {
+            cache = cache.recordStats(() -> new KmsCacheStatsCounter(kmsMetrics, KmsMetrics.KmsCache.ENCRYPTION_DEK));
+        }
 
         this.dekCache = cache
                 .removalListener(this::afterCacheEviction)
@@ -107,7 +137,31 @@ public class EncryptionDekCache<K, E> {
      */
     public @NonNull CompletionStage<Dek<E>> get(@NonNull EncryptionScheme<K> encryptionScheme,
                                                 @NonNull FilterThreadExecutor filterThreadExecutor) {
-        return filterThreadExecutor.completingOnFilterThread(dekCache.get(cacheKey(encryptionScheme)));
+        CacheKey<K> cacheKey = cacheKey(encryptionScheme);
+        return filterThreadExecutor.completingOnFilterThread(dekCache.get(cacheKey).thenApply(dek -> {
+            maybePregenerate(cacheKey, dek);
+            return dek;
+        }));
+    }
+
+    /**
+     * Starts generating the replacement for the given DEK in the background, if it has performed enough encryptions.
+     * Once generated the replacement is cached in place of the DEK, which is then destroyed for encryption.
+     * A replacement which is already being generated is not generated again.
+     */
+    private void maybePregenerate(@NonNull CacheKey<K> cacheKey,
+                                  @NonNull Dek<E> dek) {
+        if (dek.remainingEncryptions() <= pregenerateRemainingEncryptions && isCached(cacheKey, dek)) {
+            LOGGER.debug("Pregenerating the replacement for DEK {}", dek);
+            dekCache.synchronous().refresh(cacheKey);
+        }
+    }
+
+    private boolean isCached(@NonNull CacheKey<K> cacheKey,
+                             @NonNull Dek<E> dek) {
+        var cached = dekCache.getIfPresent(cacheKey);
+        // if the DEK has already been replaced there's no need to replace it again
+        return cached != null && cached.getNow(null) == dek;
     }
 
     /**
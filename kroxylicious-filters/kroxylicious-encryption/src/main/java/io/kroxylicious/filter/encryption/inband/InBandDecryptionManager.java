@@ -14,11 +14,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.IntFunction;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
 import org.apache.kafka.common.utils.ByteBufferOutputStream;
 
 import io.kroxylicious.filter.encryption.DecryptionManager;
@@ -26,18 +28,22 @@ import io.kroxylicious.filter.encryption.EncryptionException;
 import io.kroxylicious.filter.encryption.EncryptionManager;
 import io.kroxylicious.filter.encryption.EncryptionVersion;
 import io.kroxylicious.filter.encryption.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.WrapperVersion;
+import io.kroxylicious.filter.encryption.dek.CipherSpec;
 import io.kroxylicious.filter.encryption.dek.Dek;
 import io.kroxylicious.filter.encryption.dek.DekManager;
+import io.kroxylicious.filter.encryption.dek.DestroyedDekException;
 import io.kroxylicious.filter.encryption.records.RecordStream;
 import io.kroxylicious.kms.service.Serde;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
-import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * An implementation of {@link EncryptionManager} and {@link DecryptionManager}
  * that uses envelope encryption, AES-GCM and stores the KEK id and encrypted DEK
  * alongside the record ("in-band").
+ * The decryption of each partition's records is performed using the {@code cryptoExecutor},
+ * with the result being completed back on the filter thread.
  * @param <K> The type of KEK id.
  * @param <E> The type of the encrypted DEK.
  */
@@ -46,13 +52,16 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
     private final DekManager<K, E> dekManager;
     private final FilterThreadExecutor filterThreadExecutor;
     private final DecryptionDekCache<K, E> dekCache;
+    private final Executor cryptoExecutor;
 
     public InBandDecryptionManager(@NonNull DekManager<K, E> dekManager,
                                    @NonNull DecryptionDekCache<K, E> dekCache,
-                                   @Nullable FilterThreadExecutor filterThreadExecutor) {
+                                   @NonNull FilterThreadExecutor filterThreadExecutor,
+                                   @NonNull Executor cryptoExecutor) {
         this.dekManager = Objects.requireNonNull(dekManager);
         this.dekCache = Objects.requireNonNull(dekCache);
-        this.filterThreadExecutor = filterThreadExecutor;
+        this.filterThreadExecutor = Objects.requireNonNull(filterThreadExecutor);
+        this.cryptoExecutor = Objects.requireNonNull(cryptoExecutor);
     }
 
     /**
@@ -98,23 +107,37 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
         }
 
         CompletionStage<List<DecryptState<E>>> decryptStates = resolveAll(topicName, partition, records);
-        return decryptStates.thenApply(
-                decryptStateList -> {
-                    try {
-                        return decrypt(topicName,
-                                partition,
-                                records,
-                                decryptStateList,
-                                allocateBufferForDecrypt(records, bufferAllocator));
-                    }
-                    finally {
-                        for (var ds : decryptStateList) {
-                            if (ds != null && ds.decryptor() != null) {
-                                ds.decryptor().close();
-                            }
-                        }
-                    }
-                });
+        return decryptStates.thenCompose(decryptStateList -> {
+            // the buffer is allocated on the filter thread, the decryption itself happens on the crypto executor
+            ByteBufferOutputStream buffer;
+            try {
+                buffer = allocateBufferForDecrypt(records, bufferAllocator);
+            }
+            catch (RuntimeException e) {
+                closeDecryptors(decryptStateList);
+                throw e;
+            }
+            return filterThreadExecutor.completingOnFilterThread(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return decrypt(topicName,
+                            partition,
+                            records,
+                            decryptStateList,
+                            buffer);
+                }
+                finally {
+                    closeDecryptors(decryptStateList);
+                }
+            }, cryptoExecutor));
+        });
+    }
+
+    private static <E> void closeDecryptors(@NonNull List<DecryptState<E>> decryptStateList) {
+        for (var ds : decryptStateList) {
+            if (ds != null && ds.decryptor() != null) {
+                ds.decryptor().close();
+            }
+        }
     }
 
     /**
@@ -136,6 +159,7 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
         // itself as a hash key.
         var cacheKeys = new ArrayList<DecryptionDekCache.CacheKey<E>>();
         var states = new ArrayList<DecryptState<E>>();
+        var batchCacheKeys = new BatchCacheKeys<>(topicName, partition, serde);
 
         // Iterate the records collecting cache keys and decrypt states
         // both cacheKeys and decryptStates use the list index as a way of identifying the corresponding
@@ -143,8 +167,7 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
         RecordStream.ofRecords(records).forEachRecord((batch, record, ignored) -> {
             var decryptionVersion = decryptionVersion(topicName, partition, record);
             if (decryptionVersion != null) {
-                ByteBuffer wrapper = record.value();
-                cacheKeys.add(decryptionVersion.wrapperVersion().readSpecAndEdek(wrapper, serde, DecryptionDekCache.CacheKey::new));
+                cacheKeys.add(batchCacheKeys.cacheKey(batch, record, decryptionVersion.wrapperVersion()));
                 states.add(new DecryptState<>(decryptionVersion));
             }
             else {
@@ -155,9 +178,71 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
         });
         // Lookup the decryptors for the cache keys
         return filterThreadExecutor.completingOnFilterThread(dekCache.getAll(cacheKeys, filterThreadExecutor))
-                .thenApply(cacheKeyDecryptorMap ->
-                // Once we have the decryptors from the cache...
-                issueDecryptors(cacheKeyDecryptorMap, cacheKeys, states));
+                .thenCompose(cacheKeyDecryptorMap -> {
+                    // Once we have the decryptors from the cache...
+                    try {
+                        return CompletableFuture.completedFuture(issueDecryptors(cacheKeyDecryptorMap, cacheKeys, states));
+                    }
+                    catch (DestroyedDekException e) {
+                        // ...unless a DEK was evicted from the bounded cache, and so destroyed, before we could use it,
+                        // in which case we get the DEKs again, bypassing the cache
+                        return dekCache.getAllUncached(cacheKeys, filterThreadExecutor)
+                                .thenApply(uncachedDeks -> {
+                                    try {
+                                        return issueDecryptors(uncachedDeks, cacheKeys, states);
+                                    }
+                                    finally {
+                                        // the keys are destroyed once the decryptors are closed
+                                        uncachedDeks.values().forEach(Dek::destroyForDecrypt);
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Resolves the cache keys of the encrypted records of a batch. The EDEK is deserialized only when it differs
+     * from that of the previous record of the batch, so a batch whose records all share a DEK is resolved once.
+     * @param <E> The type of the encrypted DEK.
+     */
+    private static final class BatchCacheKeys<E> {
+        private final String topicName;
+        private final int partition;
+        private final Serde<E> serde;
+        private RecordBatch batch;
+        private ByteBuffer edek;
+        private DecryptionDekCache.CacheKey<E> cacheKey;
+
+        BatchCacheKeys(String topicName, int partition, Serde<E> serde) {
+            this.topicName = topicName;
+            this.partition = partition;
+            this.serde = serde;
+        }
+
+        DecryptionDekCache.CacheKey<E> cacheKey(RecordBatch batch, Record record, WrapperVersion wrapperVersion) {
+            if (batch != this.batch) {
+                this.batch = batch;
+                this.edek = null;
+                this.cacheKey = null;
+            }
+            ByteBuffer wrapper = record.value();
+            ByteBuffer recordEdek = wrapperVersion.edek(wrapper);
+            if (recordEdek == null) {
+                if (cacheKey == null) {
+                    throw new EncryptionException("The EDEK for the record at offset " + record.offset()
+                            + " in partition " + partition
+                            + " of topic " + topicName
+                            + " is missing, because the first encrypted record of its batch has been removed");
+                }
+                return cacheKey;
+            }
+            CipherSpec cipherSpec = wrapperVersion.cipherSpec(wrapper);
+            if (cacheKey == null || cacheKey.cipherSpec() != cipherSpec || !recordEdek.equals(edek)) {
+                edek = recordEdek;
+                cacheKey = new DecryptionDekCache.CacheKey<>(cipherSpec, serde.deserialize(recordEdek.duplicate()));
+            }
+            return cacheKey;
+        }
     }
 
     private @NonNull List<DecryptState<E>> issueDecryptors(@NonNull Map<DecryptionDekCache.CacheKey<E>, Dek<E>> cacheKeyDecryptorMap,
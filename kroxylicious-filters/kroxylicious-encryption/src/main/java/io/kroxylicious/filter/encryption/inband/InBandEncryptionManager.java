@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.IntFunction;
 
 import org.apache.kafka.common.record.MemoryRecords;
@@ -28,12 +29,21 @@ import io.kroxylicious.filter.encryption.EncryptionVersion;
 import io.kroxylicious.filter.encryption.FilterThreadExecutor;
 import io.kroxylicious.filter.encryption.dek.BufferTooSmallException;
 import io.kroxylicious.filter.encryption.dek.Dek;
+import io.kroxylicious.filter.encryption.dek.DestroyedDekException;
 import io.kroxylicious.filter.encryption.dek.ExhaustedDekException;
 import io.kroxylicious.filter.encryption.records.RecordStream;
 import io.kroxylicious.kms.service.Serde;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
+/**
+ * An implementation of {@link EncryptionManager} that uses envelope encryption, AES-GCM and stores the KEK id
+ * and encrypted DEK alongside the record ("in-band").
+ * The encryption of each partition's records is performed using the {@code cryptoExecutor}, so that
+ * it does not occupy the filter thread, with the result being completed back on the filter thread.
+ * @param <K> The type of KEK id.
+ * @param <E> The type of the encrypted DEK.
+ */
 public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
 
     private static final int MAX_ATTEMPTS = 3;
@@ -72,16 +82,21 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
     private final EncryptionDekCache<K, E> dekCache;
     @NonNull
     private final FilterThreadExecutor filterThreadExecutor;
+    @NonNull
+    private final Executor cryptoExecutor;
     private final int recordBufferInitialBytes;
     private final int recordBufferMaxBytes;
 
-    public InBandEncryptionManager(@NonNull Serde<E> edekSerde,
+    public InBandEncryptionManager(@NonNull EncryptionVersion encryptionVersion,
+                                   @NonNull Serde<E> edekSerde,
                                    int recordBufferInitialBytes,
                                    int recordBufferMaxBytes,
                                    @NonNull EncryptionDekCache<K, E> dekCache,
-                                   @NonNull FilterThreadExecutor filterThreadExecutor) {
-        this.filterThreadExecutor = filterThreadExecutor;
-        this.encryptionVersion = EncryptionVersion.V1; // TODO read from config
+                                   @NonNull FilterThreadExecutor filterThreadExecutor,
+                                   @NonNull Executor cryptoExecutor) {
+        this.filterThreadExecutor = Objects.requireNonNull(filterThreadExecutor);
+        this.cryptoExecutor = Objects.requireNonNull(cryptoExecutor);
+        this.encryptionVersion = Objects.requireNonNull(encryptionVersion);
         this.edekSerde = Objects.requireNonNull(edekSerde);
         if (recordBufferInitialBytes <= 0) {
             throw new IllegalArgumentException();
@@ -145,23 +160,47 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
         return currentDek(encryptionScheme).thenCompose(dek -> {
             // if it's not alive we know a previous encrypt call has removed this stage from the cache and fall through to retry encrypt
             if (!dek.isDestroyed()) {
-                try (Dek<E>.Encryptor encryptor = dek.encryptor(allRecordsCount)) {
-                    var encryptedMemoryRecords = encryptBatches(
-                            topicName,
+                Dek<E>.Encryptor encryptor;
+                try {
+                    encryptor = dek.encryptor(allRecordsCount);
+                }
+                catch (ExhaustedDekException e) {
+                    rotateKeyContext(encryptionScheme, dek);
+                    // recurse, incrementing the attempt number
+                    return attemptEncrypt(topicName,
                             partition,
                             encryptionScheme,
                             records,
-                            encryptor,
+                            attempt + 1,
+                            batchRecordCounts,
                             bufferAllocator);
-                    return CompletableFuture.completedFuture(encryptedMemoryRecords);
                 }
-                catch (ExhaustedDekException e) {
-                    rotateKeyContext(encryptionScheme, dek);
-                    // fall through to recursive call below...
+                catch (DestroyedDekException e) {
+                    // the DEK was replaced in the cache after we got it, so get the replacement
+                    return attemptEncrypt(topicName,
+                            partition,
+                            encryptionScheme,
+                            records,
+                            attempt + 1,
+                            batchRecordCounts,
+                            bufferAllocator);
                 }
                 catch (Exception e) {
                     return CompletableFuture.failedFuture(e);
                 }
+                // the buffer is allocated on the filter thread, the encryption itself happens on the crypto executor
+                ByteBufferOutputStream buffer = allocateBufferForEncrypt(records, bufferAllocator);
+                return filterThreadExecutor.completingOnFilterThread(CompletableFuture.supplyAsync(() -> {
+                    try (encryptor) {
+                        return encryptBatches(
+                                topicName,
+                                partition,
+                                encryptionScheme,
+                                records,
+                                encryptor,
+                                buffer);
+                    }
+                }, cryptoExecutor));
             }
             // recurse, incrementing the attempt number
             return attemptEncrypt(topicName,
@@ -180,13 +219,15 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
                                          @NonNull EncryptionScheme<K> encryptionScheme,
                                          @NonNull MemoryRecords memoryRecords,
                                          @NonNull Dek<E>.Encryptor encryptor,
-                                         @NonNull IntFunction<ByteBufferOutputStream> bufferAllocator) {
+                                         @NonNull ByteBufferOutputStream buffer) {
         ByteBuffer recordBuffer = ByteBuffer.allocate(recordBufferInitialBytes);
+        int initialPosition = buffer.position();
         do {
             try {
+                buffer.position(initialPosition);
                 return RecordStream.ofRecords(memoryRecords)
                         .mapConstant(encryptor)
-                        .toMemoryRecords(allocateBufferForEncrypt(memoryRecords, bufferAllocator),
+                        .toMemoryRecords(buffer,
                                 new RecordEncryptor<>(topicName,
                                         partition,
                                         encryptionVersion,
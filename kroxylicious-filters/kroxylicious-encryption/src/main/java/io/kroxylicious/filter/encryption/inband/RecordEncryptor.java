@@ -51,6 +51,7 @@ class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor> {
     private @Nullable ByteBuffer transformedValue;
     private @Nullable Header[] transformedHeaders;
     private RecordBatch batch;
+    private boolean encryptedInBatch;
 
     /**
      * Constructor (obviously).
@@ -77,6 +78,7 @@ class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor> {
     @Override
     public void initBatch(@NonNull RecordBatch batch) {
         this.batch = Objects.requireNonNull(batch);
+        this.encryptedInBatch = false;
     }
 
     @Override
@@ -141,11 +143,13 @@ class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor> {
                 partition,
                 batch,
                 kafkaRecord,
+                !encryptedInBatch,
                 encryptor,
                 encryptionVersion.parcelVersion(),
                 encryptionScheme.aadSpec(),
                 encryptionScheme.recordFields(),
                 buffer);
+        encryptedInBatch = true;
         recordBuffer.flip();
         return recordBuffer;
     }
@@ -7,18 +7,24 @@
 package io.kroxylicious.filter.encryption;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.crypto.SecretKey;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryEdek;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.UnitTestingKmsService;
 import io.kroxylicious.kms.service.DekPair;
 import io.kroxylicious.kms.service.Kms;
 import io.kroxylicious.kms.service.Serde;
+import io.kroxylicious.kms.service.UnknownAliasException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,7 +39,7 @@ class CachingKmsTest {
         Kms<Long, Long> kms = mock(Kms.class);
         Serde mockSerde = mock(Serde.class);
         Mockito.when(kms.edekSerde()).thenReturn(mockSerde);
-        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, mock(KmsMetrics.class));
         Serde<Long> longSerde = caching.edekSerde();
         assertThat(longSerde).isSameAs(mockSerde);
         verify(kms).edekSerde();
@@ -44,7 +50,7 @@ class CachingKmsTest {
         Kms<Long, Long> kms = mock(Kms.class);
         DekPair<Long> eDekPair = new DekPair<>(1L, mock(SecretKey.class));
         Mockito.when(kms.generateDekPair(any())).thenReturn(CompletableFuture.completedFuture(eDekPair));
-        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, mock(KmsMetrics.class));
         CompletionStage<DekPair<Long>> dekPairCompletionStage = caching.generateDekPair(1L);
         assertThat(dekPairCompletionStage).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(eDekPair);
         verify(kms).generateDekPair(1L);
@@ -55,18 +61,39 @@ class CachingKmsTest {
         Kms<Long, Long> kms = mock(Kms.class);
         SecretKey secretKey = mock(SecretKey.class);
         Mockito.when(kms.decryptEdek(any())).thenReturn(CompletableFuture.completedFuture(secretKey));
-        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO,
+                mock(KmsMetrics.class));
         assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
         assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
         verify(kms, times(1)).decryptEdek(1L);
     }
 
+    @Test
+    void testDecryptEdeksOnlyDecryptsUncachedEdeks() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        SecretKey secretKey1 = mock(SecretKey.class);
+        SecretKey secretKey2 = mock(SecretKey.class);
+        SecretKey secretKey3 = mock(SecretKey.class);
+        Mockito.when(kms.decryptEdek(1L)).thenReturn(CompletableFuture.completedFuture(secretKey1));
+        Mockito.when(kms.decryptEdeks(any())).thenAnswer(invocation -> {
+            List<Long> edeks = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(edeks.stream().map(edek -> edek == 2L ? secretKey2 : secretKey3).toList());
+        });
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 10L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO,
+                mock(KmsMetrics.class));
+        assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey1);
+        assertThat(caching.decryptEdeks(List.of(3L, 1L, 2L))).succeedsWithin(5, TimeUnit.SECONDS)
+                .isEqualTo(List.of(secretKey3, secretKey1, secretKey2));
+        verify(kms, times(1)).decryptEdek(1L);
+        verify(kms, times(1)).decryptEdeks(Mockito.argThat(edeks -> edeks.size() == 2 && edeks.containsAll(List.of(2L, 3L))));
+    }
+
     @Test
     void testDecryptEdekNotCachedIfExpiryZero() {
         Kms<Long, Long> kms = mock(Kms.class);
         SecretKey secretKey = mock(SecretKey.class);
         Mockito.when(kms.decryptEdek(any())).thenReturn(CompletableFuture.completedFuture(secretKey));
-        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, mock(KmsMetrics.class));
         assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
         assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
         verify(kms, times(2)).decryptEdek(1L);
@@ -77,7 +104,8 @@ class CachingKmsTest {
         Kms<Long, Long> kms = mock(Kms.class);
         long kekId = 2L;
         Mockito.when(kms.resolveAlias(any())).thenReturn(CompletableFuture.completedFuture(kekId));
-        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofHours(1), Duration.ofMinutes(8));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofHours(1), Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO,
+                mock(KmsMetrics.class));
         assertThat(caching.resolveAlias("a")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
         assertThat(caching.resolveAlias("a")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
         verify(kms, times(1)).resolveAlias("a");
@@ -88,10 +116,191 @@ class CachingKmsTest {
         Kms<Long, Long> kms = mock(Kms.class);
         long kekId = 2L;
         Mockito.when(kms.resolveAlias(any())).thenReturn(CompletableFuture.completedFuture(kekId));
-        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, mock(KmsMetrics.class));
         assertThat(caching.resolveAlias("a")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
         assertThat(caching.resolveAlias("a")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
         verify(kms, times(2)).resolveAlias("a");
     }
 
+    @Test
+    void testUnknownAliasCached() {
+        // given
+        var kms = UnitTestingKmsService.newInstance().buildKms(new UnitTestingKmsService.Config());
+        var ticker = new AtomicLong();
+        Kms<UUID, InMemoryEdek> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofMinutes(10), Duration.ofMinutes(8), Duration.ZERO,
+                Duration.ofSeconds(30), mock(KmsMetrics.class), ticker::get, Runnable::run);
+        assertThat(caching.resolveAlias("a")).failsWithin(5, TimeUnit.SECONDS).withThrowableThat().havingCause().isInstanceOf(UnknownAliasException.class);
+        UUID kekId = kms.generateKey();
+        kms.createAlias(kekId, "a");
+
+        // when
+        CompletionStage<UUID> cached = caching.resolveAlias("a");
+        ticker.addAndGet(Duration.ofSeconds(30).toNanos());
+        CompletionStage<UUID> expired = caching.resolveAlias("a");
+
+        // then
+        assertThat(cached).failsWithin(5, TimeUnit.SECONDS).withThrowableThat().havingCause().isInstanceOf(UnknownAliasException.class);
+        assertThat(expired).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
+    }
+
+    @Test
+    void testUnknownAliasNotCachedIfExpiryZero() {
+        // given
+        var kms = UnitTestingKmsService.newInstance().buildKms(new UnitTestingKmsService.Config());
+        Kms<UUID, InMemoryEdek> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofMinutes(10), Duration.ofMinutes(8), Duration.ZERO,
+                Duration.ZERO, mock(KmsMetrics.class), new AtomicLong()::get, Runnable::run);
+        assertThat(caching.resolveAlias("a")).failsWithin(5, TimeUnit.SECONDS).withThrowableThat().havingCause().isInstanceOf(UnknownAliasException.class);
+        UUID kekId = kms.generateKey();
+        kms.createAlias(kekId, "a");
+
+        // when
+        CompletionStage<UUID> resolved = caching.resolveAlias("a");
+
+        // then
+        assertThat(resolved).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
+    }
+
+    @Test
+    void testOtherResolveAliasFailuresNotCached() {
+        // given
+        Kms<Long, Long> kms = mock(Kms.class);
+        Mockito.when(kms.resolveAlias(any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")),
+                CompletableFuture.completedFuture(2L));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofMinutes(10), Duration.ofMinutes(8), Duration.ZERO,
+                Duration.ofSeconds(30), mock(KmsMetrics.class), new AtomicLong()::get, Runnable::run);
+        assertThat(caching.resolveAlias("a")).failsWithin(5, TimeUnit.SECONDS);
+
+        // when
+        CompletionStage<Long> resolved = caching.resolveAlias("a");
+
+        // then
+        assertThat(resolved).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(2L);
+    }
+
+    @Test
+    void testExpiredAliasServedWhileResolvedAgain() {
+        // given
+        Kms<Long, Long> kms = mock(Kms.class);
+        CompletableFuture<Long> slowResolution = new CompletableFuture<>();
+        Mockito.when(kms.resolveAlias(any())).thenReturn(CompletableFuture.completedFuture(1L), slowResolution);
+        var ticker = new AtomicLong();
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofMinutes(10), Duration.ofMinutes(8), Duration.ofMinutes(10),
+                Duration.ofSeconds(30), mock(KmsMetrics.class), ticker::get, Runnable::run);
+        assertThat(caching.resolveAlias("a")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(1L);
+        ticker.addAndGet(Duration.ofMinutes(15).toNanos());
+
+        // when
+        CompletionStage<Long> stale = caching.resolveAlias("a");
+
+        // then
+        assertThat(stale).isCompletedWithValue(1L);
+        slowResolution.complete(2L);
+        assertThat(caching.resolveAlias("a")).isCompletedWithValue(2L);
+        verify(kms, times(2)).resolveAlias("a");
+    }
+
+    @Test
+    void testAliasNotServedAfterServeStalePeriod() {
+        // given
+        var kms = UnitTestingKmsService.newInstance().buildKms(new UnitTestingKmsService.Config());
+        var ticker = new AtomicLong();
+        Kms<UUID, InMemoryEdek> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofMinutes(10), Duration.ofMinutes(8), Duration.ofMinutes(10),
+                Duration.ofSeconds(30), mock(KmsMetrics.class), ticker::get, Runnable::run);
+        UUID kekId = kms.generateKey();
+        kms.createAlias(kekId, "a");
+        assertThat(caching.resolveAlias("a")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(kekId);
+        UUID rotatedKekId = kms.generateKey();
+        kms.createAlias(rotatedKekId, "a");
+        ticker.addAndGet(Duration.ofMinutes(20).toNanos());
+
+        // when
+        CompletionStage<UUID> resolved = caching.resolveAlias("a");
+
+        // then
+        assertThat(resolved).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(rotatedKekId);
+    }
+
+    @Test
+    void testDecryptEdekCacheHitsAndMissesCounted() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        KmsMetrics metrics = mock(KmsMetrics.class);
+        SecretKey secretKey = mock(SecretKey.class);
+        Mockito.when(kms.decryptEdek(any())).thenReturn(CompletableFuture.completedFuture(secretKey));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, metrics);
+        assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
+        assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
+        verify(metrics).countCacheMisses(KmsMetrics.KmsCache.DECRYPTED_DEK, 1);
+        verify(metrics).countCacheHits(KmsMetrics.KmsCache.DECRYPTED_DEK, 1);
+    }
+
+    @Test
+    void testConcurrentDecryptEdekCoalescedAndCounted() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        KmsMetrics metrics = mock(KmsMetrics.class);
+        CompletableFuture<SecretKey> decrypted = new CompletableFuture<>();
+        Mockito.when(kms.decryptEdek(any())).thenReturn(decrypted);
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, metrics);
+        CompletionStage<SecretKey> first = caching.decryptEdek(1L);
+        CompletionStage<SecretKey> second = caching.decryptEdek(1L);
+        SecretKey secretKey = mock(SecretKey.class);
+        decrypted.complete(secretKey);
+        assertThat(first).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
+        assertThat(second).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
+        assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey);
+        verify(kms, times(1)).decryptEdek(1L);
+        verify(metrics, times(1)).countDecryptEdekCoalesced();
+    }
+
+    @Test
+    void testDecryptEdeksCoalescedWithDecryptEdekInFlight() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        KmsMetrics metrics = mock(KmsMetrics.class);
+        SecretKey secretKey1 = mock(SecretKey.class);
+        SecretKey secretKey2 = mock(SecretKey.class);
+        CompletableFuture<SecretKey> decrypted = new CompletableFuture<>();
+        Mockito.when(kms.decryptEdek(1L)).thenReturn(decrypted);
+        Mockito.when(kms.decryptEdeks(List.of(2L))).thenReturn(CompletableFuture.completedFuture(List.of(secretKey2)));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 10L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, metrics);
+        caching.decryptEdek(1L);
+        CompletionStage<List<SecretKey>> result = caching.decryptEdeks(List.of(1L, 2L));
+        decrypted.complete(secretKey1);
+        assertThat(result).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(List.of(secretKey1, secretKey2));
+        verify(kms).decryptEdeks(List.of(2L));
+        verify(metrics, times(1)).countDecryptEdekCoalesced();
+    }
+
+    @Test
+    void testDecryptEdekFailureSharedButNotCached() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        KmsMetrics metrics = mock(KmsMetrics.class);
+        CompletableFuture<SecretKey> decrypted = new CompletableFuture<>();
+        Mockito.when(kms.decryptEdek(any())).thenReturn(decrypted, CompletableFuture.completedFuture(mock(SecretKey.class)));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, metrics);
+        CompletionStage<SecretKey> first = caching.decryptEdek(1L);
+        CompletionStage<SecretKey> second = caching.decryptEdek(1L);
+        decrypted.completeExceptionally(new IllegalStateException("boom"));
+        assertThat(first).failsWithin(5, TimeUnit.SECONDS);
+        assertThat(second).failsWithin(5, TimeUnit.SECONDS);
+        assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS);
+        verify(kms, times(2)).decryptEdek(1L);
+        verify(metrics, times(1)).countDecryptEdekCoalesced();
+    }
+
+    @Test
+    void testConcurrentResolveAliasCoalescedAndCounted() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        KmsMetrics metrics = mock(KmsMetrics.class);
+        CompletableFuture<Long> resolved = new CompletableFuture<>();
+        Mockito.when(kms.resolveAlias(any())).thenReturn(resolved);
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 1L, Duration.ZERO, 1L, Duration.ofMinutes(10), Duration.ofMinutes(8), Duration.ZERO, Duration.ZERO, metrics);
+        CompletionStage<Long> first = caching.resolveAlias("alias");
+        CompletionStage<Long> second = caching.resolveAlias("alias");
+        resolved.complete(1L);
+        assertThat(first).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(1L);
+        assertThat(second).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(1L);
+        assertThat(caching.resolveAlias("alias")).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(1L);
+        verify(kms, times(1)).resolveAlias("alias");
+        verify(metrics, times(1)).countResolveAliasCoalesced();
+    }
+
 }
@@ -7,16 +7,25 @@
 package io.kroxylicious.filter.encryption;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import io.kroxylicious.kms.service.Kms;
 import io.kroxylicious.kms.service.KmsService;
 import io.kroxylicious.kms.service.Serde;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -26,7 +35,7 @@ class EnvelopeEncryptionTest {
 
     @Test
     void shouldInitAndCreateFilter() {
-        EnvelopeEncryption.Config config = new EnvelopeEncryption.Config("KMS", null, "SELECTOR", null);
+        EnvelopeEncryption.Config config = new EnvelopeEncryption.Config("KMS", null, "SELECTOR", null, null, null, null, null);
         var ee = new EnvelopeEncryption<>();
         var fc = mock(FilterFactoryContext.class);
         var kmsService = mock(KmsService.class);
@@ -50,11 +59,146 @@ class EnvelopeEncryptionTest {
 
     @Test
     void testKmsCacheConfigDefaults() {
-        EnvelopeEncryption.KmsCacheConfig config = new EnvelopeEncryption.Config("vault", 1L, "selector", 1L).kmsCache();
+        EnvelopeEncryption.KmsCacheConfig config = new EnvelopeEncryption.Config("vault", 1L, "selector", 1L, null, null, null, null).kmsCache();
         assertThat(config.decryptedDekCacheSize()).isEqualTo(1000);
         assertThat(config.decryptedDekExpireAfterAccessDuration()).isEqualTo(Duration.ofHours(1));
         assertThat(config.resolvedAliasCacheSize()).isEqualTo(1000);
         assertThat(config.resolvedAliasExpireAfterWriteDuration()).isEqualTo(Duration.ofMinutes(10));
         assertThat(config.resolvedAliasRefreshAfterWriteDuration()).isEqualTo(Duration.ofMinutes(8));
+        assertThat(config.resolvedAliasServeStaleDuration()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(config.resolvedAliasNotFoundExpireAfterWriteDuration()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(config.encryptionDekCacheSize()).isEqualTo(10000);
+        assertThat(config.decryptionDekCacheMaxBytes()).isEqualTo(64L * 1024 * 1024);
+    }
+
+    @Test
+    void testKmsCacheConfigDeserializedWithDefaults() throws Exception {
+        var mapper = new ObjectMapper(new YAMLFactory());
+        var config = mapper.readValue("""
+                kms: vault
+                selector: selector
+                kmsCache:
+                  decryptedDekCacheSize: 50000
+                  decryptionDekCacheMaxBytes: 1024
+                """, EnvelopeEncryption.Config.class).kmsCache();
+        assertThat(config.decryptedDekCacheSize()).isEqualTo(50000);
+        assertThat(config.decryptionDekCacheMaxBytes()).isEqualTo(1024L);
+        assertThat(config.decryptedDekExpireAfterAccessDuration()).isEqualTo(Duration.ofHours(1));
+        assertThat(config.encryptionDekCacheSize()).isEqualTo(10000);
+    }
+
+    @Test
+    void shouldRejectInvalidKmsCacheConfig() {
+        assertThatThrownBy(() -> new EnvelopeEncryption.KmsCacheConfig(0, null, null, null, null, null, null, null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("decryptedDekCacheSize");
+        assertThatThrownBy(() -> new EnvelopeEncryption.KmsCacheConfig(null, null, null, null, null, null, null, null, -1L))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("decryptionDekCacheMaxBytes");
+        assertThatThrownBy(() -> new EnvelopeEncryption.KmsCacheConfig(null, null, null, null, null, null, -1L, null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("resolvedAliasNotFoundExpireAfterWriteSeconds");
+    }
+
+    @Test
+    void testDekRotationConfigDefaults() {
+        EnvelopeEncryption.DekRotationConfig config = new EnvelopeEncryption.Config("vault", 1L, "selector", 1L, null, null, null, null).dekRotation();
+        assertThat(config.maxEncryptions()).isEqualTo(5_000_000L);
+        assertThat(config.maxAge()).isNull();
+        assertThat(config.pregenerateFraction()).isEqualTo(0.8);
+    }
+
+    @Test
+    void shouldRejectInvalidDekRotationConfig() {
+        assertThatThrownBy(() -> new EnvelopeEncryption.DekRotationConfig(null, 0L, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("maxAgeSeconds");
+        assertThatThrownBy(() -> new EnvelopeEncryption.DekRotationConfig(null, null, 1.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("pregenerateFraction");
+    }
+
+    @Test
+    void testCryptoPoolConfigDefaults() {
+        EnvelopeEncryption.CryptoPoolConfig config = new EnvelopeEncryption.Config("vault", 1L, "selector", 1L, null, null, null, null).cryptoPool();
+        assertThat(config.threads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+        assertThat(config.queueCapacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void testEncryptionVersionDefault() {
+        var config = new EnvelopeEncryption.Config("vault", 1L, "selector", 1L, null, null, null, null);
+        assertThat(config.encryptionVersion()).isEqualTo(EncryptionVersion.V1);
+    }
+
+    @Test
+    void shouldRejectInvalidCryptoPoolConfig() {
+        assertThatThrownBy(() -> new EnvelopeEncryption.CryptoPoolConfig(-1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new EnvelopeEncryption.CryptoPoolConfig(1, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRunOnCryptoPoolThread() {
+        // given
+        var registry = new SimpleMeterRegistry();
+        Executor executor = EnvelopeEncryption.buildCryptoPool(new EnvelopeEncryption.CryptoPoolConfig(2, 10), registry).executor();
+
+        // when
+        String threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor).join();
+
+        // then
+        assertThat(threadName).startsWith("kroxylicious-crypto-");
+        assertThat(registry.get(EnvelopeEncryption.CRYPTO_QUEUE_DEPTH_METER).gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldRunInlineWhenCryptoPoolHasNoThreads() {
+        // given
+        var registry = new SimpleMeterRegistry();
+        Executor executor = EnvelopeEncryption.buildCryptoPool(new EnvelopeEncryption.CryptoPoolConfig(0, 10), registry).executor();
+
+        // when
+        String threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor).join();
+
+        // then
+        assertThat(threadName).isEqualTo(Thread.currentThread().getName());
+        assertThat(registry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void shouldShareCryptoPoolBetweenInitializations() {
+        // given
+        var registry = new SimpleMeterRegistry();
+        var ee = new EnvelopeEncryption<>();
+        var config = new EnvelopeEncryption.CryptoPoolConfig(2, 10);
+
+        // when
+        Executor first = ee.cryptoExecutor(config, registry);
+        Executor second = ee.cryptoExecutor(new EnvelopeEncryption.CryptoPoolConfig(2, 10), registry);
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(registry.find(EnvelopeEncryption.CRYPTO_QUEUE_DEPTH_METER).gauges()).hasSize(1);
+    }
+
+    @Test
+    void shouldReplaceCryptoPoolWhenConfigChanges() {
+        // given
+        var registry = new SimpleMeterRegistry();
+        var ee = new EnvelopeEncryption<>();
+        Executor first = ee.cryptoExecutor(new EnvelopeEncryption.CryptoPoolConfig(2, 10), registry);
+
+        // when
+        Executor second = ee.cryptoExecutor(new EnvelopeEncryption.CryptoPoolConfig(1, 10), registry);
+
+        // then
+        assertThat(second).isNotSameAs(first);
+        assertThat(first).isInstanceOfSatisfying(ExecutorService.class, executorService -> assertThat(executorService.isShutdown()).isTrue());
+        assertThat(registry.find(EnvelopeEncryption.CRYPTO_QUEUE_DEPTH_METER).gauges()).hasSize(1);
+        // a filter still using the replaced pool performs the work itself
+        String threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), first).join();
+        assertThat(threadName).isEqualTo(Thread.currentThread().getName());
     }
 }
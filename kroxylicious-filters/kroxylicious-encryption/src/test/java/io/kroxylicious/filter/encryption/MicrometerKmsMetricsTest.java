@@ -29,6 +29,7 @@ class MicrometerKmsMetricsTest {
     public static final Tag SUCCESS_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "success");
     public static final Tag NOT_FOUND_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "not_found");
     public static final Tag EXCEPTION_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "exception");
+    public static final Tag DECRYPTION_DEK_CACHE_TAG = Tag.of("cache", "decryption_dek");
     private SimpleMeterRegistry registry = new SimpleMeterRegistry();
     KmsMetrics kmsMetrics = MicrometerKmsMetrics.create(registry);
 
@@ -109,6 +110,36 @@ class MicrometerKmsMetricsTest {
         assertCounterValueEquals(OUTCOME_COUNTER_NAME, List.of(OPERATION_RESOLVE_ALIAS_TAG, EXCEPTION_OUTCOME_TAG), 1.0d);
     }
 
+    @Test
+    void testCountDecryptEdekCoalesced() {
+        kmsMetrics.countDecryptEdekCoalesced();
+        assertCounterValueEquals("kroxylicious_kms_operation_coalesced_total", List.of(OPERATION_DECRYPT_EDEK_TAG), 1.0d);
+    }
+
+    @Test
+    void testCountResolveAliasCoalesced() {
+        kmsMetrics.countResolveAliasCoalesced();
+        assertCounterValueEquals("kroxylicious_kms_operation_coalesced_total", List.of(OPERATION_RESOLVE_ALIAS_TAG), 1.0d);
+    }
+
+    @Test
+    void testCountCacheHits() {
+        kmsMetrics.countCacheHits(KmsMetrics.KmsCache.DECRYPTION_DEK, 3);
+        assertCounterValueEquals("kroxylicious_kms_cache_hit_total", List.of(DECRYPTION_DEK_CACHE_TAG), 3.0d);
+    }
+
+    @Test
+    void testCountCacheMisses() {
+        kmsMetrics.countCacheMisses(KmsMetrics.KmsCache.DECRYPTION_DEK, 2);
+        assertCounterValueEquals("kroxylicious_kms_cache_miss_total", List.of(DECRYPTION_DEK_CACHE_TAG), 2.0d);
+    }
+
+    @Test
+    void testCountCacheEvictions() {
+        kmsMetrics.countCacheEvictions(KmsMetrics.KmsCache.DECRYPTION_DEK, 1);
+        assertCounterValueEquals("kroxylicious_kms_cache_eviction_total", List.of(DECRYPTION_DEK_CACHE_TAG), 1.0d);
+    }
+
     private void assertCounterValueEquals(String name, Iterable<Tag> tags, double expected) {
         Counter counter = registry.find(name).tags(tags).counter();
         assertThat(counter).isNotNull();
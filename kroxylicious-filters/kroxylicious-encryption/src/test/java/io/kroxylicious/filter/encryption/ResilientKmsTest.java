@@ -7,6 +7,7 @@
 package io.kroxylicious.filter.encryption;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
@@ -268,6 +269,25 @@ class ResilientKmsTest {
         verify(mockExecutor, times(2)).schedule(any(Runnable.class), eq(DELAY), eq(TimeUnit.MILLISECONDS));
     }
 
+    @Test
+    void testDecryptEdeksRetries() {
+        // given
+        Kms<Long, Long> kms = Mockito.mock(Kms.class);
+        when(kms.decryptEdeks(List.of(1L, 2L))).thenReturn(failedFuture(new RuntimeException("BOOM! test exception")),
+                completedFuture(List.of(SECRET_KEY, SECRET_KEY)));
+        BackoffStrategy strategy = Mockito.mock(BackoffStrategy.class);
+        when(strategy.getDelay(anyInt())).thenReturn(Duration.ofMillis(DELAY));
+        ScheduledExecutorService mockExecutor = getMockExecutor();
+        Kms<Long, Long> resilientKms = ResilientKms.wrap(kms, mockExecutor, strategy, 3);
+
+        // when
+        CompletionStage<List<SecretKey>> deks = resilientKms.decryptEdeks(List.of(1L, 2L));
+
+        // then
+        assertThat(deks).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(List.of(SECRET_KEY, SECRET_KEY));
+        verify(mockExecutor, times(2)).schedule(any(Runnable.class), eq(DELAY), eq(TimeUnit.MILLISECONDS));
+    }
+
     @Test
     void testDecryptEdekDoesNotRetryUnknownKey() {
         // given
@@ -42,7 +42,8 @@ class CipherSpecTest {
 
         assertThat(CipherSpec.fromPersistentId(spec.persistentId())).isSameAs(spec);
 
-        var params = spec.paramSupplier().get();
+        var params = new byte[spec.constantParamsSize()];
+        spec.paramGenerator().accept(params);
 
         // TODO Right now we're getting away with using AES keys with ChaCha20 cipher
         // (It doesn't work the other way around)
@@ -55,15 +56,12 @@ class CipherSpecTest {
         SecretKey secretKey = gen.generateKey();
 
         Cipher encCipher = spec.newCipher();
-        encCipher.init(Cipher.ENCRYPT_MODE, secretKey, params);
+        encCipher.init(Cipher.ENCRYPT_MODE, secretKey, spec.parameterSpec(params, 0));
         var ciphertext = encCipher.doFinal("hello, world".getBytes(StandardCharsets.UTF_8));
-        int size = spec.size(params);
+        int size = spec.constantParamsSize();
         assertThat(size).isPositive();
         var bb = ByteBuffer.allocate(size);
         spec.writeParameters(bb, params);
-        assertThat(bb.limit())
-                .describedAs("Spec should return exact size for parametersBuffer")
-                .isEqualTo(size);
         assertThat(bb.position())
                 .describedAs("Spec should not do the flip")
                 .isEqualTo(bb.limit());
@@ -71,7 +69,7 @@ class CipherSpecTest {
         bb.flip();
 
         // Prove that we can use the params via serialization to decrypt
-        var readParams = spec.readParameters(bb);
+        var readParams = spec.readParameters(bb, new byte[size]);
         assertThat(bb.position())
                 .describedAs("Spec should not do the rewind")
                 .isEqualTo(bb.limit());
@@ -82,4 +80,39 @@ class CipherSpecTest {
 
     }
 
+    @ParameterizedTest
+    @EnumSource(CipherSpec.class)
+    void shouldReadParamsFromBufferWithoutArray(CipherSpec spec) {
+        // given
+        var params = new byte[spec.constantParamsSize()];
+        spec.paramGenerator().accept(params);
+        var bb = ByteBuffer.allocateDirect(params.length + 1);
+        spec.writeParameters(bb, params);
+        bb.flip();
+
+        // when
+        var scratch = new byte[params.length];
+        spec.readParameters(bb, scratch);
+
+        // then
+        assertThat(scratch).isEqualTo(params);
+        assertThat(bb.position()).isEqualTo(params.length);
+    }
+
+    @ParameterizedTest
+    @EnumSource(CipherSpec.class)
+    void shouldGenerateDistinctParams(CipherSpec spec) {
+        // given
+        var generator = spec.paramGenerator();
+        var first = new byte[spec.constantParamsSize()];
+        var second = new byte[spec.constantParamsSize()];
+
+        // when
+        generator.accept(first);
+        generator.accept(second);
+
+        // then
+        assertThat(second).isNotEqualTo(first);
+    }
+
 }
@@ -412,6 +412,44 @@ class DekTest {
         assertThat(dek.isDestroyed()).isTrue();
     }
 
+    @ParameterizedTest
+    @EnumSource(CipherSpec.class)
+    void ciphersReusedBetweenCryptors(CipherSpec cipherSpec) {
+        // Given
+        var dek = new Dek<>("edek", makeKey(), cipherSpec, 100);
+        var encryptor = dek.encryptor(1);
+        var decryptor = dek.decryptor();
+        assertThat(dek.pooledCiphers()).isZero();
+
+        // When
+        encryptor.close();
+        decryptor.close();
+
+        // Then
+        assertThat(dek.pooledCiphers()).isEqualTo(2);
+        dek.decryptor();
+        assertThat(dek.pooledCiphers()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @EnumSource(CipherSpec.class)
+    void ciphersDiscardedWhenKeyDestroyed(CipherSpec cipherSpec) {
+        // Given
+        var dek = new Dek<>("edek", makeKey(), cipherSpec, 100);
+        var encryptor = dek.encryptor(1);
+        var decryptor = dek.decryptor();
+        encryptor.close();
+        dek.destroy();
+        assertThat(dek.pooledCiphers()).isEqualTo(1);
+
+        // When
+        decryptor.close();
+
+        // Then
+        assertThat(dek.isDestroyed()).isTrue();
+        assertThat(dek.pooledCiphers()).isZero();
+    }
+
     // encrypt and decrypt with no AAD
     record EncryptInfo(DestroyableRawSecretKey key,
                        ByteBuffer params,
@@ -16,10 +16,14 @@ import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javax.crypto.SecretKey;
@@ -45,6 +49,7 @@ import org.mockito.stubbing.Answer;
 
 import io.kroxylicious.filter.encryption.EncryptionException;
 import io.kroxylicious.filter.encryption.EncryptionScheme;
+import io.kroxylicious.filter.encryption.EncryptionVersion;
 import io.kroxylicious.filter.encryption.FilterThreadExecutor;
 import io.kroxylicious.filter.encryption.RecordField;
 import io.kroxylicious.filter.encryption.dek.CipherSpec;
@@ -53,6 +58,7 @@ import io.kroxylicious.filter.encryption.dek.DekManager;
 import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryEdek;
 import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryKms;
 import io.kroxylicious.kms.provider.kroxylicious.inmemory.UnitTestingKmsService;
+import io.kroxylicious.kms.service.DekPair;
 import io.kroxylicious.kms.service.KmsException;
 import io.kroxylicious.test.assertj.MemoryRecordsAssert;
 import io.kroxylicious.test.record.RecordTestUtils;
@@ -60,6 +66,7 @@ import io.kroxylicious.test.record.RecordTestUtils;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -123,6 +130,35 @@ class InBandDecryptionManagerTest {
                 .isEqualTo(value);
     }
 
+    @Test
+    void shouldDecryptEdeksInBulk() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        var kekId = kms.generateKey();
+        var scheme = new EncryptionScheme<>(kekId, EnumSet.of(RecordField.RECORD_VALUE));
+        // one encryption per DEK, so each record has a different EDEK
+        var encryptionManager = createEncryptionManager(kms, 1);
+        List<Record> encrypted = new ArrayList<>();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, List.of(RecordTestUtils.record(0L, ByteBuffer.wrap(new byte[]{ 1 }))), encrypted))
+                .isCompleted();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, List.of(RecordTestUtils.record(1L, ByteBuffer.wrap(new byte[]{ 2 }))), encrypted))
+                .isCompleted();
+
+        InMemoryKms spyKms = Mockito.spy(kms);
+        var decryptionManager = createDecryptionManager(spyKms);
+
+        // when
+        List<Record> decrypted = new ArrayList<>();
+        assertThat(doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted))
+                .isCompleted();
+
+        // then
+        assertThat(decrypted)
+                .extracting(RecordTestUtils::recordValueAsBytes)
+                .containsExactly(new byte[]{ 1 }, new byte[]{ 2 });
+        Mockito.verify(spyKms).decryptEdeks(Mockito.argThat(edeks -> edeks.size() == 2));
+    }
+
     @Test
     void shouldPreserveMultipleBatchesOnEncrypt() {
         // given
@@ -552,6 +588,86 @@ class InBandDecryptionManagerTest {
         assertEquals(initial, decrypted);
     }
 
+    @Test
+    void shouldBoundDecryptionDekCacheByWeight() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        var encryptionManager = createEncryptionManager(kms, 500_000);
+        List<Record> encrypted = new ArrayList<>();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, List.of(RecordTestUtils.record(0L, ByteBuffer.wrap(new byte[]{ 1 }))), encrypted))
+                .isCompleted();
+        InMemoryKms spyKms = Mockito.spy(kms);
+        // too small for even one DEK
+        var decryptionManager = createDecryptionManager(spyKms, DecryptionDekCache.ENTRY_OVERHEAD_BYTES);
+
+        // when
+        List<Record> decrypted = new ArrayList<>();
+        assertThat(doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted)).isCompleted();
+        assertThat(doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted)).isCompleted();
+
+        // then
+        assertThat(decrypted)
+                .extracting(RecordTestUtils::recordValueAsBytes)
+                .containsExactly(new byte[]{ 1 }, new byte[]{ 1 });
+        // each time the DEK is evicted as soon as it is loaded, so it is loaded again bypassing the cache
+        Mockito.verify(spyKms, Mockito.times(4)).decryptEdeks(any());
+    }
+
+    @Test
+    void shouldWriteEdekOncePerBatchWithEncryptionVersion2() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        var encryptionManager = createEncryptionManager(EncryptionVersion.V2, kms, 500_000);
+        InMemoryKms spyKms = Mockito.spy(kms);
+        var decryptionManager = createDecryptionManager(spyKms);
+        List<Record> initial = List.of(
+                RecordTestUtils.record(0L, ByteBuffer.wrap(new byte[]{ 1, 2, 3 })),
+                RecordTestUtils.record(1L, ByteBuffer.wrap(new byte[]{ 4, 5, 6 })),
+                RecordTestUtils.record(2L, ByteBuffer.wrap(new byte[]{ 7, 8, 9 })));
+
+        // when
+        List<Record> encrypted = new ArrayList<>();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, initial, encrypted)).isCompleted();
+        initial.forEach(r -> r.value().rewind());
+        List<Record> decrypted = new ArrayList<>();
+        assertThat(doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted)).isCompleted();
+
+        // then
+        assertThat(encrypted)
+                .extracting(r -> edekLength(r.value()))
+                .containsExactly(getSerializedGeneratedEdek(kms, 0).serializedEdek().length, 0, 0);
+        assertThat(decrypted).isEqualTo(initial);
+        Mockito.verify(spyKms).decryptEdeks(Mockito.argThat(edeks -> edeks.size() == 1));
+    }
+
+    @Test
+    void shouldFailToDecryptEncryptionVersion2RecordWithoutTheFirstRecordOfItsBatch() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        var encryptionManager = createEncryptionManager(EncryptionVersion.V2, kms, 500_000);
+        var decryptionManager = createDecryptionManager(kms);
+        List<Record> encrypted = new ArrayList<>();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, List.of(
+                RecordTestUtils.record(0L, ByteBuffer.wrap(new byte[]{ 1, 2, 3 })),
+                RecordTestUtils.record(1L, ByteBuffer.wrap(new byte[]{ 4, 5, 6 }))), encrypted)).isCompleted();
+
+        // when
+        var compacted = RecordTestUtils.memoryRecords(List.of(encrypted.get(1)));
+
+        // then
+        assertThatThrownBy(() -> decrypt(decryptionManager, compacted))
+                .isInstanceOf(EncryptionException.class)
+                .hasMessageContaining("first encrypted record of its batch");
+    }
+
+    private static int edekLength(ByteBuffer wrapper) {
+        wrapper.get(); // cipher_id
+        return ByteUtils.readUnsignedVarint(wrapper);
+    }
+
     @Test
     void shouldGenerateNewDekIfOldDekHasNoRemainingEncryptions() throws ExecutionException, InterruptedException, TimeoutException {
         InMemoryKms kms = getInMemoryKms();
@@ -590,6 +706,56 @@ class InBandDecryptionManagerTest {
         assertThat(deks).containsExactly(edekOne, edekOne, edekTwo, edekTwo);
     }
 
+    @Test
+    void shouldPregenerateReplacementDekWithoutBlockingEncryption() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        InMemoryKms spyKms = Mockito.spy(kms);
+        List<CompletableFuture<DekPair<InMemoryEdek>>> pendingGenerations = new ArrayList<>();
+        doAnswer(invocation -> {
+            CompletionStage<DekPair<InMemoryEdek>> generated = kms.generateDekPair(invocation.getArgument(0));
+            if (kms.numDeksGenerated() == 1) {
+                return generated;
+            }
+            // hold back every replacement DEK until the test releases it
+            var pending = new CompletableFuture<DekPair<InMemoryEdek>>();
+            pendingGenerations.add(pending);
+            return generated.thenCompose(dekPair -> pending.thenApply(ignored -> dekPair));
+        }).when(spyKms).generateDekPair(any());
+        DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(ignored -> spyKms, null, 10);
+        var cache = new EncryptionDekCache<>(dekManager, directExecutor(), EncryptionDekCache.NO_MAX_CACHE_SIZE, null, 0.5, null);
+        var encryptionManager = new InBandEncryptionManager<>(EncryptionVersion.V1,
+                dekManager.edekSerde(),
+                1024 * 1024,
+                8 * 1024 * 1024,
+                cache,
+                new FilterThreadExecutor(directExecutor()),
+                directExecutor());
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        List<Record> encrypted = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, List.of(RecordTestUtils.record(i, ByteBuffer.wrap(new byte[]{ (byte) i }))), encrypted))
+                    .isCompleted();
+        }
+        // then
+        assertThat(pendingGenerations).hasSize(1);
+
+        // and when
+        pendingGenerations.get(0).complete(null);
+        for (int i = 8; i < 10; i++) {
+            assertThat(doEncrypt(encryptionManager, "topic", 1, scheme, List.of(RecordTestUtils.record(i, ByteBuffer.wrap(new byte[]{ (byte) i }))), encrypted))
+                    .isCompleted();
+        }
+
+        // then
+        assertThat(kms.numDeksGenerated()).isEqualTo(2);
+        var edekOne = getSerializedGeneratedEdek(kms, 0);
+        var edekTwo = getSerializedGeneratedEdek(kms, 1);
+        assertThat(extractEdeks(encrypted)).containsExactly(edekOne, edekOne, edekOne, edekOne, edekOne, edekOne, edekOne, edekOne, edekTwo, edekTwo);
+    }
+
     @Test
     void shouldGenerateNewDekIfOldOneHasSomeRemainingEncryptionsButNotEnoughForWholeBatch() throws ExecutionException, InterruptedException, TimeoutException {
         InMemoryKms kms = getInMemoryKms();
@@ -834,6 +1000,58 @@ class InBandDecryptionManagerTest {
                 .containsExactly(offsetA, offsetB);
     }
 
+    @Test
+    void shouldEncryptAndDecryptOnCryptoThreadAndCompleteOnFilterThread() {
+        // given
+        ExecutorService filterThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "filter"));
+        ExecutorService cryptoThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "crypto"));
+        List<String> cryptoThreadNames = new CopyOnWriteArrayList<>();
+        Executor cryptoExecutor = command -> cryptoThread.execute(() -> {
+            cryptoThreadNames.add(Thread.currentThread().getName());
+            command.run();
+        });
+        InMemoryKms kms = getInMemoryKms();
+        var encryptionManager = createEncryptionManager(EncryptionVersion.V1, kms, 500_000, 1024 * 1024, 8 * 1024 * 1024, EncryptionDekCache.NO_MAX_CACHE_SIZE,
+                new FilterThreadExecutor(filterThread), cryptoExecutor);
+        var decryptionManager = createDecryptionManager(kms, DecryptionDekCache.NO_MAX_CACHE_SIZE, new FilterThreadExecutor(filterThread), cryptoExecutor);
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        List<Record> initial = IntStream.range(0, 100)
+                .mapToObj(i -> RecordTestUtils.record(i, ByteBuffer.wrap(new byte[]{ (byte) i })))
+                .toList();
+        List<String> completingThreadNames = new CopyOnWriteArrayList<>();
+        CompletableFuture<MemoryRecords> result = new CompletableFuture<>();
+
+        try {
+            // when
+            filterThread.execute(() -> encryptionManager.encrypt("topic", 1, scheme, RecordTestUtils.memoryRecords(initial), ByteBufferOutputStream::new)
+                    .thenCompose(encrypted -> {
+                        completingThreadNames.add(Thread.currentThread().getName());
+                        return decryptionManager.decrypt("topic", 1, encrypted, ByteBufferOutputStream::new);
+                    })
+                    .whenComplete((decrypted, throwable) -> {
+                        completingThreadNames.add(Thread.currentThread().getName());
+                        if (throwable == null) {
+                            result.complete(decrypted);
+                        }
+                        else {
+                            result.completeExceptionally(throwable);
+                        }
+                    }));
+
+            // then
+            assertThat(result).succeedsWithin(Duration.ofSeconds(5));
+            assertThat(result.join().records())
+                    .extracting(RecordTestUtils::recordValueAsBytes)
+                    .containsExactlyElementsOf(initial.stream().map(RecordTestUtils::recordValueAsBytes).toList());
+            assertThat(completingThreadNames).containsExactly("filter", "filter");
+            assertThat(cryptoThreadNames).hasSize(2).containsOnly("crypto");
+        }
+        finally {
+            filterThread.shutdownNow();
+            cryptoThread.shutdownNow();
+        }
+    }
+
     @Test
     void decryptPreservesOrdering_RecordSetIncludeUnencrypted() {
         var topic = "topic";
@@ -995,17 +1213,37 @@ class InBandDecryptionManagerTest {
 
     @NonNull
     private static InBandDecryptionManager<UUID, InMemoryEdek> createDecryptionManager(InMemoryKms kms) {
+        return createDecryptionManager(kms, DecryptionDekCache.NO_MAX_CACHE_SIZE);
+    }
+
+    @NonNull
+    private static InBandDecryptionManager<UUID, InMemoryEdek> createDecryptionManager(InMemoryKms kms, long dekCacheMaxBytes) {
+        return createDecryptionManager(kms, dekCacheMaxBytes, new FilterThreadExecutor(directExecutor()), directExecutor());
+    }
+
+    @NonNull
+    private static InBandDecryptionManager<UUID, InMemoryEdek> createDecryptionManager(InMemoryKms kms,
+                                                                                       long dekCacheMaxBytes,
+                                                                                       FilterThreadExecutor filterThreadExecutor,
+                                                                                       Executor cryptoExecutor) {
 
         DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(ignored -> kms, null, 1);
-        var dekCache = new DecryptionDekCache<>(dekManager, directExecutor(), DecryptionDekCache.NO_MAX_CACHE_SIZE);
+        var dekCache = new DecryptionDekCache<>(dekManager, directExecutor(), dekCacheMaxBytes, null);
         return new InBandDecryptionManager<>(dekManager,
                 dekCache,
-                new FilterThreadExecutor(directExecutor()));
+                filterThreadExecutor,
+                cryptoExecutor);
     }
 
     @NonNull
     private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(InMemoryKms kms, int maxEncryptionsPerDek) {
-        return createEncryptionManager(kms,
+        return createEncryptionManager(EncryptionVersion.V1, kms, maxEncryptionsPerDek);
+    }
+
+    @NonNull
+    private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(EncryptionVersion encryptionVersion, InMemoryKms kms, int maxEncryptionsPerDek) {
+        return createEncryptionManager(encryptionVersion,
+                kms,
                 maxEncryptionsPerDek,
                 1024 * 1024,
                 8 * 1024 * 1024,
@@ -1018,14 +1256,40 @@ class InBandDecryptionManagerTest {
                                                                                        int recordBufferInitialBytes,
                                                                                        int recordBufferMaxBytes,
                                                                                        int maxCacheSize) {
+        return createEncryptionManager(EncryptionVersion.V1, kms, maxEncryptionsPerDek, recordBufferInitialBytes, recordBufferMaxBytes, maxCacheSize);
+    }
+
+    @NonNull
+    private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(EncryptionVersion encryptionVersion,
+                                                                                       InMemoryKms kms,
+                                                                                       int maxEncryptionsPerDek,
+                                                                                       int recordBufferInitialBytes,
+                                                                                       int recordBufferMaxBytes,
+                                                                                       int maxCacheSize) {
+
+        return createEncryptionManager(encryptionVersion, kms, maxEncryptionsPerDek, recordBufferInitialBytes, recordBufferMaxBytes, maxCacheSize,
+                new FilterThreadExecutor(directExecutor()), directExecutor());
+    }
+
+    @NonNull
+    private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(EncryptionVersion encryptionVersion,
+                                                                                       InMemoryKms kms,
+                                                                                       int maxEncryptionsPerDek,
+                                                                                       int recordBufferInitialBytes,
+                                                                                       int recordBufferMaxBytes,
+                                                                                       int maxCacheSize,
+                                                                                       FilterThreadExecutor filterThreadExecutor,
+                                                                                       Executor cryptoExecutor) {
 
         DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(ignored -> kms, null, maxEncryptionsPerDek);
-        var cache = new EncryptionDekCache<>(dekManager, directExecutor(), maxCacheSize);
-        return new InBandEncryptionManager<>(dekManager.edekSerde(),
+        var cache = new EncryptionDekCache<>(dekManager, directExecutor(), maxCacheSize, null, 1.0, null);
+        return new InBandEncryptionManager<>(encryptionVersion,
+                dekManager.edekSerde(),
                 recordBufferInitialBytes,
                 recordBufferMaxBytes,
                 cache,
-                new FilterThreadExecutor(directExecutor()));
+                filterThreadExecutor,
+                cryptoExecutor);
     }
 
     @NonNull
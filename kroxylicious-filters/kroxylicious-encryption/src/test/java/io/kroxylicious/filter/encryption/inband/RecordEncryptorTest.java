@@ -26,6 +26,7 @@ import io.kroxylicious.filter.encryption.EncryptionVersion;
 import io.kroxylicious.filter.encryption.RecordField;
 import io.kroxylicious.filter.encryption.dek.CipherSpec;
 import io.kroxylicious.filter.encryption.dek.Dek;
+import io.kroxylicious.filter.encryption.dek.DestroyableRawSecretKey;
 import io.kroxylicious.filter.encryption.records.RecordTransform;
 import io.kroxylicious.kms.service.Serde;
 import io.kroxylicious.test.assertj.KafkaAssertions;
@@ -36,6 +37,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 
 class RecordEncryptorTest {
 
@@ -51,8 +53,11 @@ class RecordEncryptorTest {
         var key = generator.generateKey();
         EDEK = ByteBuffer.wrap(key.getEncoded()); // it doesn't matter for this test that it's not encrypted
 
-        var dek = mock(Dek.class);
-        doReturn(EDEK).when(dek).edek();
+        // a real DEK, which pools the cryptors' ciphers, spied on so that it returns the cryptors created below
+        var dekConstructor = Dek.class.getDeclaredConstructor(Object.class, DestroyableRawSecretKey.class, CipherSpec.class, Long.TYPE);
+        dekConstructor.setAccessible(true);
+        Dek<ByteBuffer> dek = spy(dekConstructor.newInstance(EDEK, new DestroyableRawSecretKey(key.getAlgorithm(), key.getEncoded()),
+                CipherSpec.AES_128_GCM_128, Long.MAX_VALUE));
         var encryptorConstructor = Dek.Encryptor.class.getDeclaredConstructor(Dek.class, CipherSpec.class, SecretKey.class, Integer.TYPE);
         encryptorConstructor.setAccessible(true);
         ENCRYPTOR = encryptorConstructor.newInstance(dek, CipherSpec.AES_128_GCM_128, key, 1_000_000);
@@ -134,6 +134,9 @@ public class MultiTenantTransformationFilter
         TxnOffsetCommitRequestFilter, TxnOffsetCommitResponseFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiTenantTransformationFilter.class);
 
+    private final TenantPrefix.Registry tenantPrefixes;
+    private TenantPrefix tenantPrefix;
+
     @Override
     public CompletionStage<RequestFilterResult> onCreateTopicsRequest(short apiVersion, RequestHeaderData header, CreateTopicsRequestData request,
                                                                       FilterContext context) {
@@ -176,9 +179,17 @@ public class MultiTenantTransformationFilter
     @Override
     public CompletionStage<ResponseFilterResult> onMetadataResponse(short apiVersion, ResponseHeaderData header, MetadataResponseData response,
                                                                     FilterContext context) {
-        String tenantPrefix = getTenantPrefix(context);
-        response.topics().removeIf(topic -> !topic.name().startsWith(tenantPrefix)); // TODO: allow kafka internal topics to be returned?
-        response.topics().forEach(topic -> removeTenantPrefix(context, topic::name, topic::setName, false));
+        var prefix = getTenantPrefix(context);
+        // a single pass, which removes the other tenants' topics, and translates the names of this tenant's
+        for (var iterator = response.topics().iterator(); iterator.hasNext();) {
+            var topic = iterator.next();
+            if (prefix.owns(topic.name())) {
+                topic.setName(prefix.remove(topic.name()));
+            }
+            else {
+                iterator.remove(); // TODO: allow kafka internal topics to be returned?
+            }
+        }
         return context.forwardResponse(header, response);
     }
 
@@ -311,8 +322,8 @@ public class MultiTenantTransformationFilter
     @Override
     public CompletionStage<ResponseFilterResult> onListGroupsResponse(short apiVersion, ResponseHeaderData header, ListGroupsResponseData response,
                                                                       FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        var filteredGroups = response.groups().stream().filter(listedGroup -> listedGroup.groupId().startsWith(tenantPrefix)).toList();
+        var prefix = getTenantPrefix(context);
+        var filteredGroups = response.groups().stream().filter(listedGroup -> prefix.owns(listedGroup.groupId())).toList();
         filteredGroups.forEach(listedGroup -> removeTenantPrefix(context, listedGroup::groupId, listedGroup::setGroupId, false));
         response.setGroups(filteredGroups);
         return context.forwardResponse(header, response);
@@ -321,32 +332,28 @@ public class MultiTenantTransformationFilter
     @Override
     public CompletionStage<RequestFilterResult> onJoinGroupRequest(short apiVersion, RequestHeaderData header, JoinGroupRequestData request,
                                                                    FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setGroupId(tenantPrefix + request.groupId());
+        request.setGroupId(applyTenantPrefix(context, request.groupId()));
         return context.forwardRequest(header, request);
     }
 
     @Override
     public CompletionStage<RequestFilterResult> onSyncGroupRequest(short apiVersion, RequestHeaderData header, SyncGroupRequestData request,
                                                                    FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setGroupId(tenantPrefix + request.groupId());
+        request.setGroupId(applyTenantPrefix(context, request.groupId()));
         return context.forwardRequest(header, request);
     }
 
     @Override
     public CompletionStage<RequestFilterResult> onLeaveGroupRequest(short apiVersion, RequestHeaderData header, LeaveGroupRequestData request,
                                                                     FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setGroupId(tenantPrefix + request.groupId());
+        request.setGroupId(applyTenantPrefix(context, request.groupId()));
         return context.forwardRequest(header, request);
     }
 
     @Override
     public CompletionStage<RequestFilterResult> onHeartbeatRequest(short apiVersion, RequestHeaderData header, HeartbeatRequestData request,
                                                                    FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setGroupId(tenantPrefix + request.groupId());
+        request.setGroupId(applyTenantPrefix(context, request.groupId()));
         return context.forwardRequest(header, request);
     }
 
@@ -403,18 +410,16 @@ public class MultiTenantTransformationFilter
     @Override
     public CompletionStage<RequestFilterResult> onAddOffsetsToTxnRequest(short apiVersion, RequestHeaderData header, AddOffsetsToTxnRequestData request,
                                                                          FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setTransactionalId(tenantPrefix + request.transactionalId());
-        request.setGroupId(tenantPrefix + request.groupId());
+        request.setTransactionalId(applyTenantPrefix(context, request.transactionalId()));
+        request.setGroupId(applyTenantPrefix(context, request.groupId()));
         return context.forwardRequest(header, request);
     }
 
     @Override
     public CompletionStage<RequestFilterResult> onTxnOffsetCommitRequest(short apiVersion, RequestHeaderData header, TxnOffsetCommitRequestData request,
                                                                          FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setTransactionalId(tenantPrefix + request.transactionalId());
-        request.setGroupId(tenantPrefix + request.groupId());
+        request.setTransactionalId(applyTenantPrefix(context, request.transactionalId()));
+        request.setGroupId(applyTenantPrefix(context, request.groupId()));
         request.topics().forEach(topic -> applyTenantPrefix(context, topic::name, topic::setName, false));
         return context.forwardRequest(header, request);
     }
@@ -429,8 +434,8 @@ public class MultiTenantTransformationFilter
     @Override
     public CompletionStage<ResponseFilterResult> onListTransactionsResponse(short apiVersion, ResponseHeaderData header, ListTransactionsResponseData response,
                                                                             FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        var filteredTransactions = response.transactionStates().stream().filter(listedTxn -> listedTxn.transactionalId().startsWith(tenantPrefix)).toList();
+        var prefix = getTenantPrefix(context);
+        var filteredTransactions = response.transactionStates().stream().filter(listedTxn -> prefix.owns(listedTxn.transactionalId())).toList();
         filteredTransactions.forEach(listedTxn -> removeTenantPrefix(context, listedTxn::transactionalId, listedTxn::setTransactionalId, false));
         response.setTransactionStates(filteredTransactions);
         return context.forwardResponse(header, response);
@@ -455,8 +460,7 @@ public class MultiTenantTransformationFilter
 
     @Override
     public CompletionStage<RequestFilterResult> onEndTxnRequest(short apiVersion, RequestHeaderData header, EndTxnRequestData request, FilterContext context) {
-        var tenantPrefix = getTenantPrefix(context);
-        request.setTransactionalId(tenantPrefix + request.transactionalId());
+        request.setTransactionalId(applyTenantPrefix(context, request.transactionalId()));
         return context.forwardRequest(header, request);
     }
 
@@ -469,8 +473,7 @@ public class MultiTenantTransformationFilter
     }
 
     private String applyTenantPrefix(FilterContext context, String clientSideName) {
-        var tenantPrefix = getTenantPrefix(context);
-        return tenantPrefix + clientSideName;
+        return getTenantPrefix(context).apply(clientSideName);
     }
 
     private void removeTenantPrefix(FilterContext context, Supplier<String> getter, Consumer<String> setter, boolean ignoreEmpty) {
@@ -483,20 +486,30 @@ public class MultiTenantTransformationFilter
     }
 
     private String removeTenantPrefix(FilterContext context, String brokerSideName) {
-        var tenantPrefix = getTenantPrefix(context);
-        return brokerSideName.substring(tenantPrefix.length());
-    }
-
-    private static String getTenantPrefix(FilterContext context) {
-        // TODO naive - POC implementation uses virtual cluster name as a tenant prefix
-        var virtualClusterName = context.getVirtualClusterName();
-        if (virtualClusterName == null) {
-            throw new IllegalStateException("This filter requires that the virtual cluster has a name");
+        return getTenantPrefix(context).remove(brokerSideName);
+    }
+
+    /**
+     * Gets the tenant prefix, which is looked up on first use, as the virtual cluster of the connection is
+     * only known from the filter context.
+     */
+    private TenantPrefix getTenantPrefix(FilterContext context) {
+        if (tenantPrefix == null) {
+            var virtualClusterName = context.getVirtualClusterName();
+            if (virtualClusterName == null) {
+                throw new IllegalStateException("This filter requires that the virtual cluster has a name");
+            }
+            tenantPrefix = tenantPrefixes.forVirtualCluster(virtualClusterName);
         }
-        return virtualClusterName + "-";
+        return tenantPrefix;
     }
 
     public MultiTenantTransformationFilter() {
+        this(new TenantPrefix.Registry());
+    }
+
+    MultiTenantTransformationFilter(TenantPrefix.Registry tenantPrefixes) {
+        this.tenantPrefixes = tenantPrefixes;
     }
 
 }
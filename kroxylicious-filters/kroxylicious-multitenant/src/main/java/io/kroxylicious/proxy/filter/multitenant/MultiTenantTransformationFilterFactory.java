@@ -11,15 +11,15 @@ import io.kroxylicious.proxy.filter.FilterFactoryContext;
 import io.kroxylicious.proxy.plugin.Plugin;
 
 @Plugin(configType = Void.class)
-public class MultiTenantTransformationFilterFactory implements FilterFactory<Void, Void> {
+public class MultiTenantTransformationFilterFactory implements FilterFactory<Void, TenantPrefix.Registry> {
 
     @Override
-    public Void initialize(FilterFactoryContext context, Void config) {
-        return null;
+    public TenantPrefix.Registry initialize(FilterFactoryContext context, Void config) {
+        return new TenantPrefix.Registry();
     }
 
     @Override
-    public MultiTenantTransformationFilter createFilter(FilterFactoryContext context, Void configuration) {
-        return new MultiTenantTransformationFilter();
+    public MultiTenantTransformationFilter createFilter(FilterFactoryContext context, TenantPrefix.Registry tenantPrefixes) {
+        return new MultiTenantTransformationFilter(tenantPrefixes);
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.multitenant;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The prefix which maps the names of a tenant's resources, as seen by its clients, to their names on the broker, and back.
+ * <br/>
+ * The translated names are cached, so that translating the same names repeatedly, as happens for the topics of
+ * every Metadata response, does not allocate new strings each time. Each cache is bounded, and is cleared when
+ * it fills, so only tenants using more names than the bound repeatedly translate them afresh.
+ * A tenant's prefix is shared between its connections, so it is thread-safe.
+ */
+final class TenantPrefix {
+
+    static final int MAX_CACHED_NAMES = 16_384;
+
+    private final String prefix;
+    private final ConcurrentMap<String, String> brokerNamesByClientName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> clientNamesByBrokerName = new ConcurrentHashMap<>();
+
+    TenantPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    String prefix() {
+        return prefix;
+    }
+
+    /**
+     * @param brokerName a name on the broker
+     * @return true if the name belongs to this tenant
+     */
+    boolean owns(String brokerName) {
+        return brokerName.startsWith(prefix);
+    }
+
+    /**
+     * @param clientName the name of a resource as seen by the tenant's clients
+     * @return the name of the resource on the broker
+     */
+    String apply(String clientName) {
+        if (clientName == null) {
+            return prefix + clientName;
+        }
+        String brokerName = brokerNamesByClientName.get(clientName);
+        if (brokerName == null) {
+            brokerName = prefix + clientName;
+            cache(brokerNamesByClientName, clientName, brokerName);
+        }
+        return brokerName;
+    }
+
+    /**
+     * @param brokerName the name of one of the tenant's resources on the broker
+     * @return the name of the resource as seen by the tenant's clients
+     */
+    String remove(String brokerName) {
+        String clientName = clientNamesByBrokerName.get(brokerName);
+        if (clientName == null) {
+            clientName = brokerName.substring(prefix.length());
+            cache(clientNamesByBrokerName, brokerName, clientName);
+        }
+        return clientName;
+    }
+
+    private static void cache(ConcurrentMap<String, String> cache, String name, String translatedName) {
+        if (cache.size() >= MAX_CACHED_NAMES) {
+            cache.clear();
+        }
+        cache.put(name, translatedName);
+    }
+
+    /**
+     * The prefixes of the tenants, shared by the filters of all their connections.
+     */
+    static final class Registry {
+        private final ConcurrentMap<String, TenantPrefix> prefixesByVirtualCluster = new ConcurrentHashMap<>();
+
+        TenantPrefix forVirtualCluster(String virtualClusterName) {
+            // TODO naive - POC implementation uses virtual cluster name as a tenant prefix
+            return prefixesByVirtualCluster.computeIfAbsent(virtualClusterName, name -> new TenantPrefix(name + "-"));
+        }
+    }
+}
@@ -19,7 +19,8 @@ class MultiTenantFilterFactoryTest {
     @Test
     void testGetInstance() {
         MultiTenantTransformationFilterFactory factory = new MultiTenantTransformationFilterFactory();
-        Filter filter = factory.createFilter(Mockito.mock(FilterFactoryContext.class), null);
+        FilterFactoryContext context = Mockito.mock(FilterFactoryContext.class);
+        Filter filter = factory.createFilter(context, factory.initialize(context, null));
         assertThat(filter).isNotNull().isInstanceOf(MultiTenantTransformationFilter.class);
     }
 
@@ -153,6 +153,7 @@ class MultiTenantTransformationFilterFactoryFilterTest {
     @Test
     void testContributor() {
         MultiTenantTransformationFilterFactory factory = new MultiTenantTransformationFilterFactory();
-        assertThat(factory.createFilter(Mockito.mock(FilterFactoryContext.class), null)).isInstanceOf(MultiTenantTransformationFilter.class);
+        FilterFactoryContext context = Mockito.mock(FilterFactoryContext.class);
+        assertThat(factory.createFilter(context, factory.initialize(context, null))).isInstanceOf(MultiTenantTransformationFilter.class);
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.multitenant;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantPrefixTest {
+
+    private final TenantPrefix tenantPrefix = new TenantPrefix.Registry().forVirtualCluster("vc1");
+
+    @Test
+    void shouldUseVirtualClusterNameAsPrefix() {
+        assertThat(tenantPrefix.prefix()).isEqualTo("vc1-");
+    }
+
+    @Test
+    void shouldSharePrefixOfVirtualCluster() {
+        // given
+        var registry = new TenantPrefix.Registry();
+
+        // when
+        var prefix = registry.forVirtualCluster("vc1");
+
+        // then
+        assertThat(registry.forVirtualCluster("vc1")).isSameAs(prefix);
+        assertThat(registry.forVirtualCluster("vc2")).isNotSameAs(prefix);
+    }
+
+    @Test
+    void shouldApplyPrefix() {
+        assertThat(tenantPrefix.apply("topic")).isEqualTo("vc1-topic");
+    }
+
+    @Test
+    void shouldRemovePrefix() {
+        assertThat(tenantPrefix.remove("vc1-topic")).isEqualTo("topic");
+    }
+
+    @Test
+    void shouldOwnOnlyPrefixedNames() {
+        assertThat(tenantPrefix.owns("vc1-topic")).isTrue();
+        assertThat(tenantPrefix.owns("vc2-topic")).isFalse();
+        assertThat(tenantPrefix.owns("vc1")).isFalse();
+    }
+
+    @Test
+    void shouldReuseTranslatedNames() {
+        // given
+        var brokerName = tenantPrefix.apply("topic");
+        var clientName = tenantPrefix.remove("vc1-topic");
+
+        // when
+        var brokerNameAgain = tenantPrefix.apply(new String("topic"));
+        var clientNameAgain = tenantPrefix.remove(new String("vc1-topic"));
+
+        // then
+        assertThat(brokerNameAgain).isSameAs(brokerName);
+        assertThat(clientNameAgain).isSameAs(clientName);
+    }
+
+    @Test
+    void shouldTranslateNamesBeyondCacheBound() {
+        // given
+        for (int i = 0; i < TenantPrefix.MAX_CACHED_NAMES; i++) {
+            tenantPrefix.remove("vc1-topic" + i);
+        }
+
+        // when
+        var clientName = tenantPrefix.remove("vc1-another");
+
+        // then
+        assertThat(clientName).isEqualTo("another");
+        assertThat(tenantPrefix.remove("vc1-topic0")).isEqualTo("topic0");
+    }
+}
@@ -9,7 +9,9 @@ package io.kroxylicious.proxy.filter.schema;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import org.apache.kafka.common.message.ProduceRequestData;
 import org.apache.kafka.common.message.ProduceResponseData;
@@ -44,36 +46,73 @@ import io.kroxylicious.proxy.filter.schema.validation.topic.TopicValidationResul
  * Note: if all the topic partitions are invalid (or the request is transactional), a response is sent
  * back to the client without forwarding anything upstream, with all topic-partitions failed.
  * </p>
+ * <p>
+ * The partitions of a request may be validated concurrently on a validation executor, so that validating
+ * large requests does not hold up the other connections of the filter thread. The results are handled
+ * back on the filter thread.
+ * </p>
  */
 public class ProduceValidationFilter implements ProduceRequestFilter, ProduceResponseFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ProduceValidationFilter.class);
     private final boolean forwardPartialRequests;
     private final ProduceRequestValidator validator;
+    private final Executor validationExecutor;
+    private final Executor filterThreadExecutor;
     private final Map<Integer, ProduceRequestValidationResult> correlatedResults = new HashMap<>();
 
     /**
-     * Construct a new ProduceValidationFilter
+     * Construct a new ProduceValidationFilter, validating requests on the filter thread
      * @param forwardPartialRequests whether to forward valid topic-partitions if some other topic-partition is invalid (transactional requests are never forwarded if any topic-partition invalid)
      * @param validator validator to test ProduceRequests with
      */
     public ProduceValidationFilter(boolean forwardPartialRequests, ProduceRequestValidator validator) {
+        this(forwardPartialRequests, validator, Runnable::run, Runnable::run);
+    }
+
+    /**
+     * Construct a new ProduceValidationFilter
+     * @param forwardPartialRequests whether to forward valid topic-partitions if some other topic-partition is invalid (transactional requests are never forwarded if any topic-partition invalid)
+     * @param validator validator to test ProduceRequests with
+     * @param validationExecutor executor on which the partitions of a request may be validated concurrently
+     * @param filterThreadExecutor executor running on the filter thread, on which validation results are handled
+     */
+    public ProduceValidationFilter(boolean forwardPartialRequests, ProduceRequestValidator validator, Executor validationExecutor, Executor filterThreadExecutor) {
         if (validator == null) {
             throw new IllegalArgumentException("validator is null");
         }
+        if (validationExecutor == null) {
+            throw new IllegalArgumentException("validationExecutor is null");
+        }
+        if (filterThreadExecutor == null) {
+            throw new IllegalArgumentException("filterThreadExecutor is null");
+        }
         this.forwardPartialRequests = forwardPartialRequests;
         this.validator = validator;
+        this.validationExecutor = validationExecutor;
+        this.filterThreadExecutor = filterThreadExecutor;
     }
 
     @Override
     public CompletionStage<RequestFilterResult> onProduceRequest(short apiVersion, RequestHeaderData header, ProduceRequestData request, FilterContext context) {
-        ProduceRequestValidationResult result = validator.validateRequest(request);
-        if (result.isAnyTopicPartitionInvalid()) {
-            return handleInvalidTopicPartitions(header, request, context, result);
-        }
-        else {
-            return context.forwardRequest(header, request);
+        return completingOnFilterThread(validator.validateRequest(request, validationExecutor)).thenCompose(result -> {
+            if (result.isAnyTopicPartitionInvalid()) {
+                return handleInvalidTopicPartitions(header, request, context, result);
+            }
+            else {
+                return context.forwardRequest(header, request);
+            }
+        });
+    }
+
+    private <T> CompletionStage<T> completingOnFilterThread(CompletionStage<T> stage) {
+        CompletableFuture<T> future = stage.toCompletableFuture();
+        if (future.isDone()) {
+            return stage;
         }
+        // no-op to switch executor, so that the result is handled on the filter thread
+        return future.whenCompleteAsync((t, throwable) -> {
+        }, filterThreadExecutor);
     }
 
     private CompletionStage<RequestFilterResult> handleInvalidTopicPartitions(RequestHeaderData header, ProduceRequestData request, FilterContext context,
@@ -6,25 +6,101 @@
 
 package io.kroxylicious.proxy.filter.schema;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import io.kroxylicious.proxy.filter.FilterFactory;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
 import io.kroxylicious.proxy.filter.schema.config.ValidationConfig;
+import io.kroxylicious.proxy.filter.schema.config.ValidationPoolConfig;
 import io.kroxylicious.proxy.filter.schema.validation.request.ProduceRequestValidator;
 import io.kroxylicious.proxy.plugin.Plugin;
 import io.kroxylicious.proxy.plugin.Plugins;
 
 @Plugin(configType = ValidationConfig.class)
-public class ProduceValidationFilterFactory implements FilterFactory<ValidationConfig, ValidationConfig> {
+public class ProduceValidationFilterFactory implements FilterFactory<ValidationConfig, ProduceValidationFilterFactory.Initialized> {
+
+    private static final AtomicInteger VALIDATION_POOL_ID = new AtomicInteger();
+
+    private ValidationPoolConfig validationPoolConfig;
+    private Executor validationExecutor;
 
     @Override
-    public ValidationConfig initialize(FilterFactoryContext context, ValidationConfig config) {
-        return Plugins.requireConfig(this, config);
+    public Initialized initialize(FilterFactoryContext context, ValidationConfig config) {
+        ValidationConfig configuration = Plugins.requireConfig(this, config);
+        return new Initialized(configuration, validationExecutor(configuration.getValidationPool()));
+    }
+
+    /**
+     * Gets the executor on which the partitions of requests are validated, which is shared by everything this
+     * factory initializes. The executor is built when first needed, and replaced only if its configuration changes,
+     * in which case the previous pool is shut down.
+     * @param config The pool configuration.
+     * @return The executor.
+     */
+    synchronized Executor validationExecutor(ValidationPoolConfig config) {
+        if (validationExecutor != null) {
+            if (validationPoolConfig.equals(config)) {
+                return validationExecutor;
+            }
+            if (validationExecutor instanceof ExecutorService executorService) {
+                executorService.shutdown();
+            }
+        }
+        validationPoolConfig = config;
+        validationExecutor = buildValidationExecutor(config);
+        return validationExecutor;
     }
 
     @Override
-    public ProduceValidationFilter createFilter(FilterFactoryContext context, ValidationConfig configuration) {
+    public ProduceValidationFilter createFilter(FilterFactoryContext context, Initialized initialized) {
+        ValidationConfig configuration = initialized.config();
         ProduceRequestValidator validator = ProduceValidationFilterBuilder.build(configuration);
-        return new ProduceValidationFilter(configuration.isForwardPartialRequests(), validator);
+        return new ProduceValidationFilter(configuration.isForwardPartialRequests(), validator, initialized.validationExecutor(), context.eventLoop());
+    }
+
+    /**
+     * Builds the executor on which the partitions of requests are validated.
+     * The threads are daemons and time out when idle.
+     * When the queue is full the caller (i.e. the filter thread) performs the validation itself,
+     * which applies backpressure to the client connections using that filter thread.
+     * The caller also performs the validation once the pool has been shut down, so that filters
+     * still using a replaced pool continue to work.
+     * @param config The pool configuration.
+     * @return The executor.
+     */
+    static Executor buildValidationExecutor(ValidationPoolConfig config) {
+        if (config.getThreads() == 0) {
+            return Runnable::run;
+        }
+        int poolId = VALIDATION_POOL_ID.incrementAndGet();
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getThreads(),
+                config.getThreads(),
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kroxylicious-record-validation-" + poolId + "-" + threadId.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> runnable.run());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The state shared by the filters created by this factory.
+     * @param config The configuration.
+     * @param validationExecutor The executor on which the partitions of requests are validated.
+     */
+    public record Initialized(ValidationConfig config, Executor validationExecutor) {
+
     }
 
 }
@@ -28,20 +28,36 @@ public class ValidationConfig {
     private final boolean forwardPartialRequests;
     private final List<TopicMatchingRecordValidationRule> rules;
     private final RecordValidationRule defaultRule;
+    private final ValidationPoolConfig validationPool;
+
+    /**
+     * Construct a new ValidationConfig, validating with the default validation pool
+     * @param forwardPartialRequests describes whether partial ProduceRequest data should be forwarded to the broker (for non-transactional requests)
+     * @param rules describes a list of rules, associating topics with some validation to be applied to produce data for that topic
+     * @param defaultRule the default validation rule to be applied when no rule is matched for a topic within a ProduceRequest
+     */
+    public ValidationConfig(Boolean forwardPartialRequests,
+                            List<TopicMatchingRecordValidationRule> rules,
+                            RecordValidationRule defaultRule) {
+        this(forwardPartialRequests, rules, defaultRule, null);
+    }
 
     /**
      * Construct a new ValidationConfig
      * @param forwardPartialRequests describes whether partial ProduceRequest data should be forwarded to the broker (for non-transactional requests)
      * @param rules describes a list of rules, associating topics with some validation to be applied to produce data for that topic
      * @param defaultRule the default validation rule to be applied when no rule is matched for a topic within a ProduceRequest
+     * @param validationPool describes the pool of threads validating the partitions of a ProduceRequest concurrently
      */
     @JsonCreator
     public ValidationConfig(@JsonProperty(value = "forwardPartialRequests", defaultValue = "false") Boolean forwardPartialRequests,
                             @JsonProperty("rules") List<TopicMatchingRecordValidationRule> rules,
-                            @JsonProperty("defaultRule") RecordValidationRule defaultRule) {
+                            @JsonProperty("defaultRule") RecordValidationRule defaultRule,
+                            @JsonProperty("validationPool") ValidationPoolConfig validationPool) {
         this.forwardPartialRequests = forwardPartialRequests != null && forwardPartialRequests;
         this.rules = rules;
         this.defaultRule = defaultRule;
+        this.validationPool = validationPool == null ? ValidationPoolConfig.DEFAULT_CONFIG : validationPool;
     }
 
     /**
@@ -68,6 +84,14 @@ public class ValidationConfig {
         return defaultRule;
     }
 
+    /**
+     * get validation pool configuration
+     * @return validation pool configuration (not null)
+     */
+    public ValidationPoolConfig getValidationPool() {
+        return validationPool;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -78,12 +102,12 @@ public class ValidationConfig {
         }
         ValidationConfig that = (ValidationConfig) o;
         return forwardPartialRequests == that.forwardPartialRequests && Objects.equals(rules, that.rules) && Objects.equals(defaultRule,
-                that.defaultRule);
+                that.defaultRule) && Objects.equals(validationPool, that.validationPool);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(forwardPartialRequests, rules, defaultRule);
+        return Objects.hash(forwardPartialRequests, rules, defaultRule, validationPool);
     }
 
     @Override
@@ -92,6 +116,7 @@ public class ValidationConfig {
                 "forwardPartialRequests=" + forwardPartialRequests +
                 ", rules=" + rules +
                 ", defaultRule=" + defaultRule +
+                ", validationPool=" + validationPool +
                 '}';
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.schema.config;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the pool of threads which validate the partitions of a ProduceRequest concurrently,
+ * off the filter threads. The pool is opt-in: handing a partition to another thread, and the result back to
+ * the filter thread, only pays off when the validation itself is expensive, for example for JSON syntax
+ * validation of large partitions.
+ */
+public class ValidationPoolConfig {
+
+    /**
+     * The configuration used when none is given
+     */
+    public static final ValidationPoolConfig DEFAULT_CONFIG = new ValidationPoolConfig(null, null);
+
+    private final int threads;
+    private final int queueCapacity;
+
+    /**
+     * Construct ValidationPoolConfig
+     * @param threads the maximum number of threads in the pool, defaults to zero,
+     * in which case partitions are validated one after another on the filter thread.
+     * @param queueCapacity the maximum number of partitions waiting to be validated, defaults to 1024.
+     * When the queue is full the partition is validated on the filter thread.
+     */
+    @JsonCreator
+    public ValidationPoolConfig(@JsonProperty("threads") Integer threads,
+                                @JsonProperty(value = "queueCapacity", defaultValue = "1024") Integer queueCapacity) {
+        this.threads = threads == null ? 0 : threads;
+        this.queueCapacity = queueCapacity == null ? 1024 : queueCapacity;
+        if (this.threads < 0) {
+            throw new IllegalArgumentException("threads must be non-negative");
+        }
+        if (this.queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than zero");
+        }
+    }
+
+    /**
+     * Get the maximum number of threads in the pool
+     * @return threads, zero if partitions are validated on the filter thread
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the maximum number of partitions waiting to be validated
+     * @return queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ValidationPoolConfig that = (ValidationPoolConfig) o;
+        return threads == that.threads && queueCapacity == that.queueCapacity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(threads, queueCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationPoolConfig{" +
+                "threads=" + threads +
+                ", queueCapacity=" + queueCapacity +
+                '}';
+    }
+}
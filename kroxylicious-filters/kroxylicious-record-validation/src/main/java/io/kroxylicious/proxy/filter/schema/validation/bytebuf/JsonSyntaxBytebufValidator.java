@@ -6,15 +6,18 @@
 
 package io.kroxylicious.proxy.filter.schema.validation.bytebuf;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import org.apache.kafka.common.record.Record;
 import org.apache.kafka.common.utils.ByteBufferInputStream;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
 
 import io.kroxylicious.proxy.filter.schema.validation.Result;
 
@@ -22,14 +25,39 @@ import io.kroxylicious.proxy.filter.schema.validation.Result;
  * Checks if a Record's value is well-formed JSON, optionally checking if
  * Object keys are unique. Object key uniqueness is not a hard requirement
  * in the spec but some consumer implementations may expect them to be unique.
+ * <p>
+ * Constructing a parser costs more than parsing a small value, so values of up to
+ * {@link #MAX_RECYCLED_PARSER_VALUE_SIZE} bytes are fed directly to a non-blocking parser, which the thread
+ * reuses for the records it validates next. Each value is followed by a separator which cannot occur within a
+ * JSON token, so a value that ends part way through a token fails on the separator, rather than running on into
+ * the next value. A parser that has failed is discarded, as is one that has parsed {@link #MAX_RECORDS_PER_PARSER}
+ * values, which bounds the number of distinct object keys its symbol table accumulates.
+ * Larger values are parsed faster by a blocking parser, so each has a parser of its own, which reads the
+ * buffer's backing array directly where it has one.
+ * </p>
+ * <p>
+ * Instances are thread-safe, as each thread has recycled parsers of its own.
+ * </p>
  */
 class JsonSyntaxBytebufValidator implements BytebufValidator {
-    private final boolean validateObjectKeysUnique;
 
-    static final ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    static final int MAX_RECYCLED_PARSER_VALUE_SIZE = 256;
+    static final int MAX_RECORDS_PER_PARSER = 1024;
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    // a tab is whitespace between tokens, and must be escaped within a string
+    private static final ByteBuffer SEPARATOR = ByteBuffer.wrap(new byte[]{ '\t' }).asReadOnlyBuffer();
+
+    private static final ThreadLocal<RecycledParser> RECYCLED_PARSER = ThreadLocal.withInitial(() -> new RecycledParser(false));
+    private static final ThreadLocal<RecycledParser> RECYCLED_STRICT_DUPLICATE_DETECTION_PARSER = ThreadLocal.withInitial(() -> new RecycledParser(true));
+
+    private final boolean validateObjectKeysUnique;
+    private final ThreadLocal<RecycledParser> recycledParser;
 
     JsonSyntaxBytebufValidator(boolean validateObjectKeysUnique) {
         this.validateObjectKeysUnique = validateObjectKeysUnique;
+        this.recycledParser = validateObjectKeysUnique ? RECYCLED_STRICT_DUPLICATE_DETECTION_PARSER : RECYCLED_PARSER;
     }
 
     @Override
@@ -40,18 +68,105 @@ class JsonSyntaxBytebufValidator implements BytebufValidator {
         if (size < 1) {
             throw new IllegalArgumentException("size is less than 1");
         }
-        try (InputStream inputStream = new ByteBufferInputStream(buffer);
-                JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+        return size <= MAX_RECYCLED_PARSER_VALUE_SIZE ? recycledParser.get().validate(buffer, size) : validateWithNewParser(buffer, size);
+    }
+
+    private Result validateWithNewParser(ByteBuffer buffer, int size) {
+        try (JsonParser parser = buffer.hasArray()
+                ? factory.createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), size)
+                : factory.createParser(new ByteBufferInputStream(buffer.slice(buffer.position(), size)))) {
             if (validateObjectKeysUnique) {
                 parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
             }
             while (parser.nextToken() != null) {
+                // tokens are only read to check the syntax
             }
             return Result.VALID;
         }
         catch (Exception e) {
-            String message = "value was not syntactically correct JSON" + (e.getMessage() != null ? ": " + e.getMessage() : "");
-            return new Result(false, message);
+            return invalid(e, 0);
+        }
+    }
+
+    private static Result invalid(Exception e, long valueOffset) {
+        String message = "value was not syntactically correct JSON";
+        if (e instanceof JsonProcessingException jsonException) {
+            JsonLocation location = jsonException.getLocation();
+            message += ": " + jsonException.getOriginalMessage()
+                    + (location == null ? "" : " at offset " + Math.max(0, location.getByteOffset() - valueOffset));
+        }
+        else if (e.getMessage() != null) {
+            message += ": " + e.getMessage();
+        }
+        return new Result(false, message);
+    }
+
+    /**
+     * A non-blocking parser, and the position it has reached, confined to a single thread.
+     */
+    private static final class RecycledParser {
+        private final boolean strictDuplicateDetection;
+        private JsonParser parser;
+        private int recordsParsed;
+        private long bytesParsed;
+
+        private RecycledParser(boolean strictDuplicateDetection) {
+            this.strictDuplicateDetection = strictDuplicateDetection;
+        }
+
+        Result validate(ByteBuffer buffer, int size) {
+            long valueOffset = 0;
+            try {
+                JsonParser jsonParser = parser();
+                valueOffset = bytesParsed;
+                // the parser reads its input without moving the buffer's position
+                feed(jsonParser, buffer.remaining() == size ? buffer : buffer.slice(buffer.position(), size));
+                feed(jsonParser, SEPARATOR);
+                bytesParsed += size + SEPARATOR.remaining();
+                if (!jsonParser.getParsingContext().inRoot()) {
+                    discard();
+                    return new Result(false, "value was not syntactically correct JSON: Unexpected end-of-input");
+                }
+                if (++recordsParsed >= MAX_RECORDS_PER_PARSER) {
+                    discard();
+                }
+                return Result.VALID;
+            }
+            catch (Exception e) {
+                discard();
+                return invalid(e, valueOffset);
+            }
+        }
+
+        private JsonParser parser() throws IOException {
+            if (parser == null) {
+                parser = factory.createNonBlockingByteBufferParser();
+                if (strictDuplicateDetection) {
+                    parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+                }
+                recordsParsed = 0;
+                bytesParsed = 0;
+            }
+            return parser;
+        }
+
+        private static void feed(JsonParser jsonParser, ByteBuffer input) throws IOException {
+            ((ByteBufferFeeder) jsonParser.getNonBlockingInputFeeder()).feedInput(input);
+            while (jsonParser.nextToken() != JsonToken.NOT_AVAILABLE) {
+                // tokens are only read to check the syntax
+            }
+        }
+
+        private void discard() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                }
+                catch (IOException e) {
+                    // nothing is lost, the parser only reads from the buffers it has been fed
+                }
+                parser = null;
+            }
         }
     }
 
@@ -6,6 +6,10 @@
 
 package io.kroxylicious.proxy.filter.schema.validation.request;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 import org.apache.kafka.common.message.ProduceRequestData;
 
 /**
@@ -20,4 +24,15 @@ public interface ProduceRequestValidator {
      * @return result describing a validation outcome for all topic partitions and details of records that failed validation
      */
     ProduceRequestValidationResult validateRequest(ProduceRequestData request);
+
+    /**
+     * Validate a request, possibly validating its topic-partitions concurrently using the executor.
+     * By default the request is validated on the calling thread.
+     * @param request the request
+     * @param executor executor on which topic-partitions may be validated
+     * @return stage completed with a result describing a validation outcome for all topic partitions and details of records that failed validation
+     */
+    default CompletionStage<ProduceRequestValidationResult> validateRequest(ProduceRequestData request, Executor executor) {
+        return CompletableFuture.completedFuture(validateRequest(request));
+    }
 }
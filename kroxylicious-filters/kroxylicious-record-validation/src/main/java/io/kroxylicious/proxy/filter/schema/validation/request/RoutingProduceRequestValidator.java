@@ -12,6 +12,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -30,6 +33,11 @@ import io.kroxylicious.proxy.filter.schema.validation.topic.TopicValidators;
  * If no rule is matched for a topic, then a (configurable) default validator will be
  * applied to the data for that topic.
  * </p>
+ * <p>
+ * When given an executor, the partitions of a request are validated concurrently on it, unless the
+ * request contains a single partition. Topics are routed to their validator on the calling thread, and
+ * each validator decides which of its partitions are worth handing to the executor.
+ * </p>
  */
 public class RoutingProduceRequestValidator implements ProduceRequestValidator {
 
@@ -59,6 +67,27 @@ public class RoutingProduceRequestValidator implements ProduceRequestValidator {
         return new ProduceRequestValidationResult(collect);
     }
 
+    @Override
+    public CompletionStage<ProduceRequestValidationResult> validateRequest(ProduceRequestData request, Executor executor) {
+        if (partitionCount(request) < 2) {
+            return CompletableFuture.completedFuture(validateRequest(request));
+        }
+        Map<String, CompletableFuture<TopicValidationResult>> topicResults = request.topicData().stream().collect(
+                Collectors.toMap(ProduceRequestData.TopicProduceData::name,
+                        topicProduceData -> getTopicValidator(topicProduceData).validateTopicData(topicProduceData, executor).toCompletableFuture()));
+        return CompletableFuture.allOf(topicResults.values().toArray(CompletableFuture[]::new))
+                .thenApply(unused -> new ProduceRequestValidationResult(topicResults.entrySet().stream().collect(
+                        Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().join()))));
+    }
+
+    private static int partitionCount(ProduceRequestData request) {
+        int partitions = 0;
+        for (ProduceRequestData.TopicProduceData topicProduceData : request.topicData()) {
+            partitions += topicProduceData.partitionData().size();
+        }
+        return partitions;
+    }
+
     private TopicValidator getTopicValidator(ProduceRequestData.TopicProduceData topicProduceData) {
         return cache.computeIfAbsent(topicProduceData.name(), topicName -> {
             Optional<RoutingRule> first = rules.stream().filter(routingRule -> routingRule.topicPredicate().test(topicName)).findFirst();
@@ -8,6 +8,10 @@ package io.kroxylicious.proxy.filter.schema.validation.topic;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.kafka.common.message.ProduceRequestData;
@@ -21,6 +25,9 @@ import io.kroxylicious.proxy.filter.schema.validation.record.RecordValidator;
 
 class PerRecordTopicValidator implements TopicValidator {
 
+    // smaller partitions are validated on the calling thread, as they take less time to validate than to hand off
+    static final int MIN_OFFLOADED_PARTITION_BYTES = 16 * 1024;
+
     private final RecordValidator validator;
 
     PerRecordTopicValidator(RecordValidator validator) {
@@ -36,6 +43,22 @@ class PerRecordTopicValidator implements TopicValidator {
                 ProduceRequestData.PartitionProduceData::index, this::validateTopicPartition)));
     }
 
+    @Override
+    public CompletionStage<TopicValidationResult> validateTopicData(ProduceRequestData.TopicProduceData topicProduceData, Executor executor) {
+        List<CompletableFuture<PartitionValidationResult>> partitionResults = topicProduceData.partitionData().stream()
+                .map(partitionProduceData -> sizeInBytes(partitionProduceData.records()) < MIN_OFFLOADED_PARTITION_BYTES
+                        ? CompletableFuture.completedFuture(validateTopicPartition(partitionProduceData))
+                        : CompletableFuture.supplyAsync(() -> validateTopicPartition(partitionProduceData), executor))
+                .toList();
+        return CompletableFuture.allOf(partitionResults.toArray(CompletableFuture[]::new))
+                .thenApply(unused -> new PerPartitionTopicValidationResult(topicProduceData.name(), partitionResults.stream().map(CompletableFuture::join)
+                        .collect(Collectors.toMap(PartitionValidationResult::index, Function.identity()))));
+    }
+
+    private static int sizeInBytes(BaseRecords records) {
+        return records == null ? 0 : records.sizeInBytes();
+    }
+
     private PartitionValidationResult validateTopicPartition(ProduceRequestData.PartitionProduceData partitionProduceData) {
         return new PartitionValidationResult(partitionProduceData.index(), validateRecords(partitionProduceData.records()));
     }
@@ -6,6 +6,10 @@
 
 package io.kroxylicious.proxy.filter.schema.validation.topic;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 import org.apache.kafka.common.message.ProduceRequestData;
 
 /**
@@ -19,4 +23,15 @@ public interface TopicValidator {
      * @return result describing whether any partitions were invalid, and details of any invalid partitions/records
      */
     TopicValidationResult validateTopicData(ProduceRequestData.TopicProduceData request);
+
+    /**
+     * Validate topic produce data, possibly validating its partitions concurrently using the executor.
+     * By default the topic produce data is validated on the calling thread.
+     * @param request the request
+     * @param executor executor on which partitions may be validated
+     * @return stage completed with a result describing whether any partitions were invalid, and details of any invalid partitions/records
+     */
+    default CompletionStage<TopicValidationResult> validateTopicData(ProduceRequestData.TopicProduceData request, Executor executor) {
+        return CompletableFuture.completedFuture(validateTopicData(request));
+    }
 }
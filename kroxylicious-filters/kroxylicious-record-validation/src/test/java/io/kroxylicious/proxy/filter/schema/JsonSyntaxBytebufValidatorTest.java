@@ -20,6 +20,7 @@ import io.kroxylicious.proxy.filter.schema.validation.Result;
 import io.kroxylicious.proxy.filter.schema.validation.bytebuf.BytebufValidator;
 import io.kroxylicious.proxy.filter.schema.validation.bytebuf.BytebufValidators;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -193,6 +194,82 @@ class JsonSyntaxBytebufValidatorTest {
         });
     }
 
+    @Test
+    void testValidatorReusedAfterInvalidRecord() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(false);
+        assertFalse(validate(createRecord("a", "{\"a\":}"), validator).valid());
+        assertTrue(validate(createRecord("a", "{\"a\":1}"), validator).valid());
+    }
+
+    @Test
+    void testIncompleteRecordDoesNotContinueIntoNextRecord() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(false);
+        Result result = validate(createRecord("a", "{\"a\":"), validator);
+        assertFalse(result.valid());
+        assertTrue(result.errorMessage().contains("value was not syntactically correct JSON: Unexpected end-of-input"));
+        assertFalse(validate(createRecord("a", "1}"), validator).valid());
+    }
+
+    @Test
+    void testUnterminatedStringDoesNotContinueIntoNextRecord() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(false);
+        assertFalse(validate(createRecord("a", "\"abc"), validator).valid());
+        assertFalse(validate(createRecord("a", "def\""), validator).valid());
+        assertTrue(validate(createRecord("a", "\"abcdef\""), validator).valid());
+    }
+
+    @Test
+    void testNumbersInConsecutiveRecordsValidatedSeparately() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(false);
+        assertTrue(validate(createRecord("a", "12"), validator).valid());
+        assertTrue(validate(createRecord("a", "34"), validator).valid());
+        assertFalse(validate(createRecord("a", "5."), validator).valid());
+        assertTrue(validate(createRecord("a", "6"), validator).valid());
+    }
+
+    @Test
+    void testSameKeysInConsecutiveRecordsValidated() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(true);
+        // enough records that the validator replaces its parser
+        for (int i = 0; i < 5000; i++) {
+            Result result = validate(createRecord("a", "{\"a\":" + i + ",\"b\":[true,null]}"), validator);
+            assertTrue(result.valid(), result::errorMessage);
+        }
+        assertFalse(validate(createRecord("a", "{\"a\":1,\"a\":2}"), validator).valid());
+    }
+
+    @Test
+    void testErrorOffsetIsRelativeToRecord() {
+        Record invalid = createRecord("a", "[1,}");
+        Result firstRecordResult = validate(invalid, BytebufValidators.jsonSyntaxValidator(false));
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(false);
+        assertTrue(validate(createRecord("a", "{\"a\":\"a\"}"), validator).valid());
+        Result result = validate(invalid, validator);
+        assertFalse(result.valid());
+        assertTrue(result.errorMessage().endsWith(" at offset 4"), result.errorMessage());
+        assertEquals(firstRecordResult.errorMessage(), result.errorMessage());
+    }
+
+    @Test
+    void testLargeValuesValidated() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(true);
+        String elements = "{\"a\":1,\"b\":2},".repeat(100);
+        assertTrue(validate(createRecord("a", "[" + elements + "{}]"), validator).valid());
+        Result result = validate(createRecord("a", "[" + elements + "{\"a\":1,\"a\":2}]"), validator);
+        assertFalse(result.valid());
+        assertTrue(result.errorMessage().contains("value was not syntactically correct JSON: Duplicate field"));
+        assertTrue(validate(createRecord("a", "{}"), validator).valid());
+    }
+
+    @Test
+    void testLargeValueErrorOffsetIsRelativeToRecord() {
+        BytebufValidator validator = BytebufValidators.jsonSyntaxValidator(false);
+        String value = "[" + "1,".repeat(200) + "}";
+        Result result = validate(createRecord("a", value), validator);
+        assertFalse(result.valid());
+        assertTrue(result.errorMessage().endsWith(" at offset " + value.length()), result.errorMessage());
+    }
+
     private static Result validate(Record record, BytebufValidator validator) {
         return validator.validate(record.value(), record.valueSize(), record, false);
     }
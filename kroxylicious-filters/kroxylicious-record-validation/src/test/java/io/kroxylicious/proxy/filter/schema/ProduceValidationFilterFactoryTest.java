@@ -7,16 +7,24 @@
 package io.kroxylicious.proxy.filter.schema;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.junit.jupiter.api.Test;
 
 import io.kroxylicious.proxy.filter.Filter;
+import io.kroxylicious.proxy.filter.FilterFactoryContext;
 import io.kroxylicious.proxy.filter.schema.config.RecordValidationRule;
 import io.kroxylicious.proxy.filter.schema.config.ValidationConfig;
+import io.kroxylicious.proxy.filter.schema.config.ValidationPoolConfig;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class ProduceValidationFilterFactoryTest {
 
@@ -31,8 +39,66 @@ class ProduceValidationFilterFactoryTest {
     void testGetInstance() {
         ProduceValidationFilterFactory factory = new ProduceValidationFilterFactory();
         ValidationConfig config = new ValidationConfig(true, List.of(), new RecordValidationRule(null, null));
-        Filter filter = factory.createFilter(null, config);
+        FilterFactoryContext context = mock(FilterFactoryContext.class);
+        when(context.eventLoop()).thenReturn(mock(ScheduledExecutorService.class));
+        Filter filter = factory.createFilter(context, factory.initialize(context, config));
         assertThat(filter).isNotNull().isInstanceOf(ProduceValidationFilter.class);
     }
 
+    @Test
+    void testValidationExecutorRunsOnDaemonThreads() {
+        // given
+        Executor executor = ProduceValidationFilterFactory.buildValidationExecutor(new ValidationPoolConfig(2, 10));
+
+        // when
+        Thread thread = CompletableFuture.supplyAsync(Thread::currentThread, executor).join();
+
+        // then
+        assertThat(thread).isNotSameAs(Thread.currentThread());
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(thread.getName()).startsWith("kroxylicious-record-validation-");
+    }
+
+    @Test
+    void testValidationOnFilterThreadWhenNoValidationThreads() {
+        // given
+        Executor executor = ProduceValidationFilterFactory.buildValidationExecutor(new ValidationPoolConfig(0, null));
+
+        // when
+        Thread thread = CompletableFuture.supplyAsync(Thread::currentThread, executor).join();
+
+        // then
+        assertThat(thread).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void testValidationExecutorSharedBetweenInitializations() {
+        // given
+        ProduceValidationFilterFactory factory = new ProduceValidationFilterFactory();
+
+        // when
+        Executor first = factory.validationExecutor(new ValidationPoolConfig(2, 10));
+        Executor second = factory.validationExecutor(new ValidationPoolConfig(2, 10));
+
+        // then
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void testValidationExecutorReplacedWhenConfigChanges() {
+        // given
+        ProduceValidationFilterFactory factory = new ProduceValidationFilterFactory();
+        Executor first = factory.validationExecutor(new ValidationPoolConfig(2, 10));
+
+        // when
+        Executor second = factory.validationExecutor(new ValidationPoolConfig(1, 10));
+
+        // then
+        assertThat(second).isNotSameAs(first);
+        assertThat(first).isInstanceOfSatisfying(ExecutorService.class, executorService -> assertThat(executorService.isShutdown()).isTrue());
+        // a filter still using the replaced pool performs the validation itself
+        Thread thread = CompletableFuture.supplyAsync(Thread::currentThread, first).join();
+        assertThat(thread).isSameAs(Thread.currentThread());
+    }
+
 }
@@ -16,6 +16,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ValidationConfigTest {
 
@@ -40,6 +41,27 @@ class ValidationConfigTest {
         TopicMatchingRecordValidationRule ruleTwo = new TopicMatchingRecordValidationRule(Set.of("two"), new BytebufValidation(null, true, false), null);
         ValidationConfig expected = new ValidationConfig(false, List.of(ruleOne, ruleTwo), new RecordValidationRule(null, new BytebufValidation(null, true, false)));
         assertEquals(expected, deserialised);
+        assertEquals(new ValidationPoolConfig(0, 1024), deserialised.getValidationPool());
+    }
+
+    @Test
+    void testDecodeValidationPool() throws JsonProcessingException {
+        ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+        ValidationConfig deserialised = yamlMapper.readerFor(ValidationConfig.class).readValue("""
+                defaultRule:
+                  valueRule: {}
+                validationPool:
+                  threads: 4
+                  queueCapacity: 10
+                """);
+
+        assertEquals(new ValidationPoolConfig(4, 10), deserialised.getValidationPool());
+    }
+
+    @Test
+    void testInvalidValidationPool() {
+        assertThrows(IllegalArgumentException.class, () -> new ValidationPoolConfig(-1, null));
+        assertThrows(IllegalArgumentException.class, () -> new ValidationPoolConfig(null, 0));
     }
 
     @Test
@@ -0,0 +1,156 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.schema.validation.request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.proxy.filter.schema.validation.bytebuf.BytebufValidators;
+import io.kroxylicious.proxy.filter.schema.validation.record.KeyAndValueRecordValidator;
+import io.kroxylicious.proxy.filter.schema.validation.topic.TopicValidators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutingProduceRequestValidatorTest {
+
+    private static final String JSON_TOPIC = "json";
+    private static final String OTHER_TOPIC = "other";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ProduceRequestValidator validator = RoutingProduceRequestValidator.builder()
+            .appendValidatorForTopicPattern(Set.of(JSON_TOPIC), TopicValidators.perRecordValidator(KeyAndValueRecordValidator.keyAndValueValidator(
+                    BytebufValidators.allValid(), BytebufValidators.nullEmptyValidator(false, false, BytebufValidators.jsonSyntaxValidator(true)))))
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentValidationMatchesSequentialValidation() {
+        // given
+        ProduceRequestData request = new ProduceRequestData();
+        request.topicData().add(topicData(JSON_TOPIC, 16, 1000));
+        request.topicData().add(topicData(OTHER_TOPIC, 2, 10));
+
+        // when
+        ProduceRequestValidationResult result = validator.validateRequest(request, executor).toCompletableFuture().join();
+
+        // then
+        assertThat(result).isEqualTo(validator.validateRequest(request));
+        assertThat(result.isAnyTopicPartitionInvalid()).isTrue();
+        assertThat(result.isAllPartitionsInvalid(JSON_TOPIC)).isFalse();
+        assertThat(result.isPartitionValid(JSON_TOPIC, 0)).isTrue();
+        assertThat(result.isPartitionValid(JSON_TOPIC, 3)).isFalse();
+        assertThat(result.isAllPartitionsInvalid(OTHER_TOPIC)).isFalse();
+    }
+
+    @Test
+    void testPartitionsValidatedOnExecutor() {
+        // given
+        ProduceRequestData request = new ProduceRequestData();
+        request.topicData().add(topicData(JSON_TOPIC, 3, 1000));
+        AtomicInteger tasks = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+
+        // when
+        ProduceRequestValidationResult result = validator.validateRequest(request, countingExecutor).toCompletableFuture().join();
+
+        // then
+        assertThat(tasks).hasValue(3);
+        assertThat(result).isEqualTo(validator.validateRequest(request));
+    }
+
+    @Test
+    void testSinglePartitionValidatedOnCallingThread() {
+        // given
+        ProduceRequestData request = new ProduceRequestData();
+        request.topicData().add(topicData(JSON_TOPIC, 1, 10));
+        AtomicInteger tasks = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+
+        // when
+        ProduceRequestValidationResult result = validator.validateRequest(request, countingExecutor).toCompletableFuture().join();
+
+        // then
+        assertThat(tasks).hasValue(0);
+        assertThat(result).isEqualTo(validator.validateRequest(request));
+    }
+
+    @Test
+    void testSmallPartitionsValidatedOnCallingThread() {
+        // given
+        ProduceRequestData request = new ProduceRequestData();
+        request.topicData().add(topicData(JSON_TOPIC, 4, 10));
+        AtomicInteger tasks = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+
+        // when
+        CompletableFuture<ProduceRequestValidationResult> result = validator.validateRequest(request, countingExecutor).toCompletableFuture();
+
+        // then
+        assertThat(tasks).hasValue(0);
+        assertThat(result).isCompletedWithValue(validator.validateRequest(request));
+    }
+
+    @Test
+    void testAllValidTopicValidatedOnCallingThread() {
+        // given
+        ProduceRequestData request = new ProduceRequestData();
+        request.topicData().add(topicData(OTHER_TOPIC, 4, 1000));
+        AtomicInteger tasks = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+
+        // when
+        CompletableFuture<ProduceRequestValidationResult> result = validator.validateRequest(request, countingExecutor).toCompletableFuture();
+
+        // then
+        assertThat(tasks).hasValue(0);
+        assertThat(result).isCompletedWithValue(validator.validateRequest(request));
+    }
+
+    // every fourth partition contains a record which is not JSON
+    private static ProduceRequestData.TopicProduceData topicData(String topicName, int partitions, int recordsPerPartition) {
+        ProduceRequestData.TopicProduceData topicData = new ProduceRequestData.TopicProduceData().setName(topicName);
+        for (int partition = 0; partition < partitions; partition++) {
+            SimpleRecord[] records = new SimpleRecord[recordsPerPartition];
+            for (int i = 0; i < recordsPerPartition; i++) {
+                String value = partition % 4 == 3 && i == recordsPerPartition / 2 ? "{\"index\":" : "{\"index\":" + i + ",\"partition\":" + partition + "}";
+                records[i] = new SimpleRecord(null, value.getBytes(StandardCharsets.UTF_8));
+            }
+            topicData.partitionData().add(new ProduceRequestData.PartitionProduceData()
+                    .setIndex(partition)
+                    .setRecords(MemoryRecords.withRecords(CompressionType.NONE, records)));
+        }
+        return topicData;
+    }
+}
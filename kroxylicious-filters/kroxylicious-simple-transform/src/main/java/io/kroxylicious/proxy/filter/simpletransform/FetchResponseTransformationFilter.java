@@ -6,10 +6,10 @@
 
 package io.kroxylicious.proxy.filter.simpletransform;
 
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletionStage;
-import java.util.stream.Collectors;
 
 import org.apache.kafka.common.Uuid;
 import org.apache.kafka.common.message.FetchResponseData;
@@ -18,26 +18,27 @@ import org.apache.kafka.common.message.MetadataResponseData;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.message.ResponseHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
-import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.protocol.Errors;
 import org.apache.kafka.common.record.MemoryRecords;
-import org.apache.kafka.common.record.MemoryRecordsBuilder;
-import org.apache.kafka.common.record.MutableRecordBatch;
-import org.apache.kafka.common.record.Record;
-import org.apache.kafka.common.record.RecordBatch;
-import org.apache.kafka.common.record.TimestampType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.kroxylicious.proxy.filter.FetchResponseFilter;
 import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.MetadataResponseFilter;
 import io.kroxylicious.proxy.filter.ResponseFilterResult;
 
 /**
  * A filter for modifying the key/value/header/topic of {@link ApiKeys#FETCH} responses.
  * <p>
+ * Fetch responses from version 13 identify topics by id. The filter names them using a {@link TopicNameCache}
+ * that is filled from the {@link ApiKeys#METADATA} responses it sees, and only sends a Metadata request
+ * of its own for ids that are not in the cache.
+ * </p>
+ * <p>
  * <strong>Not intended to production use.</strong>
  * </p> */
-public class FetchResponseTransformationFilter implements FetchResponseFilter {
+public class FetchResponseTransformationFilter implements FetchResponseFilter, MetadataResponseFilter {
 
     // Version 12 was the first version that uses topic ids.
     private static final short METADATA_API_VER_WITH_TOPIC_ID_SUPPORT = (short) 12;
@@ -51,20 +52,33 @@ public class FetchResponseTransformationFilter implements FetchResponseFilter {
 
     // TODO: add transformation support for key/header/topic
 
+    /**
+     * Cache of topic ids to names, used to name the topics of fetch responses that only carry topic ids.
+     */
+    private final TopicNameCache topicNames;
+
     public FetchResponseTransformationFilter(ByteBufferTransformation valueTransformation) {
+        this(valueTransformation, new TopicNameCache());
+    }
+
+    public FetchResponseTransformationFilter(ByteBufferTransformation valueTransformation, TopicNameCache topicNames) {
         this.valueTransformation = valueTransformation;
+        this.topicNames = topicNames;
+    }
+
+    @Override
+    public CompletionStage<ResponseFilterResult> onMetadataResponse(short apiVersion, ResponseHeaderData header, MetadataResponseData response,
+                                                                    FilterContext context) {
+        topicNames.update(response);
+        return context.forwardResponse(header, response);
     }
 
     @Override
     public CompletionStage<ResponseFilterResult> onFetchResponse(short apiVersion, ResponseHeaderData header, FetchResponseData fetchResponse,
                                                                  FilterContext context) {
-        List<MetadataRequestData.MetadataRequestTopic> requestTopics = fetchResponse.responses().stream()
-                .filter(t -> t.topic().isEmpty())
-                .map(fetchableTopicResponse -> {
-                    Uuid uuid = fetchableTopicResponse.topicId();
-                    return new MetadataRequestData.MetadataRequestTopic().setName(null).setTopicId(uuid);
-                })
-                .distinct()
+        invalidateUnknownTopicIds(fetchResponse);
+        List<MetadataRequestData.MetadataRequestTopic> requestTopics = resolveTopicNames(fetchResponse).stream()
+                .map(uuid -> new MetadataRequestData.MetadataRequestTopic().setName(null).setTopicId(uuid))
                 .toList();
         if (!requestTopics.isEmpty()) {
             LOGGER.debug("Fetch response contains {} unknown topic ids, lookup via Metadata request: {}", requestTopics.size(), requestTopics);
@@ -72,13 +86,9 @@ public class FetchResponseTransformationFilter implements FetchResponseFilter {
             var metadataRequest = new MetadataRequestData().setTopics(requestTopics);
             return context.<MetadataResponseData> sendRequest(metadataHeader, metadataRequest)
                     .thenCompose(metadataResponse -> {
-                        Map<Uuid, String> uidToName = metadataResponse.topics().stream()
-                                .collect(Collectors.toMap(MetadataResponseData.MetadataResponseTopic::topicId,
-                                        MetadataResponseData.MetadataResponseTopic::name));
-                        LOGGER.debug("Metadata response yields {}, updating original Fetch response", uidToName);
-                        for (var fetchableTopicResponse : fetchResponse.responses()) {
-                            fetchableTopicResponse.setTopic(uidToName.get(fetchableTopicResponse.topicId()));
-                        }
+                        topicNames.update(metadataResponse);
+                        LOGGER.debug("Metadata response yields {}, updating original Fetch response", metadataResponse.topics());
+                        resolveTopicNames(fetchResponse);
                         applyTransformation(context, fetchResponse);
                         LOGGER.debug("Forwarding original Fetch response");
 
@@ -91,25 +101,42 @@ public class FetchResponseTransformationFilter implements FetchResponseFilter {
         }
     }
 
+    /**
+     * Sets the names of the topics in a fetch response which lack one from the cache.
+     * @return the ids of the topics whose names are not cached.
+     */
+    private Set<Uuid> resolveTopicNames(FetchResponseData fetchResponse) {
+        Set<Uuid> unresolved = new LinkedHashSet<>();
+        for (var fetchableTopicResponse : fetchResponse.responses()) {
+            if (fetchableTopicResponse.topic().isEmpty()) {
+                String name = topicNames.get(fetchableTopicResponse.topicId());
+                if (name == null) {
+                    unresolved.add(fetchableTopicResponse.topicId());
+                }
+                else {
+                    fetchableTopicResponse.setTopic(name);
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    private void invalidateUnknownTopicIds(FetchResponseData fetchResponse) {
+        for (var fetchableTopicResponse : fetchResponse.responses()) {
+            for (var partitionData : fetchableTopicResponse.partitions()) {
+                if (partitionData.errorCode() == Errors.UNKNOWN_TOPIC_ID.code()) {
+                    topicNames.invalidate(fetchableTopicResponse.topicId());
+                    break;
+                }
+            }
+        }
+    }
+
     private void applyTransformation(FilterContext context, FetchResponseData responseData) {
         for (FetchResponseData.FetchableTopicResponse topicData : responseData.responses()) {
             for (FetchResponseData.PartitionData partitionData : topicData.partitions()) {
-                var records = (MemoryRecords) partitionData.records();
-                var stream = context.createByteBufferOutputStream(records.sizeInBytes());
-                try (var newRecords = new MemoryRecordsBuilder(stream, RecordBatch.CURRENT_MAGIC_VALUE, CompressionType.NONE, TimestampType.CREATE_TIME, 0,
-                        System.currentTimeMillis(), RecordBatch.NO_PRODUCER_ID, RecordBatch.NO_PRODUCER_EPOCH, RecordBatch.NO_SEQUENCE, false, false,
-                        RecordBatch.NO_PARTITION_LEADER_EPOCH,
-                        stream.remaining())) {
-
-                    for (MutableRecordBatch batch : records.batches()) {
-                        for (Record batchRecord : batch) {
-                            newRecords.appendWithOffset(batchRecord.offset(), batchRecord.timestamp(), batchRecord.key(),
-                                    valueTransformation.transform(topicData.topic(), batchRecord.value()));
-                        }
-                    }
-
-                    partitionData.setRecords(newRecords.build());
-                }
+                MemoryRecords records = (MemoryRecords) partitionData.records();
+                partitionData.setRecords(RecordsTransformer.transform(context, topicData.topic(), records, valueTransformation));
             }
         }
     }
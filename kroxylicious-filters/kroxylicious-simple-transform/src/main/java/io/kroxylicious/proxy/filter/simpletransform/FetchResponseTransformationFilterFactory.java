@@ -22,20 +22,21 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 
 @Plugin(configType = FetchResponseTransformationFilterFactory.Config.class)
 public class FetchResponseTransformationFilterFactory
-        implements FilterFactory<Config, Config> {
+        implements FilterFactory<Config, FetchResponseTransformationFilterFactory.Initialized> {
 
     @Override
-    public Config initialize(FilterFactoryContext context, Config config) {
-        return Plugins.requireConfig(this, config);
+    public Initialized initialize(FilterFactoryContext context, Config config) {
+        return new Initialized(Plugins.requireConfig(this, config), new TopicNameCache());
     }
 
     @NonNull
     @Override
     public FetchResponseTransformationFilter createFilter(FilterFactoryContext context,
-                                                          Config configuration) {
+                                                          Initialized initialized) {
+        var configuration = initialized.config();
         var factory = context.pluginInstance(ByteBufferTransformationFactory.class, configuration.transformation());
         Objects.requireNonNull(factory, "Violated contract of FilterCreationContext");
-        return new FetchResponseTransformationFilter(factory.createTransformation(configuration.config()));
+        return new FetchResponseTransformationFilter(factory.createTransformation(configuration.config()), initialized.topicNames());
     }
 
     public record Config(@JsonProperty(required = true) @PluginImplName(ByteBufferTransformationFactory.class) String transformation,
@@ -43,4 +44,13 @@ public class FetchResponseTransformationFilterFactory
 
     }
 
+    /**
+     * The state shared by the filters created by this factory.
+     * @param config The configuration.
+     * @param topicNames The cache of topic ids to names.
+     */
+    public record Initialized(Config config, TopicNameCache topicNames) {
+
+    }
+
 }
@@ -11,13 +11,7 @@ import java.util.concurrent.CompletionStage;
 import org.apache.kafka.common.message.ProduceRequestData;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
-import org.apache.kafka.common.record.CompressionType;
 import org.apache.kafka.common.record.MemoryRecords;
-import org.apache.kafka.common.record.MemoryRecordsBuilder;
-import org.apache.kafka.common.record.MutableRecordBatch;
-import org.apache.kafka.common.record.Record;
-import org.apache.kafka.common.record.RecordBatch;
-import org.apache.kafka.common.record.TimestampType;
 
 import io.kroxylicious.proxy.filter.FilterContext;
 import io.kroxylicious.proxy.filter.ProduceRequestFilter;
@@ -52,21 +46,7 @@ public class ProduceRequestTransformationFilter implements ProduceRequestFilter
         req.topicData().forEach(topicData -> {
             for (ProduceRequestData.PartitionProduceData partitionData : topicData.partitionData()) {
                 MemoryRecords records = (MemoryRecords) partitionData.records();
-                var stream = ctx.createByteBufferOutputStream(records.sizeInBytes());
-                try (var newRecords = new MemoryRecordsBuilder(stream, RecordBatch.CURRENT_MAGIC_VALUE, CompressionType.NONE, TimestampType.CREATE_TIME, 0,
-                        System.currentTimeMillis(), RecordBatch.NO_PRODUCER_ID, RecordBatch.NO_PRODUCER_EPOCH, RecordBatch.NO_SEQUENCE, false, false,
-                        RecordBatch.NO_PARTITION_LEADER_EPOCH,
-                        stream.remaining())) {
-
-                    for (MutableRecordBatch batch : records.batches()) {
-                        for (Record batchRecord : batch) {
-                            newRecords.appendWithOffset(batchRecord.offset(), batchRecord.timestamp(), batchRecord.key(),
-                                    valueTransformation.transform(topicData.name(), batchRecord.value()));
-                        }
-                    }
-
-                    partitionData.setRecords(newRecords.build());
-                }
+                partitionData.setRecords(RecordsTransformer.transform(ctx, topicData.name(), records, valueTransformation));
             }
         });
     }
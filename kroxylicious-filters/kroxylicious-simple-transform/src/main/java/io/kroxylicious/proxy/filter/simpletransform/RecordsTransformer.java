@@ -0,0 +1,104 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.simpletransform;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.MutableRecordBatch;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+
+import io.kroxylicious.proxy.filter.FilterContext;
+
+/**
+ * Applies a {@link ByteBufferTransformation} to the values of the records in some {@link MemoryRecords}.
+ * <p>
+ * A batch that the transformation changes is rebuilt with the same compression, timestamp type, offsets,
+ * producer state, transactionality, partition leader epoch, record timestamps and record headers as the original.
+ * Control batches, and batches that the transformation leaves unchanged, are copied as-is. If no batch is changed
+ * the original records are returned, without being copied at all.
+ * Each batch is iterated only once, so a compressed batch is only decompressed once.
+ * </p>
+ */
+final class RecordsTransformer {
+
+    private RecordsTransformer() {
+    }
+
+    static MemoryRecords transform(FilterContext context, String topicName, MemoryRecords records, ByteBufferTransformation valueTransformation) {
+        List<List<TransformedRecord>> transformedBatches = new ArrayList<>();
+        boolean anyChanged = false;
+        for (MutableRecordBatch batch : records.batches()) {
+            List<TransformedRecord> transformedRecords = transformBatch(topicName, batch, valueTransformation);
+            transformedBatches.add(transformedRecords);
+            anyChanged |= transformedRecords != null;
+        }
+        if (!anyChanged) {
+            return records;
+        }
+
+        ByteBufferOutputStream stream = context.createByteBufferOutputStream(records.sizeInBytes());
+        int batchIndex = 0;
+        for (MutableRecordBatch batch : records.batches()) {
+            List<TransformedRecord> transformedRecords = transformedBatches.get(batchIndex++);
+            if (transformedRecords == null) {
+                batch.writeTo(stream);
+            }
+            else {
+                rebuildBatch(stream, batch, transformedRecords);
+            }
+        }
+        ByteBuffer buffer = stream.buffer();
+        buffer.flip();
+        return MemoryRecords.readableRecords(buffer);
+    }
+
+    /**
+     * @return the batch's records with their transformed values, or null if the batch is not changed by the transformation.
+     */
+    private static List<TransformedRecord> transformBatch(String topicName, MutableRecordBatch batch, ByteBufferTransformation valueTransformation) {
+        if (batch.isControlBatch()) {
+            return null;
+        }
+        List<TransformedRecord> transformedRecords = new ArrayList<>();
+        boolean changed = false;
+        for (Record batchRecord : batch) {
+            ByteBuffer transformed = valueTransformation.transform(topicName, batchRecord.value());
+            changed |= !Objects.equals(batchRecord.value(), transformed);
+            transformedRecords.add(new TransformedRecord(batchRecord.offset(), batchRecord.timestamp(), batchRecord.key(), transformed, batchRecord.headers()));
+        }
+        return changed ? transformedRecords : null;
+    }
+
+    private static void rebuildBatch(ByteBufferOutputStream stream, MutableRecordBatch batch, List<TransformedRecord> transformedRecords) {
+        TimestampType timestampType = batch.timestampType();
+        long logAppendTime = timestampType == TimestampType.LOG_APPEND_TIME ? batch.maxTimestamp() : RecordBatch.NO_TIMESTAMP;
+        // MemoryRecordsBuilder starts writing at the stream's current position, so earlier batches are preserved
+        try (var builder = new MemoryRecordsBuilder(stream, batch.magic(), batch.compressionType(), timestampType, batch.baseOffset(),
+                logAppendTime, batch.producerId(), batch.producerEpoch(), batch.baseSequence(), batch.isTransactional(), false,
+                batch.partitionLeaderEpoch(), 0, batch.deleteHorizonMs().orElse(RecordBatch.NO_TIMESTAMP))) {
+            for (TransformedRecord transformedRecord : transformedRecords) {
+                builder.appendWithOffset(transformedRecord.offset(), transformedRecord.timestamp(), transformedRecord.key(), transformedRecord.value(),
+                        transformedRecord.headers());
+            }
+            builder.build();
+        }
+    }
+
+    /**
+     * A record read from a batch, with its value transformed.
+     */
+    private record TransformedRecord(long offset, long timestamp, ByteBuffer key, ByteBuffer value, Header[] headers) {}
+}
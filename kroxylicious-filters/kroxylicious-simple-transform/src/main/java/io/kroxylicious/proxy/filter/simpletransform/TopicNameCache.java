@@ -0,0 +1,106 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.simpletransform;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.protocol.Errors;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * A thread-safe cache of topic ids to topic names, shared by the filter instances created by a single
+ * {@link FetchResponseTransformationFilterFactory}.
+ * <p>
+ * The cache is filled from the Metadata responses that pass through the filters, and an id is invalidated
+ * whenever a response reports it as unknown (for example, because the topic has been deleted).
+ * Topic ids are random UUIDs assigned by the cluster, so an id maps to at most one name.
+ * </p>
+ * <p>
+ * The cache is shared per factory rather than per virtual cluster, because a filter factory is not told which
+ * virtual cluster its filters belong to. A factory configured for several virtual clusters therefore shares one
+ * cache between them, which is safe because the ids of different clusters do not collide, but means they share
+ * the entry limit.
+ * </p>
+ */
+public final class TopicNameCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Map<Uuid, String> names = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public TopicNameCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    TopicNameCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param topicId The topic id.
+     * @return The name of the topic, or null if the id is not cached.
+     */
+    @Nullable
+    String get(Uuid topicId) {
+        return names.get(topicId);
+    }
+
+    /**
+     * Caches the name of a topic, evicting an arbitrary entry if the cache is full.
+     * @param topicId The topic id.
+     * @param name The topic name.
+     */
+    void put(Uuid topicId, String name) {
+        if (Uuid.ZERO_UUID.equals(topicId) || name == null || name.isEmpty()) {
+            return;
+        }
+        if (names.size() >= maxEntries && !names.containsKey(topicId)) {
+            Iterator<Uuid> iterator = names.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        names.put(topicId, name);
+    }
+
+    /**
+     * Removes a topic id from the cache.
+     * @param topicId The topic id.
+     */
+    void invalidate(Uuid topicId) {
+        names.remove(topicId);
+    }
+
+    /**
+     * Updates the cache from the topics in a Metadata response.
+     * @param response The response.
+     */
+    void update(MetadataResponseData response) {
+        for (var topic : response.topics()) {
+            if (topic.errorCode() == Errors.UNKNOWN_TOPIC_ID.code() || topic.errorCode() == Errors.UNKNOWN_TOPIC_OR_PARTITION.code()) {
+                invalidate(topic.topicId());
+            }
+            else if (topic.errorCode() == Errors.NONE.code()) {
+                put(topic.topicId(), topic.name());
+            }
+        }
+    }
+
+    int size() {
+        return names.size();
+    }
+}
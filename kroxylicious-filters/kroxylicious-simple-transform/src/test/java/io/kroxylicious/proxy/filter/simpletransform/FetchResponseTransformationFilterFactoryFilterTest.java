@@ -9,6 +9,7 @@ package io.kroxylicious.proxy.filter.simpletransform;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -24,6 +25,7 @@ import org.apache.kafka.common.message.MetadataResponseData;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.message.ResponseHeaderData;
 import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.Errors;
 import org.apache.kafka.common.record.CompressionType;
 import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.kafka.common.record.MemoryRecordsBuilder;
@@ -56,6 +58,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -67,6 +71,7 @@ class FetchResponseTransformationFilterFactoryFilterTest {
     private static final String EXPECTED_TRANSFORMED_RECORD_VALUE = ORIGINAL_RECORD_VALUE.toUpperCase(Locale.ROOT);
     private static final String RECORD_KEY = "key";
     private FetchResponseTransformationFilter filter;
+    private TopicNameCache topicNames;
     @Mock(strictness = Mock.Strictness.LENIENT)
     FilterContext context;
 
@@ -88,8 +93,9 @@ class FetchResponseTransformationFilterFactoryFilterTest {
     @BeforeEach
     @SuppressWarnings("unchecked")
     void setUp() {
+        topicNames = new TopicNameCache();
         filter = new FetchResponseTransformationFilter(new UpperCasing.Transformation(
-                new UpperCasing.Config("UTF-8")));
+                new UpperCasing.Config("UTF-8")), topicNames);
 
         when(context.forwardResponse(responseHeaderDataCaptor.capture(), apiMessageCaptor.capture())).thenAnswer(
                 invocation -> CompletableFuture.completedStage(responseFilterResult));
@@ -119,7 +125,9 @@ class FetchResponseTransformationFilterFactoryFilterTest {
         doReturn(new UpperCasing()).when(constructContext).pluginInstance(any(), any());
         FetchResponseTransformationFilterFactory.Config config = new FetchResponseTransformationFilterFactory.Config(UpperCasing.class.getName(),
                 new UpperCasing.Config("UTF-8"));
-        assertThat(factory.createFilter(constructContext, config)).isInstanceOf(FetchResponseTransformationFilter.class);
+        var initialized = factory.initialize(constructContext, config);
+        assertThat(initialized.config()).isSameAs(config);
+        assertThat(factory.createFilter(constructContext, initialized)).isInstanceOf(FetchResponseTransformationFilter.class);
     }
 
     @Test
@@ -199,6 +207,75 @@ class FetchResponseTransformationFilterFactoryFilterTest {
                 .isCompletedExceptionally();
     }
 
+    @Test
+    void filterResolvesTopicIdsFromMetadataResponsesWithoutSendingRequest() throws Exception {
+        // given
+        var metadataResponse = new MetadataResponseData();
+        metadataResponse.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(TOPIC_ID).setName(TOPIC_NAME));
+        filter.onMetadataResponse(metadataResponse.apiKey(), new ResponseHeaderData(), metadataResponse, context);
+
+        var fetchResponse = new FetchResponseData();
+        fetchResponse.responses().add(createFetchableTopicResponseWithOneRecord(RECORD_KEY, ORIGINAL_RECORD_VALUE).setTopicId(TOPIC_ID));
+
+        // when
+        var stage = filter.onFetchResponse(fetchResponse.apiKey(), new ResponseHeaderData(), fetchResponse, context);
+
+        // then
+        assertThat(stage).isCompleted();
+        verify(context, never()).sendRequest(any(), any());
+        var filteredResponse = (FetchResponseData) stage.toCompletableFuture().get().message();
+        assertThat(filteredResponse.responses()).singleElement().satisfies(ftr -> assertThat(ftr.topic()).isEqualTo(TOPIC_NAME));
+        assertThat(responseToRecordStream(filteredResponse).map(this::decodeUtf8Value)).containsExactly(EXPECTED_TRANSFORMED_RECORD_VALUE);
+    }
+
+    @Test
+    void filterOnlyRequestsUnknownTopicIds() {
+        // given
+        var otherTopicId = Uuid.randomUuid();
+        topicNames.put(TOPIC_ID, TOPIC_NAME);
+
+        var fetchResponse = new FetchResponseData();
+        fetchResponse.responses().add(createFetchableTopicResponseWithOneRecord(RECORD_KEY, ORIGINAL_RECORD_VALUE).setTopicId(TOPIC_ID));
+        fetchResponse.responses().add(createFetchableTopicResponseWithOneRecord(RECORD_KEY, ORIGINAL_RECORD_VALUE).setTopicId(otherTopicId));
+
+        var metadataResponse = new MetadataResponseData();
+        metadataResponse.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(otherTopicId).setName("other"));
+        ArgumentCaptor<MetadataRequestData> requestCaptor = ArgumentCaptor.forClass(MetadataRequestData.class);
+        when(context.sendRequest(isA(RequestHeaderData.class), requestCaptor.capture()))
+                .thenReturn(CompletableFuture.completedStage(metadataResponse));
+
+        // when
+        var stage = filter.onFetchResponse(fetchResponse.apiKey(), new ResponseHeaderData(), fetchResponse, context);
+
+        // then
+        assertThat(stage).isCompleted();
+        assertThat(requestCaptor.getValue().topics())
+                .singleElement()
+                .satisfies(t -> assertThat(t.topicId()).isEqualTo(otherTopicId));
+        assertThat(topicNames.get(otherTopicId)).isEqualTo("other");
+    }
+
+    @Test
+    void filterInvalidatesTopicIdReportedAsUnknown() {
+        // given
+        topicNames.put(TOPIC_ID, TOPIC_NAME);
+        var fetchResponse = new FetchResponseData();
+        fetchResponse.responses().add(new FetchableTopicResponse().setTopicId(TOPIC_ID)
+                .setPartitions(List.of(new PartitionData().setErrorCode(Errors.UNKNOWN_TOPIC_ID.code()).setRecords(MemoryRecords.EMPTY))));
+        var metadataResponse = new MetadataResponseData();
+        metadataResponse.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(TOPIC_ID)
+                .setErrorCode(Errors.UNKNOWN_TOPIC_ID.code()));
+        when(context.sendRequest(isA(RequestHeaderData.class), isA(MetadataRequestData.class)))
+                .thenReturn(CompletableFuture.completedStage(metadataResponse));
+
+        // when
+        var stage = filter.onFetchResponse(fetchResponse.apiKey(), new ResponseHeaderData(), fetchResponse, context);
+
+        // then
+        assertThat(stage).isCompleted();
+        assertThat(topicNames.get(TOPIC_ID)).isNull();
+    }
+
     private Stream<Record> responseToRecordStream(FetchResponseData filteredResponse) {
         return Stream.of(filteredResponse.responses())
                 .flatMap(Collection::stream)
@@ -0,0 +1,160 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.simpletransform;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.ControlRecordType;
+import org.apache.kafka.common.record.EndTransactionMarker;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.MutableRecordBatch;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.kroxylicious.proxy.filter.FilterContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class RecordsTransformerTest {
+
+    private static final String TOPIC = "topic";
+    private static final long PRODUCER_ID = 1234L;
+    private static final short PRODUCER_EPOCH = 5;
+    private static final int BASE_SEQUENCE = 42;
+    private static final int LEADER_EPOCH = 7;
+    private static final Header[] HEADERS = { new RecordHeader("h", "v".getBytes(StandardCharsets.UTF_8)) };
+
+    private final ByteBufferTransformation upperCasing = new UpperCasing.Transformation(new UpperCasing.Config("UTF-8"));
+
+    @Mock
+    private FilterContext context;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(context.createByteBufferOutputStream(anyInt())).thenAnswer(i -> new ByteBufferOutputStream(i.<Integer> getArgument(0)));
+    }
+
+    private static void appendBatch(ByteBufferOutputStream stream, CompressionType compressionType, long baseOffset, String... values) {
+        try (var builder = new MemoryRecordsBuilder(stream, RecordBatch.CURRENT_MAGIC_VALUE, compressionType, TimestampType.CREATE_TIME, baseOffset,
+                RecordBatch.NO_TIMESTAMP, PRODUCER_ID, PRODUCER_EPOCH, BASE_SEQUENCE + (int) baseOffset, true, false, LEADER_EPOCH, 0)) {
+            for (int i = 0; i < values.length; i++) {
+                builder.appendWithOffset(baseOffset + i, 1000L + i, ("key" + i).getBytes(StandardCharsets.UTF_8), values[i].getBytes(StandardCharsets.UTF_8),
+                        HEADERS);
+            }
+            builder.build();
+        }
+    }
+
+    private static void appendCommitMarker(ByteBufferOutputStream stream, long offset) {
+        var buffer = stream.buffer();
+        MemoryRecords.writeEndTransactionalMarker(buffer, offset, 2000L, LEADER_EPOCH, PRODUCER_ID, PRODUCER_EPOCH,
+                new EndTransactionMarker(ControlRecordType.COMMIT, 0));
+        stream.position(buffer.position());
+    }
+
+    private static MemoryRecords records(ByteBufferOutputStream stream) {
+        var buffer = stream.buffer();
+        buffer.flip();
+        return MemoryRecords.readableRecords(buffer);
+    }
+
+    private static List<String> values(MutableRecordBatch batch) {
+        var values = new ArrayList<String>();
+        for (Record r : batch) {
+            values.add(StandardCharsets.UTF_8.decode(r.value()).toString());
+        }
+        return values;
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionType.class, names = { "NONE", "GZIP", "LZ4" })
+    void shouldPreserveBatchMetadata(CompressionType compressionType) {
+        // given
+        var stream = new ByteBufferOutputStream(1024);
+        appendBatch(stream, compressionType, 10L, "a", "b");
+        var records = records(stream);
+
+        // when
+        var transformed = RecordsTransformer.transform(context, TOPIC, records, upperCasing);
+
+        // then
+        var batches = new ArrayList<MutableRecordBatch>();
+        transformed.batches().forEach(batches::add);
+        assertThat(batches).singleElement().satisfies(batch -> {
+            assertThat(batch.compressionType()).isEqualTo(compressionType);
+            assertThat(batch.baseOffset()).isEqualTo(10L);
+            assertThat(batch.lastOffset()).isEqualTo(11L);
+            assertThat(batch.producerId()).isEqualTo(PRODUCER_ID);
+            assertThat(batch.producerEpoch()).isEqualTo(PRODUCER_EPOCH);
+            assertThat(batch.baseSequence()).isEqualTo(BASE_SEQUENCE + 10);
+            assertThat(batch.isTransactional()).isTrue();
+            assertThat(batch.partitionLeaderEpoch()).isEqualTo(LEADER_EPOCH);
+            assertThat(batch.timestampType()).isEqualTo(TimestampType.CREATE_TIME);
+            assertThat(values(batch)).containsExactly("A", "B");
+            for (Record r : batch) {
+                assertThat(r.timestamp()).isEqualTo(1000L + r.offset() - 10L);
+                assertThat(r.headers()).containsExactly(HEADERS);
+            }
+        });
+    }
+
+    @Test
+    void shouldReturnOriginalRecordsWhenNothingChanges() {
+        // given
+        var stream = new ByteBufferOutputStream(1024);
+        appendBatch(stream, CompressionType.GZIP, 0L, "A", "B");
+        var records = records(stream);
+
+        // when
+        var transformed = RecordsTransformer.transform(context, TOPIC, records, upperCasing);
+
+        // then
+        assertThat(transformed).isSameAs(records);
+    }
+
+    @Test
+    void shouldCopyUnchangedAndControlBatches() {
+        // given
+        var stream = new ByteBufferOutputStream(1024);
+        appendBatch(stream, CompressionType.GZIP, 0L, "A", "B");
+        appendBatch(stream, CompressionType.NONE, 2L, "c");
+        appendCommitMarker(stream, 3L);
+        var records = records(stream);
+        var originalBatches = new ArrayList<MutableRecordBatch>();
+        records.batches().forEach(originalBatches::add);
+
+        // when
+        var transformed = RecordsTransformer.transform(context, TOPIC, records, upperCasing);
+
+        // then
+        var batches = new ArrayList<MutableRecordBatch>();
+        transformed.batches().forEach(batches::add);
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(0)).isEqualTo(originalBatches.get(0));
+        assertThat(values(batches.get(1))).containsExactly("C");
+        assertThat(batches.get(2).isControlBatch()).isTrue();
+        assertThat(batches.get(2)).isEqualTo(originalBatches.get(2));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter.simpletransform;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.MetadataResponseData.MetadataResponseTopic;
+import org.apache.kafka.common.protocol.Errors;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TopicNameCacheTest {
+
+    private static final Uuid TOPIC_ID = Uuid.randomUuid();
+
+    @Test
+    void shouldFillFromMetadataResponse() {
+        // given
+        var cache = new TopicNameCache();
+        var response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseTopic().setTopicId(TOPIC_ID).setName("mytopic"));
+
+        // when
+        cache.update(response);
+
+        // then
+        assertThat(cache.get(TOPIC_ID)).isEqualTo("mytopic");
+    }
+
+    @Test
+    void shouldInvalidateTopicsReportedAsUnknown() {
+        // given
+        var cache = new TopicNameCache();
+        cache.put(TOPIC_ID, "mytopic");
+        var response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseTopic().setTopicId(TOPIC_ID).setErrorCode(Errors.UNKNOWN_TOPIC_ID.code()));
+
+        // when
+        cache.update(response);
+
+        // then
+        assertThat(cache.get(TOPIC_ID)).isNull();
+    }
+
+    @Test
+    void shouldIgnoreTopicsWithoutIdOrName() {
+        // given
+        var cache = new TopicNameCache();
+        var response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseTopic().setTopicId(Uuid.ZERO_UUID).setName("noid"));
+        response.topics().add(new MetadataResponseTopic().setTopicId(TOPIC_ID).setName(null));
+
+        // when
+        cache.update(response);
+
+        // then
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void shouldBoundNumberOfEntries() {
+        // given
+        var cache = new TopicNameCache(2);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            cache.put(Uuid.randomUuid(), "topic" + i);
+        }
+        cache.put(TOPIC_ID, "mytopic");
+
+        // then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(TOPIC_ID)).isEqualTo("mytopic");
+    }
+
+    @Test
+    void shouldRejectNonPositiveMaxEntries() {
+        assertThatThrownBy(() -> new TopicNameCache(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -14,6 +14,7 @@ import io.sundr.builder.annotations.ExternalBuildables;
 @ExternalBuildables(editableEnabled = false, generateBuilderPackage = true, builderPackage = BuilderConfig.TARGET_CONFIG_PACKAGE, value = {
         "io.kroxylicious.proxy.config.Configuration",
         "io.kroxylicious.proxy.config.TargetCluster",
+        "io.kroxylicious.proxy.config.MetadataCache",
         "io.kroxylicious.proxy.config.VirtualCluster",
         "io.kroxylicious.proxy.config.admin.AdminHttpConfiguration",
         "io.kroxylicious.proxy.config.admin.EndpointsConfiguration",
@@ -11,13 +11,20 @@ import java.util.Map;
 import io.kroxylicious.proxy.filter.FilterFactory;
 
 public class FilterDefinitionBuilder extends AbstractDefinitionBuilder<FilterDefinition> {
+    private Long timeoutMs;
+
     public FilterDefinitionBuilder(String type) {
         super(type);
     }
 
+    public FilterDefinitionBuilder withTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
     @Override
     protected FilterDefinition buildInternal(String type, Map<String, Object> config) {
         var configType = new ServiceBasedPluginFactoryRegistry().pluginFactory(FilterFactory.class).configType(type);
-        return new FilterDefinition(type, mapper.convertValue(config, configType));
+        return new FilterDefinition(type, mapper.convertValue(config, configType), timeoutMs);
     }
 }
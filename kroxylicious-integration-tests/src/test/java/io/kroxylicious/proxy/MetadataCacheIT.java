@@ -0,0 +1,115 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.kroxylicious.proxy.config.ClusterNetworkAddressConfigProviderDefinitionBuilder;
+import io.kroxylicious.proxy.config.ConfigurationBuilder;
+import io.kroxylicious.proxy.config.VirtualClusterBuilder;
+import io.kroxylicious.proxy.internal.clusternetworkaddressconfigprovider.PortPerBrokerClusterNetworkAddressConfigProvider;
+import io.kroxylicious.proxy.service.HostPort;
+import io.kroxylicious.testing.kafka.api.KafkaCluster;
+import io.kroxylicious.testing.kafka.common.BrokerCluster;
+import io.kroxylicious.testing.kafka.junit5ext.KafkaClusterExtension;
+import io.kroxylicious.testing.kafka.junit5ext.Topic;
+
+import static io.kroxylicious.test.tester.KroxyliciousTesters.kroxyliciousTester;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for virtual clusters with a shared metadata cache.
+ */
+@ExtendWith(KafkaClusterExtension.class)
+class MetadataCacheIT extends BaseIT {
+
+    private static final HostPort PROXY_ADDRESS = HostPort.parse("localhost:9192");
+    private static final int CLIENT_COUNT = 5;
+
+    static @BrokerCluster(numBrokers = 2) KafkaCluster cluster;
+
+    private static ConfigurationBuilder cachingProxy(KafkaCluster cluster) {
+        return new ConfigurationBuilder()
+                .addToVirtualClusters("demo", new VirtualClusterBuilder()
+                        .withNewTargetCluster()
+                        .withBootstrapServers(cluster.getBootstrapServers())
+                        .endTargetCluster()
+                        .withClusterNetworkAddressConfigProvider(
+                                new ClusterNetworkAddressConfigProviderDefinitionBuilder(PortPerBrokerClusterNetworkAddressConfigProvider.class.getName())
+                                        .withConfig("bootstrapAddress", PROXY_ADDRESS)
+                                        .build())
+                        .withNewMetadataCache()
+                        .withMaxAgeMs(60_000L)
+                        .endMetadataCache()
+                        .build());
+    }
+
+    @Test
+    void clientsSeeProxyAddresses() throws Exception {
+        try (var tester = kroxyliciousTester(cachingProxy(cluster))) {
+            // given
+            List<Admin> admins = new ArrayList<>();
+            try {
+                for (int i = 0; i < CLIENT_COUNT; i++) {
+                    admins.add(tester.admin());
+                }
+
+                // when
+                var futures = admins.stream().map(admin -> admin.describeCluster().nodes()).toList();
+                KafkaFuture.allOf(futures.toArray(new KafkaFuture[0])).get(10, TimeUnit.SECONDS);
+
+                // then
+                for (var future : futures) {
+                    assertThat(future.get())
+                            .hasSize(2)
+                            .extracting(Node::host)
+                            .containsOnly(PROXY_ADDRESS.host());
+                }
+            }
+            finally {
+                admins.forEach(Admin::close);
+            }
+        }
+    }
+
+    @Test
+    void clientsCanProduceAndConsume(Topic topic) throws Exception {
+        try (var tester = kroxyliciousTester(cachingProxy(cluster))) {
+            // given
+            try (var producer = tester.producer()) {
+                // when
+                for (int i = 0; i < CLIENT_COUNT; i++) {
+                    producer.send(new ProducerRecord<>(topic.name(), "key" + i, "value" + i)).get(10, TimeUnit.SECONDS);
+                }
+            }
+
+            // then
+            try (var consumer = tester.consumer(Map.of(ConsumerConfig.GROUP_ID_CONFIG, "mygroup",
+                    ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"))) {
+                consumer.subscribe(Set.of(topic.name()));
+                var values = new ArrayList<String>();
+                var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+                while (values.size() < CLIENT_COUNT && System.nanoTime() < deadline) {
+                    consumer.poll(Duration.ofSeconds(1)).forEach(r -> values.add(r.value()));
+                }
+                assertThat(values).containsExactlyInAnyOrder("value0", "value1", "value2", "value3", "value4");
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.security.auth.SecurityProtocol;
+import org.apache.kafka.common.security.plain.PlainLoginModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.kroxylicious.proxy.config.ClusterNetworkAddressConfigProviderDefinitionBuilder;
+import io.kroxylicious.proxy.config.ConfigurationBuilder;
+import io.kroxylicious.proxy.config.VirtualClusterBuilder;
+import io.kroxylicious.proxy.internal.clusternetworkaddressconfigprovider.PortPerBrokerClusterNetworkAddressConfigProvider;
+import io.kroxylicious.proxy.service.HostPort;
+import io.kroxylicious.testing.kafka.api.KafkaCluster;
+import io.kroxylicious.testing.kafka.common.BrokerCluster;
+import io.kroxylicious.testing.kafka.common.SaslPlainAuth;
+import io.kroxylicious.testing.kafka.junit5ext.KafkaClusterExtension;
+import io.kroxylicious.testing.kafka.junit5ext.Topic;
+
+import static io.kroxylicious.test.tester.KroxyliciousTesters.kroxyliciousTester;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for virtual clusters whose client connections share upstream connections.
+ */
+@ExtendWith(KafkaClusterExtension.class)
+class MultiplexedUpstreamIT extends BaseIT {
+
+    private static final HostPort PROXY_ADDRESS = HostPort.parse("localhost:9192");
+    private static final int CLIENT_COUNT = 5;
+
+    static @BrokerCluster(numBrokers = 2) KafkaCluster cluster;
+
+    private static ConfigurationBuilder multiplexedProxy(KafkaCluster cluster) {
+        return new ConfigurationBuilder()
+                .addToVirtualClusters("demo", new VirtualClusterBuilder()
+                        .withNewTargetCluster()
+                        .withBootstrapServers(cluster.getBootstrapServers())
+                        .endTargetCluster()
+                        .withClusterNetworkAddressConfigProvider(
+                                new ClusterNetworkAddressConfigProviderDefinitionBuilder(PortPerBrokerClusterNetworkAddressConfigProvider.class.getName())
+                                        .withConfig("bootstrapAddress", PROXY_ADDRESS)
+                                        .build())
+                        .withMultiplexUpstream(true)
+                        .build());
+    }
+
+    @Test
+    void clientsCanProduceAndConsume(Topic topic) throws Exception {
+        try (var tester = kroxyliciousTester(multiplexedProxy(cluster))) {
+            // given
+            List<Producer<String, String>> producers = new ArrayList<>();
+            try {
+                for (int i = 0; i < CLIENT_COUNT; i++) {
+                    producers.add(tester.producer(Map.of(ProducerConfig.CLIENT_ID_CONFIG, "producer" + i)));
+                }
+
+                // when
+                for (int i = 0; i < CLIENT_COUNT; i++) {
+                    producers.get(i).send(new ProducerRecord<>(topic.name(), "key" + i, "value" + i)).get(10, TimeUnit.SECONDS);
+                }
+            }
+            finally {
+                producers.forEach(Producer::close);
+            }
+
+            // then
+            try (var consumer = tester.consumer(Map.of(ConsumerConfig.GROUP_ID_CONFIG, "mygroup",
+                    ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"))) {
+                consumer.subscribe(Set.of(topic.name()));
+                var values = new ArrayList<String>();
+                var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+                while (values.size() < CLIENT_COUNT && System.nanoTime() < deadline) {
+                    consumer.poll(Duration.ofSeconds(1)).forEach(r -> values.add(r.value()));
+                }
+                assertThat(values).containsExactlyInAnyOrder("value0", "value1", "value2", "value3", "value4");
+            }
+        }
+    }
+
+    @Test
+    void longPollFetchDoesNotDelayOtherClients(Topic topic) throws Exception {
+        try (var tester = kroxyliciousTester(multiplexedProxy(cluster));
+                var consumer = tester.consumer(Map.of(
+                        ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 10 * 1024 * 1024,
+                        ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 20_000));
+                var producer = tester.producer()) {
+            // given
+            var partition = new TopicPartition(topic.name(), 0);
+            consumer.assign(Set.of(partition));
+            consumer.seekToEnd(Set.of(partition));
+            consumer.position(partition);
+            var polling = CompletableFuture.runAsync(() -> consumer.poll(Duration.ofSeconds(30)));
+            // give the consumer time to send the fetch, which the broker holds for up to fetch.max.wait.ms
+            Thread.sleep(2_000);
+
+            // when
+            var sent = producer.send(new ProducerRecord<>(topic.name(), "key", "value"));
+
+            // then
+            assertThat(sent).succeedsWithin(Duration.ofSeconds(10));
+            consumer.wakeup();
+            polling.exceptionally(e -> null).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void clientsCannotAuthenticateWithTheBroker(@SaslPlainAuth(user = "alice", password = "alice-secret") KafkaCluster saslCluster) {
+        try (var tester = kroxyliciousTester(multiplexedProxy(saslCluster));
+                var admin = tester.admin(Map.of(
+                        CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, SecurityProtocol.SASL_PLAINTEXT.name,
+                        SaslConfigs.SASL_MECHANISM, "PLAIN",
+                        SaslConfigs.SASL_JAAS_CONFIG, String.format("""
+                                %s required username="%s" password="%s";""",
+                                PlainLoginModule.class.getName(), "alice", "alice-secret"),
+                        AdminClientConfig.DEFAULT_API_TIMEOUT_MS_CONFIG, 5_000,
+                        AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, 2_000))) {
+            assertThatThrownBy(() -> admin.describeCluster().nodes().get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class);
+        }
+    }
+}
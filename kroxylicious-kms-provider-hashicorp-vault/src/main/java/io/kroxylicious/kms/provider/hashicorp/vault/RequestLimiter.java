@@ -0,0 +1,128 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.kms.provider.hashicorp.vault;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Limits the number of asynchronous requests in flight at any one time.
+ * Requests submitted while the limit is reached are queued, and started in the order they were submitted
+ * as in-flight requests complete. A queued request which has waited longer than the maximum queue time
+ * by the time a permit becomes free fails with a {@link TimeoutException}, rather than being started,
+ * so that the time spent queued is bounded even when the requests in flight are slow.
+ */
+class RequestLimiter {
+
+    private final int maxInFlight;
+    private final long maxQueueTimeNanos;
+    private final Executor executor;
+    private final Queue<QueuedRequest<?>> queued = new ArrayDeque<>();
+    private int inFlight;
+
+    /**
+     * @param maxInFlight the maximum number of requests in flight
+     * @param maxQueueTime the maximum time a request may wait for a permit
+     * @param executor the executor on which queued requests are started
+     */
+    RequestLimiter(int maxInFlight, @NonNull Duration maxQueueTime, @NonNull Executor executor) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than zero");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueueTimeNanos = maxQueueTime.toNanos();
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Starts the given request, once fewer than the maximum number of requests are in flight.
+     * @param request starts the request
+     * @return a future completed with the outcome of the request
+     * @param <T> the type of the request's result
+     */
+    @NonNull
+    <T> CompletableFuture<T> submit(@NonNull Supplier<CompletableFuture<T>> request) {
+        var queuedRequest = new QueuedRequest<>(request, System.nanoTime());
+        boolean startNow;
+        synchronized (this) {
+            startNow = inFlight < maxInFlight;
+            if (startNow) {
+                inFlight++;
+            }
+            else {
+                queued.add(queuedRequest);
+            }
+        }
+        if (startNow) {
+            queuedRequest.start();
+        }
+        return queuedRequest.result;
+    }
+
+    private void release() {
+        long now = System.nanoTime();
+        QueuedRequest<?> next;
+        while (true) {
+            synchronized (this) {
+                next = queued.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            // the permit passes directly to the next queued request, unless it has waited too long
+            if (now - next.queuedNanos <= maxQueueTimeNanos) {
+                break;
+            }
+            next.result.completeExceptionally(new TimeoutException(
+                    "Request was not started within " + Duration.ofNanos(maxQueueTimeNanos).toMillis() + " ms, as " + maxInFlight
+                            + " requests were already in flight"));
+        }
+        // start it on the executor, rather than within the callbacks of the request which has just completed,
+        // so that requests which fail synchronously do not start the rest of the queue recursively
+        executor.execute(next::start);
+    }
+
+    private final class QueuedRequest<T> {
+        private final Supplier<CompletableFuture<T>> request;
+        private final long queuedNanos;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private QueuedRequest(Supplier<CompletableFuture<T>> request, long queuedNanos) {
+            this.request = request;
+            this.queuedNanos = queuedNanos;
+        }
+
+        private void start() {
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+            }
+            catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, throwable) -> {
+                // release the permit first, so that queued requests are not held up by the callbacks of this one
+                release();
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                }
+                else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+}
@@ -11,10 +11,18 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
@@ -27,9 +35,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.kroxylicious.kms.provider.hashicorp.vault.VaultResponse.BatchDecryptData;
+import io.kroxylicious.kms.provider.hashicorp.vault.VaultResponse.BatchDecryptResult;
 import io.kroxylicious.kms.provider.hashicorp.vault.VaultResponse.DataKeyData;
 import io.kroxylicious.kms.provider.hashicorp.vault.VaultResponse.DecryptData;
 import io.kroxylicious.kms.provider.hashicorp.vault.VaultResponse.ReadKeyData;
+import io.kroxylicious.kms.provider.hashicorp.vault.config.HttpClientConfig;
 import io.kroxylicious.kms.service.DekPair;
 import io.kroxylicious.kms.service.Kms;
 import io.kroxylicious.kms.service.KmsException;
@@ -44,14 +55,18 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * An implementation of the KMS interface backed by a remote instance of HashiCorp Vault (v1).
+ * The number of requests in flight to Vault is capped, with further requests queued, so that a burst of
+ * KMS operations does not open an unbounded number of connections to Vault.
  */
 public class VaultKms implements Kms<String, VaultEdek> {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final String AES_KEY_ALGO = "AES";
     private static final Pattern LEGAL_API_VERSION_REGEX = Pattern.compile("^/?v1/.+");
-    private final Duration timeout;
+    private final HttpClientConfig clientConfig;
+    private final ExecutorService clientExecutor;
     private final HttpClient vaultClient;
+    private final RequestLimiter requestLimiter;
 
     /**
      * The vault url which will include the path to the transit engine.
@@ -60,10 +75,16 @@ public class VaultKms implements Kms<String, VaultEdek> {
     private final String vaultToken;
 
     VaultKms(URI vaultTransitEngineUrl, String vaultToken, Duration timeout, SSLContext sslContext) {
+        this(vaultTransitEngineUrl, vaultToken, sslContext, new HttpClientConfig(null, timeout.toMillis(), timeout.toMillis(), null, null));
+    }
+
+    VaultKms(URI vaultTransitEngineUrl, String vaultToken, SSLContext sslContext, HttpClientConfig clientConfig) {
         this.vaultTransitEngineUrl = ensureEndsInSlash(validateTransitPath(vaultTransitEngineUrl));
         this.vaultToken = vaultToken;
-        this.timeout = timeout;
+        this.clientConfig = clientConfig;
+        clientExecutor = createExecutor(clientConfig.executorThreads());
         vaultClient = createClient(sslContext);
+        requestLimiter = new RequestLimiter(clientConfig.maxConcurrentRequests(), clientConfig.requestTimeout(), clientExecutor);
     }
 
     private URI validateTransitPath(URI vaultTransitEngineUrl) {
@@ -86,11 +107,32 @@ public class VaultKms implements Kms<String, VaultEdek> {
             builder.sslContext(sslContext);
         }
         return builder
+                .version(clientConfig.httpVersion())
+                .executor(clientExecutor)
                 .followRedirects(HttpClient.Redirect.NORMAL)
-                .connectTimeout(timeout)
+                .connectTimeout(clientConfig.connectTimeout())
                 .build();
     }
 
+    /**
+     * Creates the bounded pool of daemon threads used by the client, in place of its default unbounded pool.
+     * Idle threads are allowed to exit, as the client has no lifecycle in which to shut the pool down.
+     */
+    private static ExecutorService createExecutor(int threads) {
+        var threadNumber = new AtomicInteger();
+        var executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "vault-kms-client-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        return requestLimiter.submit(() -> vaultClient.sendAsync(request, handler));
+    }
+
     /**
      * {@inheritDoc}
      * <br/>
@@ -105,7 +147,7 @@ public class VaultKms implements Kms<String, VaultEdek> {
                 .POST(HttpRequest.BodyPublishers.noBody())
                 .build();
 
-        return vaultClient.sendAsync(request, statusHandler(kekRef, new JsonBodyHandler<VaultResponse<DataKeyData>>(new TypeReference<>() {
+        return send(request, statusHandler(kekRef, new JsonBodyHandler<VaultResponse<DataKeyData>>(new TypeReference<>() {
         }), UnknownKeyException::new))
                 .thenApply(HttpResponse::body)
                 .thenApply(Supplier::get)
@@ -133,7 +175,7 @@ public class VaultKms implements Kms<String, VaultEdek> {
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
 
-        return vaultClient.sendAsync(request, statusHandler(edek.kekRef(), new JsonBodyHandler<VaultResponse<DecryptData>>(new TypeReference<>() {
+        return send(request, statusHandler(edek.kekRef(), new JsonBodyHandler<VaultResponse<DecryptData>>(new TypeReference<>() {
         }), UnknownKeyException::new)).thenApply(HttpResponse::body)
                 .thenApply(Supplier::get)
                 .thenApply(VaultResponse::data)
@@ -151,6 +193,81 @@ public class VaultKms implements Kms<String, VaultEdek> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * The edeks are decrypted using one request per KEK, using the {@code batch_input} form of the decrypt endpoint.
+     * @see <a href="https://developer.hashicorp.com/vault/api-docs/secret/transit#decrypt">https://developer.hashicorp.com/vault/api-docs/secret/transit#decrypt</a>
+     */
+    @NonNull
+    @Override
+    public CompletionStage<List<SecretKey>> decryptEdeks(@NonNull List<VaultEdek> edeks) {
+        if (edeks.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        else if (edeks.size() == 1) {
+            return decryptEdek(edeks.get(0)).thenApply(List::of);
+        }
+        // The batch endpoint is per-KEK, so group the edeks by KEK, remembering their positions in the given list
+        Map<String, List<Integer>> indicesByKekRef = new LinkedHashMap<>();
+        for (int index = 0; index < edeks.size(); index++) {
+            indicesByKekRef.computeIfAbsent(edeks.get(index).kekRef(), k -> new ArrayList<>()).add(index);
+        }
+        var keys = new SecretKey[edeks.size()];
+        var futures = indicesByKekRef.entrySet().stream().map(entry -> {
+            List<Integer> indices = entry.getValue();
+            return decryptBatch(entry.getKey(), indices.stream().map(edeks::get).toList())
+                    .thenAccept(batchKeys -> {
+                        for (int i = 0; i < indices.size(); i++) {
+                            keys[indices.get(i)] = batchKeys.get(i);
+                        }
+                    }).toCompletableFuture();
+        }).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures)
+                .thenApply(ignored -> List.of(keys));
+    }
+
+    private CompletionStage<List<SecretKey>> decryptBatch(@NonNull String kekRef,
+                                                          @NonNull List<VaultEdek> edeks) {
+        var body = createBatchDecryptPostBody(kekRef, edeks);
+
+        var request = createVaultRequest()
+                .uri(vaultTransitEngineUrl.resolve("decrypt/%s".formatted(encode(kekRef, UTF_8))))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        return send(request, statusHandler(kekRef, new JsonBodyHandler<VaultResponse<BatchDecryptData>>(new TypeReference<>() {
+        }), UnknownKeyException::new)).thenApply(HttpResponse::body)
+                .thenApply(Supplier::get)
+                .thenApply(VaultResponse::data)
+                .thenApply(data -> {
+                    List<BatchDecryptResult> results = data.batchResults();
+                    if (results.size() != edeks.size()) {
+                        throw new KmsException("Expected %d batch results for key '%s', but got %d".formatted(edeks.size(), kekRef, results.size()));
+                    }
+                    return results.stream().map(result -> {
+                        if ((result.error() != null && !result.error().isEmpty()) || result.plaintext() == null) {
+                            throw new KmsException("fail to decrypt edek with key '%s': %s".formatted(kekRef, result.error()));
+                        }
+                        return (SecretKey) new SecretKeySpec(Base64.getDecoder().decode(result.plaintext()), AES_KEY_ALGO);
+                    }).toList();
+                });
+    }
+
+    private String createBatchDecryptPostBody(@NonNull String kekRef,
+                                              @NonNull List<VaultEdek> edeks) {
+        var batchInput = edeks.stream()
+                .map(edek -> Map.of("ciphertext", new String(edek.edek(), UTF_8)))
+                .toList();
+
+        try {
+            return OBJECT_MAPPER.writeValueAsString(Map.of("batch_input", batchInput));
+        }
+        catch (JsonProcessingException e) {
+            throw new KmsException("Failed to build request body for %s".formatted(kekRef));
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <br/>
@@ -164,7 +281,7 @@ public class VaultKms implements Kms<String, VaultEdek> {
                 .uri(vaultTransitEngineUrl.resolve("keys/%s".formatted(encode(alias, UTF_8))))
                 .build();
 
-        return vaultClient.sendAsync(request, statusHandler(alias, new JsonBodyHandler<VaultResponse<ReadKeyData>>(new TypeReference<>() {
+        return send(request, statusHandler(alias, new JsonBodyHandler<VaultResponse<ReadKeyData>>(new TypeReference<>() {
         }), UnknownAliasException::new))
                 .thenApply(HttpResponse::body)
                 .thenApply(Supplier::get)
@@ -181,7 +298,7 @@ public class VaultKms implements Kms<String, VaultEdek> {
 
     /* exposed for testing */ HttpRequest.Builder createVaultRequest() {
         return HttpRequest.newBuilder()
-                .timeout(timeout)
+                .timeout(clientConfig.requestTimeout())
                 .header("X-Vault-Token", vaultToken)
                 .header("Accept", "application/json");
     }
@@ -6,6 +6,7 @@
 
 package io.kroxylicious.kms.provider.hashicorp.vault;
 
+import java.util.List;
 import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -32,6 +33,16 @@ record VaultResponse<D>(D data) {
         }
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BatchDecryptData(@JsonProperty("batch_results") List<BatchDecryptResult> batchResults) {
+        BatchDecryptData {
+            Objects.requireNonNull(batchResults);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BatchDecryptResult(String plaintext, String error) {}
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     record DataKeyData(String plaintext, String ciphertext) {
         DataKeyData {
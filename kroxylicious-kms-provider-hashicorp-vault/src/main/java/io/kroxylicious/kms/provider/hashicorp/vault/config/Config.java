@@ -23,16 +23,29 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  * Configuration for the Vault KMS service.
  * @param vaultTransitEngineUrl URL of the Vault Transit Engine e.g. {@code https://myhashicorpvault:8200/v1/transit}
  * @param vaultToken the password provider that will provide the Vault token.
+ * @param tls the TLS configuration used to connect to Vault.
+ * @param httpClient the configuration of the HTTP client used to call Vault.
  */
 public record Config(
                      @JsonProperty(value = "vaultTransitEngineUrl", required = true) URI vaultTransitEngineUrl,
                      @JsonProperty(required = true) PasswordProvider vaultToken,
-                     Tls tls) {
+                     Tls tls,
+                     @JsonProperty HttpClientConfig httpClient) {
     public Config {
         Objects.requireNonNull(vaultTransitEngineUrl);
         Objects.requireNonNull(vaultToken);
     }
 
+    public Config(URI vaultTransitEngineUrl, PasswordProvider vaultToken, Tls tls) {
+        this(vaultTransitEngineUrl, vaultToken, tls, null);
+    }
+
+    @Override
+    @NonNull
+    public HttpClientConfig httpClient() {
+        return httpClient == null ? HttpClientConfig.DEFAULT_CONFIG : httpClient;
+    }
+
     @NonNull
     public SSLContext sslContext() {
         try {
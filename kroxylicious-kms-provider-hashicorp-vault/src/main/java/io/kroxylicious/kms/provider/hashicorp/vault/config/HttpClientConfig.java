@@ -0,0 +1,63 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.kms.provider.hashicorp.vault.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Configuration for the HTTP client used to call Vault. Any property which is not given takes its default value.
+ * @param httpVersion The preferred HTTP version. With {@code HTTP_2} the client negotiates HTTP/2 with Vault,
+ * falling back to HTTP/1.1 if Vault does not support it. Defaults to {@code HTTP_2}.
+ * @param connectTimeoutMs The timeout for establishing a connection to Vault, in milliseconds. Defaults to 20 seconds.
+ * @param requestTimeoutMs The timeout for receiving the response to a request, in milliseconds. Defaults to 20 seconds.
+ * @param executorThreads The number of threads used to handle responses. Defaults to 2.
+ * @param maxConcurrentRequests The maximum number of requests in flight to Vault at any one time.
+ * Further requests are queued until an in-flight request completes, and fail if they have been queued for longer
+ * than the request timeout. Defaults to 16.
+ */
+public record HttpClientConfig(@JsonProperty @Nullable HttpClient.Version httpVersion,
+                               @JsonProperty @Nullable Long connectTimeoutMs,
+                               @JsonProperty @Nullable Long requestTimeoutMs,
+                               @JsonProperty @Nullable Integer executorThreads,
+                               @JsonProperty @Nullable Integer maxConcurrentRequests) {
+
+    public static final HttpClientConfig DEFAULT_CONFIG = new HttpClientConfig(null, null, null, null, null);
+
+    public HttpClientConfig {
+        httpVersion = httpVersion == null ? HttpClient.Version.HTTP_2 : httpVersion;
+        connectTimeoutMs = requirePositive(connectTimeoutMs, Duration.ofSeconds(20).toMillis(), "connectTimeoutMs");
+        requestTimeoutMs = requirePositive(requestTimeoutMs, Duration.ofSeconds(20).toMillis(), "requestTimeoutMs");
+        executorThreads = requirePositive(executorThreads, 2, "executorThreads");
+        maxConcurrentRequests = requirePositive(maxConcurrentRequests, 16, "maxConcurrentRequests");
+    }
+
+    private static <N extends Number> N requirePositive(@Nullable N value, N defaultValue, String name) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.longValue() <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than zero");
+        }
+        return value;
+    }
+
+    @NonNull
+    public Duration connectTimeout() {
+        return Duration.ofMillis(connectTimeoutMs);
+    }
+
+    @NonNull
+    public Duration requestTimeout() {
+        return Duration.ofMillis(requestTimeoutMs);
+    }
+}
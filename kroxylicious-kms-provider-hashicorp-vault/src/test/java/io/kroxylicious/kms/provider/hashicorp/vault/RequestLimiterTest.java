@@ -0,0 +1,104 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.kms.provider.hashicorp.vault;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLimiterTest {
+
+    private static final Duration MAX_QUEUE_TIME = Duration.ofSeconds(20);
+
+    @Test
+    void shouldStartQueuedRequestWhenInFlightRequestCompletes() {
+        // given
+        var limiter = new RequestLimiter(2, MAX_QUEUE_TIME, Runnable::run);
+        List<CompletableFuture<String>> started = new ArrayList<>();
+        var first = limiter.submit(() -> startRequest(started));
+        limiter.submit(() -> startRequest(started));
+
+        // when
+        var third = limiter.submit(() -> startRequest(started));
+
+        // then
+        assertThat(started).hasSize(2);
+        started.get(0).complete("first");
+        assertThat(first).isCompletedWithValue("first");
+        assertThat(started).hasSize(3);
+        started.get(2).complete("third");
+        assertThat(third).isCompletedWithValue("third");
+    }
+
+    @Test
+    void shouldFailRequestQueuedForLongerThanMaxQueueTime() throws Exception {
+        // given
+        var limiter = new RequestLimiter(1, Duration.ofMillis(1), Runnable::run);
+        List<CompletableFuture<String>> started = new ArrayList<>();
+        limiter.submit(() -> startRequest(started));
+        var queued = limiter.submit(() -> startRequest(started));
+        Thread.sleep(10);
+
+        // when
+        started.get(0).complete("first");
+
+        // then
+        assertThat(queued).failsWithin(Duration.ZERO)
+                .withThrowableOfType(Exception.class)
+                .withCauseInstanceOf(TimeoutException.class);
+        assertThat(started).hasSize(1);
+        // the permit is free for the next request
+        limiter.submit(() -> startRequest(started));
+        assertThat(started).hasSize(2);
+    }
+
+    @Test
+    void shouldStartQueuedRequestsWhichFailSynchronouslyWithoutRecursing() {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var limiter = new RequestLimiter(1, MAX_QUEUE_TIME, executor);
+            var first = new CompletableFuture<String>();
+            limiter.submit(() -> first);
+            AtomicInteger attempts = new AtomicInteger();
+            List<CompletableFuture<String>> queued = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                queued.add(limiter.submit(() -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalStateException("failed to send");
+                }));
+            }
+
+            // when
+            first.complete("first");
+
+            // then
+            assertThat(CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)))
+                    .failsWithin(Duration.ofSeconds(10));
+            assertThat(queued).allSatisfy(future -> assertThat(future).isCompletedExceptionally());
+            assertThat(attempts).hasValue(100_000);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CompletableFuture<String> startRequest(List<CompletableFuture<String>> started) {
+        var request = new CompletableFuture<String>();
+        started.add(request);
+        return request;
+    }
+}
@@ -6,25 +6,263 @@
 
 package io.kroxylicious.kms.provider.hashicorp.vault;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import javax.crypto.SecretKey;
 import javax.net.ssl.SSLContext;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.kroxylicious.kms.provider.hashicorp.vault.config.HttpClientConfig;
+import io.kroxylicious.kms.service.KmsException;
+import io.kroxylicious.kms.service.UnknownKeyException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class VaultKmsTest {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * A stub of the vault transit engine's decrypt endpoint, which "decrypts" a ciphertext to the bytes
+     * of the ciphertext itself, and fails any ciphertext starting with "bad".
+     */
+    private HttpServer stubVault;
+    private ExecutorService stubVaultExecutor;
+    private final List<String> requestPaths = new CopyOnWriteArrayList<>();
+
+    /**
+     * The read key endpoint of the stub holds each request until the gate opens, counting the requests in flight.
+     */
+    private final CountDownLatch readKeyGate = new CountDownLatch(1);
+    private final AtomicInteger readKeysInFlight = new AtomicInteger();
+    private final AtomicInteger maxReadKeysInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void startStubVault() throws IOException {
+        stubVault = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubVault.createContext("/v1/transit/decrypt/", this::handleDecrypt);
+        stubVault.createContext("/v1/transit/keys/", this::handleReadKey);
+        stubVaultExecutor = Executors.newCachedThreadPool();
+        stubVault.setExecutor(stubVaultExecutor);
+        stubVault.start();
+    }
+
+    @AfterEach
+    void stopStubVault() {
+        readKeyGate.countDown();
+        stubVault.stop(0);
+        stubVaultExecutor.shutdownNow();
+    }
+
+    private void handleReadKey(HttpExchange exchange) throws IOException {
+        maxReadKeysInFlight.accumulateAndGet(readKeysInFlight.incrementAndGet(), Math::max);
+        try {
+            readKeyGate.await(10, TimeUnit.SECONDS);
+            String name = exchange.getRequestURI().getPath().substring("/v1/transit/keys/".length());
+            byte[] response = OBJECT_MAPPER.writeValueAsBytes(Map.of("data", Map.of("name", name, "latest_version", 1)));
+            exchange.sendResponseHeaders(200, response.length);
+            try (var body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            readKeysInFlight.decrementAndGet();
+        }
+    }
+
+    private void handleDecrypt(HttpExchange exchange) throws IOException {
+        requestPaths.add(exchange.getRequestURI().getPath());
+        JsonNode request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+        int status = 200;
+        Object data;
+        if (exchange.getRequestURI().getPath().endsWith("/unknown")) {
+            status = 400;
+            data = Map.of();
+        }
+        else if (request.has("batch_input")) {
+            var results = new ArrayList<Map<String, String>>();
+            request.get("batch_input").forEach(item -> {
+                String ciphertext = item.get("ciphertext").asText();
+                results.add(ciphertext.startsWith("bad") ? Map.of("error", "cipher: message authentication failed")
+                        : Map.of("plaintext", Base64.getEncoder().encodeToString(ciphertext.getBytes(UTF_8))));
+            });
+            data = Map.of("batch_results", results);
+        }
+        else {
+            data = Map.of("plaintext", Base64.getEncoder().encodeToString(request.get("ciphertext").asText().getBytes(UTF_8)));
+        }
+        byte[] response = OBJECT_MAPPER.writeValueAsBytes(Map.of("data", data));
+        exchange.sendResponseHeaders(status, response.length);
+        try (var body = exchange.getResponseBody()) {
+            body.write(response);
+        }
+    }
+
+    private VaultKms stubVaultKms() {
+        var uri = URI.create("http://localhost:" + stubVault.getAddress().getPort() + "/v1/transit");
+        return new VaultKms(uri, "token", Duration.ofSeconds(5), null);
+    }
+
+    private static VaultEdek edek(String kekRef, String ciphertext) {
+        return new VaultEdek(kekRef, ciphertext.getBytes(UTF_8));
+    }
+
+    @Test
+    void decryptEdeksUsesOneRequestPerKek() throws Exception {
+        // given
+        var kms = stubVaultKms();
+        var edeks = List.of(edek("kek1", "vault:v1:one"), edek("kek2", "vault:v1:two"), edek("kek1", "vault:v1:three"));
+
+        // when
+        List<SecretKey> keys = kms.decryptEdeks(edeks).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(keys)
+                .extracting(key -> new String(key.getEncoded(), UTF_8))
+                .containsExactly("vault:v1:one", "vault:v1:two", "vault:v1:three");
+        assertThat(requestPaths).containsExactlyInAnyOrder("/v1/transit/decrypt/kek1", "/v1/transit/decrypt/kek2");
+    }
+
+    @Test
+    void decryptEdeksOfSingleEdek() throws Exception {
+        // given
+        var kms = stubVaultKms();
+
+        // when
+        List<SecretKey> keys = kms.decryptEdeks(List.of(edek("kek1", "vault:v1:one"))).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(keys)
+                .extracting(key -> new String(key.getEncoded(), UTF_8))
+                .containsExactly("vault:v1:one");
+        assertThat(requestPaths).containsExactly("/v1/transit/decrypt/kek1");
+    }
+
+    @Test
+    void decryptEdeksOfNoEdeks() throws Exception {
+        // given
+        var kms = stubVaultKms();
+
+        // when
+        List<SecretKey> keys = kms.decryptEdeks(List.of()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(keys).isEmpty();
+        assertThat(requestPaths).isEmpty();
+    }
+
+    @Test
+    void decryptEdeksFailsIfAnyBatchItemFails() {
+        // given
+        var kms = stubVaultKms();
+        var edeks = List.of(edek("kek1", "vault:v1:one"), edek("kek1", "bad"));
+
+        // when
+        var stage = kms.decryptEdeks(edeks).toCompletableFuture();
+
+        // then
+        assertThat(stage)
+                .failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat()
+                .havingCause()
+                .isInstanceOf(KmsException.class)
+                .withMessageContaining("kek1");
+    }
+
+    @Test
+    void decryptEdeksFailsForUnknownKek() {
+        // given
+        var kms = stubVaultKms();
+        var edeks = List.of(edek("kek1", "vault:v1:one"), edek("unknown", "vault:v1:two"));
+
+        // when
+        var stage = kms.decryptEdeks(edeks).toCompletableFuture();
+
+        // then
+        assertThat(stage)
+                .failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(UnknownKeyException.class);
+    }
+
+    @Test
+    void concurrentRequestsAreCapped() throws Exception {
+        // given
+        var uri = URI.create("http://localhost:" + stubVault.getAddress().getPort() + "/v1/transit");
+        var kms = new VaultKms(uri, "token", null, new HttpClientConfig(null, 5000L, 5000L, null, 2));
+
+        // when
+        var futures = IntStream.range(0, 10).mapToObj(i -> kms.resolveAlias("alias" + i)).toList();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (readKeysInFlight.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // give any requests exceeding the cap the chance to arrive
+        Thread.sleep(200);
+
+        // then
+        assertThat(readKeysInFlight).hasValue(2);
+        assertThat(futures).noneMatch(CompletableFuture::isDone);
+        readKeyGate.countDown();
+        assertThat(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))).succeedsWithin(5, TimeUnit.SECONDS);
+        assertThat(futures).extracting(CompletableFuture::join)
+                .containsExactlyElementsOf(IntStream.range(0, 10).mapToObj(i -> "alias" + i).toList());
+        assertThat(maxReadKeysInFlight).hasValue(2);
+    }
+
+    @Test
+    void testHttpVersion() {
+        var uri = URI.create("http://test:8080/v1/transit");
+        VaultKms kms = new VaultKms(uri, "token", null, new HttpClientConfig(HttpClient.Version.HTTP_1_1, null, null, null, null));
+        HttpClient client = kms.createClient(null);
+        assertThat(client.version()).isEqualTo(HttpClient.Version.HTTP_1_1);
+        assertThat(client.executor()).isPresent();
+    }
+
+    @Test
+    void testHttp2NegotiatedByDefault() {
+        var uri = URI.create("http://test:8080/v1/transit");
+        VaultKms kms = new VaultKms(uri, "token", null, HttpClientConfig.DEFAULT_CONFIG);
+        HttpClient client = kms.createClient(null);
+        assertThat(client.version()).isEqualTo(HttpClient.Version.HTTP_2);
+    }
+
     @Test
     void testConnectionTimeout() throws NoSuchAlgorithmException {
         var uri = URI.create("http://test:8080/v1/transit");
@@ -8,7 +8,9 @@ package io.kroxylicious.kms.provider.hashicorp.vault.config;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.http.HttpClient;
 import java.nio.file.Files;
+import java.time.Duration;
 
 import javax.net.ssl.SSLContext;
 
@@ -160,6 +162,57 @@ class ConfigParseTest {
         assertThat(config).isEqualTo(expected);
     }
 
+    @Test
+    void httpClientDefaults() throws IOException {
+        String json = """
+                {
+                    "vaultTransitEngineUrl": "http://vault",
+                    "vaultToken": { "password" : "token" }
+                }
+                """;
+        HttpClientConfig httpClient = readConfig(json).httpClient();
+        assertThat(httpClient.httpVersion()).isEqualTo(HttpClient.Version.HTTP_2);
+        assertThat(httpClient.connectTimeout()).isEqualTo(Duration.ofSeconds(20));
+        assertThat(httpClient.requestTimeout()).isEqualTo(Duration.ofSeconds(20));
+        assertThat(httpClient.executorThreads()).isEqualTo(2);
+        assertThat(httpClient.maxConcurrentRequests()).isEqualTo(16);
+    }
+
+    @Test
+    void httpClient() throws IOException {
+        String json = """
+                {
+                    "vaultTransitEngineUrl": "http://vault",
+                    "vaultToken": { "password" : "token" },
+                    "httpClient": {
+                        "httpVersion": "HTTP_1_1",
+                        "connectTimeoutMs": 1000,
+                        "requestTimeoutMs": 2000,
+                        "executorThreads": 4,
+                        "maxConcurrentRequests": 8
+                    }
+                }
+                """;
+        HttpClientConfig httpClient = readConfig(json).httpClient();
+        assertThat(httpClient).isEqualTo(new HttpClientConfig(HttpClient.Version.HTTP_1_1, 1000L, 2000L, 4, 8));
+        assertThat(httpClient.connectTimeout()).isEqualTo(Duration.ofSeconds(1));
+        assertThat(httpClient.requestTimeout()).isEqualTo(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void httpClientRejectsNonPositiveConcurrency() {
+        String json = """
+                {
+                    "vaultTransitEngineUrl": "http://vault",
+                    "vaultToken": { "password" : "token" },
+                    "httpClient": { "maxConcurrentRequests": 0 }
+                }
+                """;
+        Assertions.assertThatThrownBy(() -> readConfig(json))
+                .isInstanceOf(ValueInstantiationException.class)
+                .hasMessageContaining("maxConcurrentRequests");
+    }
+
     private Config readConfig(String json) throws IOException {
         return MAPPER.reader().readValue(json, Config.class);
     }
@@ -6,6 +6,9 @@
 
 package io.kroxylicious.kms.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import javax.crypto.SecretKey;
@@ -44,6 +47,24 @@ public interface Kms<K, E> {
     @NonNull
     CompletionStage<SecretKey> decryptEdek(@NonNull E edek);
 
+    /**
+     * Asynchronously decrypts a number of data encryption keys that were {@linkplain #generateDekPair(Object) previously encrypted}.
+     * KMSs which support decrypting many keys in a single request should override this method.
+     * The default implementation calls {@link #decryptEdek(Object)} for each of the given {@code edeks}.
+     * @param edeks The encrypted data encryption keys.
+     * @return A completion stage for the data encryption keys, in the same order as the given {@code edeks}.
+     * The stage fails if any of the keys could not be decrypted, with the exceptions documented for {@link #decryptEdek(Object)}.
+     */
+    @NonNull
+    default CompletionStage<List<SecretKey>> decryptEdeks(@NonNull List<E> edeks) {
+        var futures = new ArrayList<CompletableFuture<SecretKey>>(edeks.size());
+        for (E edek : edeks) {
+            futures.add(decryptEdek(edek).toCompletableFuture());
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
     /**
      * Get a serializer for encrypted DEKs.
      * It is required that {@code deserialize(serialize(edek)).equals(edek)}.
@@ -32,6 +32,7 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import io.kroxylicious.krpccodegen.model.JavaType;
 import io.kroxylicious.krpccodegen.model.KrpcSchemaObjectWrapper;
 import io.kroxylicious.krpccodegen.model.RetrieveApiKey;
 import io.kroxylicious.krpccodegen.schema.MessageSpec;
@@ -385,6 +386,7 @@ public class KrpcGenerator {
         cfg.setObjectWrapper(new KrpcSchemaObjectWrapper(version));
 
         cfg.setSharedVariable("outputPackage", outputPackage);
+        cfg.setSharedVariable("javaType", new JavaType());
 
         logger.log(Level.DEBUG, "Created FreeMarker config");
         return cfg;
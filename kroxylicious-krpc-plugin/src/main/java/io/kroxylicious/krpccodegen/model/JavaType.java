@@ -0,0 +1,101 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.krpccodegen.model;
+
+import java.util.List;
+
+import io.kroxylicious.krpccodegen.schema.FieldSpec;
+import io.kroxylicious.krpccodegen.schema.FieldType;
+import io.kroxylicious.krpccodegen.schema.MessageSpec;
+import io.kroxylicious.krpccodegen.schema.StructSpec;
+
+import freemarker.template.TemplateMethodModelEx;
+import freemarker.template.TemplateModelException;
+
+/**
+ * A custom FreeMarker function which obtains the Java type that Kafka's generated message classes use
+ * for the accessors of a field, e.g. "short", "List&lt;Integer&gt;" or "TopicProduceDataCollection".
+ * Types nested within the message's data class are given by their simple name.
+ * Usage: {@code ${javaType(messageSpec, field)}}
+ */
+public class JavaType implements TemplateMethodModelEx {
+
+    /**
+     * Constructs a JavaType.
+     */
+    public JavaType() {
+        super();
+    }
+
+    @Override
+    public Object exec(List arguments) throws TemplateModelException {
+        if (arguments.size() != 2) {
+            throw new TemplateModelException("javaType expects (messageSpec, field) arguments");
+        }
+        MessageSpec messageSpec = ((MessageSpecModel) arguments.get(0)).spec;
+        FieldSpec field = ((FieldSpecModel) arguments.get(1)).spec;
+        return javaType(messageSpec, field);
+    }
+
+    static String javaType(MessageSpec messageSpec, FieldSpec field) throws TemplateModelException {
+        FieldType type = field.type();
+        if (type instanceof FieldType.ArrayType arrayType) {
+            FieldType elementType = arrayType.elementType();
+            if (elementType.isStruct()) {
+                String elementName = arrayType.elementName();
+                return hasKeys(messageSpec, field, elementName) ? elementName + "Collection" : "List<" + elementName + ">";
+            }
+            return "List<" + boxedType(elementType) + ">";
+        }
+        else if (type instanceof FieldType.StructType structType) {
+            return structType.typeName();
+        }
+        else if (type.isBytes()) {
+            return field.zeroCopy() ? "ByteBuffer" : "byte[]";
+        }
+        else if (type.isRecords()) {
+            return "BaseRecords";
+        }
+        return primitiveType(type);
+    }
+
+    private static boolean hasKeys(MessageSpec messageSpec, FieldSpec field, String structName) throws TemplateModelException {
+        if (!field.fields().isEmpty()) {
+            return field.fields().stream().anyMatch(FieldSpec::mapKey);
+        }
+        return messageSpec.commonStructs().stream()
+                .filter(struct -> struct.name().equals(structName))
+                .findFirst()
+                .map(StructSpec::hasKeys)
+                .orElseThrow(() -> new TemplateModelException("Unknown struct " + structName + " in " + messageSpec.name()));
+    }
+
+    private static String primitiveType(FieldType type) throws TemplateModelException {
+        return switch (type.toString()) {
+            case "bool" -> "boolean";
+            case "int8" -> "byte";
+            case "int16" -> "short";
+            case "uint16", "int32" -> "int";
+            case "uint32", "int64" -> "long";
+            case "float64" -> "double";
+            case "string" -> "String";
+            case "uuid" -> "Uuid";
+            default -> throw new TemplateModelException("Unsupported field type " + type);
+        };
+    }
+
+    private static String boxedType(FieldType type) throws TemplateModelException {
+        return switch (primitiveType(type)) {
+            case "boolean" -> "Boolean";
+            case "byte" -> "Byte";
+            case "short" -> "Short";
+            case "int" -> "Integer";
+            case "long" -> "Long";
+            case "double" -> "Double";
+            default -> primitiveType(type);
+        };
+    }
+}
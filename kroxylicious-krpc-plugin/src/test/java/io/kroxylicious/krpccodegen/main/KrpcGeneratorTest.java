@@ -125,6 +125,15 @@ class KrpcGeneratorTest {
         testSingleGeneration(tempDir, messageSpec, "${messageSpec.latestVersionUnstable.orElse(false)?string('yes', 'no')}", expectValue);
     }
 
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "ProduceRequest.json|TransactionalId:String Acks:short TimeoutMs:int TopicData:TopicProduceDataCollection",
+            "MetadataRequest.json|Topics:List<MetadataRequestTopic> AllowAutoTopicCreation:boolean IncludeClusterAuthorizedOperations:boolean IncludeTopicAuthorizedOperations:boolean",
+            "ApiVersionsResponse.json|ErrorCode:short ApiKeys:ApiVersionCollection ThrottleTimeMs:int SupportedFeatures:SupportedFeatureKeyCollection FinalizedFeaturesEpoch:long FinalizedFeatures:FinalizedFeatureKeyCollection ZkMigrationReady:boolean" })
+    void testJavaType(String messageSpec, String expected, @TempDir File tempDir) throws Exception {
+        testSingleGeneration(tempDir, messageSpec, "<#list messageSpec.fields as field>${field.name}:${javaType(messageSpec, field)}<#sep> </#list>", expected);
+    }
+
     private void assertFileHasExpectedContents(File file, String expectedFile) throws IOException {
         String expected = Resources.asCharSource(
                 Objects.requireNonNull(getClass().getClassLoader().getResource(expectedFile)), UTF_8).read();
@@ -120,9 +120,7 @@ public final class KafkaProxy implements AutoCloseable {
                 .join();
 
         // Pre-register counters/summaries to avoid creating them on first request and thus skewing the request latency
-        // TODO add a virtual host tag to metrics
-        Metrics.inboundDownstreamMessagesCounter();
-        Metrics.inboundDownstreamDecodedMessagesCounter();
+        virtualClusters.forEach(vc -> Metrics.forVirtualCluster(vc.getClusterName()));
         return this;
     }
 
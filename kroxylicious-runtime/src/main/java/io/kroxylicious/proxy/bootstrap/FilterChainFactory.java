@@ -8,6 +8,7 @@ package io.kroxylicious.proxy.bootstrap;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
 
 import io.kroxylicious.proxy.config.FilterDefinition;
 import io.kroxylicious.proxy.config.PluginFactory;
@@ -16,6 +17,7 @@ import io.kroxylicious.proxy.filter.Filter;
 import io.kroxylicious.proxy.filter.FilterAndInvoker;
 import io.kroxylicious.proxy.filter.FilterFactory;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
+import io.kroxylicious.proxy.internal.filter.TimeLimitedFilterInvoker;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -27,7 +29,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  */
 public class FilterChainFactory {
 
-    record UninitializedFilterFactory(String instanceName, FilterFactory<? super Object, ? super Object> filterFactory, Object config) {
+    record UninitializedFilterFactory(String instanceName, FilterFactory<? super Object, ? super Object> filterFactory, Object config, Long timeoutMs) {
 
         private InitializedFilterFactory initialize(FilterFactoryContext context) {
             Object result;
@@ -37,11 +39,11 @@ public class FilterChainFactory {
             catch (Exception e) {
                 throw new PluginConfigurationException("Exception initializing filter factory " + instanceName + " with config " + config + ": " + e.getMessage(), e);
             }
-            return new InitializedFilterFactory(filterFactory, result);
+            return new InitializedFilterFactory(filterFactory, result, timeoutMs);
         }
     }
 
-    record InitializedFilterFactory(FilterFactory<? super Object, ? super Object> filterFactory, Object initResult) {
+    record InitializedFilterFactory(FilterFactory<? super Object, ? super Object> filterFactory, Object initResult, Long timeoutMs) {
         public Filter create(FilterFactoryContext context) {
             try {
                 return filterFactory().createFilter(context, initResult);
@@ -50,6 +52,14 @@ public class FilterChainFactory {
                 throw new PluginConfigurationException("Exception instantiating filter using factory " + filterFactory, e);
             }
         }
+
+        public Stream<FilterAndInvoker> createInvokers(FilterFactoryContext context) {
+            var filterAndInvokers = FilterAndInvoker.build(create(context)).stream();
+            if (timeoutMs == null) {
+                return filterAndInvokers;
+            }
+            return filterAndInvokers.map(fai -> new FilterAndInvoker(fai.filter(), new TimeLimitedFilterInvoker(fai.invoker(), timeoutMs)));
+        }
     }
 
     /**
@@ -83,7 +93,7 @@ public class FilterChainFactory {
                         FilterFactory<? super Object, ? super Object> filterFactory = pluginFactory.pluginInstance(fd.type());
                         Class<?> configType = pluginFactory.configType(fd.type());
                         if (fd.config() == null || configType.isInstance(fd.config())) {
-                            return new UninitializedFilterFactory(fd.type(), filterFactory, fd.config());
+                            return new UninitializedFilterFactory(fd.type(), filterFactory, fd.config(), fd.timeoutMs());
                         }
                         else {
                             throw new PluginConfigurationException("accepts config of type " +
@@ -97,14 +107,14 @@ public class FilterChainFactory {
 
     /**
      * Creates and returns a new chain of filter instances.
+     * The invokers of filters whose definitions configure a timeout are {@link TimeLimitedFilterInvoker}s.
      *
      * @return the new chain.
      */
     public List<FilterAndInvoker> createFilters(FilterFactoryContext context) {
         return initialized
                 .stream()
-                .map(pair -> pair.create(context))
-                .flatMap(filter -> FilterAndInvoker.build(filter).stream())
+                .flatMap(pair -> pair.createInvokers(context))
                 .toList();
     }
 }
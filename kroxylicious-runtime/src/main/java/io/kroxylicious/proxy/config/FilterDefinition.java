@@ -14,13 +14,31 @@ import io.kroxylicious.proxy.filter.FilterFactory;
 import io.kroxylicious.proxy.plugin.PluginImplConfig;
 import io.kroxylicious.proxy.plugin.PluginImplName;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Defines a filter of a chain.
+ *
+ * @param type the name of the filter factory.
+ * @param config the configuration of the filter factory.
+ * @param timeoutMs the time, in milliseconds, the filter has to complete the stage it returns for a request or response,
+ * or to receive the response to a request it sends. If null, the virtual cluster's filter timeout applies.
+ */
 public record FilterDefinition(
                                @PluginImplName(FilterFactory.class) @JsonProperty(required = true) String type,
-                               @PluginImplConfig(implNameProperty = "type") Object config) {
+                               @PluginImplConfig(implNameProperty = "type") Object config,
+                               @JsonProperty() @Nullable Long timeoutMs) {
 
     @JsonCreator
     public FilterDefinition {
         Objects.requireNonNull(type);
+        if (timeoutMs != null && timeoutMs <= 0) {
+            throw new IllegalArgumentException("timeoutMs must be positive, but was " + timeoutMs);
+        }
+    }
+
+    public FilterDefinition(String type, Object config) {
+        this(type, config, null);
     }
 
 }
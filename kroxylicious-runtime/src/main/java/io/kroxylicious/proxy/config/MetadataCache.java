@@ -0,0 +1,46 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Configures the virtual cluster's shared cache of Metadata, DescribeCluster and FindCoordinator responses.
+ * <br/>
+ * The responses cached for one client connection are served to the others, so the cache should only be enabled
+ * where all clients of the virtual cluster are authorized to see the same cluster metadata.
+ *
+ * @param maxAgeMs the maximum age, in milliseconds, of a cached response that may be served to a client.
+ * A value of zero disables caching, but concurrent identical requests are still coalesced.
+ * @param maxEntries the maximum number of distinct requests whose responses are cached.
+ */
+public record MetadataCache(@JsonProperty("maxAgeMs") @Nullable Long maxAgeMs,
+                            @JsonProperty("maxEntries") @Nullable Integer maxEntries) {
+
+    public static final long DEFAULT_MAX_AGE_MS = 1000;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    public MetadataCache {
+        if (maxAgeMs != null && maxAgeMs < 0) {
+            throw new IllegalArgumentException("maxAgeMs must be zero or greater");
+        }
+        if (maxEntries != null && maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than zero");
+        }
+    }
+
+    @Override
+    public Long maxAgeMs() {
+        return maxAgeMs == null ? DEFAULT_MAX_AGE_MS : maxAgeMs;
+    }
+
+    @Override
+    public Integer maxEntries() {
+        return maxEntries == null ? DEFAULT_MAX_ENTRIES : maxEntries;
+    }
+}
@@ -14,6 +14,8 @@ import io.kroxylicious.proxy.config.tls.Tls;
 import io.kroxylicious.proxy.service.ClusterNetworkAddressConfigProvider;
 import io.kroxylicious.proxy.service.ContributionManager;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 import static io.kroxylicious.proxy.service.Context.wrap;
 
 public record VirtualCluster(TargetCluster targetCluster,
@@ -21,13 +23,18 @@ public record VirtualCluster(TargetCluster targetCluster,
 
                              @JsonProperty() Optional<Tls> tls,
                              boolean logNetwork,
-                             boolean logFrames) {
+                             boolean logFrames,
+                             boolean multiplexUpstream,
+                             @JsonProperty() Optional<MetadataCache> metadataCache,
+                             boolean fuseFilters,
+                             @JsonProperty() @Nullable Long filterTimeoutMs) {
     public io.kroxylicious.proxy.model.VirtualCluster toVirtualClusterModel(String virtualClusterNodeName) {
         return new io.kroxylicious.proxy.model.VirtualCluster(virtualClusterNodeName,
                 targetCluster(),
                 toClusterNetworkAddressConfigProviderModel(),
                 tls(),
-                logNetwork(), logFrames());
+                logNetwork(), logFrames(), multiplexUpstream(), metadataCache(), fuseFilters(),
+                filterTimeoutMs() == null ? io.kroxylicious.proxy.model.VirtualCluster.DEFAULT_FILTER_TIMEOUT_MS : filterTimeoutMs());
     }
 
     private ClusterNetworkAddressConfigProvider toClusterNetworkAddressConfigProviderModel() {
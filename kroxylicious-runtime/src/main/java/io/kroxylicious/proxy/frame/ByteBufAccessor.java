@@ -50,5 +50,12 @@ public interface ByteBufAccessor extends Writable {
 
     int writerIndex();
 
+    /**
+     * Write {@code length} bytes from the given buffer, advancing its reader index.
+     * Implementations may retain a slice of {@code buf} rather than copying the bytes,
+     * so callers may release their own reference once this method returns.
+     * @param buf The source buffer
+     * @param length The number of bytes to write
+     */
     void writeBytes(ByteBuf buf, int length);
 }
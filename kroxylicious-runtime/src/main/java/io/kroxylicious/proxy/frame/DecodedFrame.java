@@ -44,6 +44,7 @@ public abstract class DecodedFrame<H extends ApiMessage, B extends ApiMessage>
 
     private final List<ByteBuf> buffers;
     private int headerAndBodyEncodedLength;
+    private int zeroCopyLength;
     private ObjectSerializationCache serializationCache;
 
     DecodedFrame(short apiVersion, int correlationId, H header, B body) {
@@ -90,10 +91,24 @@ public abstract class DecodedFrame<H extends ApiMessage, B extends ApiMessage>
         header().addSize(sizer, cache, headerVersion);
         body().addSize(sizer, cache, apiVersion());
         headerAndBodyEncodedLength = sizer.totalSize();
+        zeroCopyLength = sizer.zeroCopySize();
         serializationCache = cache;
         return FRAME_SIZE_LENGTH + headerAndBodyEncodedLength;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>For a decoded frame this is the size of the records contained in the body, which
+     * {@link org.apache.kafka.common.protocol.Writable#writeRecords} passes to the accessor as a {@link java.nio.ByteBuffer}.
+     * Those buffers may be backed by buffers {@linkplain #add(ByteBuf) owned by this frame}, so the frame must not be
+     * released until the encoded output has been written.</p>
+     */
+    @Override
+    public final int estimateZeroCopySize() {
+        estimateEncodedSize();
+        return zeroCopyLength;
+    }
+
     @Override
     public final void encode(ByteBufAccessor out) {
         if (headerAndBodyEncodedLength < 0) {
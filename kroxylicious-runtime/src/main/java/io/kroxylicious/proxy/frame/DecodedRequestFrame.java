@@ -19,14 +19,29 @@ public class DecodedRequestFrame<B extends ApiMessage>
         implements RequestFrame {
 
     private final boolean decodeResponse;
+    private final boolean hasResponse;
 
     public DecodedRequestFrame(short apiVersion,
                                int correlationId,
                                boolean decodeResponse,
                                RequestHeaderData header,
                                B body) {
+        this(apiVersion, correlationId, decodeResponse, !isZeroAcksProduceRequest(body), header, body);
+    }
+
+    /**
+     * @param hasResponse whether the broker will respond to this request, which the caller has already determined,
+     * so that it is not necessary to read the (possibly not yet decoded) body to find out.
+     */
+    public DecodedRequestFrame(short apiVersion,
+                               int correlationId,
+                               boolean decodeResponse,
+                               boolean hasResponse,
+                               RequestHeaderData header,
+                               B body) {
         super(apiVersion, correlationId, header, body);
         this.decodeResponse = decodeResponse;
+        this.hasResponse = hasResponse;
     }
 
     @Override
@@ -41,11 +56,11 @@ public class DecodedRequestFrame<B extends ApiMessage>
 
     @Override
     public boolean hasResponse() {
-        return !isZeroAcksProduceRequest();
+        return hasResponse;
     }
 
-    private boolean isZeroAcksProduceRequest() {
-        return apiKey() == PRODUCE && ((ProduceRequestData) body).acks() == 0;
+    private static boolean isZeroAcksProduceRequest(ApiMessage body) {
+        return body.apiKey() == PRODUCE.id && ((ProduceRequestData) body).acks() == 0;
     }
 
 }
@@ -16,6 +16,16 @@ public interface Frame {
      */
     int estimateEncodedSize();
 
+    /**
+     * Estimate how many of the {@link #estimateEncodedSize()} bytes are bulk data (such as record batches)
+     * which {@link #encode(ByteBufAccessor)} can hand to the accessor by reference, rather than by copying.
+     * Encoders use this to decide whether building a composite buffer is worthwhile.
+     * @return the number of bytes that can be written without copying.
+     */
+    default int estimateZeroCopySize() {
+        return 0;
+    }
+
     /**
      * Write the frame, including the size prefix, to the given buffer
      * @param out The output buffer
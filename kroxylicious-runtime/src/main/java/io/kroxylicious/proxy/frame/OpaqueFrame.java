@@ -25,6 +25,12 @@ public abstract class OpaqueFrame implements Frame {
      */
     private static final int FRAME_SIZE_LENGTH = Integer.BYTES;
 
+    /**
+     * Number of leading bytes which are always copied, because encoders rewrite them in place.
+     * This covers the request api key, api version and correlation id, and the response correlation id.
+     */
+    private static final int REWRITABLE_PREFIX_LENGTH = Short.BYTES + Short.BYTES + Integer.BYTES;
+
     protected final int length;
     protected final int correlationId;
     /** The message buffer excluding the frame size, including the header and body. */
@@ -54,6 +60,11 @@ public abstract class OpaqueFrame implements Frame {
         return FRAME_SIZE_LENGTH + length;
     }
 
+    @Override
+    public int estimateZeroCopySize() {
+        return Math.max(0, length - REWRITABLE_PREFIX_LENGTH);
+    }
+
     @Override
     public void encode(ByteBufAccessor out) {
         if (LOGGER.isTraceEnabled()) {
@@ -62,7 +73,10 @@ public abstract class OpaqueFrame implements Frame {
         }
         out.ensureWritable(estimateEncodedSize());
         out.writeInt(length);
-        out.writeBytes(buf, length);
+        int prefixLength = Math.min(length, REWRITABLE_PREFIX_LENGTH);
+        out.writeBytes(buf, prefixLength);
+        // the accessor may retain a slice of the remainder rather than copying it
+        out.writeBytes(buf, length - prefixLength);
         buf.release();
     }
 
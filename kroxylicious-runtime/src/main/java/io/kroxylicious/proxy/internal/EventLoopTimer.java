@@ -0,0 +1,315 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+/**
+ * A hashed wheel timer which is driven by, and runs its tasks on, an event loop.
+ * <p>
+ * The timeouts of the filters of all the connections handled by an event loop share a
+ * single timer, so that however many deadlines are pending at most one task is scheduled
+ * on the event loop: the next tick of the wheel. Deadlines are rounded up to a multiple
+ * of the tick duration. Time is measured using the event loop's own clock.
+ * </p>
+ * <p>
+ * A cancelled timeout is unlinked from its bucket straight away, and drops its task, so that
+ * whatever the task refers to is not kept reachable until the deadline it will never reach.
+ * </p>
+ */
+final class EventLoopTimer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLoopTimer.class);
+
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final FastThreadLocal<EventLoopTimer> TIMERS = new FastThreadLocal<>();
+
+    private final EventExecutor executor;
+    private final Bucket[] wheel;
+    // The number of timeouts in the wheel.
+    private int pending;
+    // The wheel's time is measured from when it last started, after being idle.
+    private long startNanos;
+    // The last tick that has been processed, and the next one, which is pending while tickFuture is non-null.
+    private long tick;
+    private long nextTick;
+    private ScheduledFuture<?> tickFuture;
+
+    private EventLoopTimer(EventExecutor executor) {
+        this.executor = executor;
+        this.wheel = new Bucket[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Gets the timer for the given executor.
+     * @param executor the event loop
+     * @return the timer
+     */
+    static EventLoopTimer forExecutor(EventExecutor executor) {
+        if (!executor.inEventLoop()) {
+            return new EventLoopTimer(executor);
+        }
+        var timer = TIMERS.get();
+        if (timer == null || timer.executor != executor) {
+            // A thread runs a single event loop, except in tests using embedded channels.
+            timer = new EventLoopTimer(executor);
+            TIMERS.set(timer);
+        }
+        return timer;
+    }
+
+    /**
+     * Schedules the given task to run on the event loop once the given delay has elapsed,
+     * unless the returned timeout is cancelled first. This method may be called from any thread.
+     * @param task the task
+     * @param delay the delay
+     * @param unit the unit of the delay
+     * @return the timeout
+     */
+    Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        var timeout = new Timeout(this, task, unit.toNanos(delay));
+        if (executor.inEventLoop()) {
+            add(timeout);
+        }
+        else {
+            executor.execute(() -> add(timeout));
+        }
+        return timeout;
+    }
+
+    @VisibleForTesting
+    int pending() {
+        return pending;
+    }
+
+    private void add(Timeout timeout) {
+        if (timeout.task == null) {
+            // cancelled before it could be added
+            return;
+        }
+        long now;
+        if (tickFuture == null) {
+            // the wheel is idle, so restart it from zero
+            startNanos = System.nanoTime();
+            tick = 0;
+            now = 0;
+        }
+        else {
+            now = now();
+        }
+        timeout.deadlineNanos = now + timeout.delayNanos;
+        // round the deadline up to a tick
+        long timeoutTick = Math.max(-Math.floorDiv(-timeout.deadlineNanos, TICK_NANOS), tick + 1);
+        wheel[(int) (timeoutTick & MASK)].add(timeout);
+        pending++;
+        if (tickFuture == null) {
+            scheduleTick(timeoutTick, now);
+        }
+        else if (timeoutTick < nextTick && tickFuture.cancel(false)) {
+            scheduleTick(timeoutTick, now);
+        }
+    }
+
+    private void remove(Timeout timeout) {
+        Bucket bucket = timeout.bucket;
+        if (bucket == null) {
+            // already expired, or removed
+            return;
+        }
+        bucket.remove(timeout);
+        pending--;
+        if (tickFuture != null && bucket.isEmpty() && bucket == wheel[(int) (nextTick & MASK)]) {
+            // the pending tick has nothing left to do, so wake for the next bucket with timeouts instead, if any
+            long now = now();
+            if (tickFuture.cancel(false)) {
+                tickFuture = null;
+                if (pending > 0) {
+                    scheduleTick(nextOccupiedTick(nextTick + 1), now);
+                }
+            }
+        }
+    }
+
+    // the time of the pending tick less its remaining delay, as measured by the event loop
+    private long now() {
+        return nextTick * TICK_NANOS - tickFuture.getDelay(TimeUnit.NANOSECONDS);
+    }
+
+    private long nextOccupiedTick(long from) {
+        long next = from;
+        while (wheel[(int) (next & MASK)].isEmpty()) {
+            next++;
+        }
+        return next;
+    }
+
+    private void scheduleTick(long targetTick, long now) {
+        nextTick = targetTick;
+        tickFuture = executor.schedule(this::onTick, targetTick * TICK_NANOS - now, TimeUnit.NANOSECONDS);
+    }
+
+    private void onTick() {
+        // The event loop runs the tick no earlier than it was due. Its clock is the system's,
+        // unless it is an embedded event loop whose time has been frozen.
+        long now = Math.max(nextTick * TICK_NANOS, System.nanoTime() - startNanos);
+        long currentTick = Math.floorDiv(now, TICK_NANOS);
+        long last = Math.min(currentTick, tick + WHEEL_SIZE);
+        for (long t = tick + 1; t <= last; t++) {
+            expire(wheel[(int) (t & MASK)], now);
+        }
+        tick = currentTick;
+        tickFuture = null;
+        if (pending > 0) {
+            // wake for the next bucket with timeouts, rather than every tick
+            scheduleTick(nextOccupiedTick(tick + 1), now);
+        }
+    }
+
+    private void expire(Bucket bucket, long now) {
+        // unlink the due timeouts before running any, as their tasks may add or cancel timeouts in the same bucket
+        Timeout due = null;
+        Timeout dueTail = null;
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            // those not yet due are due in a later rotation of the wheel
+            if (timeout.deadlineNanos <= now) {
+                bucket.remove(timeout);
+                pending--;
+                if (dueTail == null) {
+                    due = timeout;
+                }
+                else {
+                    dueTail.next = timeout;
+                }
+                dueTail = timeout;
+            }
+            timeout = next;
+        }
+        while (due != null) {
+            Timeout next = due.next;
+            due.next = null;
+            due.run();
+            due = next;
+        }
+    }
+
+    /**
+     * The timeouts which fall in one slot of the wheel, as a doubly linked list, so that a
+     * cancelled timeout can be removed without searching for it.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        boolean isEmpty() {
+            return head == null;
+        }
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            }
+            else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            }
+            else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            }
+            else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+
+    /**
+     * A task scheduled on the timer.
+     */
+    static final class Timeout {
+        private final EventLoopTimer timer;
+        private final long delayNanos;
+        // null once the timeout has been cancelled or has run
+        private volatile Runnable task;
+        private long deadlineNanos;
+        // the bucket, and neighbours within it, while the timeout is in the wheel
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(EventLoopTimer timer, Runnable task, long delayNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.delayNanos = delayNanos;
+        }
+
+        /**
+         * Cancels the timeout, so that its task will not run if it has not already.
+         * This method may be called from any thread.
+         */
+        void cancel() {
+            if (task == null) {
+                return;
+            }
+            task = null;
+            if (timer.executor.inEventLoop()) {
+                timer.remove(this);
+            }
+            else {
+                timer.executor.execute(() -> timer.remove(this));
+            }
+        }
+
+        @VisibleForTesting
+        boolean hasTask() {
+            return task != null;
+        }
+
+        private void run() {
+            Runnable t = task;
+            if (t == null) {
+                // cancelled by a task which ran before it
+                return;
+            }
+            task = null;
+            try {
+                t.run();
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("Timeout task {} failed", t, e);
+            }
+        }
+    }
+}
@@ -61,6 +61,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 public class FilterHandler extends ChannelDuplexHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FilterHandler.class);
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
     private final Filter filter;
     private final FilterInvoker invoker;
     private final long timeoutMs;
@@ -68,9 +69,14 @@ public class FilterHandler extends ChannelDuplexHandler {
     private final VirtualCluster virtualCluster;
     private final Channel inboundChannel;
     private final ApiVersionsServiceImpl apiVersionService;
-    private CompletableFuture<Void> writeFuture = CompletableFuture.completedFuture(null);
-    private CompletableFuture<Void> readFuture = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> writeFuture = COMPLETED;
+    private CompletableFuture<Void> readFuture = COMPLETED;
     private ChannelHandlerContext ctx;
+    private EventLoopTimer timer;
+    // When fused by a FusedFilterHandler, the handlers that this handler passes requests (next)
+    // and responses (previous) to directly. Null when that neighbour is reached via the pipeline.
+    private FilterHandler previous;
+    private FilterHandler next;
 
     public FilterHandler(FilterAndInvoker filterAndInvoker, long timeoutMs, String sniHostname, VirtualCluster virtualCluster, Channel inboundChannel,
                          ApiVersionsServiceImpl apiVersionService) {
@@ -90,9 +96,24 @@ public class FilterHandler extends ChannelDuplexHandler {
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         this.ctx = ctx;
+        this.timer = EventLoopTimer.forExecutor(ctx.executor());
         super.channelActive(ctx);
     }
 
+    /**
+     * Fuses this handler with its neighbours, so that it is driven by, and passes messages directly to,
+     * them rather than via the pipeline.
+     * @param ctx The context of the {@link FusedFilterHandler} this handler is part of.
+     * @param previous The handler responses are passed to, or null if they are passed to {@code ctx}.
+     * @param next The handler requests are passed to, or null if they are passed to {@code ctx}.
+     */
+    void fuse(ChannelHandlerContext ctx, FilterHandler previous, FilterHandler next) {
+        this.ctx = ctx;
+        this.timer = EventLoopTimer.forExecutor(ctx.executor());
+        this.previous = previous;
+        this.next = next;
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         if (msg instanceof InternalResponseFrame<?> decodedFrame) {
@@ -125,14 +146,14 @@ public class FilterHandler extends ChannelDuplexHandler {
             }
             readFuture = readFuture.whenComplete((a, b) -> {
                 if (ctx.channel().isOpen()) {
-                    ctx.fireChannelRead(msg);
+                    fireChannelRead(msg);
                 }
             });
         }
     }
 
     @Override
-    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
         if (msg instanceof InternalRequestFrame<?> decodedFrame) {
             // jump the queue, internal request must flow!
             writeDecodedRequest(decodedFrame, promise);
@@ -160,7 +181,7 @@ public class FilterHandler extends ChannelDuplexHandler {
             }
             writeFuture.whenComplete((unused, throwable) -> {
                 if (ctx.channel().isOpen()) {
-                    ctx.write(msg, promise);
+                    write(msg, promise);
                 }
             });
         }
@@ -176,6 +197,16 @@ public class FilterHandler extends ChannelDuplexHandler {
                     .whenComplete(this::deferredResponseCompleted)
                     .thenApply(responseFilterResult -> null);
         }
+        else if (!future.isCompletedExceptionally()) {
+            // fast path: the filter completed synchronously, so there's no need to chain futures
+            try {
+                handleResponseFilterResult(decodedFrame, validateFilterResultNonNull(future.join()));
+            }
+            catch (RuntimeException | AssertionError e) {
+                handleFilteringException(e, decodedFrame);
+            }
+            return COMPLETED;
+        }
         else {
             return configureResponseFilterChain(decodedFrame, future)
                     .thenApply(responseFilterResult -> null);
@@ -208,6 +239,16 @@ public class FilterHandler extends ChannelDuplexHandler {
                     .whenComplete(this::deferredRequestCompleted)
                     .thenApply(requestFilterResult -> null);
         }
+        else if (!future.isCompletedExceptionally()) {
+            // fast path: the filter completed synchronously, so there's no need to chain futures
+            try {
+                handleRequestFilterResult(decodedFrame, promise, validateFilterResultNonNull(future.join()));
+            }
+            catch (RuntimeException | AssertionError e) {
+                handleFilteringException(e, decodedFrame);
+            }
+            return COMPLETED;
+        }
         else {
             return configureRequestFilterChain(decodedFrame, promise, future)
                     .thenApply(requestFilterResult -> null);
@@ -298,7 +339,7 @@ public class FilterHandler extends ChannelDuplexHandler {
 
     private <F extends FilterResult> CompletableFuture<F> handleDeferredStage(DecodedFrame<?, ?> decodedFrame, CompletableFuture<F> future) {
         inboundChannel.config().setAutoRead(false);
-        var timeoutFuture = ctx.executor().schedule(() -> {
+        var timeout = timer.newTimeout(() -> {
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("{}: Filter {} was timed-out whilst processing {} {}", channelDescriptor(), filterDescriptor(),
                         decodedFrame instanceof DecodedRequestFrame ? "request" : "response", decodedFrame.apiKey());
@@ -306,7 +347,7 @@ public class FilterHandler extends ChannelDuplexHandler {
             future.completeExceptionally(new TimeoutException("Filter %s was timed-out.".formatted(filterDescriptor())));
         }, timeoutMs, TimeUnit.MILLISECONDS);
         return future.whenComplete((f, throwable) -> {
-            timeoutFuture.cancel(false);
+            timeout.cancel();
         }).thenApplyAsync(filterResult -> filterResult, ctx.executor());
     }
 
@@ -343,7 +384,7 @@ public class FilterHandler extends ChannelDuplexHandler {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("{}: Forwarding request: {}", channelDescriptor(), decodedFrame);
         }
-        ctx.write(decodedFrame, promise);
+        write(decodedFrame, promise);
     }
 
     private void forwardResponse(DecodedFrame<?, ?> decodedFrame, ResponseHeaderData header, ApiMessage message) {
@@ -363,7 +404,7 @@ public class FilterHandler extends ChannelDuplexHandler {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("{}: Forwarding response: {}", channelDescriptor(), decodedFrame);
             }
-            ctx.fireChannelRead(responseFrame);
+            fireChannelRead(responseFrame);
             // required to flush the message back to the client
             ctx.fireChannelReadComplete();
         }
@@ -377,7 +418,31 @@ public class FilterHandler extends ChannelDuplexHandler {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("{}: Forwarding response: {}", channelDescriptor(), decodedFrame);
             }
-            ctx.fireChannelRead(decodedFrame);
+            fireChannelRead(decodedFrame);
+        }
+    }
+
+    /**
+     * Passes a request on towards the broker.
+     */
+    private void write(Object msg, ChannelPromise promise) {
+        if (next != null) {
+            next.write(ctx, msg, promise);
+        }
+        else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    /**
+     * Passes a response on towards the client.
+     */
+    private void fireChannelRead(Object msg) {
+        if (previous != null) {
+            previous.channelRead(ctx, msg);
+        }
+        else {
+            ctx.fireChannelRead(msg);
         }
     }
 
@@ -508,7 +573,8 @@ public class FilterHandler extends ChannelDuplexHandler {
                 LOGGER.debug("{}: Sending request: {}", FilterHandler.this.channelDescriptor(), frame);
             }
             ChannelPromise writePromise = ctx.channel().newPromise();
-            ctx.writeAndFlush(frame, writePromise);
+            write(frame, writePromise);
+            ctx.flush();
 
             if (!hasResponse) {
                 // Complete the filter promise for an ack-less Produce
@@ -525,12 +591,13 @@ public class FilterHandler extends ChannelDuplexHandler {
                 });
             }
 
-            ctx.executor().schedule(() -> {
+            var timeout = timer.newTimeout(() -> {
                 LOGGER.debug("{}: Timing out {} request after {}ms", ctx, apiKey, timeoutMs);
                 filterPromise
                         .completeExceptionally(
                                 new TimeoutException("Asynchronous %s request made by filter %s was timed-out.".formatted(apiKey, filterDescriptor())));
             }, timeoutMs, TimeUnit.MILLISECONDS);
+            filterPromise.whenComplete((u, t) -> timeout.cancel());
             return filterPromise.minimalCompletionStage();
         }
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal;
+
+import java.util.List;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import io.kroxylicious.proxy.filter.Filter;
+
+/**
+ * A {@code ChannelDuplexHandler} that applies a chain of {@link Filter}s using a single
+ * pipeline entry, rather than one {@link FilterHandler} per filter.
+ * <p>
+ * The handlers for the individual filters are fused so that each passes requests and responses
+ * directly to its neighbour, avoiding a pipeline traversal per filter. Each handler still queues
+ * the frames that arrive while its filter has an incomplete stage, so ordering, timeouts and
+ * requests sent by filters behave just as they do when the handlers are in the pipeline.
+ * </p>
+ */
+public class FusedFilterHandler extends ChannelDuplexHandler {
+
+    private final List<FilterHandler> handlers;
+
+    /**
+     * @param handlers The handlers to fuse, in the order in which requests are passed through them.
+     */
+    public FusedFilterHandler(List<FilterHandler> handlers) {
+        if (handlers.isEmpty()) {
+            throw new IllegalArgumentException("At least one handler is required");
+        }
+        this.handlers = List.copyOf(handlers);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        for (int i = 0; i < handlers.size(); i++) {
+            var previous = i == 0 ? null : handlers.get(i - 1);
+            var next = i == handlers.size() - 1 ? null : handlers.get(i + 1);
+            handlers.get(i).fuse(ctx, previous, next);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        // responses flow from the broker, so start with the last filter
+        handlers.get(handlers.size() - 1).channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        handlers.get(0).write(ctx, msg, promise);
+    }
+
+    @Override
+    public String toString() {
+        return "FusedFilterHandler{" +
+                "handlers=" + handlers.stream().map(FilterHandler::filterDescriptor).toList() +
+                '}';
+    }
+}
@@ -31,6 +31,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.local.LocalChannel;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.haproxy.HAProxyMessage;
 import io.netty.handler.logging.LoggingHandler;
@@ -46,6 +47,8 @@ import io.kroxylicious.proxy.internal.codec.DecodePredicate;
 import io.kroxylicious.proxy.internal.codec.FrameOversizedException;
 import io.kroxylicious.proxy.internal.codec.KafkaRequestEncoder;
 import io.kroxylicious.proxy.internal.codec.KafkaResponseDecoder;
+import io.kroxylicious.proxy.internal.filter.TimeLimitedFilterInvoker;
+import io.kroxylicious.proxy.internal.util.Metrics;
 import io.kroxylicious.proxy.model.VirtualCluster;
 import io.kroxylicious.proxy.service.HostPort;
 import io.kroxylicious.proxy.tag.VisibleForTesting;
@@ -90,8 +93,9 @@ public class KafkaProxyFrontendHandler
     private ChannelHandlerContext inboundCtx;
 
     // Messages buffered while we connect to the outbound cluster
-    // The size should be limited because auto read is disabled until outbound
-    // channel activation
+    // Their size is bounded because auto read is disabled from channelActive() until outbound
+    // channel activation: at most the frames decoded from the reads already requested are buffered,
+    // plus a frame being completed in the decoder, which is bounded by the socket frame max size
     private List<Object> bufferedMsgs = new ArrayList<>();
 
     // Flag if we receive a channelReadComplete() prior to outbound connection activation
@@ -289,13 +293,23 @@ public class KafkaProxyFrontendHandler
         Bootstrap b = new Bootstrap();
         backendHandler = new KafkaProxyBackendHandler(this, inboundCtx);
         b.group(inboundChannel.eventLoop())
-                .channel(inboundChannel.getClass())
                 .handler(backendHandler)
-                .option(ChannelOption.AUTO_READ, true)
-                .option(ChannelOption.TCP_NODELAY, true);
+                .option(ChannelOption.AUTO_READ, true);
 
-        LOGGER.trace("Connecting to outbound {}", remote);
-        ChannelFuture connectFuture = initConnection(remote.host(), remote.port(), b);
+        final boolean multiplexed = virtualCluster.isMultiplexUpstream();
+        ChannelFuture connectFuture;
+        if (multiplexed) {
+            // The outbound pipeline is connected to a shared upstream channel, which looks after TLS and network logging
+            LOGGER.trace("Connecting to multiplexed outbound {}", remote);
+            b.channel(LocalChannel.class);
+            connectFuture = MultiplexedUpstream.connect(b, virtualCluster, remote, inboundChannel.getClass());
+        }
+        else {
+            b.channel(inboundChannel.getClass())
+                    .option(ChannelOption.TCP_NODELAY, true);
+            LOGGER.trace("Connecting to outbound {}", remote);
+            connectFuture = initConnection(remote.host(), remote.port(), b);
+        }
         Channel outboundChannel = connectFuture.channel();
         ChannelPipeline pipeline = outboundChannel.pipeline();
 
@@ -308,13 +322,16 @@ public class KafkaProxyFrontendHandler
             pipeline.addFirst("frameLogger", new LoggingHandler("io.kroxylicious.proxy.internal.UpstreamFrameLogger"));
         }
         addFiltersToPipeline(filters, pipeline, inboundChannel);
-        pipeline.addFirst("responseDecoder", new KafkaResponseDecoder(correlationManager, virtualCluster.socketFrameMaxSizeBytes()));
+        pipeline.addFirst("responseDecoder", new KafkaResponseDecoder(correlationManager, virtualCluster.socketFrameMaxSizeBytes(),
+                Metrics.forVirtualCluster(virtualCluster.getClusterName())));
         pipeline.addFirst("requestEncoder", new KafkaRequestEncoder(correlationManager));
-        if (logNetwork) {
-            pipeline.addFirst("networkLogger", new LoggingHandler("io.kroxylicious.proxy.internal.UpstreamNetworkLogger"));
-        }
+        if (!multiplexed) {
+            if (logNetwork) {
+                pipeline.addFirst("networkLogger", new LoggingHandler("io.kroxylicious.proxy.internal.UpstreamNetworkLogger"));
+            }
 
-        virtualCluster.getUpstreamSslContext().ifPresent(c -> pipeline.addFirst("ssl", c.newHandler(outboundChannel.alloc())));
+            virtualCluster.getUpstreamSslContext().ifPresent(c -> pipeline.addFirst("ssl", c.newHandler(outboundChannel.alloc())));
+        }
 
         connectFuture.addListener(future -> {
             if (future.isSuccess()) {
@@ -343,10 +360,25 @@ public class KafkaProxyFrontendHandler
     }
 
     private void addFiltersToPipeline(List<FilterAndInvoker> filters, ChannelPipeline pipeline, Channel inboundChannel) {
+        if (virtualCluster.isFuseFilters() && !filters.isEmpty()) {
+            var handlers = filters.stream()
+                    .map(filter -> createFilterHandler(filter, inboundChannel))
+                    .toList();
+            pipeline.addFirst("filters", new FusedFilterHandler(handlers));
+            return;
+        }
         for (var filter : filters) {
-            // TODO configurable timeout
-            pipeline.addFirst(filter.toString(), new FilterHandler(filter, 20000, sniHostname, virtualCluster, inboundChannel, apiVersionService));
+            pipeline.addFirst(filter.toString(), createFilterHandler(filter, inboundChannel));
+        }
+    }
+
+    private FilterHandler createFilterHandler(FilterAndInvoker filter, Channel inboundChannel) {
+        if (filter.invoker() instanceof TimeLimitedFilterInvoker timeLimited) {
+            // the filter's own timeout overrides the virtual cluster's
+            return new FilterHandler(new FilterAndInvoker(filter.filter(), timeLimited.invoker()), timeLimited.timeoutMs(), sniHostname, virtualCluster,
+                    inboundChannel, apiVersionService);
         }
+        return new FilterHandler(filter, virtualCluster.filterTimeoutMs(), sniHostname, virtualCluster, inboundChannel, apiVersionService);
     }
 
     public void forwardOutbound(final ChannelHandlerContext ctx, Object msg) {
@@ -0,0 +1,545 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.logging.LoggingHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.Promise;
+
+import io.kroxylicious.proxy.internal.codec.CorrelationManager;
+import io.kroxylicious.proxy.internal.codec.KafkaRequestDecoder;
+import io.kroxylicious.proxy.model.VirtualCluster;
+import io.kroxylicious.proxy.service.HostPort;
+
+/**
+ * <p>An upstream connection to a broker which is shared by the client connections to a virtual cluster
+ * (see {@link VirtualCluster#isMultiplexUpstream()}).</p>
+ *
+ * <p>Each client connection still has its own outbound pipeline, with its own codecs and filters, but that pipeline
+ * belongs to a {@link LocalChannel} connected to this instance rather than to a socket. The encoded requests which
+ * arrive over those local channels are written to the shared upstream channel, with their correlation ids
+ * rewritten by a shared {@link CorrelationManager}, which also records the local channel that the response
+ * must be routed back to.</p>
+ *
+ * <p>A broker handles the requests it reads from a connection one at a time, so a request which the broker may hold
+ * for a long time (see {@link #isLongPoll(short)}) would delay the requests of every other client sharing the
+ * connection. Those requests are instead sent over an upstream connection of the client's own, which is established
+ * when the client first sends one. The client's {@link ResponseOrderer} restores the order of the responses.</p>
+ *
+ * <p>The responses routed to a client are counted until its outbound pipeline has read them. While the count for any
+ * client exceeds its channel's write buffer high water mark, the shared upstream channel stops reading, until the
+ * count falls below the low water mark. A slow client therefore delays the responses to the other clients,
+ * rather than making the proxy buffer its responses without limit.</p>
+ *
+ * <p>There is one instance per event loop, virtual cluster and broker, so all the channels involved are
+ * confined to a single thread. The instance is closed, along with its upstream connection, once the last client
+ * using it has disconnected. Clients which try to authenticate with the broker itself are disconnected, because the
+ * broker would attribute the identity to every client sharing the connection. Multiplexing is therefore only
+ * suitable for unauthenticated traffic, or where SASL is terminated by the proxy.</p>
+ */
+class MultiplexedUpstream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedUpstream.class);
+
+    private static final int LENGTH = 4;
+    private static final int API_KEY = 2;
+    private static final int API_VERSION = 2;
+
+    private static final FastThreadLocal<Map<Key, MultiplexedUpstream>> UPSTREAMS = new FastThreadLocal<>() {
+        @Override
+        protected Map<Key, MultiplexedUpstream> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private record Key(VirtualCluster virtualCluster, HostPort remote) {}
+
+    private final Key key;
+    private final CorrelationManager correlationManager = new CorrelationManager();
+    /** Completed once both the local server channel is bound and the upstream channel is connected. */
+    private final Promise<Void> ready;
+    /** The routes to the clients, keyed by the server-side end of their local channel. */
+    private final Map<Channel, Route> routes = new HashMap<>();
+    /** The routes to the clients, keyed by the address of the client's end of their local channel. */
+    private final Map<SocketAddress, Route> routesByClientAddress = new HashMap<>();
+    /** Routes which were written to during the current upstream read. */
+    private final Set<Route> unflushedRoutes = new HashSet<>();
+    /** Routes which stopped reading because an upstream channel was unwritable. */
+    private final Set<Route> blockedRoutes = new HashSet<>();
+    /** The number of routes with more unread responses than their high water mark. */
+    private int unwritableRoutes = 0;
+    /** The number of clients which are connecting to this instance. */
+    private int pendingAttaches = 0;
+    private boolean closed = false;
+    private Channel serverChannel;
+    private Channel upstreamChannel;
+
+    private MultiplexedUpstream(Key key, EventLoop eventLoop) {
+        this.key = key;
+        this.ready = eventLoop.newPromise();
+    }
+
+    private void start(EventLoop eventLoop, Class<? extends Channel> channelClass) {
+        ServerBootstrap sb = new ServerBootstrap()
+                .group(eventLoop)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInitializer<LocalChannel>() {
+                    @Override
+                    protected void initChannel(LocalChannel ch) {
+                        ch.pipeline().addLast(new RouteHandler());
+                    }
+                });
+        ChannelFuture bindFuture = sb.bind(LocalAddress.ANY);
+        serverChannel = bindFuture.channel();
+        bindFuture.addListener(bound -> {
+            if (bound.isSuccess()) {
+                connectUpstream(eventLoop, channelClass);
+            }
+            else {
+                fail(bound.cause());
+            }
+        });
+    }
+
+    /**
+     * Connects a client's outbound channel to the shared upstream connection to a broker, establishing that
+     * connection if necessary. Must be called on the event loop the bootstrap is configured with.
+     *
+     * @param bootstrap A bootstrap for a {@link LocalChannel}, configured with the client's event loop and handler.
+     * @param virtualCluster The virtual cluster.
+     * @param remote The broker.
+     * @param channelClass The type of channel to use for the upstream connection.
+     * @return The future for the client's outbound channel's connection.
+     */
+    static ChannelFuture connect(Bootstrap bootstrap, VirtualCluster virtualCluster, HostPort remote, Class<? extends Channel> channelClass) {
+        EventLoop eventLoop = (EventLoop) bootstrap.config().group().next();
+        var upstreams = UPSTREAMS.get();
+        var key = new Key(virtualCluster, remote);
+        var upstream = upstreams.get(key);
+        if (upstream == null) {
+            upstream = new MultiplexedUpstream(key, eventLoop);
+            upstreams.put(key, upstream);
+            upstream.start(eventLoop, channelClass);
+        }
+        return upstream.attach(bootstrap);
+    }
+
+    /**
+     * Whether the broker may hold a request with the given API key for a long time before responding,
+     * for example waiting for records to fetch, or for the other members of a group to join.
+     * @param apiKey The API key.
+     * @return true if the request should not be sent over the shared connection.
+     */
+    static boolean isLongPoll(short apiKey) {
+        return apiKey == ApiKeys.FETCH.id
+                || apiKey == ApiKeys.JOIN_GROUP.id
+                || apiKey == ApiKeys.SYNC_GROUP.id;
+    }
+
+    private ChannelFuture attach(Bootstrap bootstrap) {
+        ChannelFuture registered = bootstrap.register();
+        Channel local = registered.channel();
+        ChannelPromise connectPromise = local.newPromise();
+        pendingAttaches++;
+        connectPromise.addListener(connected -> {
+            if (!connected.isSuccess()) {
+                pendingAttaches--;
+                closeIfUnused();
+            }
+        });
+        ready.addListener(upstreamReady -> {
+            if (upstreamReady.isSuccess()) {
+                // the caller adds the rest of the pipeline after this method returns, so never connect synchronously
+                local.eventLoop().execute(() -> {
+                    local.pipeline().addFirst("multiplexedResponseCounter", new ResponseCounter());
+                    local.connect(serverChannel.localAddress(), connectPromise);
+                });
+            }
+            else {
+                local.close();
+                connectPromise.tryFailure(upstreamReady.cause());
+            }
+        });
+        return connectPromise;
+    }
+
+    private void connectUpstream(EventLoop eventLoop, Class<? extends Channel> channelClass) {
+        LOGGER.debug("Connecting shared upstream channel to {}", key.remote());
+        ChannelFuture connectFuture = newUpstreamChannel(eventLoop, channelClass, new UpstreamHandler(null));
+        upstreamChannel = connectFuture.channel();
+        connectFuture.addListener(connected -> {
+            if (connected.isSuccess()) {
+                ready.trySuccess(null);
+            }
+            else {
+                fail(connected.cause());
+            }
+        });
+    }
+
+    private ChannelFuture newUpstreamChannel(EventLoop eventLoop, Class<? extends Channel> channelClass, UpstreamHandler handler) {
+        VirtualCluster virtualCluster = key.virtualCluster();
+        Bootstrap b = new Bootstrap()
+                .group(eventLoop)
+                .channel(channelClass)
+                .handler(handler)
+                .option(ChannelOption.AUTO_READ, true)
+                .option(ChannelOption.TCP_NODELAY, true);
+        ChannelFuture connectFuture = b.connect(key.remote().host(), key.remote().port());
+        Channel channel = connectFuture.channel();
+        ChannelPipeline pipeline = channel.pipeline();
+        pipeline.addFirst("frameDecoder", new LengthFieldBasedFrameDecoder(virtualCluster.socketFrameMaxSizeBytes() + LENGTH, 0, LENGTH));
+        if (virtualCluster.isLogNetwork()) {
+            pipeline.addFirst("networkLogger", new LoggingHandler("io.kroxylicious.proxy.internal.UpstreamNetworkLogger"));
+        }
+        virtualCluster.getUpstreamSslContext().ifPresent(c -> pipeline.addFirst("ssl", c.newHandler(channel.alloc())));
+        return connectFuture;
+    }
+
+    private void fail(Throwable cause) {
+        ready.tryFailure(cause);
+        close();
+    }
+
+    private void closeIfUnused() {
+        if (routes.isEmpty() && pendingAttaches == 0) {
+            LOGGER.debug("Last client of the shared upstream channel to {} disconnected, closing it", key.remote());
+            close();
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        UPSTREAMS.get().remove(key, this);
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (upstreamChannel != null) {
+            KafkaProxyFrontendHandler.closeOnFlush(upstreamChannel);
+        }
+        for (Channel route : Set.copyOf(routes.keySet())) {
+            KafkaProxyFrontendHandler.closeOnFlush(route);
+        }
+    }
+
+    private boolean canWriteUpstream(Route route) {
+        return upstreamChannel.isWritable()
+                && (route.longPollChannel == null || route.longPollChannel.isWritable());
+    }
+
+    private void unblockRoutes() {
+        for (var iterator = blockedRoutes.iterator(); iterator.hasNext();) {
+            Route route = iterator.next();
+            if (canWriteUpstream(route)) {
+                iterator.remove();
+                route.channel.config().setAutoRead(true);
+            }
+        }
+    }
+
+    /**
+     * The route to a single client: the server-side end of the client's local channel, the responses the client
+     * has yet to read, and the client's own upstream channel for long-poll requests.
+     */
+    private class Route {
+        private final Channel channel;
+        private final SocketAddress clientAddress;
+        private long unreadResponseBytes = 0;
+        private boolean unwritable = false;
+        private Channel longPollChannel;
+        /** Long-poll requests written before the client's own upstream channel was connected. */
+        private Queue<ByteBuf> pendingLongPollRequests;
+
+        Route(Channel channel) {
+            this.channel = channel;
+            this.clientAddress = channel.remoteAddress();
+        }
+
+        void writeResponse(ByteBuf frame) {
+            unreadResponseBytes += frame.readableBytes();
+            channel.write(frame, channel.voidPromise());
+            unflushedRoutes.add(this);
+            if (!unwritable && unreadResponseBytes > channel.config().getWriteBufferHighWaterMark()) {
+                unwritable = true;
+                if (unwritableRoutes++ == 0) {
+                    LOGGER.trace("{}: Client is slow to read responses, pausing reads from the shared upstream channel", channel);
+                    upstreamChannel.config().setAutoRead(false);
+                }
+                if (longPollChannel != null) {
+                    longPollChannel.config().setAutoRead(false);
+                }
+            }
+        }
+
+        void responseRead(int bytes) {
+            unreadResponseBytes -= bytes;
+            if (unwritable && unreadResponseBytes < channel.config().getWriteBufferLowWaterMark()) {
+                becameWritable();
+            }
+        }
+
+        private void becameWritable() {
+            unwritable = false;
+            if (--unwritableRoutes == 0 && !closed) {
+                upstreamChannel.config().setAutoRead(true);
+            }
+            if (longPollChannel != null) {
+                longPollChannel.config().setAutoRead(true);
+            }
+        }
+
+        void writeLongPollRequest(ByteBuf frame, Class<? extends Channel> channelClass) {
+            if (longPollChannel == null) {
+                LOGGER.debug("{}: Connecting upstream channel for long-poll requests to {}", channel, key.remote());
+                pendingLongPollRequests = new ArrayDeque<>();
+                ChannelFuture connectFuture = newUpstreamChannel(channel.eventLoop(), channelClass, new UpstreamHandler(this));
+                longPollChannel = connectFuture.channel();
+                longPollChannel.config().setAutoRead(!unwritable);
+                connectFuture.addListener(connected -> {
+                    Queue<ByteBuf> pending = pendingLongPollRequests;
+                    pendingLongPollRequests = null;
+                    if (connected.isSuccess()) {
+                        pending.forEach(request -> longPollChannel.write(request, longPollChannel.voidPromise()));
+                        longPollChannel.flush();
+                    }
+                    else {
+                        pending.forEach(ByteBuf::release);
+                        LOGGER.warn("{}: Closing client connection because its upstream channel for long-poll requests could not connect: {}",
+                                channel, connected.cause().getMessage());
+                        KafkaProxyFrontendHandler.closeOnFlush(channel);
+                    }
+                });
+            }
+            if (pendingLongPollRequests != null) {
+                pendingLongPollRequests.add(frame);
+            }
+            else {
+                longPollChannel.write(frame, longPollChannel.voidPromise());
+            }
+        }
+
+        void flushRequests() {
+            upstreamChannel.flush();
+            if (longPollChannel != null && pendingLongPollRequests == null) {
+                longPollChannel.flush();
+            }
+        }
+
+        void close() {
+            if (unwritable) {
+                becameWritable();
+            }
+            if (longPollChannel != null) {
+                longPollChannel.close();
+            }
+            if (pendingLongPollRequests != null) {
+                pendingLongPollRequests.forEach(ByteBuf::release);
+                pendingLongPollRequests.clear();
+            }
+        }
+    }
+
+    /**
+     * Handles the server-side end of a client's local channel: forwards requests upstream.
+     */
+    private class RouteHandler extends ChannelInboundHandlerAdapter {
+
+        private Route route;
+        private Class<? extends Channel> upstreamChannelClass;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            route = new Route(ctx.channel());
+            routes.put(ctx.channel(), route);
+            routesByClientAddress.put(route.clientAddress, route);
+            upstreamChannelClass = upstreamChannel.getClass();
+            pendingAttaches--;
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf frame = (ByteBuf) msg;
+            int ri = frame.readerIndex();
+            short apiKey = frame.getShort(ri + LENGTH);
+            if (apiKey == ApiKeys.SASL_HANDSHAKE.id || apiKey == ApiKeys.SASL_AUTHENTICATE.id) {
+                frame.release();
+                LOGGER.warn("{}: Closing client connection because it attempted to authenticate with a broker over a multiplexed upstream connection",
+                        ctx.channel());
+                ctx.close();
+                return;
+            }
+            short apiVersion = frame.getShort(ri + LENGTH + API_KEY);
+            int correlationIdIndex = ri + LENGTH + API_KEY + API_VERSION;
+            int downstreamCorrelationId = frame.getInt(correlationIdIndex);
+            boolean hasResponse = apiKey != ApiKeys.PRODUCE.id
+                    || KafkaRequestDecoder.readAcks(frame.duplicate(), correlationIdIndex, apiKey, apiVersion) != 0;
+            int upstreamCorrelationId = correlationManager.putBrokerRequest(apiKey, apiVersion, downstreamCorrelationId, hasResponse,
+                    null, null, false, ctx.channel());
+            frame.setInt(correlationIdIndex, upstreamCorrelationId);
+            if (isLongPoll(apiKey)) {
+                route.writeLongPollRequest(frame, upstreamChannelClass);
+            }
+            else {
+                upstreamChannel.write(frame, upstreamChannel.voidPromise());
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            route.flushRequests();
+            if (!canWriteUpstream(route)) {
+                ctx.channel().config().setAutoRead(false);
+                blockedRoutes.add(route);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (route != null) {
+                routes.remove(ctx.channel());
+                routesByClientAddress.remove(route.clientAddress);
+                blockedRoutes.remove(route);
+                unflushedRoutes.remove(route);
+                route.close();
+            }
+            closeIfUnused();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOGGER.warn("Netty caught exception from a multiplexed client: {}", cause.getMessage(), cause);
+            KafkaProxyFrontendHandler.closeOnFlush(ctx.channel());
+        }
+    }
+
+    /**
+     * Handles the client's end of its local channel: counts the responses the client's outbound pipeline reads,
+     * so that the shared upstream channel can stop reading while the client is slow to read them.
+     */
+    private class ResponseCounter extends ChannelInboundHandlerAdapter {
+
+        /** Looked up on the first response, because the route is only known once the local channel is connected. */
+        private Route route;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof ByteBuf frame) {
+                if (route == null) {
+                    route = routesByClientAddress.get(ctx.channel().localAddress());
+                }
+                if (route != null) {
+                    route.responseRead(frame.readableBytes());
+                }
+            }
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    /**
+     * Handles an upstream channel: routes responses back to the clients.
+     */
+    private class UpstreamHandler extends ChannelInboundHandlerAdapter {
+
+        /** The route whose long-poll requests the channel carries, or null for the shared upstream channel. */
+        private final Route owner;
+
+        UpstreamHandler(Route owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf frame = (ByteBuf) msg;
+            int correlationIdIndex = frame.readerIndex() + LENGTH;
+            int upstreamCorrelationId = frame.getInt(correlationIdIndex);
+            CorrelationManager.Correlation correlation = correlationManager.getBrokerCorrelation(upstreamCorrelationId);
+            if (correlation == null) {
+                ReferenceCountUtil.release(frame);
+                throw new IllegalStateException("Missing correlation id " + upstreamCorrelationId);
+            }
+            Route route = routes.get(correlation.route());
+            if (route != null && route.channel.isActive()) {
+                frame.setInt(correlationIdIndex, correlation.downstreamCorrelationId());
+                route.writeResponse(frame);
+            }
+            else {
+                // the client went away while its request was in flight
+                frame.release();
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            for (Route route : unflushedRoutes) {
+                route.channel.flush();
+            }
+            unflushedRoutes.clear();
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            if (ctx.channel().isWritable()) {
+                unblockRoutes();
+            }
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (owner == null) {
+                LOGGER.debug("Shared upstream channel to {} closed, closing {} client connections", key.remote(), routes.size());
+                close();
+            }
+            else {
+                KafkaProxyFrontendHandler.closeOnFlush(owner.channel);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOGGER.warn("Netty caught exception from a multiplexed upstream: {}", cause.getMessage(), cause);
+            if (owner == null) {
+                close();
+            }
+            else {
+                KafkaProxyFrontendHandler.closeOnFlush(owner.channel);
+            }
+        }
+    }
+}
@@ -6,11 +6,6 @@
 
 package io.kroxylicious.proxy.internal;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,21 +32,28 @@ import io.kroxylicious.proxy.frame.RequestFrame;
  */
 public class ResponseOrderer extends ChannelDuplexHandler {
 
-    Deque<Integer> inflightCorrelationIds = new ArrayDeque<>();
-    Map<Integer, QueuedResponse> queuedResponses = new HashMap<>();
     private static final Logger logger = LoggerFactory.getLogger(ResponseOrderer.class);
+    private static final int INITIAL_CAPACITY = 16;
 
-    record QueuedResponse(Object msg, ChannelPromise promise) {}
+    // A ring buffer of the in-flight correlation ids, oldest first. The response queued for the
+    // in-flight request at a given position in the ring is held at the same position in queuedMsgs
+    // and queuedPromises, so that tracking in-order responses, the usual case, allocates nothing.
+    private int[] inflightCorrelationIds = new int[INITIAL_CAPACITY];
+    private Object[] queuedMsgs = new Object[INITIAL_CAPACITY];
+    private ChannelPromise[] queuedPromises = new ChannelPromise[INITIAL_CAPACITY];
+    private int head = 0;
+    private int inflightCount = 0;
+    private int queuedCount = 0;
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof RequestFrame requestFrame) {
             if (requestFrame.hasResponse()) {
-                inflightCorrelationIds.addLast(requestFrame.correlationId());
+                addInflight(requestFrame.correlationId());
             }
         }
         else if (msg instanceof Frame frame) {
-            inflightCorrelationIds.addLast(frame.correlationId());
+            addInflight(frame.correlationId());
         }
         super.channelRead(ctx, msg);
     }
@@ -59,18 +61,30 @@ public class ResponseOrderer extends ChannelDuplexHandler {
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof Frame responseFrame) {
-            Integer oldestCorrelationId = inflightCorrelationIds.peekFirst();
-            if (oldestCorrelationId == null) {
+            int correlationId = responseFrame.correlationId();
+            if (inflightCount == 0) {
                 logger.warn("Handling a Frame {}, but we have no inflight correlation ids, continuing to write", msg);
                 super.write(ctx, msg, promise);
             }
-            else if (oldestCorrelationId == responseFrame.correlationId()) {
-                inflightCorrelationIds.removeFirst();
+            else if (inflightCorrelationIds[head] == correlationId) {
+                // fast path: the response to the oldest in-flight request
+                removeOldest();
                 super.write(ctx, msg, promise);
-                drainQueue(ctx);
+                if (queuedCount > 0) {
+                    drainQueue(ctx);
+                }
             }
             else {
-                queuedResponses.put(responseFrame.correlationId(), new QueuedResponse(msg, promise));
+                int index = indexOfUnanswered(correlationId);
+                if (index < 0) {
+                    logger.warn("Handling a Frame {}, but its correlation id is not in flight, continuing to write", msg);
+                    super.write(ctx, msg, promise);
+                }
+                else {
+                    queuedMsgs[index] = msg;
+                    queuedPromises[index] = promise;
+                    queuedCount++;
+                }
             }
         }
         else {
@@ -79,19 +93,67 @@ public class ResponseOrderer extends ChannelDuplexHandler {
     }
 
     private void drainQueue(ChannelHandlerContext ctx) throws Exception {
-        Integer oldestCorrelationId;
-        while ((oldestCorrelationId = inflightCorrelationIds.peekFirst()) != null && queuedResponses.containsKey(oldestCorrelationId)) {
-            Integer integer = inflightCorrelationIds.removeFirst();
-            QueuedResponse thing = queuedResponses.remove(integer);
-            super.write(ctx, thing.msg, thing.promise);
+        while (inflightCount > 0 && queuedMsgs[head] != null) {
+            Object msg = queuedMsgs[head];
+            ChannelPromise promise = queuedPromises[head];
+            queuedCount--;
+            removeOldest();
+            super.write(ctx, msg, promise);
+        }
+    }
+
+    private void addInflight(int correlationId) {
+        if (inflightCount == inflightCorrelationIds.length) {
+            grow();
+        }
+        inflightCorrelationIds[(head + inflightCount) & (inflightCorrelationIds.length - 1)] = correlationId;
+        inflightCount++;
+    }
+
+    private void removeOldest() {
+        queuedMsgs[head] = null;
+        queuedPromises[head] = null;
+        head = (head + 1) & (inflightCorrelationIds.length - 1);
+        inflightCount--;
+    }
+
+    /**
+     * @return the position in the ring of the oldest in-flight request with the given correlation id
+     * that does not yet have a queued response, or -1 if there is none.
+     */
+    private int indexOfUnanswered(int correlationId) {
+        int mask = inflightCorrelationIds.length - 1;
+        for (int i = 0; i < inflightCount; i++) {
+            int index = (head + i) & mask;
+            if (inflightCorrelationIds[index] == correlationId && queuedMsgs[index] == null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int capacity = inflightCorrelationIds.length;
+        int[] ids = new int[capacity * 2];
+        Object[] msgs = new Object[capacity * 2];
+        ChannelPromise[] promises = new ChannelPromise[capacity * 2];
+        for (int i = 0; i < inflightCount; i++) {
+            int index = (head + i) & (capacity - 1);
+            ids[i] = inflightCorrelationIds[index];
+            msgs[i] = queuedMsgs[index];
+            promises[i] = queuedPromises[index];
         }
+        inflightCorrelationIds = ids;
+        queuedMsgs = msgs;
+        queuedPromises = promises;
+        head = 0;
     }
 
     int inFlightRequestCount() {
-        return inflightCorrelationIds.size();
+        return inflightCount;
     }
 
     int queuedResponseCount() {
-        return queuedResponses.size();
+        return queuedCount;
     }
 }
@@ -215,9 +215,7 @@ public class ByteBufAccessorImpl implements ByteBufAccessor, Readable {
 
     @Override
     public void writeByteBuffer(ByteBuffer byteBuffer) {
-        while (byteBuffer.hasRemaining()) {
-            buf.writeByte(byteBuffer.get());
-        }
+        buf.writeBytes(byteBuffer);
     }
 
     @Override
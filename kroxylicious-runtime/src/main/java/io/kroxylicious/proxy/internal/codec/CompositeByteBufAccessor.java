@@ -0,0 +1,176 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.codec;
+
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+import io.kroxylicious.proxy.frame.ByteBufAccessor;
+
+/**
+ * <p>A {@link ByteBufAccessor} which writes into a {@link CompositeByteBuf}, in the manner of
+ * Kafka's {@code org.apache.kafka.common.protocol.SendBuilder}.</p>
+ *
+ * <p>Small writes (header fields, lengths, strings etc.) are copied into a pooled buffer.
+ * Bulk writes of at least {@link #MIN_ZERO_COPY_BYTES} (typically record batches) are added to the composite
+ * as components which reference the source memory, rather than being copied.</p>
+ *
+ * <p>Because components may reference memory owned by the frame being encoded, the frame must
+ * outlive the composite buffer.</p>
+ */
+public class CompositeByteBufAccessor implements ByteBufAccessor {
+
+    /**
+     * Writes smaller than this are copied, because the bookkeeping for an extra component outweighs
+     * the cost of the copy.
+     */
+    public static final int MIN_ZERO_COPY_BYTES = 1024;
+
+    private final CompositeByteBuf composite;
+    private final ByteBufAllocator alloc;
+    /** The number of bytes we still expect to copy, used to size the buffer that copied bytes are written to. */
+    private int expectedCopyBytes;
+    /** The buffer small writes are being copied into, or null if one has yet to be allocated. */
+    private ByteBuf current;
+
+    /**
+     * @param composite The buffer to write into.
+     * @param expectedCopyBytes The expected number of bytes that will be copied (rather than referenced).
+     */
+    public CompositeByteBufAccessor(CompositeByteBuf composite, int expectedCopyBytes) {
+        this.composite = composite;
+        this.alloc = composite.alloc();
+        this.expectedCopyBytes = Math.max(expectedCopyBytes, 0);
+    }
+
+    private ByteBuf current() {
+        if (current == null) {
+            current = alloc.ioBuffer(Math.max(expectedCopyBytes, Long.BYTES));
+        }
+        return current;
+    }
+
+    /**
+     * Adds any bytes copied so far to the composite as a component.
+     */
+    private void flushCurrent() {
+        if (current != null) {
+            int copied = current.readableBytes();
+            if (copied > 0) {
+                composite.addComponent(true, current);
+                expectedCopyBytes -= copied;
+            }
+            else {
+                current.release();
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * Completes writing, adding any pending copied bytes to the composite.
+     * This must be called once the frame has been encoded and before the composite is read.
+     * @return The composite.
+     */
+    public CompositeByteBuf finish() {
+        flushCurrent();
+        return composite;
+    }
+
+    @Override
+    public void writeByte(byte val) {
+        current().writeByte(val);
+    }
+
+    @Override
+    public void writeShort(short val) {
+        current().writeShort(val);
+    }
+
+    @Override
+    public void writeInt(int val) {
+        current().writeInt(val);
+    }
+
+    @Override
+    public void writeLong(long val) {
+        current().writeLong(val);
+    }
+
+    @Override
+    public void writeDouble(double val) {
+        current().writeDouble(val);
+    }
+
+    @Override
+    public void writeByteArray(byte[] arr) {
+        if (arr.length >= MIN_ZERO_COPY_BYTES) {
+            flushCurrent();
+            composite.addComponent(true, Unpooled.wrappedBuffer(arr));
+        }
+        else {
+            current().writeBytes(arr);
+        }
+    }
+
+    @Override
+    public void writeUnsignedVarint(int i) {
+        ByteBufAccessorImpl.writeUnsignedVarint(i, current());
+    }
+
+    @Override
+    public void writeByteBuffer(ByteBuffer byteBuffer) {
+        if (byteBuffer.remaining() >= MIN_ZERO_COPY_BYTES) {
+            flushCurrent();
+            // wrapping is a view on the remaining bytes, it does not take ownership of the ByteBuffer's memory
+            composite.addComponent(true, Unpooled.wrappedBuffer(byteBuffer));
+            byteBuffer.position(byteBuffer.limit());
+        }
+        else {
+            current().writeBytes(byteBuffer);
+        }
+    }
+
+    @Override
+    public void writeVarint(int i) {
+        ByteBufAccessorImpl.writeVarint(i, current());
+    }
+
+    @Override
+    public void writeVarlong(long i) {
+        ByteBufAccessorImpl.writeVarlong(i, current());
+    }
+
+    /**
+     * Buffers are allocated as the frame is written, so there is nothing to do here.
+     * @param encodedSize The expected encoded size.
+     */
+    @Override
+    public void ensureWritable(int encodedSize) {
+        // buffers are allocated on demand, sized according to expectedCopyBytes
+    }
+
+    @Override
+    public int writerIndex() {
+        return composite.writerIndex() + (current == null ? 0 : current.writerIndex());
+    }
+
+    @Override
+    public void writeBytes(ByteBuf buf, int length) {
+        if (length >= MIN_ZERO_COPY_BYTES) {
+            flushCurrent();
+            composite.addComponent(true, buf.retainedSlice(buf.readerIndex(), length));
+            buf.skipBytes(length);
+        }
+        else {
+            current().writeBytes(buf, length);
+        }
+    }
+}
@@ -5,8 +5,7 @@
  */
 package io.kroxylicious.proxy.internal.codec;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayDeque;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
@@ -14,20 +13,42 @@ import org.apache.kafka.common.protocol.ApiKeys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.channel.Channel;
+import io.netty.util.collection.IntObjectHashMap;
+
 import io.kroxylicious.proxy.filter.Filter;
 import io.kroxylicious.proxy.tag.VisibleForTesting;
 
 /**
- * Manages correlation ids for a single connection (across the proxy) between a single client
- * and a single broker.
+ * <p>Manages correlation ids for a single connection (across the proxy) between a single client
+ * and a single broker, or for an upstream connection shared by several clients, in which case each
+ * correlation also records the {@linkplain Correlation#route() route} back to the client.</p>
+ *
+ * <p>In-flight correlations are held in a primitive int-keyed open-addressing map, and the
+ * {@link Correlation} instances themselves are pooled and reused, so that in the steady state
+ * neither {@link #putBrokerRequest(short, short, int, boolean, Filter, CompletableFuture, boolean)}
+ * nor {@link #getBrokerCorrelation(int)} allocate.</p>
+ *
+ * <p>Instances are not thread-safe: they're expected to be confined to the channel's event loop.</p>
  */
 public class CorrelationManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CorrelationManager.class);
 
-    // TODO use a specialized map
+    /**
+     * Expected upper bound of in-flight requests on a typical connection. The map and the pool grow beyond this
+     * if necessary, but never shrink.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
     @VisibleForTesting
-    final Map<Integer, Correlation> brokerRequests = new HashMap<>();
+    final IntObjectHashMap<Correlation> brokerRequests = new IntObjectHashMap<>(INITIAL_CAPACITY);
+
+    /** Recycled correlations available for reuse. */
+    private final ArrayDeque<Correlation> pool = new ArrayDeque<>(INITIAL_CAPACITY);
+
+    /** The correlation most recently returned by {@link #getBrokerCorrelation(int)}, recycled on the next call. */
+    private Correlation lastReturned;
 
     /** The correlation id with the upstream broker */
     private int upstreamId;
@@ -57,12 +78,40 @@ public class CorrelationManager {
                                 Filter recipient,
                                 CompletableFuture<?> promise,
                                 boolean decodeResponse) {
+        return putBrokerRequest(apiKey, apiVersion, downstreamCorrelationId, hasResponse, recipient, promise, decodeResponse, null);
+    }
+
+    /**
+     * Allocate and return a correlation id for an outgoing request to the broker, recording the
+     * channel the response should be routed to. This is used when the connection to the broker is shared
+     * by several downstream connections.
+     *
+     * @param apiKey                  The API key.
+     * @param apiVersion              The API version.
+     * @param downstreamCorrelationId The downstream client's correlation id.
+     * @param hasResponse             Whether a response is expected.
+     * @param promise
+     * @param decodeResponse          Whether the response should be decoded.
+     * @param route                   The channel the response should be routed to, or null.
+     */
+    public int putBrokerRequest(short apiKey,
+                                short apiVersion,
+                                int downstreamCorrelationId,
+                                boolean hasResponse,
+                                Filter recipient,
+                                CompletableFuture<?> promise,
+                                boolean decodeResponse,
+                                Channel route) {
         // need to allocate an id and put in a map for quick lookup, along with the "tag"
         int upstreamCorrelationId = upstreamId++;
         LOGGER.trace("Allocated upstream id {} for downstream id {}", upstreamCorrelationId, downstreamCorrelationId);
         if (hasResponse) {
-            Correlation existing = this.brokerRequests.put(upstreamCorrelationId,
-                    new Correlation(apiKey, apiVersion, downstreamCorrelationId, decodeResponse, recipient, promise));
+            Correlation correlation = pool.pollFirst();
+            if (correlation == null) {
+                correlation = new Correlation();
+            }
+            correlation.set(apiKey, apiVersion, downstreamCorrelationId, decodeResponse, recipient, promise, route);
+            Correlation existing = this.brokerRequests.put(upstreamCorrelationId, correlation);
             if (existing != null) {
                 LOGGER.error("Duplicate upstream correlation id {}", upstreamCorrelationId);
             }
@@ -71,40 +120,64 @@ public class CorrelationManager {
     }
 
     /**
-     * Find (and remove) the Correlation for an incoming response from the broker
+     * <p>Find (and remove) the Correlation for an incoming response from the broker.</p>
+     *
+     * <p>The returned instance is pooled: it remains valid only until the next call to this method,
+     * so callers must not retain it.</p>
+     *
      * @param upstreamCorrelationId The (upstream) correlation id in the response.
+     * @return the correlation, or null if there is no such in-flight request.
      */
     public Correlation getBrokerCorrelation(int upstreamCorrelationId) {
-        // Set the tag on the response object
-        return brokerRequests.remove(upstreamCorrelationId);
+        if (lastReturned != null) {
+            lastReturned.clear();
+            pool.addFirst(lastReturned);
+        }
+        lastReturned = brokerRequests.remove(upstreamCorrelationId);
+        return lastReturned;
     }
 
     /**
      * A record for which responses should be decoded, together with their
      * API key and version.
+     * Instances are mutable slots which are recycled by the owning {@link CorrelationManager}.
      */
-    // TODO a perfect value type
     public static class Correlation {
-        private final short apiKey;
-        private final short apiVersion;
-
-        private final int downstreamCorrelationId;
-        private final boolean decodeResponse;
-        private final Filter recipient;
-        private final CompletableFuture<?> promise;
-
-        private Correlation(short apiKey,
-                            short apiVersion,
-                            int downstreamCorrelationId,
-                            boolean decodeResponse,
-                            Filter recipient,
-                            CompletableFuture<?> promise) {
+        private short apiKey;
+        private short apiVersion;
+
+        private int downstreamCorrelationId;
+        private boolean decodeResponse;
+        private Filter recipient;
+        private CompletableFuture<?> promise;
+        private Channel route;
+
+        private Correlation() {
+        }
+
+        private void set(short apiKey,
+                         short apiVersion,
+                         int downstreamCorrelationId,
+                         boolean decodeResponse,
+                         Filter recipient,
+                         CompletableFuture<?> promise,
+                         Channel route) {
             this.apiKey = apiKey;
             this.apiVersion = apiVersion;
             this.downstreamCorrelationId = downstreamCorrelationId;
             this.decodeResponse = decodeResponse;
             this.recipient = recipient;
             this.promise = promise;
+            this.route = route;
+        }
+
+        /**
+         * Drops the references held by this slot so a pooled instance doesn't keep filters, promises or channels reachable.
+         */
+        private void clear() {
+            this.recipient = null;
+            this.promise = null;
+            this.route = null;
         }
 
         public int downstreamCorrelationId() {
@@ -160,5 +233,9 @@ public class CorrelationManager {
         public CompletableFuture<?> promise() {
             return promise;
         }
+
+        public Channel route() {
+            return route;
+        }
     }
 }
@@ -66,4 +66,16 @@ public abstract class KafkaMessageDecoder extends ByteToMessageDecoder {
 
     protected abstract Frame decodeHeaderAndBody(ChannelHandlerContext ctx, ByteBuf in, int length);
 
+    /**
+     * Copies the rest of the frame (i.e. the message body, once the header has been read) onto the heap,
+     * so that it can be decoded lazily independently of the lifetime of the frame's buffer.
+     * @param in The frame's buffer, positioned at the start of the body.
+     * @return The encoded body.
+     */
+    protected static byte[] readBody(ByteBuf in) {
+        byte[] body = new byte[in.readableBytes()];
+        in.readBytes(body);
+        return body;
+    }
+
 }
@@ -8,23 +8,24 @@ package io.kroxylicious.proxy.internal.codec;
 import org.slf4j.Logger;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.ReferenceCountUtil;
 
 import io.kroxylicious.proxy.frame.Frame;
 
 /**
  * Abstraction for request and response encoders.
+ * <p>Frames carrying at least {@link CompositeByteBufAccessor#MIN_ZERO_COPY_BYTES} of bulk data
+ * (see {@link Frame#estimateZeroCopySize()}) are encoded into a {@link CompositeByteBuf} which references
+ * that data, similar to how {@code org.apache.kafka.common.protocol.SendBuilder.buildSend} avoids copying records.
+ * Other frames are encoded into a single buffer sized using {@link Frame#estimateEncodedSize()}.</p>
  */
 public abstract class KafkaMessageEncoder<F extends Frame> extends MessageToByteEncoder<F> {
 
-    /*
-     * TODO In org.apache.kafka.common.protocol.SendBuilder.buildSend Kafka gets to optimize how it writes to the
-     * output buffer because it can sometimes use zero copy and so avoid needing to allocate a buffer for the whole message
-     * To do similar we'd need to override io.netty.handler.codec.MessageToByteEncoder.write()
-     * so we had control over buffer allocation
-     */
-
     protected abstract Logger log();
 
     /**
@@ -40,9 +41,55 @@ public abstract class KafkaMessageEncoder<F extends Frame> extends MessageToByte
         return ctx.alloc().heapBuffer(bytes);
     }
 
+    /**
+     * Overridden so we have control over buffer allocation, and over when the frame is released.
+     * The composite buffer may reference memory owned by the frame, so the frame is released
+     * only once the write has completed.
+     */
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!acceptOutboundMessage(msg)) {
+            super.write(ctx, msg, promise);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        F frame = (F) msg;
+        int zeroCopyBytes = frame.estimateZeroCopySize();
+        if (zeroCopyBytes < CompositeByteBufAccessor.MIN_ZERO_COPY_BYTES) {
+            super.write(ctx, msg, promise);
+            return;
+        }
+        CompositeByteBuf out = ctx.alloc().compositeDirectBuffer(Integer.MAX_VALUE);
+        var accessor = new CompositeByteBufAccessor(out, frame.estimateEncodedSize() - zeroCopyBytes);
+        try {
+            log().trace("{}: Encoding {} to composite buffer {}", ctx, frame, out);
+            frame.encode(accessor);
+            afterEncode(ctx, frame, accessor.finish());
+        }
+        catch (Throwable e) {
+            accessor.finish().release();
+            ReferenceCountUtil.release(frame);
+            throw e instanceof EncoderException ee ? ee : new EncoderException(e);
+        }
+        ctx.write(out, promise.unvoid()).addListener(future -> ReferenceCountUtil.release(frame));
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, F frame, ByteBuf out) throws Exception {
         log().trace("{}: Encoding {} to buffer {}", ctx, frame, out);
         frame.encode(new ByteBufAccessorImpl(out));
+        afterEncode(ctx, frame, out);
+    }
+
+    /**
+     * Hook for subclasses to inspect or patch the encoded frame.
+     * @param ctx The context.
+     * @param frame The frame which was encoded.
+     * @param out The buffer containing the encoded frame. The frame's first 12 bytes are always held in
+     * a single writable component, so they may be rewritten in place.
+     * @throws Exception If something went wrong.
+     */
+    protected void afterEncode(ChannelHandlerContext ctx, F frame, ByteBuf out) throws Exception {
+        // nothing by default
     }
 }
@@ -26,10 +26,12 @@ public class KafkaRequestDecoder extends KafkaMessageDecoder {
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaRequestDecoder.class);
 
     private final DecodePredicate decodePredicate;
+    private final Metrics.ConnectionMeters meters;
 
-    public KafkaRequestDecoder(DecodePredicate decodePredicate, int socketFrameMaxSize) {
+    public KafkaRequestDecoder(DecodePredicate decodePredicate, int socketFrameMaxSize, Metrics.ConnectionMeters meters) {
         super(socketFrameMaxSize);
         this.decodePredicate = decodePredicate;
+        this.meters = meters;
     }
 
     @Override
@@ -57,23 +59,20 @@ public class KafkaRequestDecoder extends KafkaMessageDecoder {
 
         RequestHeaderData header = null;
         final ByteBufAccessorImpl accessor;
-        Metrics.inboundDownstreamMessagesCounter().increment();
+        meters.inboundDownstreamMessagesCounter().increment();
         var decodeRequest = decodePredicate.shouldDecodeRequest(apiKey, apiVersion);
         LOGGER.debug("Decode {}/v{} request? {}, Predicate {} ", apiKey, apiVersion, decodeRequest, decodePredicate);
         boolean decodeResponse = decodePredicate.shouldDecodeResponse(apiKey, apiVersion);
         LOGGER.debug("Decode {}/v{} response? {}, Predicate {}", apiKey, apiVersion, decodeResponse, decodePredicate);
         short headerVersion = apiKey.requestHeaderVersion(apiVersion);
         if (decodeRequest) {
-            Metrics.inboundDownstreamDecodedMessagesCounter().increment();
-            Metrics.payloadSizeBytesUpstreamSummary(apiKey, apiVersion).record(length);
+            meters.inboundDownstreamDecodedMessagesCounter().increment();
+            meters.payloadSizeBytesUpstreamSummary(apiKey, apiVersion).record(length);
             if (log().isTraceEnabled()) { // avoid boxing
                 log().trace("{}: headerVersion {}", ctx, headerVersion);
             }
             in.readerIndex(sof);
 
-            // TODO Decide whether to decode this API at all
-            // TODO Can we implement ApiMessage using an opaque wrapper around a bytebuf?
-
             accessor = new ByteBufAccessorImpl(in);
             header = readHeader(headerVersion, accessor);
             if (log().isTraceEnabled()) {
@@ -85,12 +84,21 @@ public class KafkaRequestDecoder extends KafkaMessageDecoder {
         }
         final RequestFrame frame;
         if (decodeRequest) {
-            ApiMessage body = BodyDecoder.decodeRequest(apiKey, apiVersion, accessor);
+            // read acks from the buffer, so that a lazily decoded body is not decoded just to find it out
+            boolean hasResponse = true;
+            if (apiKey == ApiKeys.PRODUCE) {
+                int startOfBody = in.readerIndex();
+                hasResponse = readAcks(in, startOfMessage, apiKey.id, apiVersion) != 0;
+                in.readerIndex(startOfBody);
+            }
+            ApiMessage body = LazyBodyDecoder.supportsRequest(apiKey)
+                    ? LazyBodyDecoder.decodeRequest(apiKey, apiVersion, readBody(in))
+                    : BodyDecoder.decodeRequest(apiKey, apiVersion, accessor);
             if (log().isTraceEnabled()) {
                 log().trace("{}: body {}", ctx, body);
             }
 
-            frame = new DecodedRequestFrame<>(apiVersion, correlationId, decodeResponse, header, body);
+            frame = new DecodedRequestFrame<>(apiVersion, correlationId, decodeResponse, hasResponse, header, body);
             if (log().isTraceEnabled()) {
                 log().trace("{}: frame {}", ctx, frame);
             }
@@ -113,7 +121,7 @@ public class KafkaRequestDecoder extends KafkaMessageDecoder {
         byteBuf.readerIndex(byteBuf.readerIndex() + increment);
     }
 
-    static short readAcks(ByteBuf in, int startOfMessage, short apiKey, short apiVersion) {
+    public static short readAcks(ByteBuf in, int startOfMessage, short apiKey, short apiVersion) {
         // Annoying case: we need to know whether to expect a response so that we know
         // whether to add to the correlation (so that, in turn, we know how to rewrite the correlation
         // id of the client response).
@@ -142,10 +150,12 @@ public class KafkaRequestDecoder extends KafkaMessageDecoder {
         if (apiVersion >= 3) { // Transactional id comes before acks
             int transactionIdLength;
             if (apiVersion < 9) { // Last non-flexible version
-                transactionIdLength = in.readShort();
+                // a null transactional id has length -1
+                transactionIdLength = Math.max(0, in.readShort());
             }
             else if (apiVersion == 9) { // First flexible version
-                transactionIdLength = ByteBufAccessorImpl.readUnsignedVarint(in);
+                // a compact string's length is encoded plus one, with zero meaning null
+                transactionIdLength = Math.max(0, ByteBufAccessorImpl.readUnsignedVarint(in) - 1);
             }
             else {
                 throw new AssertionError("Unsupported Produce apiVersion: " + apiVersion);
@@ -34,8 +34,7 @@ public class KafkaRequestEncoder extends KafkaMessageEncoder<RequestFrame> {
     }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, RequestFrame frame, ByteBuf out) throws Exception {
-        super.encode(ctx, frame, out);
+    protected void afterEncode(ChannelHandlerContext ctx, RequestFrame frame, ByteBuf out) {
         // TODO re-reading from the encoded buffer like this is ugly
         // probably better to just include apiKey and apiVersion in the frame
         var ri = out.readerIndex();
@@ -28,10 +28,12 @@ public class KafkaResponseDecoder extends KafkaMessageDecoder {
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaResponseDecoder.class);
 
     private final CorrelationManager correlationManager;
+    private final Metrics.ConnectionMeters meters;
 
-    public KafkaResponseDecoder(CorrelationManager correlationManager, int socketRequestMaxSizeBytes) {
+    public KafkaResponseDecoder(CorrelationManager correlationManager, int socketRequestMaxSizeBytes, Metrics.ConnectionMeters meters) {
         super(socketRequestMaxSizeBytes);
         this.correlationManager = correlationManager;
+        this.meters = meters;
     }
 
     @Override
@@ -67,10 +69,12 @@ public class KafkaResponseDecoder extends KafkaMessageDecoder {
             log().trace("{}: Header version: {}", ctx, headerVersion);
             ResponseHeaderData header = readHeader(headerVersion, accessor);
             log().trace("{}: Header: {}", ctx, header);
-            ApiMessage body = BodyDecoder.decodeResponse(apiKey, apiVersion, accessor);
+            ApiMessage body = LazyBodyDecoder.supportsResponse(apiKey)
+                    ? LazyBodyDecoder.decodeResponse(apiKey, apiVersion, readBody(in))
+                    : BodyDecoder.decodeResponse(apiKey, apiVersion, accessor);
             log().trace("{}: Body: {}", ctx, body);
             Filter recipient = correlation.recipient();
-            Metrics.payloadSizeBytesDownstreamSummary(apiKey, apiVersion).record(length);
+            meters.payloadSizeBytesDownstreamSummary(apiKey, apiVersion).record(length);
             if (recipient == null) {
                 frame = new DecodedResponseFrame<>(apiVersion, correlationId, header, body);
             }
@@ -0,0 +1,136 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.filter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.message.DescribeClusterRequestData;
+import org.apache.kafka.common.message.DescribeClusterResponseData;
+import org.apache.kafka.common.message.FindCoordinatorRequestData;
+import org.apache.kafka.common.message.FindCoordinatorResponseData;
+import org.apache.kafka.common.message.MetadataRequestData;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.Errors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.kroxylicious.proxy.filter.DescribeClusterRequestFilter;
+import io.kroxylicious.proxy.filter.DescribeClusterResponseFilter;
+import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.FindCoordinatorRequestFilter;
+import io.kroxylicious.proxy.filter.FindCoordinatorResponseFilter;
+import io.kroxylicious.proxy.filter.MetadataRequestFilter;
+import io.kroxylicious.proxy.filter.MetadataResponseFilter;
+import io.kroxylicious.proxy.filter.RequestFilterResult;
+import io.kroxylicious.proxy.filter.ResponseFilterResult;
+
+/**
+ * An internal filter that answers Metadata, DescribeCluster and FindCoordinator requests from the virtual cluster's
+ * {@link SharedMetadataCache}, and populates the cache from the responses to the requests that it cannot answer.
+ * Where an identical request is already in-flight from another connection, the request waits for that response
+ * rather than being sent upstream.
+ * <br/>
+ * This filter must come immediately before the {@link BrokerAddressFilter} in the chain, so that it sees responses
+ * after their broker addresses have been rewritten.
+ */
+public class MetadataCacheFilter implements MetadataRequestFilter, MetadataResponseFilter, DescribeClusterRequestFilter, DescribeClusterResponseFilter,
+        FindCoordinatorRequestFilter, FindCoordinatorResponseFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataCacheFilter.class);
+
+    private final SharedMetadataCache cache;
+
+    /**
+     * The requests this connection has sent upstream on behalf of the cache, in the order they were sent.
+     */
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    public MetadataCacheFilter(SharedMetadataCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public CompletionStage<RequestFilterResult> onMetadataRequest(short apiVersion, RequestHeaderData header, MetadataRequestData request, FilterContext context) {
+        return onRequest(apiVersion, header, request, context);
+    }
+
+    @Override
+    public CompletionStage<RequestFilterResult> onDescribeClusterRequest(short apiVersion, RequestHeaderData header, DescribeClusterRequestData request,
+                                                                         FilterContext context) {
+        return onRequest(apiVersion, header, request, context);
+    }
+
+    @Override
+    public CompletionStage<RequestFilterResult> onFindCoordinatorRequest(short apiVersion, RequestHeaderData header, FindCoordinatorRequestData request,
+                                                                         FilterContext context) {
+        return onRequest(apiVersion, header, request, context);
+    }
+
+    @Override
+    public CompletionStage<ResponseFilterResult> onMetadataResponse(short apiVersion, ResponseHeaderData header, MetadataResponseData response,
+                                                                    FilterContext context) {
+        boolean cacheable = response.topics().stream()
+                .allMatch(t -> t.errorCode() == Errors.NONE.code() && t.partitions().stream().allMatch(p -> p.errorCode() == Errors.NONE.code()));
+        return onResponse(header, response, cacheable, context);
+    }
+
+    @Override
+    public CompletionStage<ResponseFilterResult> onDescribeClusterResponse(short apiVersion, ResponseHeaderData header, DescribeClusterResponseData response,
+                                                                           FilterContext context) {
+        return onResponse(header, response, response.errorCode() == Errors.NONE.code(), context);
+    }
+
+    @Override
+    public CompletionStage<ResponseFilterResult> onFindCoordinatorResponse(short apiVersion, ResponseHeaderData header, FindCoordinatorResponseData response,
+                                                                           FilterContext context) {
+        boolean cacheable = response.errorCode() == Errors.NONE.code()
+                && response.coordinators().stream().allMatch(c -> c.errorCode() == Errors.NONE.code());
+        return onResponse(header, response, cacheable, context);
+    }
+
+    private CompletionStage<RequestFilterResult> onRequest(short apiVersion, RequestHeaderData header, ApiMessage request, FilterContext context) {
+        var key = SharedMetadataCache.keyFor(apiVersion, request);
+        var cached = cache.get(key);
+        if (cached != null) {
+            LOGGER.trace("{}: Answering {} from the metadata cache", context, key);
+            return context.requestFilterResultBuilder().shortCircuitResponse(cached).completed();
+        }
+        var inFlight = cache.joinInFlight(key);
+        if (inFlight == null) {
+            pending.addLast(new Pending(header.correlationId(), key));
+            return context.requestFilterResultBuilder().forward(header, request).completed();
+        }
+        LOGGER.trace("{}: Waiting for the response to an identical in-flight {}", context, key);
+        // this may complete on another connection's thread, so must not touch this filter's state.
+        return inFlight.handle((response, t) -> {
+            if (t != null) {
+                LOGGER.debug("{}: Failed to wait for an identical in-flight request, sending {} upstream", context, key);
+                return context.requestFilterResultBuilder().forward(header, request).build();
+            }
+            return context.requestFilterResultBuilder().shortCircuitResponse(response).build();
+        });
+    }
+
+    private CompletionStage<ResponseFilterResult> onResponse(ResponseHeaderData header, ApiMessage response, boolean cacheable, FilterContext context) {
+        for (Iterator<Pending> iterator = pending.iterator(); iterator.hasNext();) {
+            var p = iterator.next();
+            if (p.correlationId() == header.correlationId() && p.key().apiKey() == response.apiKey()) {
+                iterator.remove();
+                cache.complete(p.key(), response, cacheable);
+                break;
+            }
+        }
+        return context.responseFilterResultBuilder().forward(header, response).completed();
+    }
+
+    private record Pending(int correlationId, SharedMetadataCache.Key key) {}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.filter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+import org.apache.kafka.common.protocol.ApiMessage;
+
+import io.kroxylicious.proxy.config.MetadataCache;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * A cache of the responses to the cluster metadata requests (Metadata, DescribeCluster and FindCoordinator)
+ * that is shared by all the connections to a virtual cluster.  The cached responses have already had their
+ * broker addresses rewritten by the {@link BrokerAddressFilter}.
+ * <br/>
+ * As well as caching responses, the cache tracks the requests that are in-flight to the upstream, so that
+ * identical requests arriving concurrently on other connections can wait for the same response rather than
+ * each making their own round trip.
+ * <br/>
+ * This class is thread-safe.
+ */
+public class SharedMetadataCache {
+
+    /**
+     * The longest that a request will wait for an identical in-flight request to complete.
+     */
+    static final long MAX_WAIT_MS = 5000;
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS);
+
+    private final long maxAgeNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoTime;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Key, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public SharedMetadataCache(@NonNull MetadataCache config) {
+        this(config, System::nanoTime);
+    }
+
+    SharedMetadataCache(@NonNull MetadataCache config, @NonNull LongSupplier nanoTime) {
+        this.maxAgeNanos = config.maxAgeMs() * 1_000_000L;
+        this.maxEntries = config.maxEntries();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * The identity of a request.  The request is copied so that later modifications to the original do
+     * not affect the key.
+     *
+     * @param apiVersion the api version of the request.
+     * @param request the request body.
+     * @return the key
+     */
+    static Key keyFor(short apiVersion, @NonNull ApiMessage request) {
+        return new Key(request.apiKey(), apiVersion, (ApiMessage) request.duplicate());
+    }
+
+    /**
+     * Gets a copy of a response that is no older than the configured maximum age.
+     *
+     * @param key the request key
+     * @return the response or null if there is no sufficiently fresh response.
+     */
+    @Nullable
+    ApiMessage get(@NonNull Key key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoTime.getAsLong() - entry.createdNanos() >= maxAgeNanos) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return (ApiMessage) entry.response().duplicate();
+    }
+
+    /**
+     * Registers the intention to send a request upstream.  If an identical request is already in-flight,
+     * a future that will be completed with a copy of its response is returned instead, and the caller should
+     * wait for that.  The returned future fails if the response does not arrive within {@link #MAX_WAIT_MS},
+     * in which case the caller should make its own request.
+     *
+     * @param key the request key
+     * @return null if the caller should send the request, otherwise a future for the response to the in-flight request.
+     */
+    @Nullable
+    CompletableFuture<ApiMessage> joinInFlight(@NonNull Key key) {
+        var now = nanoTime.getAsLong();
+        var candidate = new InFlight(new CompletableFuture<>(), now);
+        while (true) {
+            var current = inFlight.putIfAbsent(key, candidate);
+            if (current == null) {
+                return null;
+            }
+            else if (now - current.startNanos() < MAX_WAIT_NANOS) {
+                return current.future()
+                        .thenApply(response -> (ApiMessage) response.duplicate())
+                        .orTimeout(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+            else if (inFlight.replace(key, current, candidate)) {
+                // the connection that made the in-flight request has probably gone away, so take over.
+                current.future().completeExceptionally(new TimeoutException("in-flight request was abandoned"));
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Records the response to a request previously registered with {@link #joinInFlight(Key)}, completing
+     * the requests waiting for it.
+     *
+     * @param key the request key
+     * @param response the response
+     * @param cacheable true if the response may be served to later requests.
+     */
+    void complete(@NonNull Key key, @NonNull ApiMessage response, boolean cacheable) {
+        var copy = (ApiMessage) response.duplicate();
+        if (cacheable && maxAgeNanos > 0) {
+            put(key, copy);
+        }
+        var current = inFlight.remove(key);
+        if (current != null) {
+            current.future().complete(copy);
+        }
+    }
+
+    private void put(Key key, ApiMessage response) {
+        var now = nanoTime.getAsLong();
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            entries.values().removeIf(e -> now - e.createdNanos() >= maxAgeNanos);
+            if (entries.size() >= maxEntries) {
+                // the cache is full of fresh responses, so don't displace them.
+                return;
+            }
+        }
+        entries.put(key, new Entry(response, now));
+    }
+
+    record Key(short apiKey, short apiVersion, ApiMessage request) {}
+
+    private record Entry(ApiMessage response, long createdNanos) {}
+
+    private record InFlight(CompletableFuture<ApiMessage> future, long startNanos) {}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.filter;
+
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+
+import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.FilterInvoker;
+import io.kroxylicious.proxy.filter.RequestFilterResult;
+import io.kroxylicious.proxy.filter.ResponseFilterResult;
+import io.kroxylicious.proxy.internal.util.Assertions;
+
+/**
+ * Marks the invoker of a filter whose definition configures its own timeout, overriding
+ * the timeout of the virtual cluster. The handler for the filter unwraps the delegate, so this
+ * invoker is only called if it is used elsewhere.
+ *
+ * @param invoker the delegate
+ * @param timeoutMs the filter's timeout in milliseconds
+ */
+public record TimeLimitedFilterInvoker(FilterInvoker invoker, long timeoutMs) implements FilterInvoker {
+
+    public TimeLimitedFilterInvoker {
+        Assertions.requireStrictlyPositive(timeoutMs, "timeoutMs");
+    }
+
+    @Override
+    public boolean shouldHandleRequest(ApiKeys apiKey, short apiVersion) {
+        return invoker.shouldHandleRequest(apiKey, apiVersion);
+    }
+
+    @Override
+    public boolean shouldHandleResponse(ApiKeys apiKey, short apiVersion) {
+        return invoker.shouldHandleResponse(apiKey, apiVersion);
+    }
+
+    @Override
+    public CompletionStage<RequestFilterResult> onRequest(ApiKeys apiKey, short apiVersion, RequestHeaderData header, ApiMessage body,
+                                                          FilterContext filterContext) {
+        return invoker.onRequest(apiKey, apiVersion, header, body, filterContext);
+    }
+
+    @Override
+    public CompletionStage<ResponseFilterResult> onResponse(ApiKeys apiKey, short apiVersion, ResponseHeaderData header, ApiMessage body,
+                                                            FilterContext filterContext) {
+        return invoker.onResponse(apiKey, apiVersion, header, body, filterContext);
+    }
+}
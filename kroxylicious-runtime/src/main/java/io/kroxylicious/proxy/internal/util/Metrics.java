@@ -7,6 +7,7 @@
 package io.kroxylicious.proxy.internal.util;
 
 import java.util.List;
+import java.util.Objects;
 
 import org.apache.kafka.common.protocol.ApiKeys;
 
@@ -29,32 +30,97 @@ public class Metrics {
 
     private static final String FLOWING_TAG = "flowing";
 
+    private static final String VIRTUAL_CLUSTER_TAG = "virtual_cluster";
+
     private static final Tag FLOWING_UPSTREAM = Tag.of(FLOWING_TAG, "upstream");
 
     private static final Tag FLOWING_DOWNSTREAM = Tag.of(FLOWING_TAG, "downstream");
 
-    public static Counter inboundDownstreamMessagesCounter() {
-        return counter(KROXYLICIOUS_INBOUND_DOWNSTREAM_MESSAGES, List.of(FLOWING_DOWNSTREAM));
-    }
+    private static final int API_KEY_COUNT = maxApiKeyId() + 1;
 
-    public static Counter inboundDownstreamDecodedMessagesCounter() {
-        return counter(KROXYLICIOUS_INBOUND_DOWNSTREAM_DECODED_MESSAGES, List.of(FLOWING_DOWNSTREAM));
+    private Metrics() {
     }
 
-    public static DistributionSummary payloadSizeBytesUpstreamSummary(ApiKeys apiKey, short apiVersion) {
-        return payloadSizeBytesSummary(apiKey, apiVersion, FLOWING_UPSTREAM);
+    private static int maxApiKeyId() {
+        int max = 0;
+        for (ApiKeys apiKey : ApiKeys.values()) {
+            max = Math.max(max, apiKey.id);
+        }
+        return max;
     }
 
-    public static DistributionSummary payloadSizeBytesDownstreamSummary(ApiKeys apiKey, short apiVersion) {
-        return payloadSizeBytesSummary(apiKey, apiVersion, FLOWING_DOWNSTREAM);
+    /**
+     * Resolves the meters for a connection to the given virtual cluster.
+     * This registers the meters which are not specific to an API, so can also be used to
+     * pre-register them.
+     * @param virtualClusterName The name of the virtual cluster.
+     * @return The meters.
+     */
+    public static ConnectionMeters forVirtualCluster(String virtualClusterName) {
+        return new ConnectionMeters(virtualClusterName);
     }
 
-    private static DistributionSummary payloadSizeBytesSummary(ApiKeys apiKey, short apiVersion, Tag flowing) {
-        List<Tag> tags = List.of(
-                Tag.of("ApiKey", apiKey.name()),
-                Tag.of("ApiVersion", String.valueOf(apiVersion)),
-                flowing);
-        return summary(KROXYLICIOUS_PAYLOAD_SIZE_BYTES, tags);
+    /**
+     * The meters for a single connection to a virtual cluster, tagged with the name of that virtual cluster.
+     * Meters are looked up in the registry once, and then held, so that recording a frame does not
+     * require a registry lookup. Meters which depend on the API key and version are resolved on first use.
+     * Instances are not thread-safe, and are intended to be used from a connection's event loop.
+     */
+    public static final class ConnectionMeters {
+        private final Tag virtualCluster;
+        private final Counter inboundDownstreamMessages;
+        private final Counter inboundDownstreamDecodedMessages;
+        private final DistributionSummary[][] payloadSizeBytesUpstream = new DistributionSummary[API_KEY_COUNT][];
+        private final DistributionSummary[][] payloadSizeBytesDownstream = new DistributionSummary[API_KEY_COUNT][];
+
+        private ConnectionMeters(String virtualClusterName) {
+            this.virtualCluster = Tag.of(VIRTUAL_CLUSTER_TAG, Objects.requireNonNull(virtualClusterName));
+            this.inboundDownstreamMessages = counter(KROXYLICIOUS_INBOUND_DOWNSTREAM_MESSAGES, List.of(FLOWING_DOWNSTREAM, virtualCluster));
+            this.inboundDownstreamDecodedMessages = counter(KROXYLICIOUS_INBOUND_DOWNSTREAM_DECODED_MESSAGES, List.of(FLOWING_DOWNSTREAM, virtualCluster));
+        }
+
+        public Counter inboundDownstreamMessagesCounter() {
+            return inboundDownstreamMessages;
+        }
+
+        public Counter inboundDownstreamDecodedMessagesCounter() {
+            return inboundDownstreamDecodedMessages;
+        }
+
+        public DistributionSummary payloadSizeBytesUpstreamSummary(ApiKeys apiKey, short apiVersion) {
+            return payloadSizeBytesSummary(payloadSizeBytesUpstream, apiKey, apiVersion, FLOWING_UPSTREAM);
+        }
+
+        public DistributionSummary payloadSizeBytesDownstreamSummary(ApiKeys apiKey, short apiVersion) {
+            return payloadSizeBytesSummary(payloadSizeBytesDownstream, apiKey, apiVersion, FLOWING_DOWNSTREAM);
+        }
+
+        private DistributionSummary payloadSizeBytesSummary(DistributionSummary[][] handles, ApiKeys apiKey, short apiVersion, Tag flowing) {
+            DistributionSummary[] byVersion = handles[apiKey.id];
+            if (byVersion == null) {
+                byVersion = new DistributionSummary[apiKey.latestVersion() + 1];
+                handles[apiKey.id] = byVersion;
+            }
+            if (apiVersion < 0 || apiVersion >= byVersion.length) {
+                // a version we don't know about, so don't bother caching
+                return lookupPayloadSizeBytesSummary(apiKey, apiVersion, flowing);
+            }
+            DistributionSummary summary = byVersion[apiVersion];
+            if (summary == null) {
+                summary = lookupPayloadSizeBytesSummary(apiKey, apiVersion, flowing);
+                byVersion[apiVersion] = summary;
+            }
+            return summary;
+        }
+
+        private DistributionSummary lookupPayloadSizeBytesSummary(ApiKeys apiKey, short apiVersion, Tag flowing) {
+            List<Tag> tags = List.of(
+                    Tag.of("ApiKey", apiKey.name()),
+                    Tag.of("ApiVersion", String.valueOf(apiVersion)),
+                    flowing,
+                    virtualCluster);
+            return summary(KROXYLICIOUS_PAYLOAD_SIZE_BYTES, tags);
+        }
     }
 
 }
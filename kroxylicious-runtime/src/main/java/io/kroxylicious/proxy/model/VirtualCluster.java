@@ -9,6 +9,7 @@ import java.io.UncheckedIOException;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLException;
@@ -16,16 +17,19 @@ import javax.net.ssl.SSLException;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 
+import io.kroxylicious.proxy.config.MetadataCache;
 import io.kroxylicious.proxy.config.TargetCluster;
 import io.kroxylicious.proxy.config.tls.NettyKeyProvider;
 import io.kroxylicious.proxy.config.tls.NettyTrustProvider;
 import io.kroxylicious.proxy.config.tls.Tls;
+import io.kroxylicious.proxy.internal.filter.SharedMetadataCache;
 import io.kroxylicious.proxy.service.ClusterNetworkAddressConfigProvider;
 import io.kroxylicious.proxy.service.HostPort;
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public class VirtualCluster implements ClusterNetworkAddressConfigProvider {
     public static final int DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES = 104857600;
+    public static final long DEFAULT_FILTER_TIMEOUT_MS = 20000;
     private final String clusterName;
 
     private final TargetCluster targetCluster;
@@ -35,24 +39,45 @@ public class VirtualCluster implements ClusterNetworkAddressConfigProvider {
 
     private final boolean logFrames;
 
+    private final boolean multiplexUpstream;
+
+    private final boolean fuseFilters;
+
+    private final long filterTimeoutMs;
+
     private final ClusterNetworkAddressConfigProvider clusterNetworkAddressConfigProvider;
 
     private final Optional<SslContext> upstreamSslContext;
 
     private final Optional<SslContext> downstreamSslContext;
 
+    private final Optional<SharedMetadataCache> metadataCache;
+
+    private final Map<Integer, HostPort> brokerAddresses = new ConcurrentHashMap<>();
+
     public VirtualCluster(String clusterName,
                           TargetCluster targetCluster,
                           ClusterNetworkAddressConfigProvider clusterNetworkAddressConfigProvider,
                           Optional<Tls> tls,
                           boolean logNetwork,
-                          boolean logFrames) {
+                          boolean logFrames,
+                          boolean multiplexUpstream,
+                          Optional<MetadataCache> metadataCache,
+                          boolean fuseFilters,
+                          long filterTimeoutMs) {
         this.clusterName = clusterName;
         this.tls = tls;
         this.targetCluster = targetCluster;
         this.logNetwork = logNetwork;
         this.logFrames = logFrames;
+        this.multiplexUpstream = multiplexUpstream;
         this.clusterNetworkAddressConfigProvider = clusterNetworkAddressConfigProvider;
+        this.metadataCache = metadataCache.map(SharedMetadataCache::new);
+        this.fuseFilters = fuseFilters;
+        if (filterTimeoutMs <= 0) {
+            throw new IllegalArgumentException("filterTimeoutMs must be positive, but was " + filterTimeoutMs);
+        }
+        this.filterTimeoutMs = filterTimeoutMs;
 
         validateTLsSettings(clusterNetworkAddressConfigProvider, tls);
         validatePortUsage(clusterNetworkAddressConfigProvider);
@@ -82,6 +107,41 @@ public class VirtualCluster implements ClusterNetworkAddressConfigProvider {
         return logFrames;
     }
 
+    /**
+     * Whether client connections share upstream connections to the brokers, rather than each
+     * having their own.
+     * @return true if upstream connections are multiplexed.
+     */
+    public boolean isMultiplexUpstream() {
+        return multiplexUpstream;
+    }
+
+    /**
+     * The cache of cluster metadata shared by the connections to this virtual cluster, if one is configured.
+     * @return the metadata cache.
+     */
+    public Optional<SharedMetadataCache> getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Whether the filters of a connection are applied by a single handler, rather than by one
+     * handler per filter in the pipeline.
+     * @return true if the filters are fused.
+     */
+    public boolean isFuseFilters() {
+        return fuseFilters;
+    }
+
+    /**
+     * The time a filter has to complete the stage it returns for a request or response, or to receive the response
+     * to a request it sends, unless the filter's definition configures its own timeout.
+     * @return the filter timeout in milliseconds.
+     */
+    public long filterTimeoutMs() {
+        return filterTimeoutMs;
+    }
+
     public boolean isUseTls() {
         return tls.isPresent();
     }
@@ -98,6 +158,10 @@ public class VirtualCluster implements ClusterNetworkAddressConfigProvider {
                 ", tls=" + tls +
                 ", logNetwork=" + logNetwork +
                 ", logFrames=" + logFrames +
+                ", multiplexUpstream=" + multiplexUpstream +
+                ", metadataCache=" + metadataCache.isPresent() +
+                ", fuseFilters=" + fuseFilters +
+                ", filterTimeoutMs=" + filterTimeoutMs +
                 ", clusterNetworkAddressConfigProvider=" + clusterNetworkAddressConfigProvider +
                 ", upstreamSslContext=" + upstreamSslContext +
                 ", downstreamSslContext=" + downstreamSslContext +
@@ -111,7 +175,8 @@ public class VirtualCluster implements ClusterNetworkAddressConfigProvider {
 
     @Override
     public HostPort getBrokerAddress(int nodeId) throws IllegalArgumentException {
-        return clusterNetworkAddressConfigProvider.getBrokerAddress(nodeId);
+        // the address of a broker is fixed by configuration, so only needs to be computed once
+        return brokerAddresses.computeIfAbsent(nodeId, clusterNetworkAddressConfigProvider::getBrokerAddress);
     }
 
     @Override
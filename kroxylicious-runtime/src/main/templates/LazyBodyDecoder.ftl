@@ -0,0 +1,104 @@
+<#--
+
+    Copyright Kroxylicious Authors.
+
+    Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+
+-->
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package ${outputPackage};
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+* Creates lazily-decoded ApiMessages for those APIs which support them.
+* <p>Note: this class is automatically generated from a template</p>
+*/
+public class LazyBodyDecoder {
+
+    private LazyBodyDecoder() {
+    }
+
+    /**
+    * Creates a lazily-decoded request ApiMessage
+    * @param apiKey the api key of the message
+    * @param apiVersion the api version of the message
+    * @param encoded the encoded message body
+    * @return the ApiMessage, or null if the api does not support lazy decoding
+    */
+    @Nullable
+    static ApiMessage decodeRequest(ApiKeys apiKey, short apiVersion, byte[] encoded) {
+        switch (apiKey) {
+<#list messageSpecs as messageSpec>
+    <#if messageSpec.type?lower_case == 'request'>
+            case ${retrieveApiKey(messageSpec)}:
+                return new Lazy${messageSpec.name}Data(encoded, apiVersion);
+    </#if>
+</#list>
+            default:
+                return null;
+        }
+    }
+
+    /**
+    * Creates a lazily-decoded response ApiMessage
+    * @param apiKey the api key of the message
+    * @param apiVersion the api version of the message
+    * @param encoded the encoded message body
+    * @return the ApiMessage, or null if the api does not support lazy decoding
+    */
+    @Nullable
+    static ApiMessage decodeResponse(ApiKeys apiKey, short apiVersion, byte[] encoded) {
+        switch (apiKey) {
+<#list messageSpecs as messageSpec>
+    <#if messageSpec.type?lower_case == 'response'>
+            case ${retrieveApiKey(messageSpec)}:
+                return new Lazy${messageSpec.name}Data(encoded, apiVersion);
+    </#if>
+</#list>
+            default:
+                return null;
+        }
+    }
+
+    /**
+    * @param apiKey the api key
+    * @return true if requests for the given api can be lazily decoded
+    */
+    static boolean supportsRequest(ApiKeys apiKey) {
+        switch (apiKey) {
+<#list messageSpecs as messageSpec>
+    <#if messageSpec.type?lower_case == 'request'>
+            case ${retrieveApiKey(messageSpec)}:
+    </#if>
+</#list>
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+    * @param apiKey the api key
+    * @return true if responses for the given api can be lazily decoded
+    */
+    static boolean supportsResponse(ApiKeys apiKey) {
+        switch (apiKey) {
+<#list messageSpecs as messageSpec>
+    <#if messageSpec.type?lower_case == 'response'>
+            case ${retrieveApiKey(messageSpec)}:
+    </#if>
+</#list>
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+<#--
+
+    Copyright Kroxylicious Authors.
+
+    Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+
+-->
+<#-- @ftlvariable name="outputPackage" type="java.lang.String" -->
+<#-- @ftlvariable name="messageSpec" type="io.kroxylicious.krpccodegen.schema.MessageSpec" -->
+<#assign
+dataClass="${messageSpec.dataClassName}"
+lazyClass="Lazy${dataClass}"
+fieldTypes=[]
+/>
+<#list messageSpec.fields as field>
+    <#assign fieldTypes = fieldTypes + [javaType(messageSpec, field)] />
+</#list>
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package ${outputPackage};
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+<#if fieldTypes?filter(t -> t?matches(".*\\bUuid\\b.*"))?has_content>
+import org.apache.kafka.common.Uuid;
+</#if>
+import org.apache.kafka.common.message.${dataClass};
+import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.kafka.common.protocol.MessageSizeAccumulator;
+import org.apache.kafka.common.protocol.ObjectSerializationCache;
+import org.apache.kafka.common.protocol.Readable;
+import org.apache.kafka.common.protocol.Writable;
+import org.apache.kafka.common.protocol.types.RawTaggedField;
+<#if fieldTypes?seq_contains("BaseRecords")>
+import org.apache.kafka.common.record.BaseRecords;
+</#if>
+
+/**
+ * A {@link ${dataClass}} which is not decoded until one of its fields is accessed.
+ * <p>Until then it holds the encoded message body, and re-encoding it at the same version copies those bytes
+ * straight through. Any accessor (including the setters) decodes the message first, so a filter which reads or
+ * modifies the message sees exactly what the eagerly-decoded {@link ${dataClass}} would have had.</p>
+ * <p>Because {@link ${dataClass}#equals(Object)} reads the fields of the other instance directly, comparisons
+ * should call {@code equals} on the lazy instance.</p>
+ * <p>Note: this class is automatically generated from a template</p>
+ */
+public class ${lazyClass} extends ${dataClass} {
+
+    private byte[] encoded;
+    private final short encodedVersion;
+
+    /**
+     * @param encoded the encoded message body, which this instance takes ownership of
+     * @param version the api version the body is encoded at
+     */
+    public ${lazyClass}(byte[] encoded, short version) {
+        super();
+        this.encoded = encoded;
+        this.encodedVersion = version;
+    }
+
+    /**
+     * @return true if this message has not (yet) been decoded.
+     */
+    public boolean isEncoded() {
+        return encoded != null;
+    }
+
+    private void decode() {
+        byte[] bytes = encoded;
+        if (bytes != null) {
+            encoded = null;
+            super.read(new ByteBufferAccessor(ByteBuffer.wrap(bytes)), encodedVersion);
+        }
+    }
+
+    @Override
+    public void read(Readable readable, short version) {
+        encoded = null;
+        super.read(readable, version);
+    }
+
+    @Override
+    public void addSize(MessageSizeAccumulator size, ObjectSerializationCache cache, short version) {
+        if (encoded != null && version == encodedVersion) {
+            size.addZeroCopyBytes(encoded.length);
+        }
+        else {
+            decode();
+            super.addSize(size, cache, version);
+        }
+    }
+
+    @Override
+    public void write(Writable writable, ObjectSerializationCache cache, short version) {
+        if (encoded != null && version == encodedVersion) {
+            writable.writeByteArray(encoded);
+        }
+        else {
+            decode();
+            super.write(writable, cache, version);
+        }
+    }
+<#list messageSpec.fields as field>
+    <#assign
+    fieldType=fieldTypes[field?index]
+    getter=field.name?uncap_first
+    />
+
+    @Override
+    public ${fieldType} ${getter}() {
+        decode();
+        return super.${getter}();
+    }
+
+    @Override
+    public ${dataClass} set${field.name}(${fieldType} v) {
+        decode();
+        return super.set${field.name}(v);
+    }
+</#list>
+
+    @Override
+    public List<RawTaggedField> unknownTaggedFields() {
+        decode();
+        return super.unknownTaggedFields();
+    }
+
+    @Override
+    public ${dataClass} duplicate() {
+        decode();
+        return super.duplicate();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        decode();
+        if (obj instanceof ${lazyClass} other) {
+            other.decode();
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        decode();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        decode();
+        return super.toString();
+    }
+}
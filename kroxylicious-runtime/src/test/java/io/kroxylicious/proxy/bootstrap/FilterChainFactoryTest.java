@@ -29,11 +29,13 @@ import io.kroxylicious.proxy.internal.filter.OptionalConfigFactory;
 import io.kroxylicious.proxy.internal.filter.RequiresConfigFactory;
 import io.kroxylicious.proxy.internal.filter.TestFilter;
 import io.kroxylicious.proxy.internal.filter.TestFilterFactory;
+import io.kroxylicious.proxy.internal.filter.TimeLimitedFilterInvoker;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -109,6 +111,30 @@ class FilterChainFactoryTest {
         });
     }
 
+    @Test
+    void shouldCreateTimeLimitedInvokerForFilterWithTimeout() {
+        // given
+        var filterDefinitions = List.of(new FilterDefinition(TestFilterFactory.class.getName(), config, 5000L),
+                new FilterDefinition(TestFilterFactory.class.getName(), config));
+
+        // when
+        var listAssert = assertFiltersCreated(filterDefinitions);
+
+        // then
+        listAssert.element(0).extracting(FilterAndInvoker::invoker)
+                .isInstanceOfSatisfying(TimeLimitedFilterInvoker.class, invoker -> assertThat(invoker.timeoutMs()).isEqualTo(5000L));
+        listAssert.element(1).extracting(FilterAndInvoker::invoker)
+                .isNotInstanceOf(TimeLimitedFilterInvoker.class);
+    }
+
+    @Test
+    void shouldRejectNonPositiveFilterTimeout() {
+        var type = TestFilterFactory.class.getName();
+        assertThatThrownBy(() -> new FilterDefinition(type, config, 0L))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("timeoutMs");
+    }
+
     @ParameterizedTest
     @MethodSource(value = "filterTypes")
     void shouldCreateMultipleFilters(Class<FilterFactory<?, ?>> factoryClass, Class<? extends TestFilter> expectedFilterClass) {
@@ -83,6 +83,44 @@ class ConfigParserTest {
                                 bootstrapAddress: cluster1:9192
                                 brokerAddressPattern: broker-$(nodeId)
                         """),
+                Arguments.of("Virtual cluster with metadata cache", """
+                        virtualClusters:
+                          demo1:
+                            targetCluster:
+                              bootstrap_servers: kafka.example:1234
+                            clusterNetworkAddressConfigProvider:
+                              type: SniRoutingClusterNetworkAddressConfigProvider
+                              config:
+                                bootstrapAddress: cluster1:9192
+                                brokerAddressPattern: broker-$(nodeId)
+                            metadataCache:
+                              maxAgeMs: 500
+                              maxEntries: 100
+                        """),
+                Arguments.of("Virtual cluster with fused filters", """
+                        virtualClusters:
+                          demo1:
+                            targetCluster:
+                              bootstrap_servers: kafka.example:1234
+                            clusterNetworkAddressConfigProvider:
+                              type: SniRoutingClusterNetworkAddressConfigProvider
+                              config:
+                                bootstrapAddress: cluster1:9192
+                                brokerAddressPattern: broker-$(nodeId)
+                            fuseFilters: true
+                        """),
+                Arguments.of("Virtual cluster with filter timeout", """
+                        virtualClusters:
+                          demo1:
+                            targetCluster:
+                              bootstrap_servers: kafka.example:1234
+                            clusterNetworkAddressConfigProvider:
+                              type: SniRoutingClusterNetworkAddressConfigProvider
+                              config:
+                                bootstrapAddress: cluster1:9192
+                                brokerAddressPattern: broker-$(nodeId)
+                            filterTimeoutMs: 30000
+                        """),
                 Arguments.of("Downstream/Upstream TLS with inline passwords", """
                         virtualClusters:
                           demo1:
@@ -133,6 +171,11 @@ class ConfigParserTest {
                         filters:
                         - type: TestFilterFactory
                         """),
+                Arguments.of("Filter with timeout", """
+                        filters:
+                        - type: TestFilterFactory
+                          timeoutMs: 5000
+                        """),
                 Arguments.of("Admin", """
                         adminHttp:
                           host: 0.0.0.0
@@ -0,0 +1,230 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventLoopTimerTest {
+
+    private EmbeddedChannel channel;
+    private EventLoopTimer timer;
+    private final List<String> fired = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        channel = new EmbeddedChannel();
+        channel.freezeTime();
+        timer = EventLoopTimer.forExecutor(channel.eventLoop());
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private void advance(long millis) {
+        channel.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+        channel.runPendingTasks();
+    }
+
+    @Test
+    void shouldShareTimerForEventLoop() {
+        assertThat(EventLoopTimer.forExecutor(channel.eventLoop())).isSameAs(timer);
+    }
+
+    @Test
+    void shouldNotShareTimerBetweenEventLoops() {
+        // given
+        var other = new EmbeddedChannel();
+
+        // when
+        var otherTimer = EventLoopTimer.forExecutor(other.eventLoop());
+
+        // then
+        assertThat(otherTimer).isNotSameAs(timer);
+        other.finishAndReleaseAll();
+    }
+
+    @Test
+    void shouldRunTaskAtDeadline() {
+        // given
+        timer.newTimeout(() -> fired.add("a"), 50, TimeUnit.MILLISECONDS);
+
+        // when
+        advance(49);
+
+        // then
+        assertThat(fired).isEmpty();
+        advance(1);
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    void shouldRoundDeadlineUpToTick() {
+        // given
+        timer.newTimeout(() -> fired.add("a"), 1, TimeUnit.MILLISECONDS);
+
+        // when
+        advance(TimeUnit.NANOSECONDS.toMillis(EventLoopTimer.TICK_NANOS) - 1);
+
+        // then
+        assertThat(fired).isEmpty();
+        advance(1);
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    void shouldRunTasksInDeadlineOrder() {
+        // given
+        timer.newTimeout(() -> fired.add("late"), 200, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> fired.add("early"), 20, TimeUnit.MILLISECONDS);
+
+        // when
+        advance(20);
+
+        // then
+        assertThat(fired).containsExactly("early");
+        advance(180);
+        assertThat(fired).containsExactly("early", "late");
+    }
+
+    @Test
+    void shouldRunTaskDueAfterSeveralRotations() {
+        // given
+        long delayMs = 12_000;
+        timer.newTimeout(() -> fired.add("a"), delayMs, TimeUnit.MILLISECONDS);
+
+        // when
+        for (int i = 0; i < 11; i++) {
+            advance(1000);
+        }
+
+        // then
+        assertThat(fired).isEmpty();
+        advance(1000);
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    void shouldNotRunCancelledTask() {
+        // given
+        var timeout = timer.newTimeout(() -> fired.add("a"), 50, TimeUnit.MILLISECONDS);
+
+        // when
+        timeout.cancel();
+        advance(50);
+
+        // then
+        assertThat(fired).isEmpty();
+    }
+
+    @Test
+    void shouldRestartWhenIdle() {
+        // given
+        timer.newTimeout(() -> fired.add("a"), 50, TimeUnit.MILLISECONDS);
+        advance(50);
+        advance(1000);
+
+        // when
+        timer.newTimeout(() -> fired.add("b"), 50, TimeUnit.MILLISECONDS);
+        advance(49);
+
+        // then
+        assertThat(fired).containsExactly("a");
+        advance(1);
+        assertThat(fired).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldScheduleTaskAddedByTask() {
+        // given
+        timer.newTimeout(() -> {
+            fired.add("a");
+            timer.newTimeout(() -> fired.add("b"), 30, TimeUnit.MILLISECONDS);
+        }, 20, TimeUnit.MILLISECONDS);
+
+        // when
+        advance(20);
+
+        // then
+        assertThat(fired).containsExactly("a");
+        advance(30);
+        assertThat(fired).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldReleaseTaskOfCancelledTimeout() {
+        // given
+        var timeout = timer.newTimeout(() -> fired.add("a"), 20_000, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> fired.add("b"), 20_000, TimeUnit.MILLISECONDS);
+        assertThat(timer.pending()).isEqualTo(2);
+
+        // when
+        timeout.cancel();
+
+        // then
+        assertThat(timeout.hasTask()).isFalse();
+        assertThat(timer.pending()).isEqualTo(1);
+        advance(20_000);
+        assertThat(fired).containsExactly("b");
+        assertThat(timer.pending()).isZero();
+    }
+
+    @Test
+    void shouldNotTickForCancelledTimeouts() {
+        // given
+        var timeout = timer.newTimeout(() -> fired.add("a"), 50, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> fired.add("b"), 200, TimeUnit.MILLISECONDS);
+
+        // when
+        timeout.cancel();
+
+        // then
+        assertThat(channel.runScheduledPendingTasks()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void shouldStopTickingWhenAllTimeoutsCancelled() {
+        // given
+        var timeout = timer.newTimeout(() -> fired.add("a"), 50, TimeUnit.MILLISECONDS);
+
+        // when
+        timeout.cancel();
+
+        // then
+        assertThat(timer.pending()).isZero();
+        assertThat(channel.runScheduledPendingTasks()).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldNotRunTaskCancelledByTaskInSameTick() {
+        // given
+        var timeouts = new ArrayList<EventLoopTimer.Timeout>();
+        timeouts.add(timer.newTimeout(() -> {
+            fired.add("a");
+            timeouts.get(1).cancel();
+        }, 50, TimeUnit.MILLISECONDS));
+        timeouts.add(timer.newTimeout(() -> fired.add("b"), 50, TimeUnit.MILLISECONDS));
+
+        // when
+        advance(50);
+
+        // then
+        assertThat(fired).containsExactly("a");
+        assertThat(timer.pending()).isZero();
+    }
+}
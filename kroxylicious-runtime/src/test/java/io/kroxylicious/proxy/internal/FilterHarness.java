@@ -6,6 +6,7 @@
 package io.kroxylicious.proxy.internal;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -52,6 +53,7 @@ public abstract class FilterHarness {
     private final AtomicInteger outboundCorrelationId = new AtomicInteger(1);
     private final Map<Integer, Correlation> pendingInternalRequestMap = new HashMap<>();
     private long timeoutMs = 1000L;
+    private boolean fuseFilters = false;
 
     /**
      * Sets the timeout for applied to the filters.
@@ -64,6 +66,17 @@ public abstract class FilterHarness {
         return this;
     }
 
+    /**
+     * Sets whether the filters are applied by a single {@link FusedFilterHandler}.
+     *
+     * @param fuseFilters true if the filters are fused
+     * @return this
+     */
+    protected FilterHarness fuseFilters(boolean fuseFilters) {
+        this.fuseFilters = fuseFilters;
+        return this;
+    }
+
     /**
      * Build a {@link #channel} containing a {@link FilterHandler} for each the given {@link Filter}.
      *
@@ -73,7 +86,7 @@ public abstract class FilterHarness {
         assertNull(channel, "Channel already built");
 
         var testVirtualCluster = new VirtualCluster("TestVirtualCluster", mock(TargetCluster.class), mock(ClusterNetworkAddressConfigProvider.class), Optional.empty(),
-                false, false);
+                false, false, false, Optional.empty(), false, VirtualCluster.DEFAULT_FILTER_TIMEOUT_MS);
         var inboundChannel = new EmbeddedChannel();
         var apiVersionService = new ApiVersionsServiceImpl();
         var channelProcessors = Stream.<ChannelHandler> of(new InternalRequestTracker(), new CorrelationIdIssuer());
@@ -86,6 +99,11 @@ public abstract class FilterHarness {
                 .stream()
                 .map(f -> new FilterHandler(getOnlyElement(FilterAndInvoker.build(f)), timeoutMs, null, testVirtualCluster, inboundChannel, apiVersionService))
                 .map(ChannelHandler.class::cast);
+        if (fuseFilters) {
+            var fused = new ArrayList<FilterHandler>();
+            filterHandlers.forEach(h -> fused.add(0, (FilterHandler) h));
+            filterHandlers = Stream.<ChannelHandler> of(new FusedFilterHandler(fused));
+        }
         var handlers = Stream.concat(channelProcessors, filterHandlers);
 
         channel = new EmbeddedChannel(handlers.toArray(ChannelHandler[]::new));
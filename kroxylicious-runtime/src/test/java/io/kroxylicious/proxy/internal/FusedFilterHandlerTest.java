@@ -0,0 +1,20 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Runs the {@link FilterHandlerTest} scenarios with the filters fused into a {@link FusedFilterHandler}.
+ */
+class FusedFilterHandlerTest extends FilterHandlerTest {
+
+    @BeforeEach
+    void fuse() {
+        fuseFilters(true);
+    }
+
+}
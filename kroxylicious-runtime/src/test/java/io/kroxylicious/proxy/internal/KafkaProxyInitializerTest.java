@@ -36,11 +36,15 @@ import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SniHandler;
 
 import io.kroxylicious.proxy.bootstrap.FilterChainFactory;
+import io.kroxylicious.proxy.config.MetadataCache;
 import io.kroxylicious.proxy.config.ServiceBasedPluginFactoryRegistry;
 import io.kroxylicious.proxy.config.TargetCluster;
 import io.kroxylicious.proxy.config.tls.Tls;
+import io.kroxylicious.proxy.filter.FilterAndInvoker;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
 import io.kroxylicious.proxy.filter.NetFilter;
+import io.kroxylicious.proxy.internal.filter.BrokerAddressFilter;
+import io.kroxylicious.proxy.internal.filter.MetadataCacheFilter;
 import io.kroxylicious.proxy.internal.net.Endpoint;
 import io.kroxylicious.proxy.internal.net.VirtualClusterBinding;
 import io.kroxylicious.proxy.internal.net.VirtualClusterBindingResolver;
@@ -48,6 +52,7 @@ import io.kroxylicious.proxy.model.VirtualCluster;
 import io.kroxylicious.proxy.service.ClusterNetworkAddressConfigProvider;
 import io.kroxylicious.proxy.service.HostPort;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
@@ -76,6 +81,9 @@ class KafkaProxyInitializerTest {
     @Captor
     ArgumentCaptor<ChannelInboundHandlerAdapter> plainChannelResolverCaptor;
 
+    @Captor
+    ArgumentCaptor<List<FilterAndInvoker>> filtersCaptor;
+
     private ServiceBasedPluginFactoryRegistry pfr;
     private KafkaProxyInitializer kafkaProxyInitializer;
     private CompletionStage<VirtualClusterBinding> bindingStage;
@@ -104,7 +112,11 @@ class KafkaProxyInitializerTest {
                 mock(ClusterNetworkAddressConfigProvider.class),
                 tls,
                 logNetwork,
-                logFrames);
+                logFrames,
+                false,
+                Optional.empty(),
+                false,
+                VirtualCluster.DEFAULT_FILTER_TIMEOUT_MS);
     }
 
     @Test
@@ -299,6 +311,36 @@ class KafkaProxyInitializerTest {
         verify(fcf).createFilters(any(FilterFactoryContext.class));
     }
 
+    @Test
+    void shouldAddMetadataCacheFilterWhenConfigured() {
+        // Given
+        final Optional<Tls> tls = Optional.empty();
+        var cachingVirtualCluster = new VirtualCluster("testCluster",
+                new TargetCluster("localhost:9090", tls),
+                mock(ClusterNetworkAddressConfigProvider.class),
+                tls,
+                false,
+                false,
+                false,
+                Optional.of(new MetadataCache(null, null)),
+                false,
+                VirtualCluster.DEFAULT_FILTER_TIMEOUT_MS);
+        when(vcb.virtualCluster()).thenReturn(cachingVirtualCluster);
+        when(vcb.upstreamTarget()).thenReturn(new HostPort("upstream.broker.kafka", 9090));
+        final KafkaProxyInitializer.InitalizerNetFilter initalizerNetFilter = new KafkaProxyInitializer.InitalizerNetFilter(mock(SaslDecodePredicate.class),
+                mock(ApiVersionsServiceImpl.class), channel, vcb, pfr, filterChainFactory, (virtualCluster1, upstreamNodes) -> null);
+        final NetFilter.NetFilterContext netFilterContext = mock(NetFilter.NetFilterContext.class);
+
+        // When
+        initalizerNetFilter.selectServer(netFilterContext);
+
+        // Then
+        verify(netFilterContext).initiateConnect(any(HostPort.class), filtersCaptor.capture());
+        assertThat(filtersCaptor.getValue())
+                .extracting(fai -> fai.filter().getClass().getSimpleName())
+                .containsSubsequence(MetadataCacheFilter.class.getSimpleName(), BrokerAddressFilter.class.getSimpleName());
+    }
+
     @Test
     void shouldInitialiseTlsChannel() {
         // Given
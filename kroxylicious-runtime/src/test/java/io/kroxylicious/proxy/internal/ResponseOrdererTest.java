@@ -6,6 +6,9 @@
 
 package io.kroxylicious.proxy.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -259,6 +262,65 @@ class ResponseOrdererTest {
         thenOutboundContains(response);
     }
 
+    @Test
+    void testUnexpectedResponseWithOtherRequestsInFlight() {
+        whenWriteInboundMessage(new TestFrame(1));
+
+        TestFrame response = new TestFrame(2);
+        whenWriteOutboundMessage(response);
+        thenInFlightRequestCountEquals(1);
+        thenQueuedResponseCountEquals(0);
+        thenOutboundContains(response);
+    }
+
+    @Test
+    void testManyInflightMessagesThatRespondInReverseOrder() {
+        // move the oldest in-flight request away from the start of the ring before it grows
+        for (int i = 0; i < 5; i++) {
+            whenWriteInboundMessage(new TestFrame(-i));
+            whenWriteOutboundMessage(new TestFrame(-i));
+            embeddedChannel.flushOutbound().readOutbound();
+        }
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            whenWriteInboundMessage(new TestFrame(i));
+        }
+        List<TestFrame> responses = new ArrayList<>();
+        for (int i = count - 1; i > 0; i--) {
+            TestFrame response = new TestFrame(i);
+            responses.add(0, response);
+            whenWriteOutboundMessage(response);
+        }
+        thenInFlightRequestCountEquals(count);
+        thenQueuedResponseCountEquals(count - 1);
+        thenOutboundIsEmpty();
+
+        TestFrame first = new TestFrame(0);
+        whenWriteOutboundMessage(first);
+        thenInFlightRequestCountEquals(0);
+        thenQueuedResponseCountEquals(0);
+        thenOutboundContains(first);
+        responses.forEach(this::thenOutboundContains);
+        thenOutboundIsEmpty();
+    }
+
+    @Test
+    void testRingWrapsAround() {
+        for (int i = 0; i < 40; i++) {
+            whenWriteInboundMessage(new TestFrame(i));
+            whenWriteInboundMessage(new TestFrame(i + 1000));
+
+            TestFrame second = new TestFrame(i + 1000);
+            whenWriteOutboundMessage(second);
+            TestFrame first = new TestFrame(i);
+            whenWriteOutboundMessage(first);
+            thenOutboundContains(first);
+            thenOutboundContains(second);
+        }
+        thenInFlightRequestCountEquals(0);
+        thenQueuedResponseCountEquals(0);
+    }
+
     @Test
     void testOutboundNonFrameAreForwarded() {
         Object response = new Object();
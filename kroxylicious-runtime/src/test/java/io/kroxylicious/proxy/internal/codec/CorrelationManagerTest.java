@@ -0,0 +1,117 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.codec;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorrelationManagerTest {
+
+    @Test
+    void shouldAllocateSequentialUpstreamIds() {
+        // given
+        CorrelationManager correlationManager = new CorrelationManager(10);
+
+        // when
+        int first = correlationManager.putBrokerRequest(ApiKeys.PRODUCE.id, (short) 9, 100, true, null, null, false);
+        int second = correlationManager.putBrokerRequest(ApiKeys.PRODUCE.id, (short) 9, 101, false, null, null, false);
+        int third = correlationManager.putBrokerRequest(ApiKeys.PRODUCE.id, (short) 9, 102, true, null, null, false);
+
+        // then
+        assertThat(first).isEqualTo(10);
+        assertThat(second).isEqualTo(11);
+        assertThat(third).isEqualTo(12);
+        assertThat(correlationManager.brokerRequests).hasSize(2);
+    }
+
+    @Test
+    void shouldRetrieveCorrelationOnceOnly() {
+        // given
+        CorrelationManager correlationManager = new CorrelationManager();
+        CompletableFuture<?> promise = new CompletableFuture<>();
+        int upstreamId = correlationManager.putBrokerRequest(ApiKeys.METADATA.id, (short) 12, 42, true, null, promise, true);
+
+        // when
+        CorrelationManager.Correlation correlation = correlationManager.getBrokerCorrelation(upstreamId);
+
+        // then
+        assertThat(correlation).isNotNull();
+        assertThat(correlation.apiKey()).isEqualTo(ApiKeys.METADATA.id);
+        assertThat(correlation.apiVersion()).isEqualTo((short) 12);
+        assertThat(correlation.downstreamCorrelationId()).isEqualTo(42);
+        assertThat(correlation.decodeResponse()).isTrue();
+        assertThat(correlation.promise()).isSameAs(promise);
+        assertThat(correlationManager.getBrokerCorrelation(upstreamId)).isNull();
+        assertThat(correlationManager.brokerRequests).isEmpty();
+    }
+
+    @Test
+    void shouldRecordRouteOfSharedConnection() {
+        // given
+        CorrelationManager correlationManager = new CorrelationManager();
+        var first = new EmbeddedChannel();
+        var second = new EmbeddedChannel();
+        int firstId = correlationManager.putBrokerRequest(ApiKeys.FETCH.id, (short) 13, 7, true, null, null, false, first);
+        int secondId = correlationManager.putBrokerRequest(ApiKeys.FETCH.id, (short) 13, 7, true, null, null, false, second);
+
+        // when
+        var secondCorrelation = correlationManager.getBrokerCorrelation(secondId);
+
+        // then
+        assertThat(secondId).isNotEqualTo(firstId);
+        assertThat(secondCorrelation.route()).isSameAs(second);
+        assertThat(secondCorrelation.downstreamCorrelationId()).isEqualTo(7);
+        assertThat(correlationManager.getBrokerCorrelation(firstId).route()).isSameAs(first);
+    }
+
+    @Test
+    void shouldRecycleCorrelationsOutOfOrder() {
+        // given
+        CorrelationManager correlationManager = new CorrelationManager();
+        int depth = 1000;
+        for (int i = 0; i < depth; i++) {
+            correlationManager.putBrokerRequest(ApiKeys.FETCH.id, (short) 13, i, true, null, null, false);
+        }
+
+        // when
+        for (int i = depth - 1; i >= 0; i--) {
+            CorrelationManager.Correlation correlation = correlationManager.getBrokerCorrelation(i);
+
+            // then
+            assertThat(correlation).isNotNull();
+            assertThat(correlation.downstreamCorrelationId()).isEqualTo(i);
+        }
+        assertThat(correlationManager.brokerRequests).isEmpty();
+    }
+
+    @Test
+    void shouldReusePooledCorrelation() {
+        // given
+        CorrelationManager correlationManager = new CorrelationManager();
+        int firstId = correlationManager.putBrokerRequest(ApiKeys.FETCH.id, (short) 13, 1, true, null, new CompletableFuture<>(), false);
+        CorrelationManager.Correlation first = correlationManager.getBrokerCorrelation(firstId);
+        // recycles the first correlation
+        correlationManager.getBrokerCorrelation(-1);
+
+        // when
+        int secondId = correlationManager.putBrokerRequest(ApiKeys.PRODUCE.id, (short) 9, 2, true, null, null, true);
+        CorrelationManager.Correlation second = correlationManager.getBrokerCorrelation(secondId);
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(second.apiKey()).isEqualTo(ApiKeys.PRODUCE.id);
+        assertThat(second.downstreamCorrelationId()).isEqualTo(2);
+        assertThat(second.decodeResponse()).isTrue();
+        assertThat(second.promise()).isNull();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.codec;
+
+import java.nio.ByteBuffer;
+
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyDataTest {
+
+    private static final short PRODUCE_VERSION = 9;
+    private static final short METADATA_VERSION = 12;
+
+    private static ProduceRequestData produceRequest() {
+        var data = new ProduceRequestData().setAcks((short) -1).setTimeoutMs(30_000).setTransactionalId("txn");
+        data.topicData().add(new ProduceRequestData.TopicProduceData().setName("topic"));
+        return data;
+    }
+
+    private static byte[] bytes(ApiMessage message, short version) {
+        ByteBuffer buffer = MessageUtil.toByteBuffer(message, version);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void shouldReencodeWithoutDecoding() {
+        // given
+        byte[] encoded = bytes(produceRequest(), PRODUCE_VERSION);
+        var lazy = new LazyProduceRequestData(encoded.clone(), PRODUCE_VERSION);
+
+        // when
+        byte[] reencoded = bytes(lazy, PRODUCE_VERSION);
+
+        // then
+        assertThat(reencoded).isEqualTo(encoded);
+        assertThat(lazy.isEncoded()).isTrue();
+    }
+
+    @Test
+    void shouldDecodeOnFieldAccess() {
+        // given
+        var expected = produceRequest();
+        var lazy = new LazyProduceRequestData(bytes(expected, PRODUCE_VERSION), PRODUCE_VERSION);
+
+        // when
+        short acks = lazy.acks();
+
+        // then
+        assertThat(acks).isEqualTo((short) -1);
+        assertThat(lazy.isEncoded()).isFalse();
+        assertThat(lazy).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldEncodeModifications() {
+        // given
+        var expected = produceRequest().setTimeoutMs(5_000);
+        var lazy = new LazyProduceRequestData(bytes(produceRequest(), PRODUCE_VERSION), PRODUCE_VERSION);
+
+        // when
+        lazy.setTimeoutMs(5_000);
+
+        // then
+        assertThat(bytes(lazy, PRODUCE_VERSION)).isEqualTo(bytes(expected, PRODUCE_VERSION));
+    }
+
+    @Test
+    void shouldDecodeToEncodeAtDifferentVersion() {
+        // given
+        var expected = new MetadataResponseData().setClusterId("cluster").setControllerId(1);
+        var lazy = new LazyMetadataResponseData(bytes(expected, METADATA_VERSION), METADATA_VERSION);
+
+        // when
+        byte[] encoded = bytes(lazy, (short) (METADATA_VERSION - 1));
+
+        // then
+        assertThat(lazy.isEncoded()).isFalse();
+        assertThat(encoded).isEqualTo(bytes(expected, (short) (METADATA_VERSION - 1)));
+    }
+
+    @Test
+    void shouldOnlyLazilyDecodeSupportedApis() {
+        assertThat(LazyBodyDecoder.decodeRequest(ApiKeys.PRODUCE, PRODUCE_VERSION, new byte[0])).isInstanceOf(LazyProduceRequestData.class);
+        assertThat(LazyBodyDecoder.decodeResponse(ApiKeys.METADATA, METADATA_VERSION, new byte[0])).isInstanceOf(LazyMetadataResponseData.class);
+        assertThat(LazyBodyDecoder.supportsRequest(ApiKeys.API_VERSIONS)).isFalse();
+        assertThat(LazyBodyDecoder.decodeResponse(ApiKeys.API_VERSIONS, (short) 3, new byte[0])).isNull();
+    }
+}
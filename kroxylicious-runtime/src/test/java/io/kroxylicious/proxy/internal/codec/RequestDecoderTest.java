@@ -8,6 +8,7 @@ package io.kroxylicious.proxy.internal.codec;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,20 +19,28 @@ import org.apache.kafka.common.message.ProduceRequestData;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 
 import io.kroxylicious.proxy.filter.ApiVersionsRequestFilter;
 import io.kroxylicious.proxy.filter.FilterAndInvoker;
 import io.kroxylicious.proxy.filter.FilterContext;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
+import io.kroxylicious.proxy.frame.DecodedFrame;
 import io.kroxylicious.proxy.frame.DecodedRequestFrame;
 import io.kroxylicious.proxy.frame.OpaqueRequestFrame;
+import io.kroxylicious.proxy.internal.ResponseOrderer;
+import io.kroxylicious.proxy.internal.util.Metrics;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -64,6 +73,7 @@ public class RequestDecoderTest extends AbstractCodecTest {
             return true;
         }
     };
+    public static final Metrics.ConnectionMeters METERS = Metrics.forVirtualCluster("test");
     public static final KafkaRequestDecoder MAX_FRAME_SIZE_10_BYTES_DECODER = getKafkaRequestDecoder(DECODE_EVERYTHING, 10);
 
     public static List<Object[]> produceRequestApiVersions() {
@@ -93,7 +103,7 @@ public class RequestDecoderTest extends AbstractCodecTest {
                                         .forFilters(FilterAndInvoker.build(
                                                 (ApiVersionsRequestFilter) (version, header, request, context) -> context.requestFilterResultBuilder()
                                                         .forward(header, request).completed())),
-                                DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES),
+                                DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES, METERS),
                         DecodedRequestFrame.class,
                         (RequestHeaderData header) -> header, true),
                 "Unexpected correlation id");
@@ -174,7 +184,7 @@ public class RequestDecoderTest extends AbstractCodecTest {
                                                                                                      FilterContext context) {
                                         return context.requestFilterResultBuilder().forward(header, request).completed();
                                     }
-                                })), DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES),
+                                })), DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES, METERS),
                         OpaqueRequestFrame.class, true),
                 "Unexpected correlation id");
     }
@@ -196,7 +206,7 @@ public class RequestDecoderTest extends AbstractCodecTest {
                         FilterAndInvoker.build((ApiVersionsRequestFilter) (version, header, request, context) -> {
                             return context.requestFilterResultBuilder().forward(header, request).completed();
                         })),
-                DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES)
+                DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES, METERS)
                 .decode(null, byteBuf, messages);
 
         assertEquals(List.of(), messageClasses(messages));
@@ -228,7 +238,8 @@ public class RequestDecoderTest extends AbstractCodecTest {
     private static KafkaRequestDecoder getKafkaRequestDecoder(DecodePredicate predicate, int socketFrameMaxSizeBytes) {
         return new KafkaRequestDecoder(
                 predicate,
-                socketFrameMaxSizeBytes);
+                socketFrameMaxSizeBytes,
+                METERS);
     }
 
     @ParameterizedTest
@@ -270,7 +281,7 @@ public class RequestDecoderTest extends AbstractCodecTest {
                         FilterAndInvoker
                                 .build((ApiVersionsRequestFilter) (version, head, request, context) -> context.requestFilterResultBuilder().forward(header, request)
                                         .completed())),
-                DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES)
+                DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES, METERS)
                 .decode(null, byteBuf, messages);
 
         assertEquals(List.of(DecodedRequestFrame.class, DecodedRequestFrame.class), messageClasses(messages));
@@ -346,4 +357,49 @@ public class RequestDecoderTest extends AbstractCodecTest {
                         DecodedRequestFrame.class, ((RequestHeaderData head) -> head), acks != 0),
                 "Unexpected correlation id");
     }
+
+    /**
+     * A Produce request passes from the client towards the broker without its lazily decoded body being decoded
+     */
+    @ParameterizedTest
+    @MethodSource("produceRequestApiVersions")
+    void shouldForwardProduceRequestWithoutDecodingBody(short produceVersion, short acks) {
+        // given
+        var header = new RequestHeaderData()
+                .setRequestApiKey(ApiKeys.PRODUCE.id)
+                .setRequestApiVersion(produceVersion)
+                .setCorrelationId(45)
+                .setClientId("323423");
+        // without a transactional id, so that its null length precedes acks
+        var body = new ProduceRequestData()
+                .setAcks(acks)
+                .setTimeoutMs(30_000);
+        short headerVersion = ApiKeys.PRODUCE.requestHeaderVersion(produceVersion);
+        ByteBuf encoded = Unpooled.wrappedBuffer(serializeUsingKafkaApis(headerVersion, header, produceVersion, body));
+        var inbound = new EmbeddedChannel(getKafkaRequestDecoder(DECODE_EVERYTHING, DEFAULT_SOCKET_FRAME_MAX_SIZE_BYTES), new ResponseOrderer());
+        var outbound = new EmbeddedChannel(new KafkaRequestEncoder(new CorrelationManager(45)));
+        // trace logging of the body would decode it
+        Map<String, Level> levels = Stream.of(KafkaRequestDecoder.class, KafkaRequestEncoder.class, DecodedFrame.class)
+                .collect(Collectors.toMap(Class::getName, logger -> LogManager.getLogger(logger).getLevel()));
+        levels.keySet().forEach(logger -> Configurator.setLevel(logger, Level.DEBUG));
+
+        DecodedRequestFrame<?> frame;
+        ByteBuf forwarded;
+        try {
+            // when
+            inbound.writeInbound(encoded.retainedDuplicate());
+            frame = inbound.readInbound();
+            outbound.writeOutbound(frame);
+            forwarded = outbound.readOutbound();
+        }
+        finally {
+            Configurator.setLevel(levels);
+        }
+
+        // then
+        assertThat(frame.hasResponse()).isEqualTo(acks != 0);
+        assertThat(frame.body()).isInstanceOfSatisfying(LazyProduceRequestData.class, lazy -> assertThat(lazy.isEncoded()).isTrue());
+        assertThat(ByteBufUtil.getBytes(forwarded)).isEqualTo(ByteBufUtil.getBytes(encoded));
+        forwarded.release();
+    }
 }
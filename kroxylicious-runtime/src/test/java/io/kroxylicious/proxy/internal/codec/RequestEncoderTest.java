@@ -14,17 +14,24 @@ import org.apache.kafka.common.message.ApiVersionsRequestData;
 import org.apache.kafka.common.message.ProduceRequestData;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 
 import io.kroxylicious.proxy.frame.DecodedRequestFrame;
 import io.kroxylicious.proxy.frame.OpaqueRequestFrame;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -93,6 +100,42 @@ public class RequestEncoderTest extends AbstractCodecTest {
                 "Expect request with response to have a correlation");
     }
 
+    @Test
+    void shouldEncodeLargeOpaqueRequestByReference() {
+        // given
+        short produceVersion = ApiKeys.PRODUCE.latestVersion();
+        var header = new RequestHeaderData()
+                .setRequestApiKey(ApiKeys.PRODUCE.id)
+                .setRequestApiVersion(produceVersion)
+                .setClientId("client")
+                .setCorrelationId(45);
+        var body = new ProduceRequestData().setAcks((short) 1);
+        body.topicData().add(new ProduceRequestData.TopicProduceData()
+                .setName("topic")
+                .setPartitionData(List.of(new ProduceRequestData.PartitionProduceData()
+                        .setRecords(MemoryRecords.withRecords(CompressionType.NONE, new SimpleRecord(new byte[16 * 1024]))))));
+        ByteBuffer byteBuffer = serializeUsingKafkaApis(ApiKeys.PRODUCE.requestHeaderVersion(produceVersion), header, produceVersion, body);
+        int frameSize = byteBuffer.getInt();
+        ByteBuf buf = Unpooled.copiedBuffer(byteBuffer);
+        var frame = new OpaqueRequestFrame(buf, header.correlationId(), false, frameSize, true);
+        var correlationManager = new CorrelationManager(78);
+        var channel = new EmbeddedChannel(new KafkaRequestEncoder(correlationManager));
+
+        // when
+        channel.writeOutbound(frame);
+
+        // then
+        ByteBuf encoded = channel.readOutbound();
+        assertThat(encoded).isInstanceOf(CompositeByteBuf.class);
+        assertThat(encoded.readableBytes()).isEqualTo(frameSize + Integer.BYTES);
+        assertThat(encoded.getInt(KafkaRequestEncoder.LENGTH + KafkaRequestEncoder.API_KEY + KafkaRequestEncoder.API_VERSION))
+                .describedAs("upstream correlation id").isEqualTo(78);
+        assertThat(correlationManager.getBrokerCorrelation(78).downstreamCorrelationId()).isEqualTo(45);
+        assertThat(buf.refCnt()).describedAs("payload slice is retained by the encoded buffer").isEqualTo(1);
+        encoded.release();
+        assertThat(buf.refCnt()).isZero();
+    }
+
     private static void whenRequestEncoded(givenRequestFrame result, CorrelationManager correlationManager) throws Exception {
         ByteBuf out = Unpooled.buffer(result.byteBuffer().capacity() + 4);
         new KafkaRequestEncoder(correlationManager).encode(null, result.frame(), out);
@@ -6,15 +6,28 @@
 package io.kroxylicious.proxy.internal.codec;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 
 import org.apache.kafka.common.message.ApiVersionsResponseData;
+import org.apache.kafka.common.message.FetchResponseData;
 import org.apache.kafka.common.message.ResponseHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
 import io.kroxylicious.proxy.frame.DecodedResponseFrame;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class ResponseEncoderTest extends AbstractCodecTest {
     @ParameterizedTest
     @MethodSource("requestApiVersions")
@@ -25,4 +38,35 @@ class ResponseEncoderTest extends AbstractCodecTest {
         ByteBuffer expected = serializeUsingKafkaApis(headerVersion, exampleHeader, apiVersion, exampleBody);
         testEncode(expected, new DecodedResponseFrame<>(apiVersion, exampleHeader.correlationId(), exampleHeader, exampleBody), new KafkaResponseEncoder());
     }
+
+    @Test
+    void shouldEncodeLargeRecordsByReference() {
+        // given
+        short apiVersion = ApiKeys.FETCH.latestVersion();
+        ResponseHeaderData header = new ResponseHeaderData().setCorrelationId(34);
+        ByteBuffer records = MemoryRecords.withRecords(CompressionType.NONE, new SimpleRecord(new byte[16 * 1024])).buffer();
+        ByteBuf recordsBuf = Unpooled.buffer(records.remaining());
+        recordsBuf.writeBytes(records.duplicate());
+        FetchResponseData body = new FetchResponseData();
+        body.responses().add(new FetchResponseData.FetchableTopicResponse()
+                .setTopic("topic")
+                .setPartitions(List.of(new FetchResponseData.PartitionData()
+                        .setRecords(MemoryRecords.readableRecords(recordsBuf.nioBuffer())))));
+        var frame = new DecodedResponseFrame<>(apiVersion, header.correlationId(), header, body);
+        frame.add(recordsBuf);
+        ByteBuffer expected = serializeUsingKafkaApis(ApiKeys.FETCH.responseHeaderVersion(apiVersion), header, apiVersion, body);
+        var channel = new EmbeddedChannel(new KafkaResponseEncoder());
+
+        // when
+        channel.write(frame);
+
+        // then
+        assertThat(recordsBuf.refCnt()).describedAs("frame buffers must outlive the write").isEqualTo(1);
+        channel.flush();
+        assertThat(recordsBuf.refCnt()).isZero();
+        ByteBuf encoded = channel.readOutbound();
+        assertThat(encoded).isInstanceOf(CompositeByteBuf.class);
+        assertSameBytes(Unpooled.wrappedBuffer(expected), encoded);
+        encoded.release();
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.filter;
+
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.message.DescribeClusterRequestData;
+import org.apache.kafka.common.message.DescribeClusterResponseData;
+import org.apache.kafka.common.message.FindCoordinatorRequestData;
+import org.apache.kafka.common.message.FindCoordinatorResponseData;
+import org.apache.kafka.common.message.MetadataRequestData;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.Errors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.kroxylicious.proxy.config.MetadataCache;
+import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.RequestFilterResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class MetadataCacheFilterTest {
+
+    private static final short METADATA_VERSION = MetadataRequestData.HIGHEST_SUPPORTED_VERSION;
+
+    @Mock
+    private FilterContext context;
+
+    private SharedMetadataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SharedMetadataCache(new MetadataCache(60_000L, 10));
+        lenient().when(context.requestFilterResultBuilder()).thenAnswer(i -> new RequestFilterResultBuilderImpl());
+        lenient().when(context.responseFilterResultBuilder()).thenAnswer(i -> new ResponseFilterResultBuilderImpl());
+    }
+
+    private static RequestHeaderData requestHeader(int correlationId) {
+        return new RequestHeaderData().setCorrelationId(correlationId);
+    }
+
+    private static RequestFilterResult result(CompletionStage<RequestFilterResult> stage) {
+        assertThat(stage).isCompleted();
+        return stage.toCompletableFuture().join();
+    }
+
+    @Test
+    void shouldForwardThenAnswerFromCache() {
+        // given
+        var filter1 = new MetadataCacheFilter(cache);
+        var filter2 = new MetadataCacheFilter(cache);
+        var response = new MetadataResponseData().setClusterId("cluster");
+
+        // when
+        var forwarded = result(filter1.onMetadataRequest(METADATA_VERSION, requestHeader(1), new MetadataRequestData(), context));
+        filter1.onMetadataResponse(METADATA_VERSION, new ResponseHeaderData().setCorrelationId(1), response, context);
+        var answered = result(filter2.onMetadataRequest(METADATA_VERSION, requestHeader(7), new MetadataRequestData(), context));
+
+        // then
+        assertThat(forwarded.shortCircuitResponse()).isFalse();
+        assertThat(answered.shortCircuitResponse()).isTrue();
+        assertThat(answered.message()).isEqualTo(response).isNotSameAs(response);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentIdenticalRequests() {
+        // given
+        var filter1 = new MetadataCacheFilter(cache);
+        var filter2 = new MetadataCacheFilter(cache);
+        var response = new DescribeClusterResponseData().setClusterId("cluster");
+        filter1.onDescribeClusterRequest((short) 0, requestHeader(1), new DescribeClusterRequestData(), context);
+
+        // when
+        var waiting = filter2.onDescribeClusterRequest((short) 0, requestHeader(2), new DescribeClusterRequestData(), context);
+
+        // then
+        assertThat(waiting).isNotCompleted();
+        filter1.onDescribeClusterResponse((short) 0, new ResponseHeaderData().setCorrelationId(1), response, context);
+        var answered = result(waiting);
+        assertThat(answered.shortCircuitResponse()).isTrue();
+        assertThat(answered.message()).isEqualTo(response);
+    }
+
+    @Test
+    void shouldNotCacheErrorResponse() {
+        // given
+        var filter = new MetadataCacheFilter(cache);
+        var request = new FindCoordinatorRequestData().setKey("group");
+        var response = new FindCoordinatorResponseData().setErrorCode(Errors.COORDINATOR_NOT_AVAILABLE.code());
+        filter.onFindCoordinatorRequest((short) 3, requestHeader(1), request, context);
+        filter.onFindCoordinatorResponse((short) 3, new ResponseHeaderData().setCorrelationId(1), response, context);
+
+        // when
+        var result = result(filter.onFindCoordinatorRequest((short) 3, requestHeader(2), request.duplicate(), context));
+
+        // then
+        assertThat(result.shortCircuitResponse()).isFalse();
+    }
+
+    @Test
+    void shouldNotAnswerDifferentRequestFromCache() {
+        // given
+        var filter = new MetadataCacheFilter(cache);
+        filter.onMetadataRequest(METADATA_VERSION, requestHeader(1), new MetadataRequestData(), context);
+        filter.onMetadataResponse(METADATA_VERSION, new ResponseHeaderData().setCorrelationId(1), new MetadataResponseData(), context);
+
+        // when
+        var result = result(filter.onMetadataRequest(METADATA_VERSION, requestHeader(2), new MetadataRequestData().setAllowAutoTopicCreation(false), context));
+
+        // then
+        assertThat(result.shortCircuitResponse()).isFalse();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.filter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.common.message.MetadataRequestData;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.proxy.config.MetadataCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedMetadataCacheTest {
+
+    private static final short VERSION = MetadataRequestData.HIGHEST_SUPPORTED_VERSION;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private SharedMetadataCache cache(long maxAgeMs, int maxEntries) {
+        return new SharedMetadataCache(new MetadataCache(maxAgeMs, maxEntries), nanos::get);
+    }
+
+    private static SharedMetadataCache.Key key(String topic) {
+        return SharedMetadataCache.keyFor(VERSION,
+                new MetadataRequestData().setTopics(List.of(new MetadataRequestData.MetadataRequestTopic().setName(topic))));
+    }
+
+    private static MetadataResponseData response(String clusterId) {
+        return new MetadataResponseData().setClusterId(clusterId);
+    }
+
+    @Test
+    void shouldReturnCopyOfFreshResponse() {
+        // given
+        var cache = cache(1000, 10);
+        var response = response("a");
+        cache.complete(key("foo"), response, true);
+
+        // when
+        var cached = cache.get(key("foo"));
+
+        // then
+        assertThat(cached).isEqualTo(response).isNotSameAs(response);
+        assertThat(cache.get(key("bar"))).isNull();
+    }
+
+    @Test
+    void shouldNotReturnStaleResponse() {
+        // given
+        var cache = cache(1000, 10);
+        cache.complete(key("foo"), response("a"), true);
+
+        // when
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // then
+        assertThat(cache.get(key("foo"))).isNull();
+    }
+
+    @Test
+    void shouldNotCacheUncacheableResponse() {
+        // given
+        var cache = cache(1000, 10);
+
+        // when
+        cache.complete(key("foo"), response("a"), false);
+
+        // then
+        assertThat(cache.get(key("foo"))).isNull();
+    }
+
+    @Test
+    void shouldNotCacheWhenMaxAgeIsZero() {
+        // given
+        var cache = cache(0, 10);
+
+        // when
+        cache.complete(key("foo"), response("a"), true);
+
+        // then
+        assertThat(cache.get(key("foo"))).isNull();
+    }
+
+    @Test
+    void shouldNotBeAffectedByChangesToTheRequest() {
+        // given
+        var cache = cache(1000, 10);
+        var request = new MetadataRequestData().setTopics(List.of(new MetadataRequestData.MetadataRequestTopic().setName("foo")));
+        var key = SharedMetadataCache.keyFor(VERSION, request);
+        cache.complete(key, response("a"), true);
+
+        // when
+        request.topics().get(0).setName("bar");
+
+        // then
+        assertThat(cache.get(key("foo"))).isNotNull();
+    }
+
+    @Test
+    void shouldBoundNumberOfEntries() {
+        // given
+        var cache = cache(1000, 1);
+        cache.complete(key("foo"), response("a"), true);
+
+        // when
+        cache.complete(key("bar"), response("b"), true);
+
+        // then
+        assertThat(cache.get(key("foo"))).isNotNull();
+        assertThat(cache.get(key("bar"))).isNull();
+    }
+
+    @Test
+    void shouldEvictStaleEntryWhenFull() {
+        // given
+        var cache = cache(1000, 1);
+        cache.complete(key("foo"), response("a"), true);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // when
+        cache.complete(key("bar"), response("b"), true);
+
+        // then
+        assertThat(cache.get(key("bar"))).isNotNull();
+    }
+
+    @Test
+    void shouldCoalesceIdenticalInFlightRequests() {
+        // given
+        var cache = cache(0, 10);
+        assertThat(cache.joinInFlight(key("foo"))).isNull();
+
+        // when
+        var follower = cache.joinInFlight(key("foo"));
+        var other = cache.joinInFlight(key("bar"));
+
+        // then
+        assertThat(follower).isNotNull().isNotDone();
+        assertThat(other).isNull();
+        var response = response("a");
+        cache.complete(key("foo"), response, false);
+        assertThat(follower).isCompletedWithValue(response);
+        assertThat(follower.join()).isNotSameAs(response);
+        assertThat(cache.joinInFlight(key("foo"))).isNull();
+    }
+
+    @Test
+    void shouldTakeOverAbandonedInFlightRequest() {
+        // given
+        var cache = cache(0, 10);
+        cache.joinInFlight(key("foo"));
+        var follower = cache.joinInFlight(key("foo"));
+
+        // when
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(SharedMetadataCache.MAX_WAIT_MS));
+        var takeOver = cache.joinInFlight(key("foo"));
+
+        // then
+        assertThat(takeOver).isNull();
+        assertThat(follower).isCompletedExceptionally();
+    }
+
+    @Test
+    void shouldRejectInvalidConfig() {
+        assertThatThrownBy(() -> new MetadataCache(-1L, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MetadataCache(null, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new MetadataCache(null, null))
+                .returns(MetadataCache.DEFAULT_MAX_AGE_MS, MetadataCache::maxAgeMs)
+                .returns(MetadataCache.DEFAULT_MAX_ENTRIES, MetadataCache::maxEntries);
+    }
+}
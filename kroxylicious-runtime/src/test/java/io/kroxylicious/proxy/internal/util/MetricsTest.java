@@ -0,0 +1,108 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.util;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        io.micrometer.core.instrument.Metrics.globalRegistry.add(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        io.micrometer.core.instrument.Metrics.globalRegistry.remove(registry);
+        io.micrometer.core.instrument.Metrics.globalRegistry.clear();
+    }
+
+    @Test
+    void shouldTagCountersWithVirtualCluster() {
+        // given
+        var meters = Metrics.forVirtualCluster("demo");
+
+        // when
+        meters.inboundDownstreamMessagesCounter().increment();
+        meters.inboundDownstreamDecodedMessagesCounter().increment();
+
+        // then
+        assertThat(registry.get("kroxylicious_inbound_downstream_messages").tag("virtual_cluster", "demo").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("kroxylicious_inbound_downstream_decoded_messages").tag("virtual_cluster", "demo").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldTagSummariesWithVirtualClusterAndApi() {
+        // given
+        var meters = Metrics.forVirtualCluster("demo");
+
+        // when
+        meters.payloadSizeBytesUpstreamSummary(ApiKeys.PRODUCE, (short) 9).record(10);
+        meters.payloadSizeBytesDownstreamSummary(ApiKeys.FETCH, (short) 13).record(20);
+
+        // then
+        assertThat(registry.get("kroxylicious_payload_size_bytes")
+                .tags("virtual_cluster", "demo", "ApiKey", "PRODUCE", "ApiVersion", "9", "flowing", "upstream")
+                .summary().totalAmount()).isEqualTo(10.0);
+        assertThat(registry.get("kroxylicious_payload_size_bytes")
+                .tags("virtual_cluster", "demo", "ApiKey", "FETCH", "ApiVersion", "13", "flowing", "downstream")
+                .summary().totalAmount()).isEqualTo(20.0);
+    }
+
+    @Test
+    void shouldKeepVirtualClustersSeparate() {
+        // given
+        var meters1 = Metrics.forVirtualCluster("demo1");
+        var meters2 = Metrics.forVirtualCluster("demo2");
+
+        // when
+        meters1.inboundDownstreamMessagesCounter().increment();
+
+        // then
+        assertThat(registry.get("kroxylicious_inbound_downstream_messages").tag("virtual_cluster", "demo1").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("kroxylicious_inbound_downstream_messages").tag("virtual_cluster", "demo2").counter().count()).isZero();
+        assertThat(meters2.inboundDownstreamMessagesCounter()).isNotSameAs(meters1.inboundDownstreamMessagesCounter());
+    }
+
+    @Test
+    void shouldCacheSummaryHandles() {
+        // given
+        var meters = Metrics.forVirtualCluster("demo");
+
+        // when
+        var first = meters.payloadSizeBytesUpstreamSummary(ApiKeys.METADATA, (short) 12);
+        var second = meters.payloadSizeBytesUpstreamSummary(ApiKeys.METADATA, (short) 12);
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(meters.payloadSizeBytesDownstreamSummary(ApiKeys.METADATA, (short) 12)).isNotSameAs(first);
+    }
+
+    @Test
+    void shouldTolerateUnknownApiVersion() {
+        // given
+        var meters = Metrics.forVirtualCluster("demo");
+        short unknownVersion = (short) (ApiKeys.METADATA.latestVersion() + 1);
+
+        // when
+        meters.payloadSizeBytesUpstreamSummary(ApiKeys.METADATA, unknownVersion).record(1);
+
+        // then
+        assertThat(registry.get("kroxylicious_payload_size_bytes")
+                .tags("virtual_cluster", "demo", "ApiVersion", String.valueOf(unknownVersion))
+                .summary().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.FetchRequestData;
+import org.apache.kafka.common.message.FetchResponseData;
+import org.apache.kafka.common.message.MetadataRequestData;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.message.ProduceResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.kafka.common.protocol.ObjectSerializationCache;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import io.kroxylicious.proxy.frame.DecodedFrame;
+import io.kroxylicious.proxy.frame.Frame;
+import io.kroxylicious.proxy.internal.codec.CorrelationManager;
+import io.kroxylicious.proxy.internal.codec.DecodePredicate;
+import io.kroxylicious.proxy.internal.codec.KafkaRequestDecoder;
+import io.kroxylicious.proxy.internal.codec.KafkaRequestEncoder;
+import io.kroxylicious.proxy.internal.codec.KafkaResponseDecoder;
+import io.kroxylicious.proxy.internal.codec.KafkaResponseEncoder;
+import io.kroxylicious.proxy.internal.util.Metrics;
+
+/**
+ * Measures a request/response exchange through the proxy's codecs, as they are arranged in the proxy's pipelines:
+ * the request is decoded from the client, re-encoded for the broker (rewriting the correlation id), and the response
+ * is decoded from the broker and re-encoded for the client.
+ * <ul>
+ *     <li>{@code OPAQUE} models a filter chain which is not interested in the API, so frames are passed through as buffers.</li>
+ *     <li>{@code DECODED} models a filter chain which is interested in the API, but which does not read the message bodies.</li>
+ *     <li>{@code MATERIALIZED} additionally reads each message body, so bodies which are decoded lazily are fully deserialized
+ *     and re-serialized.</li>
+ * </ul>
+ * Run with {@code -prof gc} to observe the per-exchange allocation rate.
+ */
+@Fork(value = 2, jvmArgsAppend = "-Dio.netty.leakDetection.level=disabled")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CodecBenchmark {
+
+    private static final int MAX_FRAME_SIZE = 100 * 1024 * 1024;
+    private static final int PARTITIONS = 10;
+    private static final int RECORDS_PER_PARTITION = 10;
+    private static final int RECORD_SIZE = 1024;
+    private static final int METADATA_TOPICS = 100;
+    private static final short PRODUCE_VERSION = 9;
+
+    public enum Mode {
+        OPAQUE,
+        DECODED,
+        MATERIALIZED
+    }
+
+    @State(Scope.Thread)
+    public static class BenchState {
+
+        @Param({ "PRODUCE", "FETCH", "METADATA" })
+        ApiKeys apiKey;
+
+        @Param({ "OPAQUE", "DECODED", "MATERIALIZED" })
+        Mode mode;
+
+        /** The channel to the client, as configured by the proxy's frontend. */
+        EmbeddedChannel downstream;
+        /** The channel to the broker, as configured by the proxy's backend. */
+        EmbeddedChannel upstream;
+        ByteBuf request;
+        ByteBuf response;
+
+        @Setup(Level.Trial)
+        public void init() {
+            boolean decode = mode != Mode.OPAQUE;
+            DecodePredicate predicate = new DecodePredicate() {
+                @Override
+                public boolean shouldDecodeRequest(ApiKeys apiKey, short apiVersion) {
+                    return decode;
+                }
+
+                @Override
+                public boolean shouldDecodeResponse(ApiKeys apiKey, short apiVersion) {
+                    return decode;
+                }
+            };
+            CorrelationManager correlationManager = new CorrelationManager();
+            Metrics.ConnectionMeters meters = Metrics.forVirtualCluster("benchmark");
+            downstream = new EmbeddedChannel(new KafkaRequestDecoder(predicate, MAX_FRAME_SIZE, meters), new KafkaResponseEncoder());
+            upstream = new EmbeddedChannel(new KafkaRequestEncoder(correlationManager), new KafkaResponseDecoder(correlationManager, MAX_FRAME_SIZE, meters));
+            short apiVersion = apiKey == ApiKeys.PRODUCE ? PRODUCE_VERSION : apiKey.latestVersion();
+            request = serialize(new RequestHeaderData()
+                    .setRequestApiKey(apiKey.id)
+                    .setRequestApiVersion(apiVersion)
+                    .setCorrelationId(0)
+                    .setClientId("benchmark-client"),
+                    apiKey.requestHeaderVersion(apiVersion),
+                    requestBody(apiKey), apiVersion);
+            response = serialize(new ResponseHeaderData().setCorrelationId(0),
+                    apiKey.responseHeaderVersion(apiVersion),
+                    responseBody(apiKey), apiVersion);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            downstream.finishAndReleaseAll();
+            upstream.finishAndReleaseAll();
+            request.release();
+            response.release();
+        }
+    }
+
+    @Benchmark
+    public void exchange(BenchState state, Blackhole blackhole) {
+        // client -> proxy
+        state.downstream.writeInbound(state.request.retainedDuplicate());
+        Frame requestFrame = state.downstream.readInbound();
+        materialize(state.mode, requestFrame, blackhole);
+        // proxy -> broker
+        state.upstream.writeOutbound(requestFrame);
+        ByteBuf upstreamRequest = state.upstream.readOutbound();
+        int upstreamCorrelationId = upstreamRequest.getInt(KafkaRequestEncoder.LENGTH + KafkaRequestEncoder.API_KEY + KafkaRequestEncoder.API_VERSION);
+        blackhole.consume(upstreamRequest.readableBytes());
+        upstreamRequest.release();
+        // broker -> proxy
+        ByteBuf upstreamResponse = state.response.retainedDuplicate();
+        upstreamResponse.setInt(Integer.BYTES, upstreamCorrelationId);
+        state.upstream.writeInbound(upstreamResponse);
+        Frame responseFrame = state.upstream.readInbound();
+        materialize(state.mode, responseFrame, blackhole);
+        // proxy -> client
+        state.downstream.writeOutbound(responseFrame);
+        ByteBuf downstreamResponse = state.downstream.readOutbound();
+        blackhole.consume(downstreamResponse.readableBytes());
+        downstreamResponse.release();
+    }
+
+    private static void materialize(Mode mode, Frame frame, Blackhole blackhole) {
+        if (mode == Mode.MATERIALIZED && frame instanceof DecodedFrame<?, ?> decodedFrame) {
+            // reading any part of a lazily decoded body causes the whole body to be deserialized
+            blackhole.consume(decodedFrame.body().unknownTaggedFields());
+        }
+        else {
+            blackhole.consume(frame);
+        }
+    }
+
+    private static ByteBuf serialize(ApiMessage header, short headerVersion, ApiMessage body, short apiVersion) {
+        var cache = new ObjectSerializationCache();
+        int size = header.size(cache, headerVersion) + body.size(cache, apiVersion);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + size);
+        buffer.putInt(size);
+        var accessor = new ByteBufferAccessor(buffer);
+        header.write(accessor, cache, headerVersion);
+        body.write(accessor, cache, apiVersion);
+        buffer.flip();
+        ByteBuf result = Unpooled.directBuffer(buffer.remaining());
+        result.writeBytes(buffer);
+        return result;
+    }
+
+    private static MemoryRecords records() {
+        byte[] value = new byte[RECORD_SIZE];
+        SimpleRecord[] records = new SimpleRecord[RECORDS_PER_PARTITION];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new SimpleRecord(System.currentTimeMillis(), ("key" + i).getBytes(), value);
+        }
+        return MemoryRecords.withRecords(CompressionType.NONE, records);
+    }
+
+    private static ApiMessage requestBody(ApiKeys apiKey) {
+        return switch (apiKey) {
+            case PRODUCE -> {
+                var topic = new ProduceRequestData.TopicProduceData().setName("benchmark-topic");
+                for (int p = 0; p < PARTITIONS; p++) {
+                    topic.partitionData().add(new ProduceRequestData.PartitionProduceData().setIndex(p).setRecords(records()));
+                }
+                var data = new ProduceRequestData().setAcks((short) -1).setTimeoutMs(30_000);
+                data.topicData().add(topic);
+                yield data;
+            }
+            case FETCH -> {
+                var topic = new FetchRequestData.FetchTopic().setTopicId(Uuid.randomUuid());
+                for (int p = 0; p < PARTITIONS; p++) {
+                    topic.partitions().add(new FetchRequestData.FetchPartition().setPartition(p).setFetchOffset(1000L).setPartitionMaxBytes(1024 * 1024));
+                }
+                yield new FetchRequestData().setMaxWaitMs(500).setMinBytes(1).setMaxBytes(50 * 1024 * 1024).setTopics(new ArrayList<>(List.of(topic)));
+            }
+            case METADATA -> new MetadataRequestData().setTopics(null).setAllowAutoTopicCreation(false);
+            default -> throw new IllegalArgumentException("Unsupported API " + apiKey);
+        };
+    }
+
+    private static ApiMessage responseBody(ApiKeys apiKey) {
+        return switch (apiKey) {
+            case PRODUCE -> {
+                var topic = new ProduceResponseData.TopicProduceResponse().setName("benchmark-topic");
+                for (int p = 0; p < PARTITIONS; p++) {
+                    topic.partitionResponses().add(new ProduceResponseData.PartitionProduceResponse().setIndex(p).setBaseOffset(1000L * p));
+                }
+                var data = new ProduceResponseData();
+                data.responses().add(topic);
+                yield data;
+            }
+            case FETCH -> {
+                var topic = new FetchResponseData.FetchableTopicResponse().setTopicId(Uuid.randomUuid());
+                for (int p = 0; p < PARTITIONS; p++) {
+                    topic.partitions().add(new FetchResponseData.PartitionData().setPartitionIndex(p).setHighWatermark(2000L).setRecords(records()));
+                }
+                yield new FetchResponseData().setResponses(new ArrayList<>(List.of(topic)));
+            }
+            case METADATA -> {
+                var data = new MetadataResponseData().setClusterId("benchmark-cluster").setControllerId(0);
+                for (int b = 0; b < 3; b++) {
+                    data.brokers().add(new MetadataResponseData.MetadataResponseBroker().setNodeId(b).setHost("broker" + b + ".example.com").setPort(9092));
+                }
+                for (int t = 0; t < METADATA_TOPICS; t++) {
+                    var topic = new MetadataResponseData.MetadataResponseTopic().setName("topic-" + t).setTopicId(Uuid.randomUuid());
+                    for (int p = 0; p < PARTITIONS; p++) {
+                        topic.partitions().add(new MetadataResponseData.MetadataResponsePartition()
+                                .setPartitionIndex(p)
+                                .setLeaderId(p % 3)
+                                .setReplicaNodes(List.of(0, 1, 2))
+                                .setIsrNodes(List.of(0, 1, 2)));
+                    }
+                    data.topics().add(topic);
+                }
+                yield data;
+            }
+            default -> throw new IllegalArgumentException("Unsupported API " + apiKey);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarks;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.kroxylicious.proxy.internal.codec.CorrelationManager;
+import io.kroxylicious.proxy.internal.codec.HashMapCorrelationManager;
+
+/**
+ * Compares {@link CorrelationManager} with the boxed {@link HashMapCorrelationManager} it replaced.
+ * Each operation models one request/response exchange on a connection which has {@code inFlight} requests
+ * pipelined: a new request is registered and the response for the oldest outstanding request is correlated.
+ * Run with {@code -prof gc} to observe the per-operation allocation rate.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CorrelationManagerBenchmark {
+
+    private static final short PRODUCE = ApiKeys.PRODUCE.id;
+    private static final short PRODUCE_VERSION = ApiKeys.PRODUCE.latestVersion();
+
+    @State(Scope.Thread)
+    public static class BenchState {
+
+        // 5 is the default max.in.flight.requests.per.connection, larger values model many clients sharing a connection
+        @Param({ "1", "5", "100", "10000" })
+        int inFlight;
+
+        CorrelationManager correlationManager;
+        HashMapCorrelationManager hashMapCorrelationManager;
+        int downstreamId;
+
+        @Setup
+        public void init() {
+            correlationManager = new CorrelationManager();
+            hashMapCorrelationManager = new HashMapCorrelationManager();
+            for (downstreamId = 0; downstreamId < inFlight; downstreamId++) {
+                correlationManager.putBrokerRequest(PRODUCE, PRODUCE_VERSION, downstreamId, true, null, null, false);
+                hashMapCorrelationManager.putBrokerRequest(PRODUCE, PRODUCE_VERSION, downstreamId, true, null, null, false);
+            }
+        }
+    }
+
+    @Benchmark
+    public void correlationManager(BenchState state, Blackhole blackhole) {
+        int upstreamId = state.correlationManager.putBrokerRequest(PRODUCE, PRODUCE_VERSION, state.downstreamId++, true, null, null, false);
+        CorrelationManager.Correlation correlation = state.correlationManager.getBrokerCorrelation(upstreamId - state.inFlight);
+        blackhole.consume(correlation.downstreamCorrelationId());
+    }
+
+    @Benchmark
+    public void hashMapCorrelationManager(BenchState state, Blackhole blackhole) {
+        int upstreamId = state.hashMapCorrelationManager.putBrokerRequest(PRODUCE, PRODUCE_VERSION, state.downstreamId++, true, null, null, false);
+        HashMapCorrelationManager.Correlation correlation = state.hashMapCorrelationManager.getBrokerCorrelation(upstreamId - state.inFlight);
+        blackhole.consume(correlation.downstreamCorrelationId());
+    }
+}
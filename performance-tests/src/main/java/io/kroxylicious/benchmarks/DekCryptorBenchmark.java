@@ -0,0 +1,117 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.kroxylicious.filter.encryption.dek.CipherSpec;
+import io.kroxylicious.filter.encryption.dek.Dek;
+import io.kroxylicious.filter.encryption.dek.DekManager;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryEdek;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.UnitTestingKmsService;
+
+/**
+ * Measures the records per second encrypted and decrypted using a {@link Dek}, for each {@link CipherSpec}
+ * and a range of record sizes. Each invocation encrypts (or decrypts) a batch of records with a new
+ * encryptor (or decryptor), as the encryption filter does for each record batch it handles.
+ * Run with {@code -prof gc} to observe the per-record allocation rate.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DekCryptorBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+
+    @State(Scope.Thread)
+    public static class BenchState {
+
+        @Param({ "AES_128_GCM_128", "CHACHA20_POLY1305" })
+        CipherSpec cipherSpec;
+
+        @Param({ "16", "256", "4096" })
+        int recordSize;
+
+        Dek<InMemoryEdek> dek;
+        ByteBuffer plaintext;
+        ByteBuffer parameters;
+        ByteBuffer ciphertext;
+        ByteBuffer encryptBuffer;
+        ByteBuffer decryptBuffer;
+
+        @Setup(Level.Trial)
+        public void init() {
+            var kmsService = new UnitTestingKmsService();
+            var config = new UnitTestingKmsService.Config();
+            var kek = kmsService.buildKms(config).generateKey();
+            var dekManager = new DekManager<>(kmsService, config, Long.MAX_VALUE);
+            dek = dekManager.generateDek(kek, cipherSpec).toCompletableFuture().join();
+
+            var bytes = new byte[recordSize];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            plaintext = ByteBuffer.wrap(bytes);
+            encryptBuffer = ByteBuffer.allocate(recordSize + 64);
+            decryptBuffer = ByteBuffer.allocate(recordSize + 64);
+
+            // a record to decrypt
+            try (var encryptor = dek.encryptor(1)) {
+                parameters = copy(encryptor.generateParameters(ByteBuffer::allocate));
+                ciphertext = copy(encryptor.encrypt(plaintext, null, ByteBuffer::allocate));
+            }
+        }
+
+        private static ByteBuffer copy(ByteBuffer buffer) {
+            var copy = ByteBuffer.allocate(buffer.remaining());
+            copy.put(buffer).flip();
+            return copy;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            dek.destroy();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void encrypt(BenchState state, Blackhole blackhole) {
+        try (var encryptor = state.dek.encryptor(BATCH_SIZE)) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                var buffer = state.encryptBuffer.clear();
+                var parameters = encryptor.generateParameters(size -> buffer.slice());
+                buffer.position(parameters.limit());
+                blackhole.consume(encryptor.encrypt(state.plaintext, null, size -> buffer.slice()));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decrypt(BenchState state, Blackhole blackhole) {
+        try (var decryptor = state.dek.decryptor()) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                state.decryptBuffer.clear();
+                decryptor.decrypt(state.ciphertext.duplicate(), null, state.parameters.duplicate(), state.decryptBuffer);
+                blackhole.consume(state.decryptBuffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.message.ProduceResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import io.kroxylicious.proxy.filter.FilterAndInvoker;
+import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.ProduceRequestFilter;
+import io.kroxylicious.proxy.filter.ProduceResponseFilter;
+import io.kroxylicious.proxy.filter.RequestFilterResult;
+import io.kroxylicious.proxy.filter.ResponseFilterResult;
+import io.kroxylicious.proxy.frame.DecodedRequestFrame;
+import io.kroxylicious.proxy.frame.DecodedResponseFrame;
+import io.kroxylicious.proxy.internal.ApiVersionsServiceImpl;
+import io.kroxylicious.proxy.internal.FilterHandler;
+import io.kroxylicious.proxy.internal.FusedFilterHandler;
+
+/**
+ * Measures a decoded request and its response passing through a chain of filters which forward them unchanged,
+ * with the chain applied either by one {@link FilterHandler} per filter in the pipeline ({@code PIPELINE})
+ * or by a single {@link FusedFilterHandler} ({@code FUSED}).
+ * Run with {@code -prof gc} to observe the per-exchange allocation rate.
+ */
+@Fork(value = 2, jvmArgsAppend = "-Dio.netty.leakDetection.level=disabled")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilterChainBenchmark {
+
+    private static final long TIMEOUT_MS = 20000;
+    private static final short PRODUCE_VERSION = 9;
+
+    public enum Mode {
+        PIPELINE,
+        FUSED
+    }
+
+    @State(Scope.Thread)
+    public static class BenchState {
+
+        @Param({ "1", "3", "6" })
+        int filterCount;
+
+        @Param({ "PIPELINE", "FUSED" })
+        Mode mode;
+
+        EmbeddedChannel inbound;
+        EmbeddedChannel channel;
+        DecodedRequestFrame<ProduceRequestData> request;
+        DecodedResponseFrame<ProduceResponseData> response;
+
+        @Setup(Level.Trial)
+        public void init() {
+            inbound = new EmbeddedChannel();
+            var apiVersionsService = new ApiVersionsServiceImpl();
+            List<FilterHandler> handlers = new ArrayList<>();
+            for (int i = 0; i < filterCount; i++) {
+                for (var filterAndInvoker : FilterAndInvoker.build(new PassThroughFilter())) {
+                    handlers.add(new FilterHandler(filterAndInvoker, TIMEOUT_MS, null, null, inbound, apiVersionsService));
+                }
+            }
+            if (mode == Mode.FUSED) {
+                channel = new EmbeddedChannel(new FusedFilterHandler(handlers));
+            }
+            else {
+                // the pipeline is ordered from the broker end, so the first filter is the last handler
+                List<ChannelHandler> pipeline = new ArrayList<>(handlers);
+                Collections.reverse(pipeline);
+                channel = new EmbeddedChannel(pipeline.toArray(ChannelHandler[]::new));
+            }
+            var requestHeader = new RequestHeaderData()
+                    .setRequestApiKey(ApiKeys.PRODUCE.id)
+                    .setRequestApiVersion(PRODUCE_VERSION)
+                    .setCorrelationId(1)
+                    .setClientId("benchmark-client");
+            request = new DecodedRequestFrame<>(PRODUCE_VERSION, 1, true, requestHeader, new ProduceRequestData().setAcks((short) 1));
+            response = new DecodedResponseFrame<>(PRODUCE_VERSION, 1, new ResponseHeaderData().setCorrelationId(1), new ProduceResponseData());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            channel.finishAndReleaseAll();
+            inbound.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public void exchange(BenchState state, Blackhole blackhole) {
+        state.channel.writeOutbound(state.request);
+        blackhole.consume(state.channel.<Object> readOutbound());
+        state.channel.writeInbound(state.response);
+        blackhole.consume(state.channel.<Object> readInbound());
+    }
+
+    private static class PassThroughFilter implements ProduceRequestFilter, ProduceResponseFilter {
+
+        @Override
+        public CompletionStage<RequestFilterResult> onProduceRequest(short apiVersion, RequestHeaderData header, ProduceRequestData request,
+                                                                     FilterContext context) {
+            return context.forwardRequest(header, request);
+        }
+
+        @Override
+        public CompletionStage<ResponseFilterResult> onProduceResponse(short apiVersion, ResponseHeaderData header, ProduceResponseData response,
+                                                                       FilterContext context) {
+            return context.forwardResponse(header, response);
+        }
+    }
+}
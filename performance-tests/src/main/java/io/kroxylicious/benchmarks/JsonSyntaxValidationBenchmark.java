@@ -0,0 +1,101 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.kroxylicious.proxy.filter.schema.validation.Result;
+import io.kroxylicious.proxy.filter.schema.validation.bytebuf.BytebufValidator;
+import io.kroxylicious.proxy.filter.schema.validation.bytebuf.BytebufValidators;
+
+/**
+ * Measures validating that record values are syntactically correct JSON, with and without checking that
+ * object keys are unique, for a range of value sizes. The invalid values are truncated, so the validator
+ * reads all but the last byte before rejecting them.
+ * Run with {@code -prof gc} to observe the per-record allocation rate.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonSyntaxValidationBenchmark {
+
+    @State(Scope.Thread)
+    public static class BenchState {
+
+        @Param({ "64", "1024", "16384" })
+        int valueSize;
+
+        @Param({ "true", "false" })
+        boolean validateObjectKeysUnique;
+
+        BytebufValidator validator;
+        Record validRecord;
+        Record invalidRecord;
+
+        @Setup(Level.Trial)
+        public void init() {
+            validator = BytebufValidators.jsonSyntaxValidator(validateObjectKeysUnique);
+            String value = jsonObject(valueSize);
+            validRecord = record(value);
+            invalidRecord = record(value.substring(0, value.length() - 1));
+        }
+
+        private static String jsonObject(int size) {
+            StringBuilder json = new StringBuilder("{");
+            int field = 0;
+            while (json.length() < size) {
+                if (field > 0) {
+                    json.append(',');
+                }
+                json.append("\"field").append(field).append("\":");
+                switch (field++ % 4) {
+                    case 0 -> json.append("\"value").append(field).append('"');
+                    case 1 -> json.append(field * 31L);
+                    case 2 -> json.append("[true,false,null]");
+                    default -> json.append("{\"nested\":").append(field).append('}');
+                }
+            }
+            return json.append('}').toString();
+        }
+
+        private static Record record(String value) {
+            var records = MemoryRecords.withRecords(CompressionType.NONE,
+                    new SimpleRecord(null, value.getBytes(StandardCharsets.UTF_8)));
+            return records.records().iterator().next();
+        }
+    }
+
+    @Benchmark
+    public Result validateValid(BenchState state) {
+        return validate(state.validator, state.validRecord);
+    }
+
+    @Benchmark
+    public Result validateInvalid(BenchState state) {
+        return validate(state.validator, state.invalidRecord);
+    }
+
+    private static Result validate(BytebufValidator validator, Record record) {
+        ByteBuffer value = record.value();
+        return validator.validate(value, record.valueSize(), record, false);
+    }
+}
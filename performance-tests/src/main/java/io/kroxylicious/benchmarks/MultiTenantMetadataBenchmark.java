@@ -0,0 +1,158 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.kroxylicious.proxy.ApiVersionsService;
+import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.RequestFilterResult;
+import io.kroxylicious.proxy.filter.RequestFilterResultBuilder;
+import io.kroxylicious.proxy.filter.ResponseFilterResult;
+import io.kroxylicious.proxy.filter.ResponseFilterResultBuilder;
+import io.kroxylicious.proxy.filter.multitenant.MultiTenantTransformationFilter;
+
+/**
+ * Measures the multitenant filter handling a large Metadata response, listing the topics of several tenants,
+ * of which the filter keeps those of its own tenant and removes their prefix.
+ * Each invocation decodes the response, as the proxy does for each response it handles, so the cost of the
+ * filter is the difference between the {@code decodeAndFilter} and {@code decode} benchmarks.
+ * Run with {@code -prof gc} to observe the per-response allocation rate.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MultiTenantMetadataBenchmark {
+
+    private static final int TENANTS = 4;
+    private static final String TENANT = "tenant0";
+
+    @State(Scope.Thread)
+    public static class BenchState {
+
+        @Param({ "1000", "10000", "50000" })
+        int topicCount;
+
+        MultiTenantTransformationFilter filter;
+        FilterContext context;
+        byte[] encodedResponse;
+        short version;
+
+        @Setup(Level.Trial)
+        public void init() {
+            filter = new MultiTenantTransformationFilter();
+            context = new BenchmarkFilterContext(TENANT);
+            version = MetadataResponseData.HIGHEST_SUPPORTED_VERSION;
+            var template = new MetadataResponseData();
+            for (int i = 0; i < topicCount; i++) {
+                template.topics().add(new MetadataResponseData.MetadataResponseTopic()
+                        .setName("tenant" + (i % TENANTS) + "-topic-" + i));
+            }
+            var buffer = MessageUtil.toByteBuffer(template, version);
+            encodedResponse = new byte[buffer.remaining()];
+            buffer.get(encodedResponse);
+        }
+    }
+
+    private static MetadataResponseData decodeResponse(BenchState state) {
+        // decoding gives the topic names the freshly allocated strings of a response read from the network
+        return new MetadataResponseData(new ByteBufferAccessor(ByteBuffer.wrap(state.encodedResponse)), state.version);
+    }
+
+    /**
+     * The cost of decoding the response, which is included in that of {@link #decodeAndFilter(BenchState, Blackhole)}.
+     */
+    @Benchmark
+    public void decode(BenchState state, Blackhole blackhole) {
+        blackhole.consume(decodeResponse(state));
+    }
+
+    @Benchmark
+    public void decodeAndFilter(BenchState state, Blackhole blackhole) {
+        var response = decodeResponse(state);
+        blackhole.consume(state.filter.onMetadataResponse(state.version, new ResponseHeaderData(), response, state.context));
+        blackhole.consume(response);
+    }
+
+    /**
+     * Implements the parts of the filter context used by the filter's handling of Metadata.
+     */
+    private record BenchmarkFilterContext(String virtualClusterName) implements FilterContext {
+
+        @Override
+        public String getVirtualClusterName() {
+            return virtualClusterName;
+        }
+
+        @Override
+        public CompletionStage<ResponseFilterResult> forwardResponse(ResponseHeaderData header, ApiMessage response) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletionStage<RequestFilterResult> forwardRequest(RequestHeaderData header, ApiMessage request) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public String channelDescriptor() {
+            return "benchmark";
+        }
+
+        @Override
+        public ByteBufferOutputStream createByteBufferOutputStream(int initialCapacity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String sniHostname() {
+            return null;
+        }
+
+        @Override
+        public RequestFilterResultBuilder requestFilterResultBuilder() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <M extends ApiMessage> CompletionStage<M> sendRequest(RequestHeaderData header, ApiMessage request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResponseFilterResultBuilder responseFilterResultBuilder() {
+            throw new UnsupportedOperationException();
+        }
+
+        // FilterContext requires an implementation until the deprecated ApiVersionsService is removed
+        @SuppressWarnings({ "deprecation", "removal" })
+        @Override
+        public ApiVersionsService getApiVersionsService() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
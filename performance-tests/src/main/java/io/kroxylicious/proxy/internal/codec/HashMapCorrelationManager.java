@@ -0,0 +1,49 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.codec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import io.kroxylicious.proxy.filter.Filter;
+
+/**
+ * The boxed {@link HashMap} based correlation tracking which {@link CorrelationManager} used to be built on,
+ * retained as a baseline for benchmarking.
+ */
+public class HashMapCorrelationManager {
+
+    private final Map<Integer, Correlation> brokerRequests = new HashMap<>();
+
+    private int upstreamId;
+
+    public int putBrokerRequest(short apiKey,
+                                short apiVersion,
+                                int downstreamCorrelationId,
+                                boolean hasResponse,
+                                Filter recipient,
+                                CompletableFuture<?> promise,
+                                boolean decodeResponse) {
+        int upstreamCorrelationId = upstreamId++;
+        if (hasResponse) {
+            this.brokerRequests.put(upstreamCorrelationId,
+                    new Correlation(apiKey, apiVersion, downstreamCorrelationId, decodeResponse, recipient, promise));
+        }
+        return upstreamCorrelationId;
+    }
+
+    public Correlation getBrokerCorrelation(int upstreamCorrelationId) {
+        return brokerRequests.remove(upstreamCorrelationId);
+    }
+
+    public record Correlation(short apiKey,
+                              short apiVersion,
+                              int downstreamCorrelationId,
+                              boolean decodeResponse,
+                              Filter recipient,
+                              CompletableFuture<?> promise) {}
+}